@@ -2,6 +2,7 @@ package ca.bazlur.smartmock.controller;
 
 import ca.bazlur.smartmock.llm.ContextBlock;
 import ca.bazlur.smartmock.llm.ContextRegistry;
+import ca.bazlur.smartmock.llm.correlation.CorrelationRuleLoader;
 import ca.bazlur.smartmock.llm.external.ExternalBlockLoader;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -25,6 +26,7 @@ import java.util.stream.Collectors;
 public class BlockManagementController {
 
   private final ExternalBlockLoader externalBlockLoader;
+  private final CorrelationRuleLoader correlationRuleLoader;
   private final List<ContextBlock> builtInBlocks;
 
   @Value("${smart-mock.blocks.external.path:${user.home}/.smart-mock/blocks}")
@@ -66,11 +68,13 @@ public class BlockManagementController {
   public ResponseEntity<Map<String, Object>> reloadBlocks() {
     log.info("Reloading external blocks...");
     externalBlockLoader.reloadBlocks();
+    correlationRuleLoader.reloadRules();
 
     Map<String, Object> response = new HashMap<>();
     response.put("status", "success");
     response.put("message", "External blocks reloaded");
     response.put("count", externalBlockLoader.getExternalBlocks().size());
+    response.put("correlationRules", correlationRuleLoader.rules().size());
 
     return ResponseEntity.ok(response);
   }
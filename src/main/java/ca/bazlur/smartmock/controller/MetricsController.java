@@ -0,0 +1,39 @@
+package ca.bazlur.smartmock.controller;
+
+import ca.bazlur.smartmock.entity.EntityCache;
+import ca.bazlur.smartmock.pagination.Paginator;
+import ca.bazlur.smartmock.prefetch.Prefetcher;
+import ca.bazlur.smartmock.processor.ResponseCompressor;
+import ca.bazlur.smartmock.state.ResourceStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Counters of the mock serving path, since process start. */
+@RestController
+@RequestMapping(value = "/api/metrics", produces = MediaType.APPLICATION_JSON_VALUE)
+@RequiredArgsConstructor
+public class MetricsController {
+    private final ResponseCompressor compressor;
+    private final Paginator paginator;
+    private final ResourceStore store;
+    private final EntityCache entities;
+    private final Prefetcher prefetcher;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("compression", compressor.stats());
+        metrics.put("pagination", paginator.stats());
+        metrics.put("state", store.stats());
+        metrics.put("entities", entities.stats());
+        metrics.put("prefetch", prefetcher.stats());
+        return ResponseEntity.ok(metrics);
+    }
+}
@@ -1,44 +1,76 @@
 package ca.bazlur.smartmock.controller;
 
+import ca.bazlur.smartmock.processor.ResponseCompressor;
 import ca.bazlur.smartmock.service.MockService;
+import ca.bazlur.smartmock.service.RequestBodyReader;
 import ca.bazlur.smartmock.model.MockResult;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Enumeration;
+
 @Slf4j
 @RestController
 @RequestMapping("/mock")
 @RequiredArgsConstructor
 public class MockController {
     private final MockService mockService;
+    private final RequestBodyReader bodyReader;
+    private final ResponseCompressor compressor;
 
     @RequestMapping("/**")
-    public ResponseEntity<String> handleMockRequest(
-            HttpServletRequest request,
-            @RequestBody(required = false) String body) {
+    public ResponseEntity<byte[]> handleMockRequest(HttpServletRequest request) {
         
         String path = request.getRequestURI().replace("/mock", "");
         String method = request.getMethod();
         log.debug("Handling mock request: {} {}", method, path);
         
         try {
-            MockResult result = mockService.generate(request, body != null ? body : "");
+            // streamed and summarized; the raw body is never held in memory
+            MockResult result = mockService.generate(request, bodyReader.read(request));
             log.debug("Mock response generated: {}", result);
 
-            ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(result.getStatus());
-            if (result.getHeaders() != null) {
-                result.getHeaders().forEach((key, values) -> 
-                    values.forEach(value -> responseBuilder.header(key, value)));
+            if (notModified(request, result)) {
+                // the tag of the representation a 200 would have carried
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(compressor.eTag(result, request.getHeader(HttpHeaders.ACCEPT_ENCODING)))
+                        .build();
             }
-            
+
             log.debug("Mock response generated with status: {}", result.getStatus());
-            return responseBuilder.body(result.getBody());
+            // ETag, Content-Length and any compressed body were computed with the cached result
+            MockResult.Encoded encoded = compressor.select(result, request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+            return ResponseEntity.status(result.getStatus())
+                    .headers(encoded.headers())
+                    .body(encoded.body());
         } catch (Exception e) {
             log.error("Error generating mock response", e);
             throw e;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * A GET or HEAD whose {@code If-None-Match} lists the ETag of any representation of the
+     * result, compared weakly as RFC 9110 asks.
+     */
+    static boolean notModified(HttpServletRequest request, MockResult result) {
+        if (result.getEtag() == null || result.getStatus() < 200 || result.getStatus() >= 300
+                || !(HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod()))) {
+            return false;
+        }
+        for (Enumeration<String> values = request.getHeaders(HttpHeaders.IF_NONE_MATCH); values.hasMoreElements(); ) {
+            for (String tag : values.nextElement().split(",")) {
+                tag = tag.strip();
+                if (tag.startsWith("W/")) tag = tag.substring(2);
+                if (tag.equals("*") || ResponseCompressor.baseETag(tag).equals(result.getEtag())) return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,7 +1,10 @@
 package ca.bazlur.smartmock.controller;
 
+import ca.bazlur.smartmock.service.SchemaIngestionJob;
+import ca.bazlur.smartmock.service.SchemaIngestionService;
 import ca.bazlur.smartmock.service.SchemaManager;
 import ca.bazlur.smartmock.service.SchemaPersistenceService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.ClassPathResource;
@@ -31,6 +34,7 @@ public class SchemaController {
     
     private final SchemaManager schemaManager;
     private final SchemaPersistenceService persistenceService;
+    private final SchemaIngestionService ingestionService;
     
     @GetMapping
     public ResponseEntity<Collection<SchemaManager.SchemaInfo>> listSchemas() {
@@ -52,9 +56,15 @@ public class SchemaController {
     }
     
     @PostMapping
-    public ResponseEntity<Map<String, String>> uploadSchema(
-            @RequestBody String specContent,
-            @RequestParam(required = false) String name) {
+    public ResponseEntity<?> uploadSchema(
+            HttpServletRequest request,
+            @RequestParam(required = false) String name,
+            @RequestParam(defaultValue = "false") boolean async) {
+        // read here rather than bound by @RequestBody, so max-spec-bytes holds before buffering
+        String specContent = ingestionService.readSpec(request);
+        if (async) {
+            return uploadSchemaAsync(specContent, name);
+        }
         try {
             String id = schemaManager.addSchema(specContent, name);
             Map<String, String> response = new HashMap<>();
@@ -69,10 +79,31 @@ public class SchemaController {
         }
     }
     
+    private ResponseEntity<?> uploadSchemaAsync(String specContent, String name) {
+        try {
+            SchemaIngestionJob job = ingestionService.submit(specContent, name);
+            return ResponseEntity.accepted()
+                .header(HttpHeaders.LOCATION, "/api/schemas/jobs/" + job.getJobId())
+                .body(job);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<SchemaIngestionJob> getIngestionJob(@PathVariable String jobId) {
+        return ingestionService.getJob(jobId)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+    
     @PutMapping("/{id}")
     public ResponseEntity<Map<String, String>> updateSchema(
             @PathVariable String id,
-            @RequestBody String specContent) {
+            HttpServletRequest request) {
+        String specContent = ingestionService.readSpec(request);
         try {
             if (schemaManager.updateSchema(id, specContent)) {
                 Map<String, String> response = new HashMap<>();
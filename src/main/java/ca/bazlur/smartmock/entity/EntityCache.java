@@ -0,0 +1,332 @@
+package ca.bazlur.smartmock.entity;
+
+import ca.bazlur.smartmock.model.Plan;
+import ca.bazlur.smartmock.openapi.OpenApiIndex;
+import ca.bazlur.smartmock.processor.ResponsePostProcessor;
+import ca.bazlur.smartmock.validation.JsonValidator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Entities seen in generated responses, kept per schema by type and id, so that the
+ * endpoints of one API agree on them. A list of users followed by {@code GET /users/{id}}
+ * gets the same user back.
+ * <p>
+ * Every successful response is walked: the resource of an item endpoint, and the items of a
+ * collection endpoint, are of the type named by the path's collection segment ({@code user}
+ * for {@code /users/{id}}); nested objects are of the type named by their property
+ * ({@code customer}, {@code items} → {@code item}). An object is an entity when it has an
+ * {@code id}, {@code <type>Id} or {@code <type>_id} field.
+ * <p>
+ * A detail GET of a known id is answered with the entity when it satisfies the detail
+ * schema. Otherwise the response is generated, and known entities are composed into it:
+ * their scalar fields replace the generated ones, and the path's parameters fill the fields
+ * named after them, so nested lists carry their parent's id. Requests with
+ * {@code X-Mock-Seed} do not take part, since the seed rewrites ids after the fact.
+ */
+@Slf4j
+@Component
+public class EntityCache {
+    public static final String ENTITY_HEADER = "X-Mock-Entity";
+
+    private static final int MAX_DEPTH = 6;
+
+    private final JsonValidator validator;
+    private final boolean enabled;
+    private final int maxEntities;
+    // weak keys: a schema's entities go with its index when it is deleted or replaced
+    private final Cache<OpenApiIndex, Cache<EntityKey, ObjectNode>> entities = Caffeine.newBuilder()
+        .weakKeys()
+        .executor(Runnable::run) // read-mostly; skip hand-offs to the common pool
+        .build();
+
+    private final LongAdder served = new LongAdder();
+    private final LongAdder incomplete = new LongAdder();
+    private final LongAdder composed = new LongAdder();
+    private final LongAdder recorded = new LongAdder();
+
+    public EntityCache(JsonValidator validator,
+                       @Value("${smart-mock.entities.enabled:false}") boolean enabled,
+                       @Value("${smart-mock.entities.max-entities:10000}") int maxEntities) {
+        this.validator = validator;
+        this.enabled = enabled;
+        this.maxEntities = Math.max(1, maxEntities);
+    }
+
+    /** The known entity a detail GET asks for, when it satisfies the plan's schema; else {@code null}. */
+    public JsonNode lookup(OpenApiIndex index, Plan plan, HttpServletRequest request) {
+        Route route = route(plan, request);
+        if (route == null || route.id() == null) {
+            return null;
+        }
+        Cache<EntityKey, ObjectNode> known = entities.getIfPresent(index);
+        ObjectNode entity = known != null ? known.getIfPresent(new EntityKey(route.type(), route.id())) : null;
+        if (entity == null) {
+            return null;
+        }
+        try {
+            validator.validate(entity, plan.getCompiled());
+        } catch (JsonValidator.ValidationException e) {
+            // seen in a summary, say a list; the detail is generated and the entity composed into it
+            incomplete.increment();
+            return null;
+        }
+        served.increment();
+        return entity.deepCopy();
+    }
+
+    /**
+     * Composes the known entities and the path's parameters into a generated response, as
+     * far as the result still satisfies the plan's schema, and records the entities of the
+     * response that is served. Returns that response.
+     */
+    public JsonNode compose(OpenApiIndex index, Plan plan, HttpServletRequest request, JsonNode generated) {
+        Route route = route(plan, request);
+        if (route == null) {
+            return generated;
+        }
+        Cache<EntityKey, ObjectNode> known = entities.get(index, i -> Caffeine.newBuilder()
+            .maximumSize(maxEntities)
+            .<EntityKey, ObjectNode>build());
+
+        JsonNode body = generated;
+        JsonNode candidate = generated.deepCopy();
+        if (new Composer(known, route).root(candidate) > 0) {
+            try {
+                validator.validate(candidate, plan.getCompiled());
+                body = candidate;
+                composed.increment();
+            } catch (JsonValidator.ValidationException e) {
+                log.debug("Known entities do not fit {} {}: {}", plan.getMethod(), plan.getPath(), e.getMessage());
+            }
+        }
+        new Recorder(known, route).root(body);
+        return body;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("entities", entities.asMap().values().stream().mapToLong(Cache::estimatedSize).sum());
+        stats.put("served", served.sum());
+        stats.put("incomplete", incomplete.sum());
+        stats.put("composed", composed.sum());
+        stats.put("recorded", recorded.sum());
+        return stats;
+    }
+
+    /** The entity type and, for an item endpoint, id a request addresses, with its path parameters. */
+    private Route route(Plan plan, HttpServletRequest request) {
+        if (!enabled || plan.getCompiled() == null || plan.getPath() == null || plan.getStatusCode() / 100 != 2
+            || !HttpMethod.GET.matches(plan.getMethod()) && !HttpMethod.POST.matches(plan.getMethod())
+            || request.getHeader(ResponsePostProcessor.SEED_HEADER) != null) {
+            return null;
+        }
+        String[] names = plan.getPath().split("/");
+        String[] values = plan.getRequest().path().split("/");
+        Map<String, String> parameters = new LinkedHashMap<>();
+        // aligned from the end, since the request path may carry a /mock or schema prefix
+        for (int i = names.length - 1, j = values.length - 1; i >= 0 && j >= 0; i--, j--) {
+            if (isParameter(names[i])) {
+                parameters.put(names[i].substring(1, names[i].length() - 1),
+                    URLDecoder.decode(values[j], StandardCharsets.UTF_8));
+            }
+        }
+        int last = names.length - 1;
+        boolean item = last > 0 && isParameter(names[last]);
+        String collection = item ? names[last - 1] : last >= 0 ? names[last] : "";
+        if (collection.isEmpty() || isParameter(collection)) {
+            return null;
+        }
+        String id = item && HttpMethod.GET.matches(plan.getMethod())
+            ? parameters.get(names[last].substring(1, names[last].length() - 1)) : null;
+        return new Route(singular(collection), item, id, parameters);
+    }
+
+    private static boolean isParameter(String segment) {
+        return segment.length() > 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}';
+    }
+
+    static String singular(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        if (lower.endsWith("ies") && lower.length() > 3) return lower.substring(0, lower.length() - 3) + "y";
+        if (lower.matches(".*(ss|x|z|ch|sh)es")) return lower.substring(0, lower.length() - 2);
+        if (lower.endsWith("s") && !lower.endsWith("ss")) return lower.substring(0, lower.length() - 1);
+        return lower;
+    }
+
+    // id, <type>Id or <type>_id, matched without case
+    private static String idField(ObjectNode object, String type) {
+        for (Map.Entry<String, JsonNode> field : object.properties()) {
+            String name = field.getKey().toLowerCase(Locale.ROOT);
+            if ((name.equals("id") || name.equals(type + "id") || name.equals(type + "_id"))
+                && field.getValue().isValueNode() && !field.getValue().isNull()) {
+                return field.getKey();
+            }
+        }
+        return null;
+    }
+
+    private static EntityKey key(ObjectNode object, String type) {
+        String field = type != null ? idField(object, type) : null;
+        return field != null ? new EntityKey(type, object.get(field).asText()) : null;
+    }
+
+    // the type of the value of a property: its name, singular
+    private static String typeOf(String property) {
+        return singular(property);
+    }
+
+    private record Route(String type, boolean item, String id, Map<String, String> parameters) {
+    }
+
+    private record EntityKey(String type, String id) {
+    }
+
+    /** Walks a response the way it is typed: the endpoint's resources at the top, property types below. */
+    private abstract static class Walker {
+        final Route route;
+
+        Walker(Route route) {
+            this.route = route;
+        }
+
+        int root(JsonNode body) {
+            if (route.item() || body.isArray()) {
+                return visit(body, route.type(), true, 0);
+            }
+            // a collection envelope: its arrays hold the endpoint's resources
+            int count = 0;
+            if (body instanceof ObjectNode envelope) {
+                for (Map.Entry<String, JsonNode> field : envelope.properties()) {
+                    boolean items = field.getValue().isArray();
+                    count += visit(field.getValue(), items ? route.type() : typeOf(field.getKey()), items, 1);
+                }
+            }
+            return count;
+        }
+
+        private int visit(JsonNode node, String type, boolean resource, int depth) {
+            if (depth > MAX_DEPTH) {
+                return 0;
+            }
+            int count = 0;
+            if (node instanceof ObjectNode object) {
+                count += entity(object, type, resource);
+                for (Map.Entry<String, JsonNode> field : object.properties()) {
+                    if (field.getValue().isContainerNode()) {
+                        count += visit(field.getValue(), typeOf(field.getKey()), false, depth + 1);
+                    }
+                }
+            } else if (node.isArray()) {
+                for (JsonNode element : node) {
+                    count += visit(element, type, resource, depth + 1);
+                }
+            }
+            return count;
+        }
+
+        /** Handles one object of the given type; {@code resource} when it is what the endpoint serves. */
+        abstract int entity(ObjectNode object, String type, boolean resource);
+    }
+
+    /** Puts known values and the path's parameters into a copy of the response. */
+    private static final class Composer extends Walker {
+        private final Cache<EntityKey, ObjectNode> known;
+
+        Composer(Cache<EntityKey, ObjectNode> known, Route route) {
+            super(route);
+            this.known = known;
+        }
+
+        @Override
+        int entity(ObjectNode object, String type, boolean resource) {
+            int changes = 0;
+            if (resource) {
+                for (Map.Entry<String, String> parameter : route.parameters().entrySet()) {
+                    changes += set(object, parameter.getKey(), parameter.getValue());
+                }
+                if (route.id() != null) {
+                    String field = idField(object, type);
+                    if (field != null) changes += set(object, field, route.id());
+                }
+            }
+            EntityKey key = key(object, type);
+            ObjectNode entity = key != null ? known.getIfPresent(key) : null;
+            if (entity != null) {
+                for (Map.Entry<String, JsonNode> field : entity.properties()) {
+                    JsonNode current = object.get(field.getKey());
+                    JsonNode value = field.getValue();
+                    if (current != null && value.isValueNode() && current.getNodeType() == value.getNodeType()
+                        && !current.equals(value)) {
+                        object.set(field.getKey(), value.deepCopy());
+                        changes++;
+                    }
+                }
+            }
+            return changes;
+        }
+
+        // a field named like the parameter takes its value, keeping the field's JSON type
+        private static int set(ObjectNode object, String name, String value) {
+            JsonNode current = object.get(name);
+            if (current == null || !current.isValueNode() || current.asText().equals(value)) {
+                return 0;
+            }
+            if (current.isIntegralNumber()) {
+                try {
+                    object.put(name, Long.parseLong(value));
+                    return 1;
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+            if (current.isTextual()) {
+                object.put(name, value);
+                return 1;
+            }
+            return 0;
+        }
+    }
+
+    /** Keeps the entities of a served response; fields already known keep their values. */
+    private final class Recorder extends Walker {
+        private final Cache<EntityKey, ObjectNode> known;
+
+        Recorder(Cache<EntityKey, ObjectNode> known, Route route) {
+            super(route);
+            this.known = known;
+        }
+
+        @Override
+        int entity(ObjectNode object, String type, boolean resource) {
+            EntityKey key = key(object, type);
+            if (key == null) {
+                return 0;
+            }
+            known.asMap().merge(key, object.deepCopy(), (existing, seen) -> {
+                ObjectNode merged = existing.deepCopy();
+                seen.properties().forEach(field -> {
+                    if (!merged.has(field.getKey())) merged.set(field.getKey(), field.getValue());
+                });
+                return merged.size() == existing.size() ? existing : merged;
+            });
+            recorded.increment();
+            return 1;
+        }
+    }
+}
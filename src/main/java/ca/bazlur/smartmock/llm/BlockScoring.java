@@ -0,0 +1,234 @@
+package ca.bazlur.smartmock.llm;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Scoring rules a {@link ContextBlock} declares up front. The score is the base score plus the
+ * weight of every rule that fires, clamped to [0, 1]; each rule fires at most once.
+ * <p>
+ * Rules are evaluated against {@link EndpointFeatures}, so matching is case-insensitive and
+ * costs set lookups rather than regex work. Terms may end in {@code ?} to make their last
+ * character optional, as in a regex: {@code "users?"} stands for "user" and "users".
+ */
+@Slf4j
+public final class BlockScoring {
+
+  public enum Target { PATH, OPERATION, SCHEMA }
+
+  enum Kind {
+    /** some term is a whole word (a run of {@code [a-z0-9_]}) of the target */
+    WORD,
+    /** some term occurs anywhere in the target */
+    SUBSTRING,
+    /** every term occurs somewhere in the target */
+    ALL_SUBSTRINGS,
+    /** the pattern is found in the lower-cased target; for patterns that are not plain alternations */
+    REGEX
+  }
+
+  record Rule(Target target, Kind kind, List<String> terms, Pattern regex, double weight) {
+  }
+
+  private static final Pattern PLAIN_TERM = Pattern.compile("[A-Za-z0-9_]+\\??");
+
+  private final double baseScore;
+  private final List<Rule> rules;
+
+  private BlockScoring(double baseScore, List<Rule> rules) {
+    this.baseScore = baseScore;
+    this.rules = List.copyOf(rules);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** Convenience for callers without a registry; builds the features of {@code info} on the spot. */
+  public double score(EndpointInfo info) {
+    return score(EndpointFeatures.of(info));
+  }
+
+  public double score(EndpointFeatures features) {
+    double score = baseScore;
+    for (Rule rule : rules) {
+      if (fires(rule, features)) {
+        score += rule.weight();
+      }
+    }
+    return Math.min(1.0, Math.max(0.0, score));
+  }
+
+  /**
+   * Fragments for the registry's keyword index (see {@link ContextBlock#keywords()}); empty when
+   * the block can score without any term occurring, i.e. it has a base score or a regex rule.
+   */
+  public Set<String> keywords() {
+    if (baseScore > 0) return Set.of();
+    Set<String> keywords = new LinkedHashSet<>();
+    for (Rule rule : rules) {
+      if (rule.weight() <= 0) continue;
+      switch (rule.kind()) {
+        case REGEX -> {
+          return Set.of();
+        }
+        case ALL_SUBSTRINGS -> keywords.add(rule.terms().get(0));
+        default -> keywords.addAll(rule.terms());
+      }
+    }
+    return keywords;
+  }
+
+  /** Terms that must be looked up as substrings; the registry indexes them all. */
+  Set<String> substringTerms() {
+    Set<String> terms = new LinkedHashSet<>();
+    for (Rule rule : rules) {
+      if (rule.kind() == Kind.SUBSTRING || rule.kind() == Kind.ALL_SUBSTRINGS) {
+        terms.addAll(rule.terms());
+      }
+    }
+    return terms;
+  }
+
+  private static boolean fires(Rule rule, EndpointFeatures features) {
+    return switch (rule.kind()) {
+      case WORD -> {
+        for (String term : rule.terms()) {
+          if (features.hasWord(rule.target(), term)) yield true;
+        }
+        yield false;
+      }
+      case SUBSTRING -> {
+        for (String term : rule.terms()) {
+          if (features.contains(rule.target(), term)) yield true;
+        }
+        yield false;
+      }
+      case ALL_SUBSTRINGS -> {
+        for (String term : rule.terms()) {
+          if (!features.contains(rule.target(), term)) yield false;
+        }
+        yield true;
+      }
+      case REGEX -> rule.regex().matcher(features.text(rule.target())).find();
+    };
+  }
+
+  public static final class Builder {
+    private double baseScore;
+    private final List<Rule> rules = new ArrayList<>();
+
+    private Builder() {
+    }
+
+    public Builder baseScore(double baseScore) {
+      this.baseScore = baseScore;
+      return this;
+    }
+
+    /** Fires when one of the terms is a whole word of the target, like {@code \b(term|...)\b}. */
+    public Builder word(Target target, double weight, String... terms) {
+      List<String> words = new ArrayList<>();
+      for (String term : terms) {
+        String t = checkTerm(term);
+        if (t.endsWith("?")) {
+          words.add(t.substring(0, t.length() - 2));
+          words.add(t.substring(0, t.length() - 1));
+        } else {
+          words.add(t);
+        }
+      }
+      rules.add(new Rule(target, Kind.WORD, List.copyOf(new LinkedHashSet<>(words)), null, weight));
+      return this;
+    }
+
+    /** Fires when one of the terms occurs anywhere in the target, like {@code (term|...)}. */
+    public Builder substring(Target target, double weight, String... terms) {
+      Set<String> stems = new LinkedHashSet<>();
+      for (String term : terms) {
+        String t = checkTerm(term);
+        // "items?" occurs wherever "item" does
+        stems.add(t.endsWith("?") ? t.substring(0, t.length() - 2) : t);
+      }
+      rules.add(new Rule(target, Kind.SUBSTRING, List.copyOf(stems), null, weight));
+      return this;
+    }
+
+    /** Fires when every literal occurs somewhere in the target. */
+    public Builder allSubstrings(Target target, double weight, String... literals) {
+      List<String> terms = new ArrayList<>();
+      for (String literal : literals) {
+        if (literal == null || literal.isEmpty()) {
+          throw new IllegalArgumentException("literals must not be empty");
+        }
+        terms.add(literal.toLowerCase(Locale.ROOT));
+      }
+      rules.add(new Rule(target, Kind.ALL_SUBSTRINGS, List.copyOf(terms), null, weight));
+      return this;
+    }
+
+    /**
+     * Case-insensitive regex found anywhere in the target. Plain alternations, optionally
+     * wrapped in a group and in {@code \b} on both sides, become {@link #word} or
+     * {@link #substring} rules; anything else is compiled once and kept as a regex. A pattern
+     * that does not compile never fires.
+     */
+    public Builder pattern(Target target, double weight, String regex) {
+      if (regex == null) return this;
+      String[] terms = plainAlternation(regex);
+      if (terms != null && regex.startsWith("\\b")) {
+        return word(target, weight, terms);
+      }
+      if (terms != null) {
+        return substring(target, weight, terms);
+      }
+      try {
+        rules.add(new Rule(target, Kind.REGEX, List.of(), Pattern.compile(regex, Pattern.CASE_INSENSITIVE), weight));
+      } catch (PatternSyntaxException e) {
+        log.debug("Ignoring scoring pattern that does not compile: {}", regex, e);
+      }
+      return this;
+    }
+
+    public BlockScoring build() {
+      return new BlockScoring(baseScore, rules);
+    }
+
+    /** Alternatives of "a|b?", "(a|b)", "(?:a|b)" or "\b(a|b)\b"; null for any other shape. */
+    private static String[] plainAlternation(String regex) {
+      String s = regex;
+      boolean left = s.startsWith("\\b");
+      boolean right = s.endsWith("\\b") && s.length() >= 4;
+      if (left != right) return null;
+      if (left) {
+        s = s.substring(2, s.length() - 2);
+        // "\ba|b\b" binds each \b to one alternative only; it stays a regex
+        if (!s.startsWith("(") || !s.endsWith(")")) return null;
+      }
+      if (s.startsWith("(?:") && s.endsWith(")")) {
+        s = s.substring(3, s.length() - 1);
+      } else if (s.startsWith("(") && s.endsWith(")")) {
+        s = s.substring(1, s.length() - 1);
+      }
+      String[] terms = s.split("\\|", -1);
+      for (String term : terms) {
+        if (!PLAIN_TERM.matcher(term).matches()) return null;
+      }
+      return terms;
+    }
+
+    private static String checkTerm(String term) {
+      if (term == null || term.isEmpty() || term.equals("?")) {
+        throw new IllegalArgumentException("terms must not be empty");
+      }
+      return term.toLowerCase(Locale.ROOT);
+    }
+  }
+}
@@ -1,7 +1,38 @@
 package ca.bazlur.smartmock.llm;
 
+import java.util.Set;
+
 public interface ContextBlock {
   String id();
-  double score(EndpointInfo info);
+
+  /**
+   * Scoring rules declared up front. The registry evaluates the rules of all blocks against
+   * one {@link EndpointFeatures} per endpoint; blocks without rules are scored through
+   * {@link #score(EndpointInfo)}.
+   */
+  default BlockScoring scoring() {
+    return null;
+  }
+
+  default double score(EndpointInfo info) {
+    BlockScoring scoring = scoring();
+    return scoring != null ? scoring.score(info) : 0.0;
+  }
+
+  /**
+   * Rendered guidance for the endpoint. Must depend on nothing but {@link EndpointInfo#path()}
+   * and {@link EndpointInfo#method()}: the registry caches the output per (block, path, method).
+   */
   String render(EndpointInfo info);
-}
\ No newline at end of file
+
+  /**
+   * Lower-case fragments, at least one of which occurs in the lower-cased path, operation id
+   * or schema whenever {@link #score} is above zero. The registry indexes them to skip blocks
+   * that cannot apply; an empty set means the block is scored for every endpoint. Derived
+   * from {@link #scoring()} when the block declares rules.
+   */
+  default Set<String> keywords() {
+    BlockScoring scoring = scoring();
+    return scoring != null ? scoring.keywords() : Set.of();
+  }
+}
@@ -1,65 +1,164 @@
 package ca.bazlur.smartmock.llm;
 
 import ca.bazlur.smartmock.llm.external.ExternalBlockLoader;
+import ca.bazlur.smartmock.util.KeywordMatcher;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * Selects the context blocks for an endpoint. The blocks, their index and their rendering
+ * cache form one immutable snapshot; when the external blocks change a new snapshot is built
+ * and published with a single volatile write, so selection never locks and never sees a mix
+ * of old and new blocks.
+ */
 @Slf4j
 @Component
 public class ContextRegistry {
 
-  private final List<ContextBlock> allBlocks;
-  
+  /** A selected block together with its rendering for the endpoint it was selected for. */
+  public record RenderedBlock(ContextBlock block, String text) {
+  }
+
+  private final List<ContextBlock> builtInBlocks;
+  private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+  private volatile Blocks blocks;
+
   public ContextRegistry(List<ContextBlock> builtInBlocks, ExternalBlockLoader externalLoader) {
-    this.allBlocks = new ArrayList<>();
-    this.allBlocks.addAll(builtInBlocks);
+    this.builtInBlocks = List.copyOf(builtInBlocks);
+    List<ContextBlock> external = externalLoader != null ? externalLoader.getExternalBlocks() : List.of();
+    this.blocks = new Blocks(this.builtInBlocks, external, 0);
     if (externalLoader != null) {
-      this.allBlocks.addAll(externalLoader.getExternalBlocks());
+      externalLoader.addListener(this::replaceExternalBlocks);
+      if (externalLoader.getExternalBlocks() != external) {
+        // published while this registry was being built
+        replaceExternalBlocks(externalLoader.getExternalBlocks());
+      }
+    }
+    log.info("ContextRegistry initialized with {} total blocks ({} built-in, {} external), {} indexed keywords",
+             blocks.all.size(),
+             builtInBlocks.size(),
+             external.size(),
+             blocks.blocksByKeyword.length);
+  }
+
+  /**
+   * Publishes a new block set made of the built-in blocks and {@code external}, then runs the
+   * listeners. Selections already running finish against the previous set.
+   */
+  public synchronized void replaceExternalBlocks(List<ContextBlock> external) {
+    blocks = new Blocks(builtInBlocks, List.copyOf(external), blocks.generation + 1);
+    log.info("ContextRegistry now has {} blocks ({} external), generation {}",
+             blocks.all.size(), external.size(), blocks.generation);
+    for (Runnable listener : listeners) {
+      try {
+        listener.run();
+      } catch (Exception e) {
+        log.error("Context block listener failed", e);
+      }
     }
-    log.info("ContextRegistry initialized with {} total blocks ({} built-in, {} external)", 
-             allBlocks.size(), 
-             builtInBlocks.size(), 
-             externalLoader != null ? externalLoader.getExternalBlocks().size() : 0);
+  }
+
+  /** Incremented with every published block set; selections remember it to detect staleness. */
+  public long generation() {
+    return blocks.generation;
+  }
+
+  /** Runs after each new block set is published, on the publishing thread. */
+  public void addListener(Runnable listener) {
+    listeners.add(listener);
   }
 
   public List<ContextBlock> select(EndpointInfo info, int maxBlocks, double minScore, int budgetChars) {
-    var ranked = allBlocks.stream()
-        .map(b -> new Scored<>(b, safeScore(b, info)))
-        .filter(s -> s.score >= minScore)
-        .sorted(Comparator.comparingDouble((Scored<ContextBlock> s) -> s.score).reversed())
+    return selectRendered(info, maxBlocks, minScore, budgetChars).stream()
+        .map(RenderedBlock::block)
         .toList();
+  }
+
+  /**
+   * Same choice as {@link #select}, with each block's rendering for {@code info}; the text is the
+   * one measured against the budget, so callers need not render the blocks again.
+   */
+  public List<RenderedBlock> selectRendered(EndpointInfo info, int maxBlocks, double minScore, int budgetChars) {
+    Blocks blocks = this.blocks;
+    EndpointFeatures features = EndpointFeatures.of(info, blocks.keywordIndex, blocks.indexTerms, blocks.indexedTerms);
+    // a block none of whose keywords occur scores zero, which only counts when minScore allows it
+    BitSet candidates = minScore > 0 ? blocks.candidates(features) : blocks.allIndices();
 
-    String picks = ranked.stream().limit(5)
-        .map(s -> s.value.id() + ":" + String.format("%.2f", s.score)).reduce((a, b) -> a + ", " + b).orElse("-");
-    log.debug("ContextRegistry candidates: {}", picks);
+    var ranked = new ArrayList<Scored<ContextBlock>>();
+    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+      ContextBlock b = blocks.all.get(i);
+      BlockScoring scoring = blocks.scorings[i];
+      double score = scoring != null ? safeScore(scoring, features) : safeScore(b, info);
+      if (score >= minScore) {
+        ranked.add(new Scored<>(b, score));
+      }
+    }
+    ranked.sort(Comparator.comparingDouble((Scored<ContextBlock> s) -> s.score).reversed());
+
+    if (log.isDebugEnabled()) {
+      String picks = ranked.stream().limit(5)
+          .map(s -> s.value.id() + ":" + String.format("%.2f", s.score)).reduce((a, b) -> a + ", " + b).orElse("-");
+      log.debug("ContextRegistry candidates: {} (scored {} of {})", picks, candidates.cardinality(), blocks.all.size());
+    }
 
-    StringBuilder budgetProbe = new StringBuilder();
-    var chosen = new java.util.ArrayList<ContextBlock>();
+    var chosen = new ArrayList<RenderedBlock>();
     int remaining = Math.max(500, budgetChars);
 
     for (Scored<ContextBlock> s : ranked) {
-      String sample = s.value.render(info);
-      int len = sample.length();
+      String text = blocks.render(s.value, info);
+      int len = text.length();
       if (len <= remaining) {
-        chosen.add(s.value);
+        chosen.add(new RenderedBlock(s.value, text));
         remaining -= len;
       }
       if (chosen.size() >= maxBlocks) break;
     }
 
-    if (chosen.isEmpty()) {
-      allBlocks.stream()
-          .filter(b -> b.id().startsWith("generic.structured"))
-          .findFirst()
-          .ifPresent(chosen::add);
+    if (chosen.isEmpty() && blocks.fallback != null) {
+      chosen.add(new RenderedBlock(blocks.fallback, blocks.render(blocks.fallback, info)));
     }
     return chosen;
   }
 
+  private static Set<String> safeKeywords(ContextBlock b) {
+    try {
+      var keywords = b.keywords();
+      return keywords != null ? keywords : Set.of();
+    } catch (Exception e) {
+      log.debug("Block {} did not provide keywords; scoring it for every endpoint", b.id(), e);
+      return Set.of();
+    }
+  }
+
+  private static BlockScoring safeScoring(ContextBlock b) {
+    try {
+      return b.scoring();
+    } catch (Exception e) {
+      log.debug("Block {} did not provide scoring rules; using score()", b.id(), e);
+      return null;
+    }
+  }
+
+  private static double safeScore(BlockScoring scoring, EndpointFeatures features) {
+    try {
+      return scoring.score(features);
+    } catch (Exception e) {
+      return 0.0;
+    }
+  }
+
   private static double safeScore(ContextBlock b, EndpointInfo info) {
     try {
       double s = b.score(info);
@@ -70,6 +169,86 @@ public class ContextRegistry {
     }
   }
 
+  /** One published block set with everything derived from it. Never modified after construction. */
+  private static final class Blocks {
+    final long generation;
+    final List<ContextBlock> all;
+    final ContextBlock fallback;
+    final BlockScoring[] scorings;
+
+    // inverted index: keyword (by position in the matcher) -> indices into all
+    final KeywordMatcher keywordIndex;
+    final List<String> indexTerms;
+    final Set<String> indexedTerms;
+    final int[][] blocksByKeyword;
+    final BitSet alwaysScored = new BitSet();
+
+    // renderings belong to this block set and go away with it
+    final Cache<RenderKey, String> renderCache = Caffeine.newBuilder()
+        .maximumSize(10_000)
+        .executor(Runnable::run)
+        .build();
+
+    Blocks(List<ContextBlock> builtIn, List<ContextBlock> external, long generation) {
+      this.generation = generation;
+      List<ContextBlock> all = new ArrayList<>(builtIn);
+      all.addAll(external);
+      this.all = List.copyOf(all);
+      this.fallback = this.all.stream()
+          .filter(b -> b.id().startsWith("generic.structured"))
+          .findFirst()
+          .orElse(null);
+      this.scorings = this.all.stream().map(ContextRegistry::safeScoring).toArray(BlockScoring[]::new);
+
+      // every substring term is indexed so scoring reads it from the one scan; only keywords map to blocks
+      Map<String, List<Integer>> index = new LinkedHashMap<>();
+      for (int i = 0; i < this.all.size(); i++) {
+        if (scorings[i] != null) {
+          scorings[i].substringTerms().forEach(term -> index.computeIfAbsent(term, k -> new ArrayList<>()));
+        }
+        var keywords = safeKeywords(this.all.get(i));
+        if (keywords.isEmpty()) {
+          alwaysScored.set(i);
+          continue;
+        }
+        for (String keyword : keywords) {
+          index.computeIfAbsent(keyword.toLowerCase(Locale.ROOT), k -> new ArrayList<>()).add(i);
+        }
+      }
+      var builder = KeywordMatcher.builder().ignoreCase();
+      index.keySet().forEach(keyword -> builder.add(0, keyword));
+      this.keywordIndex = builder.build();
+      this.indexTerms = List.copyOf(index.keySet());
+      this.indexedTerms = Set.copyOf(index.keySet());
+      this.blocksByKeyword = index.values().stream()
+          .map(blocks -> blocks.stream().mapToInt(Integer::intValue).toArray())
+          .toArray(int[][]::new);
+    }
+
+    BitSet candidates(EndpointFeatures features) {
+      BitSet candidates = (BitSet) alwaysScored.clone();
+      BitSet hits = features.matchedTerms();
+      for (int k = hits.nextSetBit(0); k >= 0; k = hits.nextSetBit(k + 1)) {
+        for (int block : blocksByKeyword[k]) candidates.set(block);
+      }
+      return candidates;
+    }
+
+    BitSet allIndices() {
+      BitSet indices = new BitSet(all.size());
+      indices.set(0, all.size());
+      return indices;
+    }
+
+    String render(ContextBlock block, EndpointInfo info) {
+      return renderCache.get(new RenderKey(block, info.path(), info.method()), key -> block.render(info));
+    }
+  }
+
   private record Scored<T>(T value, double score) {
   }
+
+  // render output depends on path and method only, see ContextBlock#render
+  private record RenderKey(ContextBlock block, String path, String method) {
+  }
 }
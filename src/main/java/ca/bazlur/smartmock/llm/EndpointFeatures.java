@@ -0,0 +1,110 @@
+package ca.bazlur.smartmock.llm;
+
+import ca.bazlur.smartmock.llm.BlockScoring.Target;
+import ca.bazlur.smartmock.util.KeywordMatcher;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * What block scoring looks at, computed once per endpoint: the lower-cased path, operation id
+ * and schema, their words (runs of {@code [a-z0-9_]}, i.e. what {@code \b...\b} delimits) and,
+ * when built by the registry, which indexed terms occur in each of them.
+ */
+public final class EndpointFeatures {
+  private static final Target[] TARGETS = Target.values();
+
+  private final String[] texts = new String[TARGETS.length];
+  private final Set<String>[] words;
+  private final Set<String>[] indexedHits;
+  private final Set<String> indexed;
+  private final BitSet matchedTerms;
+
+  @SuppressWarnings("unchecked")
+  private EndpointFeatures(EndpointInfo info, KeywordMatcher index, List<String> indexTerms, Set<String> indexed) {
+    texts[Target.PATH.ordinal()] = lower(info.path());
+    texts[Target.OPERATION.ordinal()] = lower(info.operationId());
+    texts[Target.SCHEMA.ordinal()] = lower(info.jsonSchemaMinified());
+    this.words = new Set[TARGETS.length];
+    for (Target t : TARGETS) {
+      words[t.ordinal()] = words(texts[t.ordinal()]);
+    }
+    this.indexed = indexed;
+    if (index == null) {
+      this.indexedHits = null;
+      this.matchedTerms = new BitSet();
+      return;
+    }
+    this.indexedHits = new Set[TARGETS.length];
+    this.matchedTerms = new BitSet(indexTerms.size());
+    for (Target t : TARGETS) {
+      BitSet hits = index.matchedKeywords(texts[t.ordinal()]);
+      Set<String> terms = new HashSet<>();
+      for (int k = hits.nextSetBit(0); k >= 0; k = hits.nextSetBit(k + 1)) {
+        terms.add(indexTerms.get(k));
+      }
+      indexedHits[t.ordinal()] = terms;
+      matchedTerms.or(hits);
+    }
+  }
+
+  public static EndpointFeatures of(EndpointInfo info) {
+    return new EndpointFeatures(info, null, null, Set.of());
+  }
+
+  /**
+   * Features whose substring lookups for {@code indexTerms} come from a single scan per target
+   * with {@code index}, whose keywords must be {@code indexTerms} in order.
+   */
+  static EndpointFeatures of(EndpointInfo info, KeywordMatcher index, List<String> indexTerms, Set<String> indexed) {
+    return new EndpointFeatures(info, index, indexTerms, indexed);
+  }
+
+  public String text(Target target) {
+    return texts[target.ordinal()];
+  }
+
+  /** Whether {@code word} (lower-case) is a whole word of the target. */
+  public boolean hasWord(Target target, String word) {
+    return words[target.ordinal()].contains(word);
+  }
+
+  /** Whether {@code term} (lower-case) occurs anywhere in the target. */
+  public boolean contains(Target target, String term) {
+    if (indexedHits != null && indexed.contains(term)) {
+      return indexedHits[target.ordinal()].contains(term);
+    }
+    return texts[target.ordinal()].contains(term);
+  }
+
+  /** Indices of the index terms found in any target. */
+  BitSet matchedTerms() {
+    return matchedTerms;
+  }
+
+  private static String lower(String s) {
+    return s == null ? "" : s.toLowerCase(Locale.ROOT);
+  }
+
+  private static Set<String> words(String text) {
+    Set<String> words = new HashSet<>();
+    int start = -1;
+    for (int i = 0, n = text.length(); i <= n; i++) {
+      boolean word = i < n && isWordChar(text.charAt(i));
+      if (word && start < 0) {
+        start = i;
+      } else if (!word && start >= 0) {
+        words.add(text.substring(start, i));
+        start = -1;
+      }
+    }
+    return words;
+  }
+
+  private static boolean isWordChar(char c) {
+    return c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '_' || c >= 'A' && c <= 'Z';
+  }
+}
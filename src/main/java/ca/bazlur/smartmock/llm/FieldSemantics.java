@@ -1,13 +1,15 @@
 package ca.bazlur.smartmock.llm;
 
+import ca.bazlur.smartmock.util.KeywordMatcher;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
-import java.util.regex.Pattern;
 
 @Slf4j
 @Component
@@ -16,23 +18,58 @@ public class FieldSemantics {
     
     private final ObjectMapper objectMapper;
     
-    private static final Pattern ID_PATTERN = Pattern.compile(".*(_id|id|Id|ID|identifier|uuid|guid)$");
-    private static final Pattern EMAIL_PATTERN = Pattern.compile(".*(email|Email|mail|Mail).*");
-    private static final Pattern PHONE_PATTERN = Pattern.compile(".*(phone|Phone|mobile|Mobile|tel|Tel|contact).*");
-    private static final Pattern NAME_PATTERN = Pattern.compile(".*(name|Name|title|Title|label|Label).*");
-    private static final Pattern DATE_PATTERN = Pattern.compile(".*(date|Date|time|Time|At|at|created|updated|modified|birth|dob).*");
-    private static final Pattern PRICE_PATTERN = Pattern.compile(".*(price|Price|cost|Cost|amount|Amount|fee|Fee|total|Total|payment|salary).*");
-    private static final Pattern ADDRESS_PATTERN = Pattern.compile(".*(address|Address|street|Street|city|City|state|zip|postal).*");
-    private static final Pattern URL_PATTERN = Pattern.compile(".*(url|Url|URL|link|Link|href|website|Website|uri|Uri).*");
-    private static final Pattern DESCRIPTION_PATTERN = Pattern.compile(".*(description|Description|desc|Desc|summary|Summary|about|bio|details).*");
-    private static final Pattern STATUS_PATTERN = Pattern.compile(".*(status|Status|state|State|phase|stage).*");
-    private static final Pattern BOOLEAN_PATTERN = Pattern.compile(".*(is|Is|has|Has|can|Can|should|Should|enabled|Enabled|active|Active|verified).*");
-    private static final Pattern COUNT_PATTERN = Pattern.compile(".*(count|Count|quantity|Quantity|number|Number|total|Total|size|Size|length).*");
-    private static final Pattern PERCENTAGE_PATTERN = Pattern.compile(".*(percent|Percent|rate|Rate|ratio|discount|tax).*");
-    private static final Pattern CURRENCY_PATTERN = Pattern.compile(".*(currency|Currency|curr).*");
-    private static final Pattern COUNTRY_PATTERN = Pattern.compile(".*(country|Country|nation).*");
-    private static final Pattern IMAGE_PATTERN = Pattern.compile(".*(image|Image|photo|Photo|picture|Picture|avatar|logo|icon|thumbnail).*");
-    
+    // Keyword cues, matched case-sensitively as substrings of the field name (IDENTIFIER
+    // only as a suffix). All of them are found in one scan of the name.
+    private static final int ID = 0;
+    private static final int EMAIL = 1;
+    private static final int PHONE = 2;
+    private static final int NAME = 3;
+    private static final int DATE = 4;
+    private static final int PRICE = 5;
+    private static final int ADDRESS = 6;
+    private static final int URL = 7;
+    private static final int DESCRIPTION = 8;
+    private static final int STATUS = 9;
+    private static final int BOOLEAN = 10;
+    private static final int COUNT = 11;
+    private static final int PERCENTAGE = 12;
+    private static final int CURRENCY = 13;
+    private static final int COUNTRY = 14;
+    private static final int IMAGE = 15;
+
+    private static final KeywordMatcher CUES = KeywordMatcher.builder()
+        .add(ID, "_id", "id", "Id", "ID", "identifier", "uuid", "guid")
+        .add(EMAIL, "email", "Email", "mail", "Mail")
+        .add(PHONE, "phone", "Phone", "mobile", "Mobile", "tel", "Tel", "contact")
+        .add(NAME, "name", "Name", "title", "Title", "label", "Label")
+        .add(DATE, "date", "Date", "time", "Time", "At", "at", "created", "updated", "modified", "birth", "dob")
+        .add(PRICE, "price", "Price", "cost", "Cost", "amount", "Amount", "fee", "Fee", "total", "Total", "payment", "salary")
+        .add(ADDRESS, "address", "Address", "street", "Street", "city", "City", "state", "zip", "postal")
+        .add(URL, "url", "Url", "URL", "link", "Link", "href", "website", "Website", "uri", "Uri")
+        .add(DESCRIPTION, "description", "Description", "desc", "Desc", "summary", "Summary", "about", "bio", "details")
+        .add(STATUS, "status", "Status", "state", "State", "phase", "stage")
+        .add(BOOLEAN, "is", "Is", "has", "Has", "can", "Can", "should", "Should", "enabled", "Enabled", "active", "Active", "verified")
+        .add(COUNT, "count", "Count", "quantity", "Quantity", "number", "Number", "total", "Total", "size", "Size", "length")
+        .add(PERCENTAGE, "percent", "Percent", "rate", "Rate", "ratio", "discount", "tax")
+        .add(CURRENCY, "currency", "Currency", "curr")
+        .add(COUNTRY, "country", "Country", "nation")
+        .add(IMAGE, "image", "Image", "photo", "Photo", "picture", "Picture", "avatar", "logo", "icon", "thumbnail")
+        .build();
+
+    // only consulted for name-like fields
+    private static final int PRODUCT = 0;
+    private static final int PERSON = 1;
+    private static final KeywordMatcher NAME_KINDS = KeywordMatcher.builder()
+        .ignoreCase()
+        .add(PRODUCT, "product", "item")
+        .add(PERSON, "user", "person", "customer")
+        .build();
+
+    // schema digest -> rendered guidance
+    private final Cache<String, String> guidanceByDigest = Caffeine.newBuilder()
+        .maximumSize(2000)
+        .build();
+
     public enum FieldType {
         IDENTIFIER,
         EMAIL,
@@ -57,10 +94,25 @@ public class FieldSemantics {
     }
 
     public String analyzeSchema(String jsonSchema) {
+        return analyzeSchema(jsonSchema, null);
+    }
+
+    /**
+     * Same as {@link #analyzeSchema(String)}, memoized by {@code digest}: callers that
+     * already hold a digest of the schema (compiled plans do) pay for the analysis once
+     * per distinct schema.
+     */
+    public String analyzeSchema(String jsonSchema, String digest) {
         if (jsonSchema == null || jsonSchema.isBlank()) {
             return "";
         }
-        
+        if (digest == null) {
+            return analyze(jsonSchema);
+        }
+        return guidanceByDigest.get(digest, d -> analyze(jsonSchema));
+    }
+
+    private String analyze(String jsonSchema) {
         try {
             JsonNode schemaNode = objectMapper.readTree(jsonSchema);
             Map<String, FieldType> fieldTypes = new HashMap<>();
@@ -114,37 +166,36 @@ public class FieldSemantics {
         if ("uri".equals(format) || "url".equals(format)) return FieldType.URL;
         if ("uuid".equals(format)) return FieldType.IDENTIFIER;
         
-        if (ID_PATTERN.matcher(fieldName).matches()) return FieldType.IDENTIFIER;
-        if (EMAIL_PATTERN.matcher(fieldName).matches()) return FieldType.EMAIL;
-        if (PHONE_PATTERN.matcher(fieldName).matches()) return FieldType.PHONE;
-        if (DATE_PATTERN.matcher(fieldName).matches()) return FieldType.DATETIME;
-        if (PRICE_PATTERN.matcher(fieldName).matches()) return FieldType.MONETARY;
-        if (ADDRESS_PATTERN.matcher(fieldName).matches()) return FieldType.ADDRESS;
-        if (URL_PATTERN.matcher(fieldName).matches()) return FieldType.URL;
-        if (DESCRIPTION_PATTERN.matcher(fieldName).matches()) return FieldType.DESCRIPTION;
-        if (STATUS_PATTERN.matcher(fieldName).matches()) return FieldType.STATUS;
-        if (CURRENCY_PATTERN.matcher(fieldName).matches()) return FieldType.CURRENCY;
-        if (COUNTRY_PATTERN.matcher(fieldName).matches()) return FieldType.COUNTRY;
-        if (IMAGE_PATTERN.matcher(fieldName).matches()) return FieldType.IMAGE_URL;
-        
-        if ("boolean".equals(type) || BOOLEAN_PATTERN.matcher(fieldName).matches()) {
+        KeywordMatcher.Scan cues = CUES.scan(fieldName);
+        if (cues.endsWith(ID)) return FieldType.IDENTIFIER;
+        if (cues.has(EMAIL)) return FieldType.EMAIL;
+        if (cues.has(PHONE)) return FieldType.PHONE;
+        if (cues.has(DATE)) return FieldType.DATETIME;
+        if (cues.has(PRICE)) return FieldType.MONETARY;
+        if (cues.has(ADDRESS)) return FieldType.ADDRESS;
+        if (cues.has(URL)) return FieldType.URL;
+        if (cues.has(DESCRIPTION)) return FieldType.DESCRIPTION;
+        if (cues.has(STATUS)) return FieldType.STATUS;
+        if (cues.has(CURRENCY)) return FieldType.CURRENCY;
+        if (cues.has(COUNTRY)) return FieldType.COUNTRY;
+        if (cues.has(IMAGE)) return FieldType.IMAGE_URL;
+        
+        if ("boolean".equals(type) || cues.has(BOOLEAN)) {
             return FieldType.BOOLEAN;
         }
         
         if ("integer".equals(type) || "number".equals(type)) {
-            if (COUNT_PATTERN.matcher(fieldName).matches()) return FieldType.COUNT;
-            if (PERCENTAGE_PATTERN.matcher(fieldName).matches()) return FieldType.PERCENTAGE;
-            if (PRICE_PATTERN.matcher(fieldName).matches()) return FieldType.MONETARY;
+            if (cues.has(COUNT)) return FieldType.COUNT;
+            if (cues.has(PERCENTAGE)) return FieldType.PERCENTAGE;
+            if (cues.has(PRICE)) return FieldType.MONETARY;
             return FieldType.GENERIC_NUMBER;
         }
         
-        if (NAME_PATTERN.matcher(fieldName).matches()) {
-            if (fieldName.toLowerCase().contains("product") || 
-                fieldName.toLowerCase().contains("item")) {
+        if (cues.has(NAME)) {
+            KeywordMatcher.Scan kind = NAME_KINDS.scan(fieldName);
+            if (kind.has(PRODUCT)) {
                 return FieldType.PRODUCT_NAME;
-            } else if (fieldName.toLowerCase().contains("user") || 
-                       fieldName.toLowerCase().contains("person") ||
-                       fieldName.toLowerCase().contains("customer")) {
+            } else if (kind.has(PERSON)) {
                 return FieldType.PERSON_NAME;
             }
             return FieldType.GENERIC_STRING;
@@ -1,26 +1,59 @@
 package ca.bazlur.smartmock.llm;
 
 import ca.bazlur.smartmock.model.Plan;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.langchain4j.model.language.LanguageModel;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single entry point to the language model for every schema being served.
+ * A fair semaphore caps the number of concurrent generations so that a burst
+ * against one API queues behind, rather than starves, requests for the others.
+ * <p>
+ * Background work, such as prefetching, never waits for a permit: it runs only when no
+ * live request is queued and a permit is left over for the next one. With a single
+ * permit there is never one left over, so background work does not run at all.
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class LlmRunner {
-    private final ObjectMapper objectMapper;
+    // permits background work leaves free for live requests
+    private static final int LIVE_RESERVE = 1;
+
     private final PromptBuilder promptBuilder;
+    private final Semaphore permits;
+    private final long acquireTimeoutSeconds;
+
+    public LlmRunner(PromptBuilder promptBuilder,
+                     @Value("${smart-mock.llm.max-concurrency:4}") int maxConcurrency,
+                     @Value("${smart-mock.llm.acquire-timeout-seconds:120}") long acquireTimeoutSeconds) {
+        this.promptBuilder = promptBuilder;
+        this.permits = new Semaphore(Math.max(1, maxConcurrency), true);
+        this.acquireTimeoutSeconds = acquireTimeoutSeconds;
+    }
+
+    public enum Priority {
+        LIVE,
+        /** Runs only on idle capacity; fails at once with 503 otherwise. */
+        BACKGROUND
+    }
 
     public String generateResponse(LanguageModel model, Plan plan) {
+        return generateResponse(model, plan, Priority.LIVE);
+    }
+
+    public String generateResponse(LanguageModel model, Plan plan, Priority priority) {
         String prompt = promptBuilder.buildGenerationPrompt(plan);
         log.debug("Generating response with prompt length: {}", prompt.length());
         
-        var response = model.generate(prompt);
-        log.debug("Generated response: {}", response);
-        String content = response.content();
+        String content = generate(model, prompt, priority);
+        log.debug("Generated response: {}", content);
 
         content = content.trim();
         if (content.startsWith("```json")) {
@@ -30,22 +63,15 @@ public class LlmRunner {
             content = content.substring(0, content.length() - 3);
         }
 
-        content = content.trim();
-        
-        try {
-            objectMapper.readTree(content);
-            return content;
-        } catch (Exception e) {
-            log.warn("LLM response is not valid JSON, attempting to extract JSON");
-            return extractJson(content);
-        }
+        // Parsing (and salvaging prose-wrapped output) happens once, in JsonValidator.parse
+        return content.trim();
     }
 
     public String repairResponse(LanguageModel model, String invalidJson, String validationError) {
         String prompt = promptBuilder.buildRepairPrompt(invalidJson, validationError);
         log.debug("Repairing response with validation error: {}", validationError);
         
-        String response = model.generate(prompt).content();
+        String response = generate(model, prompt, Priority.LIVE);
         
         response = response.trim();
         if (response.startsWith("```json")) {
@@ -58,48 +84,38 @@ public class LlmRunner {
         return response.trim();
     }
 
-    private String extractJson(String text) {
-        // First try to find a complete JSON array
-        int arrayStart = text.indexOf('[');
-        int arrayEnd = text.lastIndexOf(']');
-        
-        if (arrayStart != -1 && arrayEnd != -1 && arrayStart < arrayEnd) {
-            return text.substring(arrayStart, arrayEnd + 1);
-        }
-        
-        // Then try to find a complete JSON object
-        int objStart = text.indexOf('{');
-        int objEnd = text.lastIndexOf('}');
-        
-        if (objStart != -1 && objEnd != -1 && objStart < objEnd) {
-            String extracted = text.substring(objStart, objEnd + 1);
-            
-            // Check if this looks like array items without array wrapper
-            // If we have multiple objects separated by commas, wrap them in an array
-            if (extracted.contains("},") && !extracted.startsWith("[")) {
-                // Count opening braces to see if we have multiple objects
-                int braceCount = 0;
-                boolean inString = false;
-                char prevChar = ' ';
-                
-                for (char c : extracted.toCharArray()) {
-                    if (c == '"' && prevChar != '\\') {
-                        inString = !inString;
-                    } else if (!inString && c == '{') {
-                        braceCount++;
-                    }
-                    prevChar = c;
-                }
-                
-                // If we have multiple objects, wrap them in an array
-                if (braceCount > 1) {
-                    return "[" + extracted + "]";
-                }
+    /** True when background work would get a permit now. */
+    public boolean idle() {
+        return !permits.hasQueuedThreads() && permits.availablePermits() > LIVE_RESERVE;
+    }
+
+    private String generate(LanguageModel model, String prompt, Priority priority) {
+        if (priority == Priority.BACKGROUND) {
+            // the untimed tryAcquire barges past the fair queue, so only when nobody is in it
+            if (!idle() || !permits.tryAcquire()) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "LLM has no idle capacity");
+            }
+            try {
+                return model.generate(prompt).content();
+            } finally {
+                permits.release();
             }
-            
-            return extracted;
         }
-        
-        return "{}";
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting for the LLM");
+        }
+        if (!acquired) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                "LLM is busy, no generation slot freed up within " + acquireTimeoutSeconds + "s");
+        }
+        try {
+            return model.generate(prompt).content();
+        } finally {
+            permits.release();
+        }
     }
-}
\ No newline at end of file
+}
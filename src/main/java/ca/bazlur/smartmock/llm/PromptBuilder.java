@@ -1,11 +1,11 @@
 package ca.bazlur.smartmock.llm;
 
+import ca.bazlur.smartmock.model.CompiledPlan;
 import ca.bazlur.smartmock.model.Plan;
+import ca.bazlur.smartmock.model.RequestView;
 import ca.bazlur.smartmock.model.Scenario;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,6 +16,8 @@ import java.time.Instant;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 @Slf4j
 @Component
@@ -24,49 +26,47 @@ public class PromptBuilder {
 
   private static final String NL = "\n";
   private static final int DEFAULT_MAX_CHARS = 16000; // ~4k tokens rough guide
-  private static final int MAX_SCHEMA_CHARS = 6000;
   private static final int MAX_CTX_CHARS = 4000;
+  private static final Pattern CONTROL_CHARS = Pattern.compile("[\\p{Cntrl}&&[^\r\n\t]]");
+
+  private static final CompiledPlan EMPTY_PLAN = CompiledPlan.builder()
+      .jsonSchemaMinified("")
+      .blockIds(List.of())
+      .renderedBlocks("")
+      .fieldGuidance("")
+      .build();
 
-  private final ObjectMapper objectMapper;
-  private final ContextRegistry contextRegistry;
   private final RequestResponseCorrelator requestResponseCorrelator;
-  private final FieldSemantics fieldSemantics;
+
+  // Compiled plans are replaced wholesale when a spec is (re)loaded, so keying on their
+  // identity ties fragments to one schema version; weak keys let old versions go.
+  private final Cache<CompiledPlan, Map<FragmentKey, Fragments>> fragmentCache = Caffeine.newBuilder()
+      .weakKeys()
+      .executor(Runnable::run) // read-mostly; skip hand-offs to the common pool
+      .build();
 
   public String buildGenerationPrompt(@NonNull Plan plan) {
     final Scenario scenario = plan.getScenario() == null ? Scenario.HAPPY : plan.getScenario();
 
-    final String endpointPath = extractPath(plan);
-    final String method = extractString(plan.getRequestContext(), "method");
-    final String operationId = extractString(plan.getRequestContext(), "operationId");
-
-    final String minifiedSchema = JsonUtils.safeMinified(objectMapper, plan.getJsonSchema());
-    final String requestCtx = toStableMinifiedJson(plan.getRequestContext());
-
-    final EndpointInfo info = new EndpointInfo(
-        sanitize(endpointPath),
-        sanitize(operationId),
-        sanitize(method),
-        JsonUtils.truncateWithNotice(minifiedSchema, MAX_SCHEMA_CHARS),
-        JsonUtils.truncateWithNotice(requestCtx, MAX_CTX_CHARS)
-    );
-
-    final List<ContextBlock> chosenBlocks = contextRegistry.select(
-        info,
-        /*maxBlocks*/ 2,
-        /*minScore*/ 0.25,
-        /*budgetChars*/ 3000
-    );
-
-    StringBuilder sb = new StringBuilder(4096);
-    sb.append(HEAD_INTRO);
-
-    sb.append("- Scenario: ").append(scenario).append(NL);
-    sb.append("- Status code: ").append(plan.getStatusCode()).append(NL);
-    sb.append("- Endpoint: ").append(endpointPath).append(NL);
+    final RequestView request = plan.getRequest();
+    final String endpointPath = request != null ? request.path() : "";
+
+    final CompiledPlan compiled = plan.getCompiled() != null ? plan.getCompiled() : EMPTY_PLAN;
+    final Fragments fixed = fragments(compiled, scenario, plan.getStatusCode());
+    final String requestCtx = request != null
+        ? JsonUtils.truncateWithNotice(sanitize(request.canonicalJson()), MAX_CTX_CHARS)
+        : "";
+    final String correlations = requestResponseCorrelator.generateCorrelations(request);
+
+    // only the request-specific parts are built here; sized so the buffer never grows
+    StringBuilder sb = new StringBuilder(fixed.head().length() + fixed.body().length() + FINAL_REMINDER.length()
+        + endpointPath.length() + correlations.length() + requestCtx.length() + 1024);
+    sb.append(fixed.head());
+    sb.append(endpointPath).append(NL);
     
     // Extract and emphasize size parameter
-    if (plan.getRequestContext() instanceof Map<?, ?> ctx) {
-      Object queryObj = ctx.get("query");
+    if (request != null) {
+      Object queryObj = request.get("query");
       if (queryObj instanceof Map<?, ?> queryParams) {
         Object sizeParam = queryParams.get("size");
         if (sizeParam != null) {
@@ -76,7 +76,7 @@ public class PromptBuilder {
     }
     
     // Add seed information if present
-    Object seed = plan.getRequestContext().get("seed");
+    Object seed = request != null ? request.get("seed") : null;
     if (seed != null) {
       log.info("Including seed in prompt: {}", seed);
       int seedHash = Math.abs(seed.toString().hashCode());
@@ -91,15 +91,39 @@ public class PromptBuilder {
     }
     sb.append(NL);
 
-    String correlations = requestResponseCorrelator.generateCorrelations(plan.getRequestContext());
     if (!correlations.isBlank()) {
       sb.append(correlations).append(NL);
     }
 
-    for (ContextBlock b : chosenBlocks) {
-      sb.append(b.render(info)).append(NL);
+    sb.append(fixed.body());
+
+    if (!requestCtx.isBlank()) {
+      appendSection(sb, "Request Context", requestCtx);
     }
 
+    sb.append(FINAL_REMINDER);
+
+    String prompt = JsonUtils.enforceMax(sb.toString(), DEFAULT_MAX_CHARS);
+
+    logPromptStats(prompt, compiled.getBlockIds());
+    return prompt;
+  }
+
+  private Fragments fragments(CompiledPlan compiled, Scenario scenario, int statusCode) {
+    return fragmentCache.get(compiled, c -> new ConcurrentHashMap<>())
+        .computeIfAbsent(new FragmentKey(scenario, statusCode), k -> renderFragments(compiled, scenario, statusCode));
+  }
+
+  private static Fragments renderFragments(CompiledPlan compiled, Scenario scenario, int statusCode) {
+    StringBuilder head = new StringBuilder(HEAD_INTRO.length() + 64);
+    head.append(HEAD_INTRO);
+    head.append("- Scenario: ").append(scenario).append(NL);
+    head.append("- Status code: ").append(statusCode).append(NL);
+    head.append("- Endpoint: ");
+
+    StringBuilder sb = new StringBuilder(4096);
+    sb.append(compiled.getRenderedBlocks());
+
     sb.append(STRICT_RULES).append(NL);
     
     // Add extra emphasis for error scenarios
@@ -110,31 +134,28 @@ public class PromptBuilder {
     
     sb.append(scenarioDelta(scenario)).append(NL).append(NL);
 
-    String fieldGuidance = fieldSemantics.analyzeSchema(info.jsonSchemaMinified());
+    String fieldGuidance = compiled.getFieldGuidance();
     if (!fieldGuidance.isBlank()) {
       sb.append(fieldGuidance).append(NL);
     }
 
-    if (!info.jsonSchemaMinified().isBlank()) {
-      appendSection(sb, "JSON Schema", info.jsonSchemaMinified());
+    if (!compiled.getJsonSchemaMinified().isBlank()) {
+      appendSection(sb, "JSON Schema", compiled.getJsonSchemaMinified());
       
       // Add explicit array generation instruction if schema is for an array
-      if (info.jsonSchemaMinified().contains("\"type\":\"array\"") || 
-          info.jsonSchemaMinified().contains("\"type\" : \"array\"")) {
+      if (compiled.isArraySchema()) {
         sb.append("IMPORTANT: The schema expects an ARRAY. Your response MUST start with '[' and end with ']'").append(NL);
         sb.append("Generate a JSON array containing the requested number of items.").append(NL).append(NL);
       }
     }
-    if (!info.requestContextMinified().isBlank()) {
-      appendSection(sb, "Request Context", info.requestContextMinified());
-    }
-
-    sb.append(FINAL_REMINDER);
+    return new Fragments(head.toString(), sb.toString());
+  }
 
-    String prompt = JsonUtils.enforceMax(sb.toString(), DEFAULT_MAX_CHARS);
+  /** Prompt text that depends only on the compiled plan, scenario and status code. */
+  private record Fragments(String head, String body) {
+  }
 
-    logPromptStats(prompt, chosenBlocks);
-    return prompt;
+  private record FragmentKey(Scenario scenario, int statusCode) {
   }
 
   public String buildRepairPrompt(@NonNull String invalidJson, @NonNull String validationError) {
@@ -149,48 +170,19 @@ public class PromptBuilder {
   }
 
   private static String sanitize(String s) {
-    return s == null ? "" : s.replaceAll("[\\p{Cntrl}&&[^\r\n\t]]", " ");
+    return s == null ? "" : CONTROL_CHARS.matcher(s).replaceAll(" ");
   }
 
   private static void appendSection(StringBuilder sb, String title, String content) {
     sb.append(title).append(":").append(NL).append(content).append(NL).append(NL);
   }
 
-  private String toStableMinifiedJson(Object value) {
-    if (value == null) return "";
-    try {
-      ObjectMapper stable = JsonMapper.builder()
-          .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
-          .build();
-      return sanitize(stable.writeValueAsString(value));
-    } catch (JsonProcessingException e) {
-      log.warn("Request context serialization failed, falling back to toString()", e);
-      return sanitize(String.valueOf(value));
-    }
-  }
-
-  private static String extractPath(Plan plan) {
-    Object ctx = plan.getRequestContext();
-    if (ctx instanceof Map<?, ?> m) {
-      Object path = m.get("path");
-      if (path != null) return String.valueOf(path);
-    }
-    return "";
-  }
-
-  private static String extractString(Object ctx, String key) {
-    if (ctx instanceof Map<?, ?> m) {
-      Object v = m.get(key);
-      if (v != null) return String.valueOf(v);
-    }
-    return "";
-  }
-
-  private void logPromptStats(String prompt, List<ContextBlock> blocks) {
+  private void logPromptStats(String prompt, List<String> blockIds) {
+    if (!log.isDebugEnabled()) return;
     int chars = prompt.length();
     int bytes = prompt.getBytes(StandardCharsets.UTF_8).length;
     String sha = JsonUtils.sha256Hex(prompt);
-    String ids = blocks.stream().map(ContextBlock::id).reduce((a, b) -> a + "," + b).orElse("-");
+    String ids = blockIds.isEmpty() ? "-" : String.join(",", blockIds);
     log.debug("Prompt size: {} chars, {} bytes, sha256={}, blocks=[{}], ts={}",
         chars, bytes, sha, ids, Instant.now());
   }
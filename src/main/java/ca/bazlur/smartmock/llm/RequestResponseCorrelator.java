@@ -1,25 +1,61 @@
 package ca.bazlur.smartmock.llm;
 
+import ca.bazlur.smartmock.llm.correlation.CorrelationRuleLoader;
+import ca.bazlur.smartmock.llm.correlation.CorrelationRules;
+import ca.bazlur.smartmock.model.MockRequestBody;
+import ca.bazlur.smartmock.model.RequestView;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
 
+/**
+ * Turns request parameters and body fields into correlation lines for the prompt. The
+ * lines come from declarative rules (see {@link CorrelationRuleLoader}); only the request
+ * path ID is found here.
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class RequestResponseCorrelator {
-    
+
+    private static final Set<String> COMMON_SEGMENTS = Set.of(
+        "api", "v1", "v2", "v3", "users", "products", "orders",
+        "items", "customers", "accounts", "admin", "public");
+
     private final ObjectMapper objectMapper;
-    
+    private final Supplier<CorrelationRules> rules;
+
+    /** Uses the built-in rules only. */
+    public RequestResponseCorrelator(ObjectMapper objectMapper) {
+        this(objectMapper, CorrelationRuleLoader::builtIn);
+    }
+
+    @Autowired
+    public RequestResponseCorrelator(ObjectMapper objectMapper, CorrelationRuleLoader ruleLoader) {
+        this(objectMapper, ruleLoader::rules);
+    }
+
+    private RequestResponseCorrelator(ObjectMapper objectMapper, Supplier<CorrelationRules> rules) {
+        this.objectMapper = objectMapper;
+        this.rules = rules;
+    }
+
+    /** Uses the body the view has already parsed instead of converting it again. */
+    public String generateCorrelations(RequestView request) {
+        if (request == null) return "";
+        return generateCorrelations(request.asMap(), request.body());
+    }
+
     public String generateCorrelations(Object requestContextObj) {
         Map<String, Object> requestContext = convertToMap(requestContextObj);
         return generateCorrelations(requestContext);
@@ -29,6 +65,13 @@ public class RequestResponseCorrelator {
         if (requestContext == null || requestContext.isEmpty()) {
             return "";
         }
+        return generateCorrelations(requestContext, toTree(requestContext.get("body")));
+    }
+
+    private String generateCorrelations(Map<String, Object> requestContext, JsonNode requestBody) {
+        if (requestContext == null || requestContext.isEmpty()) {
+            return "";
+        }
         
         List<String> correlations = new ArrayList<>();
         
@@ -41,18 +84,12 @@ public class RequestResponseCorrelator {
         if (queryParams == null || queryParams.isEmpty()) {
             queryParams = extractMap(requestContext, "query");
         }
-        Object requestBody = requestContext.get("body");
-        
-        if (pathParams != null && !pathParams.isEmpty()) {
-            correlatePathParameters(pathParams, correlations);
-        }
-        
-        if (queryParams != null && !queryParams.isEmpty()) {
-            correlateQueryParameters(queryParams, correlations);
-        }
+
+        rules.get().correlate(method, pathParams, queryParams, requestBody, correlations);
         
-        if (requestBody != null) {
-            correlateRequestBody(requestBody, method, correlations);
+        int items = MockRequestBody.arrayLength(requestBody);
+        if (items >= 0) {
+            correlations.add(String.format("Process all %d items from request", items));
         }
         
         String resourceId = extractIdFromPath(path);
@@ -76,155 +113,76 @@ public class RequestResponseCorrelator {
         return result.toString();
     }
     
-    private void correlatePathParameters(Map<String, Object> pathParams, List<String> correlations) {
-        for (Map.Entry<String, Object> entry : pathParams.entrySet()) {
-            String param = entry.getKey();
-            Object value = entry.getValue();
-            
-            if (param.toLowerCase().contains("id")) {
-                correlations.add(String.format("Resource ID must be '%s'", value));
-            } else if (param.toLowerCase().contains("category")) {
-                correlations.add(String.format("All items must belong to category '%s'", value));
-            } else if (param.toLowerCase().contains("user")) {
-                correlations.add(String.format("Data must be associated with user '%s'", value));
-            } else if (param.toLowerCase().contains("type")) {
-                correlations.add(String.format("All items must be of type '%s'", value));
-            } else {
-                correlations.add(String.format("Response must be filtered by %s='%s'", param, value));
-            }
-        }
-    }
-    
-    private void correlateQueryParameters(Map<String, Object> queryParams, List<String> correlations) {
-        for (Map.Entry<String, Object> entry : queryParams.entrySet()) {
-            String param = entry.getKey();
-            Object value = entry.getValue();
-            
-            if (param.equals("page") || param.equals("offset")) {
-                correlations.add(String.format("Response should reflect pagination: %s=%s", param, value));
-            } else if (param.equals("limit") || param.equals("size") || param.equals("count")) {
-                int limit = parseInteger(value, 10);
-                correlations.add(String.format("MANDATORY: You MUST return EXACTLY %d items in the array", limit));
-                correlations.add(String.format("The 'users' array (or main array) MUST contain %d unique items", limit));
-            }
-            else if (param.equals("search") || param.equals("q") || param.equals("query")) {
-                correlations.add(String.format("All items must be relevant to search term '%s'", value));
-                correlations.add(String.format("Item names/descriptions should contain or relate to '%s'", value));
-            } else if (param.equals("sort") || param.equals("orderBy")) {
-                correlations.add(String.format("Items must be sorted by %s", value));
-            } else if (param.equals("filter") || param.startsWith("filter.")) {
-                correlations.add(String.format("Apply filter: %s=%s", param, value));
-            }
-            else if (param.contains("from") || param.contains("start")) {
-                correlations.add(String.format("All dates must be after %s", value));
-            } else if (param.contains("to") || param.contains("end")) {
-                correlations.add(String.format("All dates must be before %s", value));
-            }
-            else if (param.contains("min") && (param.contains("price") || param.contains("amount"))) {
-                correlations.add(String.format("All prices must be >= %s", value));
-            } else if (param.contains("max") && (param.contains("price") || param.contains("amount"))) {
-                correlations.add(String.format("All prices must be <= %s", value));
-            }
-            else if (param.equals("status") || param.equals("state")) {
-                correlations.add(String.format("All items must have status '%s'", value));
-            }
-            else if (value instanceof Boolean) {
-                if ((Boolean) value) {
-                    correlations.add(String.format("Only include items where %s is true", param));
-                } else {
-                    correlations.add(String.format("Exclude items where %s is true", param));
-                }
-            }
-        }
-    }
-    
-    private void correlateRequestBody(Object requestBody, String method, List<String> correlations) {
-        if (requestBody == null) return;
-        
+    private JsonNode toTree(Object requestBody) {
+        if (requestBody == null) return null;
         try {
-            JsonNode bodyNode;
-            if (requestBody instanceof String) {
-                bodyNode = objectMapper.readTree((String) requestBody);
-            } else {
-                bodyNode = objectMapper.valueToTree(requestBody);
-            }
-            
-            if (method.equalsIgnoreCase("POST")) {
-                correlations.add("Response must confirm creation of the resource with data from request body");
-                
-                if (bodyNode.has("name")) {
-                    correlations.add(String.format("Created resource must have name '%s'", bodyNode.get("name").asText()));
-                }
-                if (bodyNode.has("email")) {
-                    correlations.add(String.format("Created resource must have email '%s'", bodyNode.get("email").asText()));
-                }
-                if (bodyNode.has("title")) {
-                    correlations.add(String.format("Created resource must have title '%s'", bodyNode.get("title").asText()));
-                }
-                
-                if (bodyNode.has("category")) {
-                    correlations.add(String.format("Created resource must be in category '%s'", bodyNode.get("category").asText()));
-                }
-                if (bodyNode.has("type")) {
-                    correlations.add(String.format("Created resource must be of type '%s'", bodyNode.get("type").asText()));
-                }
-            } else if (method.equalsIgnoreCase("PUT") || method.equalsIgnoreCase("PATCH")) {
-                correlations.add("Response must reflect the updates from request body");
-                correlations.add("Updated fields must match values provided in request");
-                correlations.add("Include an 'updatedAt' timestamp with current time");
+            if (requestBody instanceof JsonNode node) {
+                return node;
             }
-            
-            if (bodyNode.has("search") || bodyNode.has("query")) {
-                String searchTerm = bodyNode.has("search") ? 
-                    bodyNode.get("search").asText() : bodyNode.get("query").asText();
-                correlations.add(String.format("Results must be relevant to '%s'", searchTerm));
+            if (requestBody instanceof String text) {
+                return objectMapper.readTree(text);
             }
-            
-            if (bodyNode.isArray()) {
-                correlations.add(String.format("Process all %d items from request", bodyNode.size()));
-            }
-            
+            return objectMapper.valueToTree(requestBody);
         } catch (Exception e) {
             log.warn("Failed to parse request body for correlations", e);
+            return null;
         }
     }
-    
-    private String extractIdFromPath(String path) {
+
+    /**
+     * The first of these that is not a common segment, as the former regex chain found them:
+     * the last segment, the first inner segment, the first digit run, the first 24-hex run
+     * and the first 36-char UUID run after a slash (segments of letters, digits and '-').
+     */
+    static String extractIdFromPath(String path) {
         if (path == null) return null;
-        
-        Pattern[] patterns = {
-            Pattern.compile("/([a-zA-Z0-9-]+)$"),  // /users/123
-            Pattern.compile("/([a-zA-Z0-9-]+)/"),   // /users/123/orders
-            Pattern.compile("/(\\d+)"),             // /products/456
-            Pattern.compile("/([a-f0-9]{24})"),     // MongoDB ObjectId
-            Pattern.compile("/([a-f0-9-]{36})")     // UUID
-        };
-        
-        for (Pattern pattern : patterns) {
-            Matcher matcher = pattern.matcher(path);
-            if (matcher.find()) {
-                String id = matcher.group(1);
-                if (!isCommonPathSegment(id)) {
-                    return id;
-                }
+        int n = path.length();
+
+        int last = path.lastIndexOf('/');
+        if (last >= 0 && last + 1 < n && runOf(path, last + 1, RequestResponseCorrelator::isSegmentChar) == n) {
+            String id = path.substring(last + 1);
+            if (!isCommonPathSegment(id)) return id;
+        }
+        String inner = null, digits = null, objectId = null, uuid = null;
+        for (int slash = path.indexOf('/'); slash >= 0; slash = path.indexOf('/', slash + 1)) {
+            int from = slash + 1;
+            if (inner == null) {
+                int end = runOf(path, from, RequestResponseCorrelator::isSegmentChar);
+                if (end > from && end < n && path.charAt(end) == '/') inner = path.substring(from, end);
+            }
+            if (digits == null) {
+                int end = runOf(path, from, c -> c >= '0' && c <= '9');
+                if (end > from) digits = path.substring(from, end);
+            }
+            if (objectId == null && runOf(path, from, RequestResponseCorrelator::isHex) - from >= 24) {
+                objectId = path.substring(from, from + 24);
+            }
+            if (uuid == null && runOf(path, from, c -> isHex(c) || c == '-') - from >= 36) {
+                uuid = path.substring(from, from + 36);
             }
         }
-        
+        for (String id : new String[]{inner, digits, objectId, uuid}) {
+            if (id != null && !isCommonPathSegment(id)) return id;
+        }
         return null;
     }
-    
-    private boolean isCommonPathSegment(String segment) {
-        String[] commonSegments = {
-            "api", "v1", "v2", "v3", "users", "products", "orders",
-            "items", "customers", "accounts", "admin", "public"
-        };
-        
-        for (String common : commonSegments) {
-            if (common.equalsIgnoreCase(segment)) {
-                return true;
-            }
-        }
-        return false;
+
+    private static int runOf(String s, int from, IntPredicate allowed) {
+        int i = from;
+        while (i < s.length() && allowed.test(s.charAt(i))) i++;
+        return i;
+    }
+
+    private static boolean isSegmentChar(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-';
+    }
+
+    private static boolean isHex(int c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f');
+    }
+
+    private static boolean isCommonPathSegment(String segment) {
+        return COMMON_SEGMENTS.contains(segment.toLowerCase(Locale.ROOT));
     }
     
     private String extractString(Map<String, Object> map, String key) {
@@ -241,17 +199,6 @@ public class RequestResponseCorrelator {
         return null;
     }
     
-    private int parseInteger(Object value, int defaultValue) {
-        try {
-            if (value instanceof Number) {
-                return ((Number) value).intValue();
-            }
-            return Integer.parseInt(value.toString());
-        } catch (Exception e) {
-            return defaultValue;
-        }
-    }
-    
     @SuppressWarnings("unchecked")
     private Map<String, Object> convertToMap(Object obj) {
         if (obj == null) return new HashMap<>();
@@ -1,5 +1,7 @@
 package ca.bazlur.smartmock.llm.blocks;
 
+import ca.bazlur.smartmock.llm.BlockScoring;
+import ca.bazlur.smartmock.llm.BlockScoring.Target;
 import ca.bazlur.smartmock.llm.ContextBlock;
 import ca.bazlur.smartmock.llm.EndpointInfo;
 import org.springframework.stereotype.Component;
@@ -10,18 +12,8 @@ public class AnalyticsBlock implements ContextBlock {
     return "analytics.metrics.v1";
   }
 
-  public double score(EndpointInfo i) {
-    double s = 0.0;
-    String p = safe(i.path());
-    String op = safe(i.operationId());
-    String j = safe(i.jsonSchemaMinified());
-
-    if (p.matches(".*\\b(analytics?|metrics?|stats?|reports?|dashboards?|insights?|kpis?)\\b.*")) s += 0.35;
-    if (op.matches(".*(analytics|metrics|statistics|report|dashboard|performance).*")) s += 0.20;
-    if (j.matches("(?s).*\\b(pageViews|sessions|bounceRate|conversion|revenue|visitors)\\b.*")) s += 0.35;
-    if (j.matches("(?s).*\\b(timeRange|dimension|metric|segment|chart)\\b.*")) s += 0.10;
-
-    return Math.min(1.0, s);
+  public BlockScoring scoring() {
+    return SCORING;
   }
 
   public String render(EndpointInfo i) {
@@ -52,6 +44,15 @@ public class AnalyticsBlock implements ContextBlock {
     return sb.toString();
   }
   
+  private static final BlockScoring SCORING = BlockScoring.builder()
+      .word(Target.PATH, 0.35, "analytics?", "metrics?", "stats?", "reports?", "dashboards?", "insights?",
+          "kpis?")
+      .substring(Target.OPERATION, 0.20, "analytics", "metrics", "statistics", "report", "dashboard",
+          "performance")
+      .word(Target.SCHEMA, 0.35, "pageViews", "sessions", "bounceRate", "conversion", "revenue", "visitors")
+      .word(Target.SCHEMA, 0.10, "timeRange", "dimension", "metric", "segment", "chart")
+      .build();
+
   private static final String METRICS_EXAMPLE = """
       {
         "period": {
@@ -182,7 +183,4 @@ public class AnalyticsBlock implements ContextBlock {
       }
       """;
 
-  private static String safe(String s) {
-    return s == null ? "" : s.toLowerCase();
-  }
 }
\ No newline at end of file
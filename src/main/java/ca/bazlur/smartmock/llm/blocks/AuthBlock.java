@@ -1,5 +1,7 @@
 package ca.bazlur.smartmock.llm.blocks;
 
+import ca.bazlur.smartmock.llm.BlockScoring;
+import ca.bazlur.smartmock.llm.BlockScoring.Target;
 import ca.bazlur.smartmock.llm.ContextBlock;
 import ca.bazlur.smartmock.llm.EndpointInfo;
 import org.springframework.stereotype.Component;
@@ -10,19 +12,8 @@ public class AuthBlock implements ContextBlock {
     return "auth.tokens.v1";
   }
 
-  public double score(EndpointInfo i) {
-    double s = 0.0;
-    String p = safe(i.path());
-    String op = safe(i.operationId());
-    String j = safe(i.jsonSchemaMinified());
-
-    if (p.matches(".*\\b(auth|oauth|login|token|sessions?)\\b.*")) s += 0.35;
-    if (op.matches(".*(auth|oauth|token|session|signin|login|refresh).*")) s += 0.25;
-    if (j.matches("(?s).*\\b(access_token|refresh_token|expires_in|scope|claims|aud|iss|sub)\\b.*"))
-      s += 0.35;
-    if (j.matches("(?s).*\\b(jwk|kid|alg)\\b.*")) s += 0.05;
-
-    return Math.min(1.0, s);
+  public BlockScoring scoring() {
+    return SCORING;
   }
 
   public String render(EndpointInfo i) {
@@ -33,7 +24,11 @@ public class AuthBlock implements ContextBlock {
         """;
   }
 
-  private static String safe(String s) {
-    return s == null ? "" : s.toLowerCase();
-  }
+  private static final BlockScoring SCORING = BlockScoring.builder()
+      .word(Target.PATH, 0.35, "auth", "oauth", "login", "token", "sessions?")
+      .substring(Target.OPERATION, 0.25, "auth", "oauth", "token", "session", "signin", "login", "refresh")
+      .word(Target.SCHEMA, 0.35, "access_token", "refresh_token", "expires_in", "scope", "claims", "aud",
+          "iss", "sub")
+      .word(Target.SCHEMA, 0.05, "jwk", "kid", "alg")
+      .build();
 }
@@ -1,6 +1,8 @@
 package ca.bazlur.smartmock.llm.blocks;
 
 
+import ca.bazlur.smartmock.llm.BlockScoring;
+import ca.bazlur.smartmock.llm.BlockScoring.Target;
 import ca.bazlur.smartmock.llm.ContextBlock;
 import ca.bazlur.smartmock.llm.EndpointInfo;
 import org.springframework.stereotype.Component;
@@ -11,19 +13,8 @@ public class CommerceProductsBlock implements ContextBlock {
     return "commerce.products.v1";
   }
 
-  public double score(EndpointInfo i) {
-    double s = 0.0;
-    String p = safe(i.path());
-    String op = safe(i.operationId());
-    String j = safe(i.jsonSchemaMinified());
-
-    if (p.matches(".*\\b(products?|items?|catalog|inventory)\\b.*")) s += 0.35;
-    if (op.matches(".*(product|catalog|inventory|list).*")) s += 0.20;
-    if (j.matches("(?s).*\\b(price|currency|sku|upc|isbn|brand|model|category)\\b.*"))
-      s += 0.35;
-    if (j.contains("\"type\":\"array\"") && j.contains("\"items\"")) s += 0.05;
-
-    return Math.min(1.0, s);
+  public BlockScoring scoring() {
+    return SCORING;
   }
 
   public String render(EndpointInfo i) {
@@ -56,6 +47,13 @@ public class CommerceProductsBlock implements ContextBlock {
     return sb.toString();
   }
 
+  private static final BlockScoring SCORING = BlockScoring.builder()
+      .word(Target.PATH, 0.35, "products?", "items?", "catalog", "inventory")
+      .substring(Target.OPERATION, 0.20, "product", "catalog", "inventory", "list")
+      .word(Target.SCHEMA, 0.35, "price", "currency", "sku", "upc", "isbn", "brand", "model", "category")
+      .allSubstrings(Target.SCHEMA, 0.05, "\"type\":\"array\"", "\"items\"")
+      .build();
+
   private static final String SINGLE_PRODUCT_EXAMPLE = """
       {
         "id": "prod-789456",
@@ -99,8 +97,4 @@ public class CommerceProductsBlock implements ContextBlock {
         "createdAt": "2024-01-25T09:15:30Z"
       }
       """;
-
-  private static String safe(String s) {
-    return s == null ? "" : s.toLowerCase();
-  }
 }
@@ -1,5 +1,7 @@
 package ca.bazlur.smartmock.llm.blocks;
 
+import ca.bazlur.smartmock.llm.BlockScoring;
+import ca.bazlur.smartmock.llm.BlockScoring.Target;
 import ca.bazlur.smartmock.llm.ContextBlock;
 import ca.bazlur.smartmock.llm.EndpointInfo;
 import org.springframework.stereotype.Component;
@@ -10,18 +12,8 @@ public class EducationBlock implements ContextBlock {
     return "education.learning.v1";
   }
 
-  public double score(EndpointInfo i) {
-    double s = 0.0;
-    String p = safe(i.path());
-    String op = safe(i.operationId());
-    String j = safe(i.jsonSchemaMinified());
-
-    if (p.matches(".*\\b(courses?|students?|teachers?|lessons?|enrollments?|grades?|classes?)\\b.*")) s += 0.35;
-    if (op.matches(".*(course|student|enrollment|lesson|grade|assignment|exam).*")) s += 0.20;
-    if (j.matches("(?s).*\\b(courseId|studentId|grade|credits|semester|curriculum|syllabus)\\b.*")) s += 0.35;
-    if (j.matches("(?s).*\\b(duration|startDate|endDate|prerequisites|difficulty)\\b.*")) s += 0.10;
-
-    return Math.min(1.0, s);
+  public BlockScoring scoring() {
+    return SCORING;
   }
 
   public String render(EndpointInfo i) {
@@ -54,6 +46,16 @@ public class EducationBlock implements ContextBlock {
     return sb.toString();
   }
   
+  private static final BlockScoring SCORING = BlockScoring.builder()
+      .word(Target.PATH, 0.35, "courses?", "students?", "teachers?", "lessons?", "enrollments?", "grades?",
+          "classes?")
+      .substring(Target.OPERATION, 0.20, "course", "student", "enrollment", "lesson", "grade", "assignment",
+          "exam")
+      .word(Target.SCHEMA, 0.35, "courseId", "studentId", "grade", "credits", "semester", "curriculum",
+          "syllabus")
+      .word(Target.SCHEMA, 0.10, "duration", "startDate", "endDate", "prerequisites", "difficulty")
+      .build();
+
   private static final String COURSE_EXAMPLE = """
       {
         "courseId": "CS-101",
@@ -123,7 +125,4 @@ public class EducationBlock implements ContextBlock {
       }
       """;
 
-  private static String safe(String s) {
-    return s == null ? "" : s.toLowerCase();
-  }
 }
\ No newline at end of file
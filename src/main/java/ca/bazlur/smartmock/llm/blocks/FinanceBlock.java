@@ -1,5 +1,7 @@
 package ca.bazlur.smartmock.llm.blocks;
 
+import ca.bazlur.smartmock.llm.BlockScoring;
+import ca.bazlur.smartmock.llm.BlockScoring.Target;
 import ca.bazlur.smartmock.llm.ContextBlock;
 import ca.bazlur.smartmock.llm.EndpointInfo;
 import org.springframework.stereotype.Component;
@@ -10,20 +12,8 @@ public class FinanceBlock implements ContextBlock {
     return "finance.accounts.v1";
   }
 
-  public double score(EndpointInfo i) {
-    double s = 0.0;
-    String p = safe(i.path());
-    String op = safe(i.operationId());
-    String j = safe(i.jsonSchemaMinified());
-
-    if (p.matches(".*\\b(accounts?|ledgers?|balances?|bank|finance|payments?)\\b.*"))
-      s += 0.30;
-    if (op.matches(".*(account|balance|ledger|payment|payout|invoice).*")) s += 0.20;
-    if (j.matches("(?s).*\\b(iban|bic|swift|routing|accountNumber|currency|amount)\\b.*"))
-      s += 0.40;
-    if (j.matches("(?s).*\\b(statement|transactionDate)\\b.*")) s += 0.10;
-
-    return Math.min(1.0, s);
+  public BlockScoring scoring() {
+    return SCORING;
   }
 
   public String render(EndpointInfo i) {
@@ -35,7 +25,10 @@ public class FinanceBlock implements ContextBlock {
         """;
   }
 
-  private static String safe(String s) {
-    return s == null ? "" : s.toLowerCase();
-  }
+  private static final BlockScoring SCORING = BlockScoring.builder()
+      .word(Target.PATH, 0.30, "accounts?", "ledgers?", "balances?", "bank", "finance", "payments?")
+      .substring(Target.OPERATION, 0.20, "account", "balance", "ledger", "payment", "payout", "invoice")
+      .word(Target.SCHEMA, 0.40, "iban", "bic", "swift", "routing", "accountNumber", "currency", "amount")
+      .word(Target.SCHEMA, 0.10, "statement", "transactionDate")
+      .build();
 }
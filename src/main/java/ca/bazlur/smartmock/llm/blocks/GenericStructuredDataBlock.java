@@ -1,5 +1,6 @@
 package ca.bazlur.smartmock.llm.blocks;
 
+import ca.bazlur.smartmock.llm.BlockScoring;
 import ca.bazlur.smartmock.llm.ContextBlock;
 import ca.bazlur.smartmock.llm.EndpointInfo;
 import org.springframework.stereotype.Component;
@@ -10,8 +11,8 @@ public class GenericStructuredDataBlock implements ContextBlock {
     return "generic.structured.v1";
   }
 
-  public double score(EndpointInfo i) {
-    return 0.1;
+  public BlockScoring scoring() {
+    return SCORING;
   }
 
   public String render(EndpointInfo i) {
@@ -22,4 +23,6 @@ public class GenericStructuredDataBlock implements ContextBlock {
         - Arrays must be diverse; respect min/max constraints in schema when present.
         """;
   }
+
+  private static final BlockScoring SCORING = BlockScoring.builder().baseScore(0.1).build();
 }
@@ -1,5 +1,7 @@
 package ca.bazlur.smartmock.llm.blocks;
 
+import ca.bazlur.smartmock.llm.BlockScoring;
+import ca.bazlur.smartmock.llm.BlockScoring.Target;
 import ca.bazlur.smartmock.llm.ContextBlock;
 import ca.bazlur.smartmock.llm.EndpointInfo;
 import org.springframework.stereotype.Component;
@@ -10,19 +12,8 @@ public class GeoBlock implements ContextBlock {
     return "geo.locations.v1";
   }
 
-  public double score(EndpointInfo i) {
-    double s = 0.0;
-    String p = safe(i.path());
-    String op = safe(i.operationId());
-    String j = safe(i.jsonSchemaMinified());
-
-    if (p.matches(".*\\b(geo|locations?|addresses?|places?)\\b.*")) s += 0.30;
-    if (op.matches(".*(location|address|place|geocode|map).*")) s += 0.20;
-    if (j.matches("(?s).*\\b(latitude|longitude|lat|lng|country|postalCode|timezone)\\b.*"))
-      s += 0.40;
-    if (j.matches("(?s).*\\b(bounds|radius|distance)\\b.*")) s += 0.10;
-
-    return Math.min(1.0, s);
+  public BlockScoring scoring() {
+    return SCORING;
   }
 
   public String render(EndpointInfo i) {
@@ -33,7 +24,10 @@ public class GeoBlock implements ContextBlock {
         """;
   }
 
-  private static String safe(String s) {
-    return s == null ? "" : s.toLowerCase();
-  }
+  private static final BlockScoring SCORING = BlockScoring.builder()
+      .word(Target.PATH, 0.30, "geo", "locations?", "addresses?", "places?")
+      .substring(Target.OPERATION, 0.20, "location", "address", "place", "geocode", "map")
+      .word(Target.SCHEMA, 0.40, "latitude", "longitude", "lat", "lng", "country", "postalCode", "timezone")
+      .word(Target.SCHEMA, 0.10, "bounds", "radius", "distance")
+      .build();
 }
@@ -1,5 +1,7 @@
 package ca.bazlur.smartmock.llm.blocks;
 
+import ca.bazlur.smartmock.llm.BlockScoring;
+import ca.bazlur.smartmock.llm.BlockScoring.Target;
 import ca.bazlur.smartmock.llm.ContextBlock;
 import ca.bazlur.smartmock.llm.EndpointInfo;
 import org.springframework.stereotype.Component;
@@ -10,18 +12,8 @@ public class HealthcareBlock implements ContextBlock {
     return "healthcare.medical.v1";
   }
 
-  public double score(EndpointInfo i) {
-    double s = 0.0;
-    String p = safe(i.path());
-    String op = safe(i.operationId());
-    String j = safe(i.jsonSchemaMinified());
-
-    if (p.matches(".*\\b(patients?|doctors?|appointments?|medical|health|clinic|hospital)\\b.*")) s += 0.35;
-    if (op.matches(".*(patient|doctor|appointment|medical|prescription|diagnosis).*")) s += 0.20;
-    if (j.matches("(?s).*\\b(diagnosis|symptoms?|medication|prescription|dosage|allergy|bloodType)\\b.*")) s += 0.35;
-    if (j.matches("(?s).*\\b(patientId|doctorId|medicalRecordNumber|insuranceId)\\b.*")) s += 0.10;
-
-    return Math.min(1.0, s);
+  public BlockScoring scoring() {
+    return SCORING;
   }
 
   public String render(EndpointInfo i) {
@@ -52,6 +44,16 @@ public class HealthcareBlock implements ContextBlock {
     return sb.toString();
   }
   
+  private static final BlockScoring SCORING = BlockScoring.builder()
+      .word(Target.PATH, 0.35, "patients?", "doctors?", "appointments?", "medical", "health", "clinic",
+          "hospital")
+      .substring(Target.OPERATION, 0.20, "patient", "doctor", "appointment", "medical", "prescription",
+          "diagnosis")
+      .word(Target.SCHEMA, 0.35, "diagnosis", "symptoms?", "medication", "prescription", "dosage", "allergy",
+          "bloodType")
+      .word(Target.SCHEMA, 0.10, "patientId", "doctorId", "medicalRecordNumber", "insuranceId")
+      .build();
+
   private static final String PATIENT_EXAMPLE = """
       {
         "patientId": "PAT-789456",
@@ -121,7 +123,4 @@ public class HealthcareBlock implements ContextBlock {
       }
       """;
 
-  private static String safe(String s) {
-    return s == null ? "" : s.toLowerCase();
-  }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package ca.bazlur.smartmock.llm.blocks;
 
+import ca.bazlur.smartmock.llm.BlockScoring;
+import ca.bazlur.smartmock.llm.BlockScoring.Target;
 import ca.bazlur.smartmock.llm.ContextBlock;
 import ca.bazlur.smartmock.llm.EndpointInfo;
 import org.springframework.stereotype.Component;
@@ -10,20 +12,8 @@ public class MediaBlock implements ContextBlock {
     return "media.assets.v1";
   }
 
-  public double score(EndpointInfo i) {
-    double s = 0.0;
-    String p = safe(i.path());
-    String op = safe(i.operationId());
-    String j = safe(i.jsonSchemaMinified());
-
-    if (p.matches(".*\\b(media|assets?|images?|videos?|tracks?|albums?)\\b.*"))
-      s += 0.30;
-    if (op.matches(".*(asset|image|video|track|album|media).*")) s += 0.20;
-    if (j.matches("(?s).*\\b(mimeType|duration|bitrate|resolution|width|height|artist|title)\\b.*"))
-      s += 0.40;
-    if (j.matches("(?s).*\\b(url|checksum|size)\\b.*")) s += 0.10;
-
-    return Math.min(1.0, s);
+  public BlockScoring scoring() {
+    return SCORING;
   }
 
   public String render(EndpointInfo i) {
@@ -34,7 +24,11 @@ public class MediaBlock implements ContextBlock {
         """;
   }
 
-  private static String safe(String s) {
-    return s == null ? "" : s.toLowerCase();
-  }
+  private static final BlockScoring SCORING = BlockScoring.builder()
+      .word(Target.PATH, 0.30, "media", "assets?", "images?", "videos?", "tracks?", "albums?")
+      .substring(Target.OPERATION, 0.20, "asset", "image", "video", "track", "album", "media")
+      .word(Target.SCHEMA, 0.40, "mimeType", "duration", "bitrate", "resolution", "width", "height", "artist",
+          "title")
+      .word(Target.SCHEMA, 0.10, "url", "checksum", "size")
+      .build();
 }
@@ -1,5 +1,7 @@
 package ca.bazlur.smartmock.llm.blocks;
 
+import ca.bazlur.smartmock.llm.BlockScoring;
+import ca.bazlur.smartmock.llm.BlockScoring.Target;
 import ca.bazlur.smartmock.llm.ContextBlock;
 import ca.bazlur.smartmock.llm.EndpointInfo;
 import org.springframework.stereotype.Component;
@@ -10,19 +12,8 @@ public class OrdersBlock implements ContextBlock {
     return "commerce.orders.v1";
   }
 
-  public double score(EndpointInfo i) {
-    double s = 0.0;
-    String p = safe(i.path());
-    String op = safe(i.operationId());
-    String j = safe(i.jsonSchemaMinified());
-
-    if (p.matches(".*\\b(orders?|transactions?|payments?)\\b.*")) s += 0.35;
-    if (op.matches(".*(order|checkout|payment|transaction).*")) s += 0.20;
-    if (j.matches("(?s).*\\b(status|total|shipping|billing|paymentMethod|lineItems)\\b.*"))
-      s += 0.35;
-    if (j.matches("(?s).*\\b(currency|amount|tax|discount)\\b.*")) s += 0.10;
-
-    return Math.min(1.0, s);
+  public BlockScoring scoring() {
+    return SCORING;
   }
 
   public String render(EndpointInfo i) {
@@ -40,6 +31,13 @@ public class OrdersBlock implements ContextBlock {
     return sb.toString();
   }
   
+  private static final BlockScoring SCORING = BlockScoring.builder()
+      .word(Target.PATH, 0.35, "orders?", "transactions?", "payments?")
+      .substring(Target.OPERATION, 0.20, "order", "checkout", "payment", "transaction")
+      .word(Target.SCHEMA, 0.35, "status", "total", "shipping", "billing", "paymentMethod", "lineItems")
+      .word(Target.SCHEMA, 0.10, "currency", "amount", "tax", "discount")
+      .build();
+
   private static final String ORDER_EXAMPLE = """
       {
         "orderId": "ORD-2024-78234",
@@ -67,8 +65,4 @@ public class OrdersBlock implements ContextBlock {
         }
       }
       """;
-
-  private static String safe(String s) {
-    return s == null ? "" : s.toLowerCase();
-  }
 }
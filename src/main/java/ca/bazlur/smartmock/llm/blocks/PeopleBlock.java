@@ -1,5 +1,7 @@
 package ca.bazlur.smartmock.llm.blocks;
 
+import ca.bazlur.smartmock.llm.BlockScoring;
+import ca.bazlur.smartmock.llm.BlockScoring.Target;
 import ca.bazlur.smartmock.llm.ContextBlock;
 import ca.bazlur.smartmock.llm.EndpointInfo;
 import org.springframework.stereotype.Component;
@@ -10,20 +12,8 @@ public class PeopleBlock implements ContextBlock {
     return "people.users.v1";
   }
 
-  public double score(EndpointInfo i) {
-    double s = 0.0;
-    String p = safe(i.path());
-    String op = safe(i.operationId());
-    String j = safe(i.jsonSchemaMinified());
-
-    if (p.matches(".*\\b(users?|customers?|people|persons?)\\b.*")) s += 0.35;
-    if (op.matches(".*(user|customer|person|account).*")) s += 0.20;
-    if (j.matches("(?s).*\\b(email|firstName|lastName|phone|address|dob|profile)\\b.*"))
-      s += 0.35;
-    if (j.matches("(?s).*\\b(country|postalCode|zip|city|state|province)\\b.*"))
-      s += 0.10;
-
-    return Math.min(1.0, s);
+  public BlockScoring scoring() {
+    return SCORING;
   }
 
   public String render(EndpointInfo i) {
@@ -50,6 +40,13 @@ public class PeopleBlock implements ContextBlock {
     return sb.toString();
   }
   
+  private static final BlockScoring SCORING = BlockScoring.builder()
+      .word(Target.PATH, 0.35, "users?", "customers?", "people", "persons?")
+      .substring(Target.OPERATION, 0.20, "user", "customer", "person", "account")
+      .word(Target.SCHEMA, 0.35, "email", "firstName", "lastName", "phone", "address", "dob", "profile")
+      .word(Target.SCHEMA, 0.10, "country", "postalCode", "zip", "city", "state", "province")
+      .build();
+
   private static final String SINGLE_USER_EXAMPLE = """
       {
         "id": "usr-456789",
@@ -80,8 +77,4 @@ public class PeopleBlock implements ContextBlock {
         }
       ]
       """;
-
-  private static String safe(String s) {
-    return s == null ? "" : s.toLowerCase();
-  }
 }
@@ -1,5 +1,7 @@
 package ca.bazlur.smartmock.llm.blocks;
 
+import ca.bazlur.smartmock.llm.BlockScoring;
+import ca.bazlur.smartmock.llm.BlockScoring.Target;
 import ca.bazlur.smartmock.llm.ContextBlock;
 import ca.bazlur.smartmock.llm.EndpointInfo;
 import org.springframework.stereotype.Component;
@@ -10,18 +12,8 @@ public class RealEstateBlock implements ContextBlock {
     return "realestate.property.v1";
   }
 
-  public double score(EndpointInfo i) {
-    double s = 0.0;
-    String p = safe(i.path());
-    String op = safe(i.operationId());
-    String j = safe(i.jsonSchemaMinified());
-
-    if (p.matches(".*\\b(properties?|listings?|houses?|apartments?|rentals?|real-?estate)\\b.*")) s += 0.35;
-    if (op.matches(".*(property|listing|house|apartment|rental|mortgage).*")) s += 0.20;
-    if (j.matches("(?s).*\\b(bedrooms?|bathrooms?|squareFeet|price|address|zipCode|mls)\\b.*")) s += 0.35;
-    if (j.matches("(?s).*\\b(yearBuilt|propertyType|garage|amenities|hoa)\\b.*")) s += 0.10;
-
-    return Math.min(1.0, s);
+  public BlockScoring scoring() {
+    return SCORING;
   }
 
   public String render(EndpointInfo i) {
@@ -52,6 +44,14 @@ public class RealEstateBlock implements ContextBlock {
     return sb.toString();
   }
   
+  private static final BlockScoring SCORING = BlockScoring.builder()
+      .pattern(Target.PATH, 0.35, "\\b(properties?|listings?|houses?|apartments?|rentals?|real-?estate)\\b")
+      .substring(Target.OPERATION, 0.20, "property", "listing", "house", "apartment", "rental", "mortgage")
+      .word(Target.SCHEMA, 0.35, "bedrooms?", "bathrooms?", "squareFeet", "price", "address", "zipCode",
+          "mls")
+      .word(Target.SCHEMA, 0.10, "yearBuilt", "propertyType", "garage", "amenities", "hoa")
+      .build();
+
   private static final String PROPERTY_EXAMPLE = """
       {
         "propertyId": "PROP-2024-5678",
@@ -157,7 +157,4 @@ public class RealEstateBlock implements ContextBlock {
       }
       """;
 
-  private static String safe(String s) {
-    return s == null ? "" : s.toLowerCase();
-  }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package ca.bazlur.smartmock.llm.blocks;
 
+import ca.bazlur.smartmock.llm.BlockScoring;
+import ca.bazlur.smartmock.llm.BlockScoring.Target;
 import ca.bazlur.smartmock.llm.ContextBlock;
 import ca.bazlur.smartmock.llm.EndpointInfo;
 import org.springframework.stereotype.Component;
@@ -10,22 +12,8 @@ public class SocialMediaBlock implements ContextBlock {
     return "social.media.v1";
   }
 
-  public double score(EndpointInfo i) {
-    double s = 0.0;
-    String p = safe(i.path());
-    String op = safe(i.operationId());
-    String j = safe(i.jsonSchemaMinified());
-
-    if (p.matches(".*\\b(posts?|comments?|likes?|followers?|feeds?|profiles?|stories?|messages?)\\b.*"))
-      s += 0.35;
-    if (op.matches(".*(post|comment|like|follow|share|profile|feed|story).*"))
-      s += 0.20;
-    if (j.matches("(?s).*\\b(username|followers|following|likes|shares|views|hashtags?)\\b.*"))
-      s += 0.35;
-    if (j.matches("(?s).*\\b(profilePicture|bio|verified|engagement|reach)\\b.*"))
-      s += 0.10;
-
-    return Math.min(1.0, s);
+  public BlockScoring scoring() {
+    return SCORING;
   }
 
   public String render(EndpointInfo i) {
@@ -59,6 +47,16 @@ public class SocialMediaBlock implements ContextBlock {
     return sb.toString();
   }
 
+  private static final BlockScoring SCORING = BlockScoring.builder()
+      .word(Target.PATH, 0.35, "posts?", "comments?", "likes?", "followers?", "feeds?", "profiles?",
+          "stories?", "messages?")
+      .substring(Target.OPERATION, 0.20, "post", "comment", "like", "follow", "share", "profile", "feed",
+          "story")
+      .word(Target.SCHEMA, 0.35, "username", "followers", "following", "likes", "shares", "views",
+          "hashtags?")
+      .word(Target.SCHEMA, 0.10, "profilePicture", "bio", "verified", "engagement", "reach")
+      .build();
+
   private static final String POST_EXAMPLE = """
       {
         "postId": "post-2024-789456",
@@ -149,7 +147,4 @@ public class SocialMediaBlock implements ContextBlock {
       }
       """;
 
-  private static String safe(String s) {
-    return s == null ? "" : s.toLowerCase();
-  }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package ca.bazlur.smartmock.llm.blocks;
 
+import ca.bazlur.smartmock.llm.BlockScoring;
+import ca.bazlur.smartmock.llm.BlockScoring.Target;
 import ca.bazlur.smartmock.llm.ContextBlock;
 import ca.bazlur.smartmock.llm.EndpointInfo;
 import org.springframework.stereotype.Component;
@@ -10,18 +12,8 @@ public class TravelBlock implements ContextBlock {
     return "travel.booking.v1";
   }
 
-  public double score(EndpointInfo i) {
-    double s = 0.0;
-    String p = safe(i.path());
-    String op = safe(i.operationId());
-    String j = safe(i.jsonSchemaMinified());
-
-    if (p.matches(".*\\b(flights?|hotels?|bookings?|reservations?|trips?|travel|destinations?)\\b.*")) s += 0.35;
-    if (op.matches(".*(flight|hotel|booking|reservation|itinerary|travel).*")) s += 0.20;
-    if (j.matches("(?s).*\\b(departure|arrival|checkin|checkout|passengers?|flightNumber|airline)\\b.*")) s += 0.35;
-    if (j.matches("(?s).*\\b(destination|origin|duration|layover|class|seat)\\b.*")) s += 0.10;
-
-    return Math.min(1.0, s);
+  public BlockScoring scoring() {
+    return SCORING;
   }
 
   public String render(EndpointInfo i) {
@@ -55,6 +47,15 @@ public class TravelBlock implements ContextBlock {
     return sb.toString();
   }
   
+  private static final BlockScoring SCORING = BlockScoring.builder()
+      .word(Target.PATH, 0.35, "flights?", "hotels?", "bookings?", "reservations?", "trips?", "travel",
+          "destinations?")
+      .substring(Target.OPERATION, 0.20, "flight", "hotel", "booking", "reservation", "itinerary", "travel")
+      .word(Target.SCHEMA, 0.35, "departure", "arrival", "checkin", "checkout", "passengers?", "flightNumber",
+          "airline")
+      .word(Target.SCHEMA, 0.10, "destination", "origin", "duration", "layover", "class", "seat")
+      .build();
+
   private static final String FLIGHT_EXAMPLE = """
       {
         "bookingReference": "ABC123",
@@ -170,7 +171,4 @@ public class TravelBlock implements ContextBlock {
       }
       """;
 
-  private static String safe(String s) {
-    return s == null ? "" : s.toLowerCase();
-  }
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package ca.bazlur.smartmock.llm.correlation;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One correlation rule as written in YAML. See {@code correlation-rules.yaml} for the
+ * built-in rules and a description of every field.
+ */
+@Data
+public class CorrelationRuleDefinition {
+    private String id;
+    private String in;
+    private List<String> names;
+    private List<String> contains;
+    private List<String> prefixes;
+    private String pattern;
+    private boolean ignoreCase;
+    private List<String> methods;
+    private Boolean whenBoolean;
+    private boolean once;
+    private List<String> say;
+
+    @Data
+    public static class RuleFile {
+        private List<CorrelationRuleDefinition> rules;
+    }
+}
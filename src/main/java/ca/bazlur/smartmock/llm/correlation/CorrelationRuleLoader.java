@@ -0,0 +1,119 @@
+package ca.bazlur.smartmock.llm.correlation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Loads correlation rules from the {@code correlations} directory next to the external
+ * blocks, followed by the built-in {@value #BUILT_IN_RULES}, and publishes them compiled.
+ */
+@Slf4j
+@Component
+public class CorrelationRuleLoader {
+
+    static final String BUILT_IN_RULES = "correlation-rules.yaml";
+    static final String RULES_DIRECTORY = "correlations";
+
+    private final YAMLMapper yamlMapper;
+    private final ObjectMapper jsonMapper;
+
+    @Value("${smart-mock.blocks.external.enabled:true}")
+    private boolean enabled;
+
+    @Value("${smart-mock.blocks.external.path:${user.home}/.smart-mock/blocks}")
+    private String blocksPath;
+
+    private volatile CorrelationRules rules = BuiltIn.RULES;
+
+    public CorrelationRuleLoader(@Qualifier("yamlMapper") YAMLMapper yamlMapper,
+                                 @Qualifier("objectMapper") ObjectMapper jsonMapper) {
+        this.yamlMapper = yamlMapper;
+        this.jsonMapper = jsonMapper;
+    }
+
+    /** The built-in rules alone, compiled once. */
+    public static CorrelationRules builtIn() {
+        return BuiltIn.RULES;
+    }
+
+    public CorrelationRules rules() {
+        return rules;
+    }
+
+    @PostConstruct
+    public void reloadRules() {
+        List<CorrelationRuleDefinition> definitions = new ArrayList<>();
+        if (enabled) {
+            definitions.addAll(loadDirectory(Paths.get(blocksPath, RULES_DIRECTORY)));
+        }
+        int custom = definitions.size();
+        definitions.addAll(BuiltIn.DEFINITIONS);
+        rules = CorrelationRules.compile(definitions);
+        log.info("Loaded {} correlation rules ({} custom)", rules.size(), custom);
+    }
+
+    private List<CorrelationRuleDefinition> loadDirectory(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        List<CorrelationRuleDefinition> definitions = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.filter(Files::isRegularFile)
+                 .filter(CorrelationRuleLoader::isRuleFile)
+                 .sorted()
+                 .forEach(file -> definitions.addAll(loadFile(file)));
+        } catch (IOException e) {
+            log.error("Error scanning correlation rules directory: {}", directory, e);
+        }
+        return definitions;
+    }
+
+    private List<CorrelationRuleDefinition> loadFile(Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            ObjectMapper mapper = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json")
+                ? jsonMapper : yamlMapper;
+            var ruleFile = mapper.readValue(in, CorrelationRuleDefinition.RuleFile.class);
+            List<CorrelationRuleDefinition> definitions = ruleFile != null && ruleFile.getRules() != null
+                ? ruleFile.getRules() : List.of();
+            log.info("Loaded {} correlation rules from {}", definitions.size(), file.getFileName());
+            return definitions;
+        } catch (Exception e) {
+            log.error("Failed to load correlation rules from file: {}", file, e);
+            return List.of();
+        }
+    }
+
+    private static boolean isRuleFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".yaml") || name.endsWith(".yml") || name.endsWith(".json");
+    }
+
+    static final class BuiltIn {
+        static final List<CorrelationRuleDefinition> DEFINITIONS = read();
+        static final CorrelationRules RULES = CorrelationRules.compile(DEFINITIONS);
+
+        private static List<CorrelationRuleDefinition> read() {
+            try (InputStream in = new ClassPathResource(BUILT_IN_RULES).getInputStream()) {
+                return List.copyOf(new YAMLMapper().readValue(in, CorrelationRuleDefinition.RuleFile.class).getRules());
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot read " + BUILT_IN_RULES, e);
+            }
+        }
+    }
+}
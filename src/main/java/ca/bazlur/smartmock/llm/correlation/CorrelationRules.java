@@ -0,0 +1,301 @@
+package ca.bazlur.smartmock.llm.correlation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+
+/**
+ * A compiled, immutable set of correlation rules.
+ * <p>
+ * Which rules can apply to a parameter depends only on where it is, its name and the
+ * request method, all fixed by the endpoint, so that resolution is done once and cached;
+ * a request then only substitutes values. Path and query parameters take the first rule
+ * that accepts them. Body fields do too, but their lines are emitted in rule order, after
+ * the rules that apply to the body as a whole.
+ */
+@Slf4j
+public final class CorrelationRules {
+
+    public enum Location {PATH, QUERY, BODY}
+
+    private static final Rule[] NONE = new Rule[0];
+
+    private final List<Rule> rules;
+    // keyed by (location, method, name); name is null for rules on the whole body
+    private final Cache<NameKey, Rule[]> resolved = Caffeine.newBuilder()
+        .maximumSize(10_000)
+        .executor(Runnable::run) // read-mostly; skip hand-offs to the common pool
+        .build();
+
+    private CorrelationRules(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    /** Compiles {@code definitions} in order; invalid rules are logged and skipped. */
+    public static CorrelationRules compile(List<CorrelationRuleDefinition> definitions) {
+        List<Rule> rules = new ArrayList<>();
+        for (CorrelationRuleDefinition definition : definitions) {
+            Rule rule = Rule.compile(definition, rules.size());
+            if (rule != null) rules.add(rule);
+        }
+        return new CorrelationRules(List.copyOf(rules));
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    /**
+     * Appends the lines of every rule that applies to the request, in one pass over
+     * its path parameters, query parameters and top-level body fields.
+     */
+    public void correlate(String method, Map<String, Object> pathParams, Map<String, Object> queryParams,
+                          JsonNode body, List<String> out) {
+        String m = method != null ? method.toUpperCase(Locale.ROOT) : "";
+        if (pathParams != null) {
+            pathParams.forEach((name, value) -> correlate(Location.PATH, m, name, value, out));
+        }
+        if (queryParams != null) {
+            queryParams.forEach((name, value) -> correlate(Location.QUERY, m, name, value, out));
+        }
+        if (body != null) {
+            correlateBody(m, body, out);
+        }
+    }
+
+    private void correlate(Location in, String method, String name, Object value, List<String> out) {
+        Rule rule = firstAccepting(resolve(in, method, name), value);
+        if (rule != null) {
+            rule.say(name, value, out);
+        }
+    }
+
+    private void correlateBody(String method, JsonNode body, List<String> out) {
+        List<Hit> hits = new ArrayList<>();
+        for (Rule rule : resolve(Location.BODY, method, null)) {
+            hits.add(new Hit(rule, -1, null, body));
+        }
+        if (body.isObject()) {
+            for (Map.Entry<String, JsonNode> field : body.properties()) {
+                Rule rule = firstAccepting(resolve(Location.BODY, method, field.getKey()), field.getValue());
+                if (rule != null) {
+                    hits.add(new Hit(rule, rule.rank(field.getKey()), field.getKey(), field.getValue()));
+                }
+            }
+        }
+        hits.sort(Hit.ORDER);
+        Rule previous = null;
+        for (Hit hit : hits) {
+            if (hit.rule() != previous || !hit.rule().once) {
+                hit.rule().say(hit.name(), hit.value(), out);
+            }
+            previous = hit.rule();
+        }
+    }
+
+    private Rule[] resolve(Location in, String method, String name) {
+        return resolved.get(new NameKey(in, method, name), this::resolve);
+    }
+
+    private Rule[] resolve(NameKey key) {
+        List<Rule> matched = new ArrayList<>();
+        for (Rule rule : rules) {
+            if (rule.in != key.in() || !rule.appliesTo(key.method())) continue;
+            if (key.name() == null ? !rule.matchesAnyName() : !rule.matches(key.name(), key.in())) continue;
+            matched.add(rule);
+            if (key.name() != null && rule.whenBoolean == null) {
+                break; // accepts every value, so later rules are never reached
+            }
+        }
+        return matched.isEmpty() ? NONE : matched.toArray(Rule[]::new);
+    }
+
+    private static Rule firstAccepting(Rule[] candidates, Object value) {
+        for (Rule rule : candidates) {
+            if (rule.accepts(value)) return rule;
+        }
+        return null;
+    }
+
+    private record NameKey(Location in, String method, String name) {
+    }
+
+    private record Hit(Rule rule, int rank, String name, Object value) {
+        static final Comparator<Hit> ORDER = Comparator.comparingInt((Hit h) -> h.rule().order)
+            .thenComparingInt(Hit::rank);
+    }
+
+    private static final class Rule {
+        final int order;
+        final Location in;
+        final Set<String> methods;
+        final List<String> names;
+        final List<String> contains;
+        final List<String> prefixes;
+        final Pattern pattern;
+        final boolean ignoreCase;
+        final Boolean whenBoolean;
+        final boolean once;
+        final List<Line> lines;
+
+        private Rule(int order, Location in, CorrelationRuleDefinition d, Pattern pattern, List<Line> lines) {
+            this.order = order;
+            this.in = in;
+            this.ignoreCase = d.isIgnoreCase();
+            this.methods = d.getMethods() == null ? Set.of()
+                : d.getMethods().stream().map(s -> s.toUpperCase(Locale.ROOT)).collect(Collectors.toUnmodifiableSet());
+            this.names = normalize(d.getNames());
+            this.contains = normalize(d.getContains());
+            this.prefixes = normalize(d.getPrefixes());
+            this.pattern = pattern;
+            this.whenBoolean = d.getWhenBoolean();
+            this.once = d.isOnce();
+            this.lines = lines;
+        }
+
+        static Rule compile(CorrelationRuleDefinition d, int order) {
+            String id = d.getId() != null ? d.getId() : "#" + order;
+            Location in;
+            try {
+                in = Location.valueOf(String.valueOf(d.getIn()).toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                log.warn("Skipping correlation rule '{}': 'in' must be path, query or body, was {}", id, d.getIn());
+                return null;
+            }
+            if (d.getSay() == null || d.getSay().isEmpty()) {
+                log.warn("Skipping correlation rule '{}': nothing to say", id);
+                return null;
+            }
+            Pattern pattern = null;
+            if (d.getPattern() != null) {
+                try {
+                    pattern = Pattern.compile(d.getPattern(), d.isIgnoreCase() ? Pattern.CASE_INSENSITIVE : 0);
+                } catch (PatternSyntaxException e) {
+                    log.warn("Skipping correlation rule '{}': invalid pattern {}", id, d.getPattern());
+                    return null;
+                }
+            }
+            return new Rule(order, in, d, pattern, d.getSay().stream().map(Line::compile).toList());
+        }
+
+        private List<String> normalize(List<String> values) {
+            if (values == null) return List.of();
+            return values.stream().map(v -> ignoreCase ? v.toLowerCase(Locale.ROOT) : v).toList();
+        }
+
+        boolean appliesTo(String method) {
+            return methods.isEmpty() || methods.contains(method);
+        }
+
+        boolean matchesAnyName() {
+            return names.isEmpty() && contains.isEmpty() && prefixes.isEmpty() && pattern == null;
+        }
+
+        boolean matches(String name, Location location) {
+            // a rule without name conditions covers every parameter, but on the body it means the body itself
+            if (matchesAnyName()) return location != Location.BODY;
+            String n = ignoreCase ? name.toLowerCase(Locale.ROOT) : name;
+            if (names.contains(n)) return true;
+            for (String part : contains) {
+                if (n.contains(part)) return true;
+            }
+            for (String prefix : prefixes) {
+                if (n.startsWith(prefix)) return true;
+            }
+            return pattern != null && pattern.matcher(name).find();
+        }
+
+        /** Position of an exact name match; names listed first come first. */
+        int rank(String name) {
+            int i = names.indexOf(ignoreCase ? name.toLowerCase(Locale.ROOT) : name);
+            return i >= 0 ? i : Integer.MAX_VALUE;
+        }
+
+        boolean accepts(Object value) {
+            if (whenBoolean == null) return true;
+            if (value instanceof Boolean b) return b.equals(whenBoolean);
+            return value instanceof JsonNode node && node.isBoolean() && node.booleanValue() == whenBoolean;
+        }
+
+        void say(String name, Object value, List<String> out) {
+            for (Line line : lines) {
+                out.add(line.render(name, value));
+            }
+        }
+    }
+
+    /** A line with its {name}, {value} and {int:default} placeholders split out once. */
+    private record Line(Object[] parts) {
+        private enum Slot {NAME, VALUE}
+
+        private record IntSlot(int fallback) {
+        }
+
+        static Line compile(String template) {
+            List<Object> parts = new ArrayList<>();
+            int from = 0;
+            for (int open = template.indexOf('{'); open >= 0; open = template.indexOf('{', open + 1)) {
+                int close = template.indexOf('}', open);
+                if (close < 0) break;
+                Object slot = slot(template.substring(open + 1, close));
+                if (slot == null) continue;
+                if (open > from) parts.add(template.substring(from, open));
+                parts.add(slot);
+                from = close + 1;
+                open = close;
+            }
+            if (from < template.length()) parts.add(template.substring(from));
+            return new Line(parts.toArray());
+        }
+
+        private static Object slot(String name) {
+            if (name.equals("name")) return Slot.NAME;
+            if (name.equals("value")) return Slot.VALUE;
+            if (name.equals("int")) return new IntSlot(0);
+            if (name.startsWith("int:")) {
+                try {
+                    return new IntSlot(Integer.parseInt(name.substring(4).trim()));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        String render(String name, Object value) {
+            StringBuilder sb = new StringBuilder();
+            for (Object part : parts) {
+                if (part == Slot.NAME) sb.append(name);
+                else if (part == Slot.VALUE) sb.append(text(value));
+                else if (part instanceof IntSlot slot) sb.append(intValue(value, slot.fallback()));
+                else sb.append((String) part);
+            }
+            return sb.toString();
+        }
+
+        private static String text(Object value) {
+            return value instanceof JsonNode node ? node.asText() : String.valueOf(value);
+        }
+
+        private static int intValue(Object value, int fallback) {
+            if (value instanceof Number n) return n.intValue();
+            if (value instanceof JsonNode node && node.isNumber()) return node.intValue();
+            try {
+                return Integer.parseInt(text(value));
+            } catch (NumberFormatException e) {
+                return fallback;
+            }
+        }
+    }
+}
@@ -4,23 +4,47 @@ import ca.bazlur.smartmock.llm.ContextBlock;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
+/**
+ * Loads context blocks from YAML/JSON files in the blocks directory and, when watching is
+ * enabled, keeps them in sync with it: changed files are re-parsed one by one and the whole
+ * set is published as a new immutable list, which readers pick up without locking.
+ */
 @Slf4j
 @Component
 public class ExternalBlockLoader {
     
+    // editors often write a file in several steps; wait for them to settle before re-parsing
+    private static final long SETTLE_MILLIS = 250;
+    
     private final YAMLMapper yamlMapper;
     private final ObjectMapper jsonMapper;
     
@@ -36,7 +60,19 @@ public class ExternalBlockLoader {
     @Value("${smart-mock.blocks.external.path:${user.home}/.smart-mock/blocks}")
     private String blocksPath;
     
-    private final List<ContextBlock> externalBlocks = new ArrayList<>();
+    @Value("${smart-mock.blocks.external.watch:true}")
+    private boolean watch;
+    
+    private record LoadedFile(FileTime modified, long size, ContextBlock block) {
+    }
+    
+    // written only under the instance lock; readers use the published snapshot
+    private final Map<Path, LoadedFile> loadedFiles = new TreeMap<>();
+    private volatile List<ContextBlock> externalBlocks = List.of();
+    private final List<Consumer<List<ContextBlock>>> listeners = new CopyOnWriteArrayList<>();
+    
+    private WatchService watchService;
+    private Thread watcher;
     
     @PostConstruct
     public void loadExternalBlocks() {
@@ -55,21 +91,52 @@ public class ExternalBlockLoader {
             }
             
             loadBlocksFromDirectory(blockDir);
+            if (watch) {
+                startWatching(blockDir);
+            }
             
         } catch (Exception e) {
             log.error("Failed to load external blocks from: {}", blocksPath, e);
         }
     }
     
-    private void loadBlocksFromDirectory(Path directory) {
+    /** Immutable snapshot of the loaded blocks, ordered by file name. */
+    public List<ContextBlock> getExternalBlocks() {
+        return externalBlocks;
+    }
+    
+    /** Called with every newly published snapshot, on the thread that published it. */
+    public void addListener(Consumer<List<ContextBlock>> listener) {
+        listeners.add(listener);
+    }
+    
+    /** Rescans the whole directory; only files that changed since they were loaded are re-parsed. */
+    public void reloadBlocks() {
+        loadExternalBlocks();
+    }
+    
+    @PreDestroy
+    public synchronized void stopWatching() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.debug("Failed to close blocks watcher", e);
+            }
+            watchService = null;
+            watcher = null;
+        }
+    }
+    
+    private synchronized void loadBlocksFromDirectory(Path directory) {
         try (Stream<Path> paths = Files.walk(directory, 1)) {
+            Set<Path> changed = new HashSet<>(loadedFiles.keySet());
             paths.filter(Files::isRegularFile)
-                 .filter(p -> {
-                     String name = p.getFileName().toString().toLowerCase();
-                     return name.endsWith(".yaml") || name.endsWith(".yml") || name.endsWith(".json");
-                 })
-                 .forEach(this::loadBlockFile);
-                 
+                 .filter(ExternalBlockLoader::isBlockFile)
+                 .map(p -> p.toAbsolutePath().normalize())
+                 .forEach(changed::add);
+            applyChanges(changed);
+            
             log.info("Loaded {} external context blocks from {}", externalBlocks.size(), directory);
             
         } catch (Exception e) {
@@ -77,7 +144,49 @@ public class ExternalBlockLoader {
         }
     }
     
-    private void loadBlockFile(Path file) {
+    /**
+     * Re-parses the given files if their size or modification time changed, drops the ones
+     * that are gone, and publishes a new snapshot when anything differs.
+     */
+    synchronized void applyChanges(Collection<Path> files) {
+        boolean changed = false;
+        for (Path file : files) {
+            Path key = file.toAbsolutePath().normalize();
+            BasicFileAttributes attrs = attributes(key);
+            if (attrs == null || !attrs.isRegularFile() || !isBlockFile(key)) {
+                changed |= loadedFiles.remove(key) != null;
+                continue;
+            }
+            LoadedFile previous = loadedFiles.get(key);
+            if (previous != null && previous.modified().equals(attrs.lastModifiedTime()) && previous.size() == attrs.size()) {
+                continue;
+            }
+            ContextBlock block = loadBlockFile(key);
+            if (block != null) {
+                loadedFiles.put(key, new LoadedFile(attrs.lastModifiedTime(), attrs.size(), block));
+            } else {
+                loadedFiles.remove(key);
+            }
+            changed = true;
+        }
+        if (changed) {
+            publish();
+        }
+    }
+    
+    private void publish() {
+        List<ContextBlock> snapshot = loadedFiles.values().stream().map(LoadedFile::block).toList();
+        externalBlocks = snapshot;
+        for (var listener : listeners) {
+            try {
+                listener.accept(snapshot);
+            } catch (Exception e) {
+                log.error("External blocks listener failed", e);
+            }
+        }
+    }
+    
+    private ContextBlock loadBlockFile(Path file) {
         try {
             String content = Files.readString(file);
             String fileName = file.getFileName().toString().toLowerCase();
@@ -95,22 +204,73 @@ public class ExternalBlockLoader {
             }
             
             ExternalContextBlock block = new ExternalContextBlock(definition);
-            externalBlocks.add(block);
-            
             log.info("Loaded external block '{}' from {}", definition.getId(), file.getFileName());
+            return block;
             
         } catch (Exception e) {
             log.error("Failed to load block from file: {}", file, e);
+            return null;
         }
     }
     
-    public List<ContextBlock> getExternalBlocks() {
-        return new ArrayList<>(externalBlocks);
+    private synchronized void startWatching(Path directory) throws IOException {
+        if (watcher != null) return;
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        WatchService service = watchService;
+        watcher = Thread.ofPlatform()
+            .name("external-blocks-watcher")
+            .daemon()
+            .start(() -> watch(service, directory));
+        log.info("Watching {} for block changes", directory);
     }
     
-    public void reloadBlocks() {
-        externalBlocks.clear();
-        loadExternalBlocks();
+    private void watch(WatchService service, Path directory) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Set<Path> changed = new HashSet<>();
+                boolean overflow = false;
+                // collect everything that arrives while the writer settles, then apply once
+                do {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            overflow = true;
+                        } else {
+                            changed.add(directory.resolve((Path) event.context()));
+                        }
+                    }
+                    key.reset();
+                    key = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                } while (key != null);
+                
+                if (overflow) {
+                    loadBlocksFromDirectory(directory);
+                } else {
+                    applyChanges(changed);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            log.debug("Stopped watching {}", directory);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Blocks watcher for {} failed; use /api/blocks/reload to pick up changes", directory, e);
+        }
+    }
+    
+    private static BasicFileAttributes attributes(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    private static boolean isBlockFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        return name.endsWith(".yaml") || name.endsWith(".yml") || name.endsWith(".json");
     }
     
     private void createSampleBlocks(Path directory) {
@@ -1,19 +1,22 @@
 package ca.bazlur.smartmock.llm.external;
 
+import ca.bazlur.smartmock.llm.BlockScoring;
 import ca.bazlur.smartmock.llm.ContextBlock;
 import ca.bazlur.smartmock.llm.EndpointInfo;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.regex.Pattern;
-
 @Slf4j
-@RequiredArgsConstructor
 public class ExternalContextBlock implements ContextBlock {
     
     @Getter
     private final ExternalBlockDefinition definition;
+    private final BlockScoring scoring;
+    
+    public ExternalContextBlock(ExternalBlockDefinition definition) {
+        this.definition = definition;
+        this.scoring = compileScoring(definition.getScoring());
+    }
     
     @Override
     public String id() {
@@ -21,46 +24,8 @@ public class ExternalContextBlock implements ContextBlock {
     }
     
     @Override
-    public double score(EndpointInfo info) {
-        double totalScore = 0.0;
-        
-        String path = safe(info.path());
-        String operationId = safe(info.operationId());
-        String jsonSchema = safe(info.jsonSchemaMinified());
-        
-        if (definition.getScoring() != null) {
-            var scoring = definition.getScoring();
-            
-            if (scoring.getBaseScore() != null) {
-                totalScore = scoring.getBaseScore();
-            }
-            
-            if (scoring.getPathPatterns() != null) {
-                for (var pathPattern : scoring.getPathPatterns()) {
-                    if (matches(path, pathPattern.getPattern())) {
-                        totalScore += pathPattern.getScore();
-                    }
-                }
-            }
-            
-            if (scoring.getOperationPatterns() != null) {
-                for (var opPattern : scoring.getOperationPatterns()) {
-                    if (matches(operationId, opPattern.getPattern())) {
-                        totalScore += opPattern.getScore();
-                    }
-                }
-            }
-            
-            if (scoring.getSchemaPatterns() != null) {
-                for (var schemaPattern : scoring.getSchemaPatterns()) {
-                    if (matches(jsonSchema, schemaPattern.getPattern())) {
-                        totalScore += schemaPattern.getScore();
-                    }
-                }
-            }
-        }
-        
-        return Math.min(1.0, Math.max(0.0, totalScore));
+    public BlockScoring scoring() {
+        return scoring;
     }
     
     @Override
@@ -100,13 +65,27 @@ public class ExternalContextBlock implements ContextBlock {
         return sb.toString();
     }
     
-    private boolean matches(String text, String pattern) {
-        if (text == null || pattern == null) return false;
-        try {
-            return Pattern.compile(pattern, Pattern.CASE_INSENSITIVE).matcher(text).find();
-        } catch (Exception e) {
-            log.debug("Pattern matching failed for pattern: {}", pattern, e);
-            return false;
+    private static BlockScoring compileScoring(ExternalBlockDefinition.ScoreRules rules) {
+        var builder = BlockScoring.builder();
+        if (rules == null) return builder.build();
+        if (rules.getBaseScore() != null) {
+            builder.baseScore(rules.getBaseScore());
+        }
+        if (rules.getPathPatterns() != null) {
+            rules.getPathPatterns().forEach(p -> add(builder, BlockScoring.Target.PATH, p.getPattern(), p.getScore()));
+        }
+        if (rules.getOperationPatterns() != null) {
+            rules.getOperationPatterns().forEach(p -> add(builder, BlockScoring.Target.OPERATION, p.getPattern(), p.getScore()));
+        }
+        if (rules.getSchemaPatterns() != null) {
+            rules.getSchemaPatterns().forEach(p -> add(builder, BlockScoring.Target.SCHEMA, p.getPattern(), p.getScore()));
+        }
+        return builder.build();
+    }
+    
+    private static void add(BlockScoring.Builder builder, BlockScoring.Target target, String pattern, Double score) {
+        if (pattern != null && score != null) {
+            builder.pattern(target, score, pattern);
         }
     }
     
@@ -132,8 +111,4 @@ public class ExternalContextBlock implements ContextBlock {
             return false;
         }
     }
-    
-    private String safe(String s) {
-        return s == null ? "" : s.toLowerCase();
-    }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package ca.bazlur.smartmock.model;
+
+import io.swagger.v3.oas.models.media.Schema;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Request-independent part of a generation plan, compiled once per
+ * (endpoint, response key, content type) when a spec is indexed.
+ */
+@Value
+@Builder(toBuilder = true)
+public class CompiledPlan {
+    String responseKey;
+    String contentType;
+    Schema<?> responseSchema;
+    String jsonSchema;
+    // sha-256 of jsonSchema; plans with identical schemas share one compiled validator
+    String schemaDigest;
+    String jsonSchemaMinified;
+    boolean arraySchema;
+    List<String> blockIds;
+    String renderedBlocks;
+    // ContextRegistry generation the blocks were selected from
+    long blocksGeneration;
+    String fieldGuidance;
+
+    public static String key(String method, String path, String responseKey, String contentType) {
+        return method + ' ' + path + ' ' + responseKey + ' ' + contentType;
+    }
+}
@@ -0,0 +1,40 @@
+package ca.bazlur.smartmock.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Value;
+
+/**
+ * What is kept of a mock request body once it has been streamed: its size, a digest
+ * for cache keys and a bounded summary for the prompt. The full body is never held.
+ * <p>
+ * The summary mirrors the JSON structure with long strings cut short, objects limited
+ * to their first fields and long arrays replaced by
+ * {@code {"$length": n, "$sample": [...]}}. A body that is not JSON is summarized as
+ * a text node holding its first bytes.
+ */
+@Value
+public class MockRequestBody {
+    public static final String LENGTH_KEY = "$length";
+    public static final String SAMPLE_KEY = "$sample";
+    public static final String OMITTED_FIELDS_KEY = "$omittedFields";
+
+    public static final MockRequestBody EMPTY = new MockRequestBody(0, null, null);
+
+    long size;
+    /** Hex SHA-256 of the raw bytes; {@code null} when the body is empty. */
+    String digest;
+    /** {@code null} when the body is empty. */
+    JsonNode summary;
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Element count of a top-level array, whether or not it was truncated; -1 otherwise. */
+    public static int arrayLength(JsonNode summary) {
+        if (summary == null) return -1;
+        if (summary.isArray()) return summary.size();
+        JsonNode length = summary.get(LENGTH_KEY);
+        return length != null && summary.has(SAMPLE_KEY) ? length.asInt() : -1;
+    }
+}
@@ -2,12 +2,44 @@ package ca.bazlur.smartmock.model;
 
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import org.springframework.http.HttpHeaders;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 @Data
 @Builder
 public class MockResult {
     private int status;
-    private String body;
+    // serialized once and written to the socket as-is, including on cache hits
+    private byte[] body;
+    // strong validator of body, quoted; also in headers, with Content-Length
+    private String etag;
     private HttpHeaders headers;
-}
\ No newline at end of file
+    // what the body was generated for; seed variants are derived from its schema
+    private CompiledPlan plan;
+    // content-coding -> compressed body and its headers, each made at most once
+    @Builder.Default
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Map<String, Encoded> encodings = new ConcurrentHashMap<>();
+
+    /** A representation of the body as sent, with the headers that go with it. */
+    public record Encoded(byte[] body, HttpHeaders headers) {
+    }
+
+    /** A strong ETag for {@code body}: the first 128 bits of its SHA-256, quoted. */
+    public static String etagOf(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return '"' + HexFormat.of().formatHex(digest, 0, 16) + '"';
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -4,8 +4,6 @@ import io.swagger.v3.oas.models.media.Schema;
 import lombok.Builder;
 import lombok.Data;
 
-import java.util.Map;
-
 @Data
 @Builder
 public class Plan {
@@ -13,7 +11,8 @@ public class Plan {
     private int statusCode;
     private Schema<?> responseSchema;
     private String jsonSchema;
-    private Map<String, Object> requestContext;
+    private CompiledPlan compiled;
+    private RequestView request;
     private String operationId;
     private String path;
     private String method;
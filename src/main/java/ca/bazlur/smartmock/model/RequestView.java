@@ -0,0 +1,118 @@
+package ca.bazlur.smartmock.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.cfg.JsonNodeFeature;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The incoming mock request as seen by the planner, the correlator and the prompt builder.
+ * <p>
+ * The body is parsed at most once, on first use, and the canonical rendering (minified,
+ * keys sorted) is produced at most once. A view belongs to a single request and is not
+ * meant to be shared between threads.
+ */
+public final class RequestView {
+    public static final String BODY_KEY = "requestBody";
+
+    private final Map<String, Object> fields;
+    private final String rawBody;
+    private final ObjectReader reader;
+    private final ObjectWriter canonicalWriter;
+
+    private JsonNode body;
+    private Map<String, Object> map;
+    private String canonicalJson;
+
+    /**
+     * @param fields          request attributes in prompt order, without the body
+     * @param rawBody         request body as received, may be {@code null}
+     * @param reader          shared reader used to parse the body
+     * @param canonicalWriter shared writer from {@link #canonicalWriter(ObjectMapper)}
+     */
+    public RequestView(Map<String, Object> fields, String rawBody, ObjectReader reader, ObjectWriter canonicalWriter) {
+        this.fields = fields;
+        this.rawBody = rawBody == null || rawBody.isBlank() ? null : rawBody;
+        this.reader = reader;
+        this.canonicalWriter = canonicalWriter;
+    }
+
+    /**
+     * @param fields          request attributes in prompt order, without the body
+     * @param body            body already reduced to a tree, e.g. a {@link MockRequestBody} summary; may be {@code null}
+     * @param canonicalWriter shared writer from {@link #canonicalWriter(ObjectMapper)}
+     */
+    public RequestView(Map<String, Object> fields, JsonNode body, ObjectWriter canonicalWriter) {
+        this.fields = fields;
+        this.rawBody = null;
+        this.reader = null;
+        this.canonicalWriter = canonicalWriter;
+        this.body = body;
+    }
+
+    /** Writer for {@link #canonicalJson()}; build once per mapper and reuse, it is thread-safe. */
+    public static ObjectWriter canonicalWriter(ObjectMapper mapper) {
+        return mapper.writer()
+            .without(SerializationFeature.INDENT_OUTPUT)
+            .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .with(JsonNodeFeature.WRITE_PROPERTIES_SORTED);
+    }
+
+    public Object get(String key) {
+        return BODY_KEY.equals(key) ? body() : fields.get(key);
+    }
+
+    public String path() {
+        Object path = fields.get("path");
+        return path != null ? path.toString() : "";
+    }
+
+    public String method() {
+        Object method = fields.get("method");
+        return method != null ? method.toString() : "";
+    }
+
+    /** Parsed body; a body that is not JSON is kept as a text node. {@code null} when there is no body. */
+    public JsonNode body() {
+        if (body == null && rawBody != null) {
+            try {
+                body = reader.readTree(rawBody);
+            } catch (Exception e) {
+                body = TextNode.valueOf(rawBody);
+            }
+        }
+        return body;
+    }
+
+    public Map<String, Object> asMap() {
+        if (map == null) {
+            if (body() == null) {
+                map = fields;
+            } else {
+                Map<String, Object> m = new LinkedHashMap<>(fields);
+                m.put(BODY_KEY, body());
+                map = Collections.unmodifiableMap(m);
+            }
+        }
+        return map;
+    }
+
+    /** Minified JSON of {@link #asMap()} with keys sorted at every level. */
+    public String canonicalJson() {
+        if (canonicalJson == null) {
+            try {
+                canonicalJson = canonicalWriter.writeValueAsString(asMap());
+            } catch (Exception e) {
+                canonicalJson = String.valueOf(asMap());
+            }
+        }
+        return canonicalJson;
+    }
+}
@@ -12,11 +12,11 @@ public class Signature {
     private String method;
     private String path;
     private String queryParams;
-    private String body;
+    private String bodyDigest;
     private String scenario;
     private String seed;
 
-    public static Signature from(HttpServletRequest request, String body) {
+    public static Signature from(HttpServletRequest request, MockRequestBody body) {
         String scenario = request.getHeader("X-Mock-Scenario");
         String seed = request.getHeader("X-Mock-Seed");
         
@@ -24,7 +24,7 @@ public class Signature {
                 .method(request.getMethod())
                 .path(request.getRequestURI().replace("/mock", ""))
                 .queryParams(request.getQueryString())
-                .body(body)
+                .bodyDigest(body.getDigest())
                 .scenario(scenario != null ? scenario : "happy")
                 .seed(seed != null ? seed : "default")
                 .build();
@@ -38,13 +38,13 @@ public class Signature {
         return Objects.equals(method, signature.method) &&
                 Objects.equals(path, signature.path) &&
                 Objects.equals(queryParams, signature.queryParams) &&
-                Objects.equals(body, signature.body) &&
+                Objects.equals(bodyDigest, signature.bodyDigest) &&
                 Objects.equals(scenario, signature.scenario) &&
                 Objects.equals(seed, signature.seed);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(method, path, queryParams, body, scenario, seed);
+        return Objects.hash(method, path, queryParams, bodyDigest, scenario, seed);
     }
 }
\ No newline at end of file
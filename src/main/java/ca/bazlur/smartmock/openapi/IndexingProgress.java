@@ -0,0 +1,23 @@
+package ca.bazlur.smartmock.openapi;
+
+/**
+ * Receives progress while a spec is parsed, indexed and compiled.
+ * Implementations must tolerate {@link #advance()} being called from several threads.
+ */
+public interface IndexingProgress {
+    IndexingProgress NONE = new IndexingProgress() {
+        @Override
+        public void phase(String phase, int totalUnits) {
+        }
+
+        @Override
+        public void advance() {
+        }
+    };
+
+    /** Starts a new phase; {@code totalUnits} is 0 when the amount of work is unknown. */
+    void phase(String phase, int totalUnits);
+
+    /** Marks one unit of the current phase as done. */
+    void advance();
+}
@@ -1,5 +1,6 @@
 package ca.bazlur.smartmock.openapi;
 
+import ca.bazlur.smartmock.model.CompiledPlan;
 import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.Operation;
 import io.swagger.v3.oas.models.PathItem;
@@ -10,70 +11,114 @@ import io.swagger.v3.oas.models.parameters.Parameter;
 import io.swagger.v3.oas.models.responses.ApiResponse;
 import io.swagger.v3.parser.core.models.SwaggerParseResult;
 import io.swagger.v3.parser.OpenAPIV3Parser;
-import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.util.AntPathMatcher;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
+/**
+ * Router and schema lookups for one OpenAPI spec.
+ * <p>
+ * Everything derived from a spec lives in an immutable {@link Snapshot} that is
+ * built off to the side and published with a single volatile write. Readers
+ * load the snapshot once and work against it without locks, so a request that
+ * is in flight while the spec is reloaded finishes against the version it
+ * started with instead of seeing a half-populated index.
+ */
 @Slf4j
 @Component
 public class OpenApiIndex {
 
-    // pattern -> (METHOD -> Endpoint)
-    private final Map<String, Map<String, Endpoint>> endpoints = new ConcurrentHashMap<>();
-    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
 
-    @Getter
-    private volatile OpenAPI openAPI;
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private final int maxRefDepth;
 
-    @Getter
-    private volatile String rawSpecContent;
+    public OpenApiIndex() {
+        this(SchemaGraph.DEFAULT_MAX_DEPTH);
+    }
+
+    public OpenApiIndex(int maxRefDepth) {
+        this.maxRefDepth = maxRefDepth;
+    }
+
+    public OpenAPI getOpenAPI() {
+        return snapshot.openAPI();
+    }
+
+    public String getRawSpecContent() {
+        return snapshot.rawSpecContent();
+    }
 
     public void loadSpec(String specContent) {
-        this.rawSpecContent = specContent;
+        loadSpec(specContent, IndexingProgress.NONE);
+    }
+
+    public void loadSpec(String specContent, IndexingProgress progress) {
+        loadSpec(specContent, progress, null);
+    }
+
+    /**
+     * Loads the spec together with its generation plans, which {@code compiler} builds from
+     * a private index over the new spec; readers see both, or neither, in one volatile write.
+     */
+    public void loadSpec(String specContent, IndexingProgress progress,
+                         Function<OpenApiIndex, Map<String, CompiledPlan>> compiler) {
+        progress.phase("PARSING", 0);
         SwaggerParseResult result = new OpenAPIV3Parser().readContents(specContent);
         if (result == null || result.getOpenAPI() == null) {
             log.error("Failed to parse OpenAPI spec from raw content. Messages: {}", result != null ? result.getMessages() : "none");
-            this.openAPI = null;
-            endpoints.clear();
+            this.snapshot = Snapshot.EMPTY.withRawSpecContent(specContent);
             return;
         }
-        this.openAPI = result.getOpenAPI();
-        indexEndpoints();
+        Snapshot built = buildSnapshot(result.getOpenAPI(), specContent, progress);
+        if (compiler != null) {
+            OpenApiIndex staged = new OpenApiIndex(maxRefDepth);
+            staged.snapshot = built;
+            built = built.withCompiledPlans(Map.copyOf(compiler.apply(staged)));
+        }
+        this.snapshot = built;
     }
 
     public void loadSpecFromFile(String filePath) {
         SwaggerParseResult result = new OpenAPIV3Parser().readLocation(filePath, null, null);
         if (result == null || result.getOpenAPI() == null) {
             log.error("Failed to parse OpenAPI spec from file: {}. Messages: {}", filePath, result != null ? result.getMessages() : "none");
-            this.openAPI = null;
-            this.rawSpecContent = null;
-            endpoints.clear();
+            this.snapshot = Snapshot.EMPTY;
             return;
         }
-        this.openAPI = result.getOpenAPI();
-        this.rawSpecContent = null; // unknown
-        indexEndpoints();
+        this.snapshot = buildSnapshot(result.getOpenAPI(), null, IndexingProgress.NONE); // raw content unknown
     }
     
     public void clear() {
-        this.openAPI = null;
-        this.rawSpecContent = null;
-        this.endpoints.clear();
+        this.snapshot = Snapshot.EMPTY;
         log.info("OpenAPI spec cleared");
     }
 
-    private void indexEndpoints() {
-        endpoints.clear();
-        if (openAPI == null || openAPI.getPaths() == null || openAPI.getPaths().isEmpty()) {
+    private Snapshot buildSnapshot(OpenAPI openAPI, String rawSpecContent, IndexingProgress progress) {
+        progress.phase("DEREFERENCING", 0);
+        SchemaGraph schemaGraph = SchemaGraph.build(openAPI, maxRefDepth);
+        List<Route> routes = indexEndpoints(openAPI, progress);
+        return new Snapshot(openAPI, rawSpecContent, schemaGraph, routes,
+            routes.stream().flatMap(r -> r.methods().values().stream()).toList(), Map.of());
+    }
+
+    private List<Route> indexEndpoints(OpenAPI openAPI, IndexingProgress progress) {
+        if (openAPI.getPaths() == null || openAPI.getPaths().isEmpty()) {
             log.warn("No paths to index.");
-            return;
+            return List.of();
         }
 
-        openAPI.getPaths().forEach((path, pathItem) -> {
+        // pattern -> (METHOD -> Endpoint); path items are independent, so large specs are indexed in parallel
+        Map<String, Map<String, Endpoint>> byPattern = new ConcurrentHashMap<>();
+        progress.phase("INDEXING", openAPI.getPaths().size());
+        openAPI.getPaths().entrySet().parallelStream().forEach(entry -> {
+            progress.advance();
+            String path = entry.getKey();
+            PathItem pathItem = entry.getValue();
             if (pathItem == null) return;
             Map<String, Endpoint> methodMap = new LinkedHashMap<>();
 
@@ -87,11 +132,19 @@ public class OpenApiIndex {
             putIfOp(methodMap, path, "TRACE", pathItem.getTrace());
 
             if (!methodMap.isEmpty()) {
-                endpoints.put(convertToAntPattern(path), methodMap);
+                byPattern.put(convertToAntPattern(path), Collections.unmodifiableMap(methodMap));
             }
         });
 
-        log.info("Indexed {} path patterns from OpenAPI spec", endpoints.size());
+        // Sorted once here so that match() can return the first hit: most specific pattern first
+        List<Route> routes = byPattern.entrySet().stream()
+            .map(e -> new Route(e.getKey(), e.getValue()))
+            .sorted(Comparator.comparingInt((Route r) -> specificityScore(r.pattern())).reversed()
+                .thenComparing(Route::pattern))
+            .toList();
+
+        log.info("Indexed {} path patterns from OpenAPI spec", routes.size());
+        return routes;
     }
 
     private void putIfOp(Map<String, Endpoint> map, String path, String method, Operation op) {
@@ -106,6 +159,24 @@ public class OpenApiIndex {
             .build());
     }
 
+    public List<Endpoint> endpoints() {
+        return snapshot.endpoints();
+    }
+
+    /** Publishes {@code plans} in a new snapshot; readers of the previous one are unaffected. */
+    public void installCompiledPlans(Map<String, CompiledPlan> plans) {
+        this.snapshot = snapshot.withCompiledPlans(Map.copyOf(plans));
+    }
+
+    public Map<String, CompiledPlan> compiledPlans() {
+        return snapshot.compiledPlans();
+    }
+
+    public Optional<CompiledPlan> findCompiledPlan(Endpoint endpoint, String responseKey, String contentType) {
+        return Optional.ofNullable(snapshot.compiledPlans().get(
+            CompiledPlan.key(endpoint.getMethod(), endpoint.getPath(), responseKey, contentType)));
+    }
+
     // `{id}` -> `*` (single segment). Keep the number of segments identical.
     private String convertToAntPattern(String openApiPath) {
         if (openApiPath == null || openApiPath.isBlank()) return openApiPath;
@@ -116,28 +187,16 @@ public class OpenApiIndex {
         if (method == null || requestPath == null) return Optional.empty();
         String normalizedMethod = method.toUpperCase(Locale.ROOT);
 
-        // Gather all matching patterns for this path
-        List<Map.Entry<String, Map<String, Endpoint>>> candidates = new ArrayList<>();
-        for (var e : endpoints.entrySet()) {
-            if (pathMatcher.match(e.getKey(), requestPath)) {
-                candidates.add(e);
-            }
-        }
-        if (candidates.isEmpty()) return Optional.empty();
-
-        // Choose the most specific pattern
-        candidates.sort(Comparator.comparingInt((Map.Entry<String, Map<String, Endpoint>> e) -> specificityScore(e.getKey()))
-            .reversed());
-
-        for (var e : candidates) {
-            Endpoint ep = e.getValue().get(normalizedMethod);
+        for (Route route : snapshot.routes()) {
+            if (!PATH_MATCHER.match(route.pattern(), requestPath)) continue;
+            Endpoint ep = route.methods().get(normalizedMethod);
             if (ep != null) return Optional.of(ep);
         }
         return Optional.empty();
     }
 
     // Higher score = more specific (longer, fewer wildcards)
-    private int specificityScore(String pattern) {
+    private static int specificityScore(String pattern) {
         int length = pattern.length();
         int wildcards = (int) pattern.chars().filter(ch -> ch == '*' || ch == '?').count();
         return (length * 10) - (wildcards * 100); // weight wildcards heavily
@@ -162,31 +221,37 @@ public class OpenApiIndex {
         return content.values().iterator().next().getSchema();
     }
 
+    /**
+     * Fully dereferenced form of {@code schema}: nested {@code $ref}s in properties,
+     * items and compositions are replaced by their (shared, memoized) targets.
+     */
     public Schema<?> resolveSchema(Schema<?> schema) {
-        return resolveSchema(schema, new HashSet<>());
+        return snapshot.schemaGraph().resolve(schema);
+    }
+
+    public Optional<Schema<?>> component(String name) {
+        return Optional.ofNullable(snapshot.schemaGraph().component(name));
+    }
+
+    private record Route(String pattern, Map<String, Endpoint> methods) {
     }
 
-    private Schema<?> resolveSchema(Schema<?> schema, Set<String> seenRefs) {
-        if (schema == null) return null;
+    private record Snapshot(OpenAPI openAPI,
+                            String rawSpecContent,
+                            SchemaGraph schemaGraph,
+                            List<Route> routes,
+                            List<Endpoint> endpoints,
+                            // CompiledPlan.key(...) -> plan
+                            Map<String, CompiledPlan> compiledPlans) {
 
-        String ref = schema.get$ref();
-        if (ref == null || ref.isBlank()) return schema;
+        static final Snapshot EMPTY = new Snapshot(null, null, SchemaGraph.empty(), List.of(), List.of(), Map.of());
 
-        String name = ref.substring(ref.lastIndexOf('/') + 1);
-        if (openAPI == null || openAPI.getComponents() == null || openAPI.getComponents().getSchemas() == null) {
-            return schema; // cannot resolve
-        }
-        if (!seenRefs.add(name)) {
-            log.warn("Cyclic $ref detected for schema: {}", name);
-            return schema;
+        Snapshot withRawSpecContent(String raw) {
+            return new Snapshot(openAPI, raw, schemaGraph, routes, endpoints, compiledPlans);
         }
 
-        Schema<?> target = openAPI.getComponents().getSchemas().get(name);
-        if (target == null) {
-            log.warn("Missing component schema for $ref: {}", name);
-            return schema;
+        Snapshot withCompiledPlans(Map<String, CompiledPlan> plans) {
+            return new Snapshot(openAPI, rawSpecContent, schemaGraph, routes, endpoints, plans);
         }
-        // Resolve recursively in case target itself is a $ref
-        return resolveSchema(target, seenRefs);
     }
 }
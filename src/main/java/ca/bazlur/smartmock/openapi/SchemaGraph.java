@@ -0,0 +1,234 @@
+package ca.bazlur.smartmock.openapi;
+
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.media.ObjectSchema;
+import io.swagger.v3.oas.models.media.Schema;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fully dereferenced view of a spec's component schemas.
+ * <p>
+ * Every {@code #/components/schemas/...} reference, including those nested in
+ * properties, items and compositions, is replaced by the dereferenced target.
+ * Components are memoized by name so that a component referenced from many
+ * places is the same instance everywhere. Recursive references are unrolled at
+ * most {@code maxDepth} times and then replaced by an empty object stub, so the
+ * resulting graph is always finite. The source {@link OpenAPI} model is never
+ * mutated; schemas that contain no references are returned as-is.
+ */
+@Slf4j
+public final class SchemaGraph {
+    public static final int DEFAULT_MAX_DEPTH = 3;
+    private static final String COMPONENT_PREFIX = "#/components/schemas/";
+
+    private final Map<String, Schema> components;
+    private final int maxDepth;
+    private final Map<String, Schema<?>> memo = new ConcurrentHashMap<>();
+
+    private SchemaGraph(Map<String, Schema> components, int maxDepth) {
+        this.components = components;
+        this.maxDepth = Math.max(1, maxDepth);
+    }
+
+    public static SchemaGraph build(OpenAPI openAPI, int maxDepth) {
+        Map<String, Schema> components = openAPI != null && openAPI.getComponents() != null
+            && openAPI.getComponents().getSchemas() != null
+            ? openAPI.getComponents().getSchemas()
+            : Collections.emptyMap();
+
+        SchemaGraph graph = new SchemaGraph(components, maxDepth);
+        components.keySet().forEach(graph::component);
+        log.debug("Dereferenced {} component schemas ({} memoized, max recursion depth {})",
+            components.size(), graph.memo.size(), graph.maxDepth);
+        return graph;
+    }
+
+    public static SchemaGraph empty() {
+        return new SchemaGraph(Collections.emptyMap(), DEFAULT_MAX_DEPTH);
+    }
+
+    /** Dereferenced component by name, or {@code null} if the spec does not define it. */
+    public Schema<?> component(String name) {
+        Schema<?> cached = memo.get(name);
+        if (cached != null) return cached;
+        if (!components.containsKey(name)) return null;
+        return deref(new Schema<>().$ref(COMPONENT_PREFIX + name), new Walk());
+    }
+
+    /** Dereferences an arbitrary (possibly inline) schema against this graph. */
+    public Schema<?> resolve(Schema<?> schema) {
+        return deref(schema, new Walk());
+    }
+
+    public int size() {
+        return memo.size();
+    }
+
+    private Schema<?> deref(Schema<?> schema, Walk walk) {
+        if (schema == null) return null;
+
+        String ref = schema.get$ref();
+        if (ref != null && !ref.isBlank()) {
+            return derefComponent(schema, ref, walk);
+        }
+        return derefChildren(schema, walk);
+    }
+
+    private Schema<?> derefComponent(Schema<?> refSchema, String ref, Walk walk) {
+        if (!ref.startsWith(COMPONENT_PREFIX)) {
+            return refSchema; // external or non-schema refs are left alone
+        }
+        String name = ref.substring(COMPONENT_PREFIX.length());
+
+        Schema<?> cached = memo.get(name);
+        if (cached != null) return cached;
+
+        Schema<?> target = components.get(name);
+        if (target == null) {
+            log.warn("Missing component schema for $ref: {}", name);
+            return refSchema;
+        }
+
+        int depth = walk.active.getOrDefault(name, 0);
+        if (depth >= maxDepth) {
+            walk.truncated = true;
+            return recursionStub(name);
+        }
+
+        boolean truncatedBefore = walk.truncated;
+        walk.truncated = false;
+        walk.active.put(name, depth + 1);
+        try {
+            Schema<?> resolved = deref(target, walk);
+            // only results that are independent of the current recursion path are shareable
+            if (!walk.truncated) {
+                memo.put(name, resolved);
+            }
+            return resolved;
+        } finally {
+            walk.active.put(name, depth);
+            walk.truncated |= truncatedBefore;
+        }
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private Schema<?> derefChildren(Schema<?> schema, Walk walk) {
+        boolean changed = false;
+
+        Map<String, Schema> properties = schema.getProperties();
+        Map<String, Schema> newProperties = null;
+        if (properties != null && !properties.isEmpty()) {
+            newProperties = new LinkedHashMap<>(properties.size());
+            for (Map.Entry<String, Schema> e : properties.entrySet()) {
+                Schema<?> resolved = deref(e.getValue(), walk);
+                changed |= resolved != e.getValue();
+                newProperties.put(e.getKey(), resolved);
+            }
+        }
+
+        Schema<?> items = deref(schema.getItems(), walk);
+        changed |= items != schema.getItems();
+
+        Object additional = schema.getAdditionalProperties();
+        if (additional instanceof Schema<?> as) {
+            Schema<?> resolved = deref(as, walk);
+            changed |= resolved != as;
+            additional = resolved;
+        }
+
+        Schema<?> not = deref(schema.getNot(), walk);
+        changed |= not != schema.getNot();
+
+        List<Schema> allOf = derefList(schema.getAllOf(), walk);
+        List<Schema> anyOf = derefList(schema.getAnyOf(), walk);
+        List<Schema> oneOf = derefList(schema.getOneOf(), walk);
+        changed |= allOf != schema.getAllOf() || anyOf != schema.getAnyOf() || oneOf != schema.getOneOf();
+
+        if (!changed) return schema;
+
+        Schema copy = shallowCopy(schema);
+        copy.setProperties(newProperties);
+        copy.setItems(items);
+        copy.setAdditionalProperties(additional);
+        copy.setNot(not);
+        copy.setAllOf(allOf);
+        copy.setAnyOf(anyOf);
+        copy.setOneOf(oneOf);
+        return copy;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private List<Schema> derefList(List<Schema> list, Walk walk) {
+        if (list == null || list.isEmpty()) return list;
+        List<Schema> out = new ArrayList<>(list.size());
+        boolean changed = false;
+        for (Schema s : list) {
+            Schema<?> resolved = deref(s, walk);
+            changed |= resolved != s;
+            out.add(resolved);
+        }
+        return changed ? out : list;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static Schema shallowCopy(Schema<?> source) {
+        Schema copy;
+        try {
+            copy = source.getClass().getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            copy = new Schema<>();
+        }
+        copy.setType(source.getType());
+        copy.setTypes(source.getTypes());
+        copy.setFormat(source.getFormat());
+        copy.setName(source.getName());
+        copy.setTitle(source.getTitle());
+        copy.setDescription(source.getDescription());
+        copy.setDefault(source.getDefault());
+        if (source.getExampleSetFlag()) copy.setExample(source.getExample());
+        copy.setEnum((List) source.getEnum());
+        copy.setNullable(source.getNullable());
+        copy.setReadOnly(source.getReadOnly());
+        copy.setWriteOnly(source.getWriteOnly());
+        copy.setDeprecated(source.getDeprecated());
+        copy.setMultipleOf(source.getMultipleOf());
+        copy.setMinimum(source.getMinimum());
+        copy.setMaximum(source.getMaximum());
+        copy.setExclusiveMinimum(source.getExclusiveMinimum());
+        copy.setExclusiveMaximum(source.getExclusiveMaximum());
+        copy.setMinLength(source.getMinLength());
+        copy.setMaxLength(source.getMaxLength());
+        copy.setPattern(source.getPattern());
+        copy.setMinItems(source.getMinItems());
+        copy.setMaxItems(source.getMaxItems());
+        copy.setUniqueItems(source.getUniqueItems());
+        copy.setMinProperties(source.getMinProperties());
+        copy.setMaxProperties(source.getMaxProperties());
+        copy.setRequired(source.getRequired());
+        copy.setDiscriminator(source.getDiscriminator());
+        copy.setExternalDocs(source.getExternalDocs());
+        copy.setXml(source.getXml());
+        copy.setExtensions(source.getExtensions());
+        return copy;
+    }
+
+    private static Schema<?> recursionStub(String name) {
+        ObjectSchema stub = new ObjectSchema();
+        stub.setTitle(name + " (recursion truncated)");
+        return stub;
+    }
+
+    /** Per-call traversal state; the graph itself is shared across threads. */
+    private static final class Walk {
+        private final Map<String, Integer> active = new HashMap<>();
+        private boolean truncated;
+    }
+}
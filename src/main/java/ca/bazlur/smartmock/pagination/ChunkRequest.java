@@ -0,0 +1,73 @@
+package ca.bazlur.smartmock.pagination;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The client's request with its paging parameters replaced by {@code offset} and
+ * {@code limit} for the next chunk of a dataset, so the planner and the correlator ask the
+ * model for exactly that many items, continuing where the dataset ends.
+ */
+final class ChunkRequest extends HttpServletRequestWrapper {
+
+    private final Map<String, String[]> parameters;
+    private final String queryString;
+
+    ChunkRequest(HttpServletRequest request, long offset, int limit) {
+        super(request);
+        Map<String, String[]> parameters = new LinkedHashMap<>();
+        request.getParameterMap().forEach((name, values) -> {
+            if (!PageRequest.PAGE_PARAMS.contains(name) && !PageRequest.OFFSET_PARAMS.contains(name)
+                && !PageRequest.SIZE_PARAMS.contains(name)) {
+                parameters.put(name, values);
+            }
+        });
+        if (offset > 0) {
+            parameters.put("offset", new String[]{Long.toString(offset)});
+        }
+        parameters.put("limit", new String[]{Integer.toString(limit)});
+        this.parameters = Collections.unmodifiableMap(parameters);
+        this.queryString = parameters.entrySet().stream()
+            .flatMap(e -> Arrays.stream(e.getValue()).map(v -> encode(e.getKey()) + '=' + encode(v)))
+            .collect(Collectors.joining("&"));
+    }
+
+    @Override
+    public String getQueryString() {
+        return queryString;
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = parameters.get(name);
+        return values != null && values.length > 0 ? values[0] : null;
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return parameters;
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(parameters.keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        return parameters.get(name);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,72 @@
+package ca.bazlur.smartmock.pagination;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The window of a collection a request asks for, from either {@code page}/{@code size} or
+ * {@code offset}/{@code limit} style parameters. Whatever else is in the query string is the
+ * filter set, which selects the dataset the window is cut from.
+ *
+ * @param offset     index of the first item, from 0
+ * @param size       items per page
+ * @param pageParam  name of the page or offset parameter the client used, {@code null} when it sent only a size
+ * @param sizeParam  name of the size parameter the client used, {@code null} for the default size
+ * @param byOffset   whether the client addresses items by offset rather than by page number
+ * @param filters    the remaining query parameters, sorted, as one canonical string
+ */
+record PageRequest(long offset, int size, String pageParam, String sizeParam, boolean byOffset, String filters) {
+
+    static final Set<String> PAGE_PARAMS = Set.of("page", "pageNumber", "page_number");
+    static final Set<String> OFFSET_PARAMS = Set.of("offset", "skip");
+    static final Set<String> SIZE_PARAMS = Set.of("size", "limit", "count", "pageSize", "page_size", "perPage", "per_page");
+
+    /** The requested window, or {@code null} when the query carries no paging parameter. */
+    static PageRequest from(HttpServletRequest request, int firstPage, int defaultSize, int maxSize) {
+        String pageParam = null;
+        String sizeParam = null;
+        boolean byOffset = false;
+        Map<String, String> filters = new TreeMap<>();
+        for (Map.Entry<String, String[]> parameter : request.getParameterMap().entrySet()) {
+            String name = parameter.getKey();
+            if (PAGE_PARAMS.contains(name)) {
+                pageParam = name;
+            } else if (OFFSET_PARAMS.contains(name)) {
+                pageParam = name;
+                byOffset = true;
+            } else if (SIZE_PARAMS.contains(name)) {
+                sizeParam = name;
+            } else {
+                filters.put(name, String.join(",", parameter.getValue()));
+            }
+        }
+        if (pageParam == null && sizeParam == null) {
+            return null;
+        }
+        int size = (int) Math.min(Math.max(1, number(request, sizeParam, defaultSize)), maxSize);
+        long offset = byOffset
+            ? Math.max(0, number(request, pageParam, 0))
+            : Math.max(0, number(request, pageParam, firstPage) - firstPage) * size;
+        return new PageRequest(offset, size, pageParam, sizeParam, byOffset, filters.toString());
+    }
+
+    /** The page number in the client's numbering. */
+    long page(int firstPage) {
+        return offset / size + firstPage;
+    }
+
+    private static long number(HttpServletRequest request, String name, long fallback) {
+        String value = name != null ? request.getParameter(name) : null;
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+        try {
+            return Long.parseLong(value.strip());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
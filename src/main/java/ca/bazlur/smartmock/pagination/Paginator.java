@@ -0,0 +1,429 @@
+package ca.bazlur.smartmock.pagination;
+
+import ca.bazlur.smartmock.model.CompiledPlan;
+import ca.bazlur.smartmock.model.Plan;
+import ca.bazlur.smartmock.model.Scenario;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pages of collection endpoints, cut from one dataset per endpoint, filter set, scenario and
+ * seed instead of being generated one by one. A dataset grows on demand, {@code chunk-size}
+ * items per model call, up to the total fixed by its first chunk (the total the model put in
+ * the envelope, else {@code default-total}), so every page of it agrees on the total, on its
+ * neighbours and on the items it shares with overlapping windows.
+ * <p>
+ * A request is paged when it is a successful GET of an array, or of an object with an array
+ * property, and carries {@code page}/{@code size} or {@code offset}/{@code limit} style
+ * parameters. The envelope's total, page, size, offset, page count, has-next and link fields
+ * are rewritten for each page, and {@code X-Total-Count} and {@code Link} headers are added.
+ */
+@Slf4j
+@Component
+public class Paginator {
+
+    /**
+     * Generates one chunk of a dataset: the client's request, asking for the next items.
+     * Returns {@code null} for a chunk that does not conform, which is then not added.
+     */
+    @FunctionalInterface
+    public interface ChunkSource {
+        JsonNode generate(HttpServletRequest chunkRequest) throws Exception;
+    }
+
+    /** A page body, before post-processing, and the headers that go with it. */
+    public record Page(JsonNode body, HttpHeaders headers) {
+    }
+
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    private static final Set<String> TOTAL_FIELDS = Set.of(
+        "total", "totalCount", "total_count", "totalElements", "totalItems", "total_items", "totalResults");
+    private static final Set<String> PAGE_FIELDS = Set.of("page", "pageNumber", "page_number", "currentPage", "current_page");
+    private static final Set<String> SIZE_FIELDS = Set.of("size", "limit", "pageSize", "page_size", "perPage", "per_page");
+    private static final Set<String> OFFSET_FIELDS = Set.of("offset", "skip");
+    private static final Set<String> PAGES_FIELDS = Set.of("totalPages", "total_pages", "pageCount", "pages");
+    private static final Set<String> HAS_NEXT_FIELDS = Set.of("hasNext", "has_next", "hasMore", "has_more");
+    private static final Set<String> HAS_PREV_FIELDS = Set.of("hasPrev", "hasPrevious", "has_prev", "has_previous");
+    private static final List<String> ITEM_FIELDS = List.of("items", "data", "content", "results", "records");
+
+    private static final Shape NOT_A_COLLECTION = new Shape(false, null);
+    private static final Shape ROOT_ARRAY = new Shape(true, null);
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final int defaultTotal;
+    private final int maxTotal;
+    private final int defaultPageSize;
+    private final int firstPage;
+
+    // weak keys: shapes and datasets go with their plan when the schema is reloaded
+    private final Cache<CompiledPlan, Shape> shapes = Caffeine.newBuilder()
+        .weakKeys()
+        .executor(Runnable::run) // read-mostly; skip hand-offs to the common pool
+        .build();
+    private final Cache<CompiledPlan, Cache<DatasetKey, Dataset>> datasets = Caffeine.newBuilder()
+        .weakKeys()
+        .executor(Runnable::run)
+        .build();
+
+    private final LongAdder pages = new LongAdder();
+    private final LongAdder pagesWithoutGeneration = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder chunksRejected = new LongAdder();
+    private final LongAdder items = new LongAdder();
+
+    public Paginator(ObjectMapper objectMapper,
+                     @Value("${smart-mock.pagination.enabled:false}") boolean enabled,
+                     @Value("${smart-mock.pagination.chunk-size:50}") int chunkSize,
+                     @Value("${smart-mock.pagination.default-total:100}") int defaultTotal,
+                     @Value("${smart-mock.pagination.max-total:1000}") int maxTotal,
+                     @Value("${smart-mock.pagination.default-page-size:20}") int defaultPageSize,
+                     @Value("${smart-mock.pagination.first-page:1}") int firstPage) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxTotal = Math.max(1, maxTotal);
+        this.chunkSize = Math.max(1, Math.min(chunkSize, this.maxTotal));
+        this.defaultTotal = Math.max(1, Math.min(defaultTotal, this.maxTotal));
+        this.defaultPageSize = Math.max(1, defaultPageSize);
+        this.firstPage = firstPage;
+    }
+
+    /**
+     * The page this request asks for, generating the chunks it needs that the dataset does not
+     * have yet; {@code null} when the request is not a paged collection request, or when a
+     * chunk it needs was rejected, so that the page is generated on its own.
+     */
+    public Page page(Plan plan, HttpServletRequest request, String seed, ChunkSource source) throws Exception {
+        if (!enabled || plan.getCompiled() == null || !HttpMethod.GET.matches(plan.getMethod())
+            || plan.getStatusCode() / 100 != 2) {
+            return null;
+        }
+        Shape shape = shapes.get(plan.getCompiled(), this::shapeOf);
+        PageRequest window = shape.collection() ? PageRequest.from(request, firstPage, defaultPageSize, maxTotal) : null;
+        if (window == null) {
+            return null;
+        }
+
+        DatasetKey key = new DatasetKey(plan.getRequest().path(), plan.getScenario(), plan.getStatusCode(),
+            window.filters(), seed);
+        Dataset dataset = datasets.get(plan.getCompiled(), p -> Caffeine.newBuilder()
+                .maximumSize(100)
+                .expireAfterAccess(15, TimeUnit.MINUTES)
+                .<DatasetKey, Dataset>build())
+            .get(key, k -> new Dataset(shape.field()));
+        Slice slice = dataset.slice(window, request, source);
+        if (slice == null) {
+            return null;
+        }
+        pages.increment();
+        if (slice.generated() == 0) {
+            pagesWithoutGeneration.increment();
+        }
+        log.debug("Page {}+{} of {} {} from a dataset of {}", window.offset(), window.size(), plan.getMethod(),
+            plan.getRequest().path(), slice.total());
+        return new Page(render(shape, slice, window), headers(request, window, slice.total()));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("datasets", datasets.asMap().values().stream().mapToLong(Cache::estimatedSize).sum());
+        stats.put("pages", pages.sum());
+        stats.put("pagesWithoutGeneration", pagesWithoutGeneration.sum());
+        stats.put("chunks", chunks.sum());
+        stats.put("chunksRejected", chunksRejected.sum());
+        stats.put("itemsGenerated", items.sum());
+        return stats;
+    }
+
+    // an array, or an object with an array property; conventional item names win over position
+    private Shape shapeOf(CompiledPlan compiled) {
+        if (compiled.getJsonSchema() == null) {
+            return NOT_A_COLLECTION;
+        }
+        try {
+            JsonNode schema = objectMapper.readTree(compiled.getJsonSchema());
+            if (isArray(schema)) {
+                return ROOT_ARRAY;
+            }
+            JsonNode properties = schema.path("properties");
+            String first = null;
+            for (Map.Entry<String, JsonNode> property : properties.properties()) {
+                if (isArray(property.getValue())) {
+                    if (ITEM_FIELDS.contains(property.getKey())) {
+                        return new Shape(true, property.getKey());
+                    }
+                    first = first != null ? first : property.getKey();
+                }
+            }
+            return first != null ? new Shape(true, first) : NOT_A_COLLECTION;
+        } catch (Exception e) {
+            log.warn("Cannot read response schema for paging: {}", e.getMessage());
+            return NOT_A_COLLECTION;
+        }
+    }
+
+    private static boolean isArray(JsonNode schema) {
+        JsonNode type = schema.path("type");
+        if (type.isArray()) {
+            for (JsonNode t : type) {
+                if ("array".equals(t.asText())) return true;
+            }
+            return false;
+        }
+        return "array".equals(type.asText());
+    }
+
+    private JsonNode render(Shape shape, Slice slice, PageRequest window) {
+        ArrayNode array = objectMapper.createArrayNode();
+        // post-processing edits the tree, the dataset must not see that
+        slice.items().forEach(item -> array.add(item.deepCopy()));
+        if (shape.field() == null) {
+            return array;
+        }
+        ObjectNode body = slice.envelope() != null ? slice.envelope().deepCopy() : objectMapper.createObjectNode();
+        body.set(shape.field(), array);
+        describe(body, window, slice.total());
+        for (Map.Entry<String, JsonNode> field : body.properties()) {
+            if (field.getValue() instanceof ObjectNode nested && !field.getKey().equals(shape.field())) {
+                describe(nested, window, slice.total());
+            }
+        }
+        return body;
+    }
+
+    // rewrites the paging fields the model put in the envelope; adds none of its own
+    private void describe(ObjectNode node, PageRequest window, long total) {
+        long lastPage = lastPage(window, total);
+        long page = window.page(firstPage);
+        for (Map.Entry<String, JsonNode> field : node.properties()) {
+            String name = field.getKey();
+            JsonNode value = field.getValue();
+            if (value.isContainerNode()) {
+                continue;
+            }
+            if (TOTAL_FIELDS.contains(name)) {
+                field.setValue(node.numberNode(total));
+            } else if (PAGE_FIELDS.contains(name)) {
+                field.setValue(node.numberNode(page));
+            } else if (SIZE_FIELDS.contains(name)) {
+                field.setValue(node.numberNode(window.size()));
+            } else if (OFFSET_FIELDS.contains(name)) {
+                field.setValue(node.numberNode(window.offset()));
+            } else if (PAGES_FIELDS.contains(name)) {
+                field.setValue(node.numberNode(lastPage - firstPage + 1));
+            } else if (HAS_NEXT_FIELDS.contains(name)) {
+                field.setValue(node.booleanNode(page < lastPage));
+            } else if (HAS_PREV_FIELDS.contains(name)) {
+                field.setValue(node.booleanNode(page > firstPage));
+            }
+        }
+    }
+
+    private HttpHeaders headers(HttpServletRequest request, PageRequest window, long total) {
+        long page = window.page(firstPage);
+        long lastPage = lastPage(window, total);
+        List<String> links = new ArrayList<>(4);
+        links.add(link(request, window, firstPage, "first"));
+        if (page > firstPage) {
+            links.add(link(request, window, Math.min(page, lastPage + 1) - 1, "prev"));
+        }
+        if (page < lastPage) {
+            links.add(link(request, window, page + 1, "next"));
+        }
+        links.add(link(request, window, lastPage, "last"));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(TOTAL_COUNT_HEADER, Long.toString(total));
+        headers.set(HttpHeaders.LINK, String.join(", ", links));
+        return headers;
+    }
+
+    private long lastPage(PageRequest window, long total) {
+        return Math.max(0, (total + window.size() - 1) / window.size() - 1) + firstPage;
+    }
+
+    // the client's own query, with only the page or offset changed in place
+    private String link(HttpServletRequest request, PageRequest window, long page, String rel) {
+        UriComponentsBuilder uri = UriComponentsBuilder.fromUriString(request.getRequestURI())
+            .query(request.getQueryString());
+        MultiValueMap<String, String> query = new LinkedMultiValueMap<>(uri.build().getQueryParams());
+        if (window.byOffset()) {
+            query.set(window.pageParam(), Long.toString((page - firstPage) * window.size()));
+        } else {
+            query.set(window.pageParam() != null ? window.pageParam() : "page", Long.toString(page));
+        }
+        return '<' + uri.replaceQueryParams(query).build().toUriString() + ">; rel=\"" + rel + '"';
+    }
+
+    /** Whether the dataset's items are the root array ({@code field == null}) or an envelope property. */
+    private record Shape(boolean collection, String field) {
+    }
+
+    private record DatasetKey(String path, Scenario scenario, int status, String filters, String seed) {
+    }
+
+    private record Slice(List<JsonNode> items, ObjectNode envelope, long total, int generated) {
+    }
+
+    /** The items and envelope generated so far; {@code total} is -1 before the first chunk. */
+    private record Contents(List<JsonNode> items, ObjectNode envelope, int total) {
+        boolean covers(PageRequest window) {
+            return total >= 0 && items.size() >= Math.min(window.offset() + window.size(), total);
+        }
+
+        Slice slice(PageRequest window, int chunks) {
+            int from = (int) Math.min(window.offset(), total);
+            int to = (int) Math.min(from + (long) window.size(), total);
+            return new Slice(items.subList(from, to), envelope, total, chunks);
+        }
+    }
+
+    /** The items generated so far for one filter set, and the envelope and total of its first chunk. */
+    private final class Dataset {
+        private final String field;
+        private final List<JsonNode> items = new ArrayList<>();
+        private final Set<Long> ids = new HashSet<>();
+        private long maxId;
+        private ObjectNode envelope;
+        private int total = -1;
+        // what readers see: replaced after every chunk, never changed in place
+        private volatile Contents contents = new Contents(List.of(), null, -1);
+
+        Dataset(String field) {
+            this.field = field;
+        }
+
+        // windows already generated are served without the lock; null when a chunk is rejected
+        Slice slice(PageRequest window, HttpServletRequest request, ChunkSource source) throws Exception {
+            Contents current = contents;
+            return current.covers(window) ? current.slice(window, 0) : grow(window, request, source);
+        }
+
+        // one caller at a time asks the model for the next chunk, since each starts where the last
+        // one ended; a rejected chunk leaves the dataset as it was before it
+        private synchronized Slice grow(PageRequest window, HttpServletRequest request, ChunkSource source)
+                throws Exception {
+            int generated = 0;
+            while (total < 0 || items.size() < Math.min(window.offset() + window.size(), total)) {
+                int count = total < 0 ? chunkSize : Math.min(chunkSize, total - items.size());
+                JsonNode chunk = source.generate(new ChunkRequest(request, items.size(), count));
+                if (chunk == null) {
+                    chunksRejected.increment();
+                    log.warn("Chunk at {} does not conform; not adding it to the dataset", items.size());
+                    return null;
+                }
+                int added = append(chunk);
+                chunks.increment();
+                Paginator.this.items.add(added);
+                generated++;
+                if (total < 0) {
+                    total = Math.min(Math.max(declaredTotal(), items.size()), maxTotal);
+                    while (items.size() > total) {
+                        items.remove(items.size() - 1);
+                    }
+                }
+                if (added == 0) {
+                    log.warn("Chunk at {} added no items; closing the dataset at {} of {}", items.size(), items.size(), total);
+                    total = items.size();
+                }
+                contents = new Contents(List.copyOf(items), envelope, total);
+            }
+            return contents.slice(window, generated);
+        }
+
+        private int append(JsonNode chunk) {
+            JsonNode array = chunk;
+            if (chunk instanceof ObjectNode object) {
+                if (envelope == null) {
+                    envelope = object.deepCopy();
+                    if (field != null) {
+                        envelope.remove(field);
+                    }
+                }
+                array = field != null ? object.get(field) : firstArray(object);
+            }
+            if (array == null || !array.isArray()) {
+                return 0;
+            }
+            int added = 0;
+            for (JsonNode item : array) {
+                if (items.size() >= maxTotal) break;
+                items.add(withUniqueId(item));
+                added++;
+            }
+            return added;
+        }
+
+        // separate model calls number their items independently; keep integer ids unique
+        private JsonNode withUniqueId(JsonNode item) {
+            JsonNode id = item.get("id");
+            if (id != null && id.canConvertToLong() && id.isIntegralNumber()) {
+                long value = id.longValue();
+                if (!ids.add(value)) {
+                    value = maxId + 1;
+                    ids.add(value);
+                    ((ObjectNode) item).put("id", value);
+                }
+                maxId = Math.max(maxId, value);
+            }
+            return item;
+        }
+
+        private int declaredTotal() {
+            if (envelope != null) {
+                Long declared = declaredTotal(envelope);
+                for (JsonNode nested : envelope) {
+                    if (declared == null && nested instanceof ObjectNode object) {
+                        declared = declaredTotal(object);
+                    }
+                }
+                if (declared != null && declared > 0) {
+                    return (int) Math.min(declared, Integer.MAX_VALUE);
+                }
+            }
+            return defaultTotal;
+        }
+
+        private static Long declaredTotal(ObjectNode node) {
+            for (String name : TOTAL_FIELDS) {
+                JsonNode value = node.get(name);
+                if (value != null && value.canConvertToLong()) {
+                    return value.longValue();
+                }
+            }
+            return null;
+        }
+
+        private static JsonNode firstArray(ObjectNode object) {
+            for (JsonNode value : object) {
+                if (value.isArray()) return value;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package ca.bazlur.smartmock.planner;
+
+import ca.bazlur.smartmock.llm.ContextRegistry;
+import ca.bazlur.smartmock.llm.EndpointInfo;
+import ca.bazlur.smartmock.llm.FieldSemantics;
+import ca.bazlur.smartmock.llm.JsonUtils;
+import ca.bazlur.smartmock.model.CompiledPlan;
+import ca.bazlur.smartmock.openapi.Endpoint;
+import ca.bazlur.smartmock.openapi.IndexingProgress;
+import ca.bazlur.smartmock.openapi.OpenApiIndex;
+import ca.bazlur.smartmock.util.JsonSchemaConverter;
+import io.swagger.v3.oas.models.media.Content;
+import io.swagger.v3.oas.models.media.MediaType;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.oas.models.responses.ApiResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PlanCompiler {
+    static final String DEFAULT_CONTENT_TYPE = "application/json";
+    private static final int MAX_SCHEMA_CHARS = 6000;
+
+    private final JsonSchemaConverter schemaConverter;
+    private final ContextRegistry contextRegistry;
+    private final FieldSemantics fieldSemantics;
+
+    public Map<String, CompiledPlan> compileAll(OpenApiIndex index) {
+        return compileAll(index, IndexingProgress.NONE);
+    }
+
+    public Map<String, CompiledPlan> compileAll(OpenApiIndex index, IndexingProgress progress) {
+        List<Endpoint> endpoints = index.endpoints();
+        Map<String, CompiledPlan> plans = new ConcurrentHashMap<>();
+
+        progress.phase("COMPILING", endpoints.size());
+        endpoints.parallelStream().forEach(endpoint -> {
+            progress.advance();
+            forEachPlan(endpoint, (responseKey, response, contentType) ->
+                put(plans, index, endpoint, responseKey, response, contentType));
+        });
+        log.info("Compiled {} generation plans for {} endpoints", plans.size(), endpoints.size());
+        return plans;
+    }
+
+    /**
+     * Re-selects the context blocks of every plan in {@code index} that was compiled against
+     * an older block set; everything else in the plan is kept. Returns the index's current
+     * plans unchanged when none is stale.
+     */
+    public Map<String, CompiledPlan> reselectBlocks(OpenApiIndex index) {
+        Map<String, CompiledPlan> current = index.compiledPlans();
+        Map<String, CompiledPlan> updated = new HashMap<>(current);
+        long generation = contextRegistry.generation();
+        int[] stale = {0};
+        for (Endpoint endpoint : index.endpoints()) {
+            forEachPlan(endpoint, (responseKey, response, contentType) -> {
+                String key = CompiledPlan.key(endpoint.getMethod(), endpoint.getPath(), responseKey, contentType);
+                CompiledPlan plan = current.get(key);
+                if (plan != null && plan.getBlocksGeneration() != generation) {
+                    updated.put(key, withBlocks(plan.toBuilder(), endpoint, plan.getJsonSchemaMinified()).build());
+                    stale[0]++;
+                }
+            });
+        }
+        if (stale[0] == 0) return current;
+        log.info("Re-selected context blocks for {} generation plans", stale[0]);
+        return updated;
+    }
+
+    /** Runs {@code listener} whenever the context block set changes. */
+    public void addBlocksListener(Runnable listener) {
+        contextRegistry.addListener(listener);
+    }
+
+    private static void forEachPlan(Endpoint endpoint, PlanTarget target) {
+        var responses = endpoint.getResponses();
+        if (responses == null) return;
+
+        responses.forEach((responseKey, response) -> {
+            Content content = response != null ? response.getContent() : null;
+            if (content == null || content.isEmpty()) {
+                target.accept(responseKey, response, DEFAULT_CONTENT_TYPE);
+            } else {
+                content.keySet().forEach(ct -> target.accept(responseKey, response, ct));
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface PlanTarget {
+        void accept(String responseKey, ApiResponse response, String contentType);
+    }
+
+    private void put(Map<String, CompiledPlan> plans, OpenApiIndex index, Endpoint endpoint,
+                     String responseKey, ApiResponse response, String contentType) {
+        try {
+            plans.put(CompiledPlan.key(endpoint.getMethod(), endpoint.getPath(), responseKey, contentType),
+                compile(index, endpoint, responseKey, response, contentType));
+        } catch (Exception e) {
+            log.warn("Failed to compile plan for {} {} [{} {}]", endpoint.getMethod(), endpoint.getPath(),
+                responseKey, contentType, e);
+        }
+    }
+
+    public CompiledPlan compile(OpenApiIndex index, Endpoint endpoint, String responseKey,
+                                ApiResponse response, String contentType) {
+        Schema<?> responseSchema = null;
+        String jsonSchema = null;
+        String minified = "";
+        if (response != null) {
+            responseSchema = extractSchema(response.getContent(), contentType);
+            if (responseSchema != null) {
+                responseSchema = index.resolveSchema(responseSchema);
+                jsonSchema = schemaConverter.convertToJsonSchema(responseSchema);
+                minified = JsonUtils.truncateWithNotice(
+                    schemaConverter.convertToMinifiedJsonSchema(responseSchema), MAX_SCHEMA_CHARS);
+            }
+        }
+
+        String digest = jsonSchema != null ? JsonUtils.sha256Hex(jsonSchema) : null;
+
+        CompiledPlan.CompiledPlanBuilder plan = CompiledPlan.builder()
+            .responseKey(responseKey)
+            .contentType(contentType)
+            .responseSchema(responseSchema)
+            .jsonSchema(jsonSchema)
+            .schemaDigest(digest)
+            .jsonSchemaMinified(minified)
+            .arraySchema(responseSchema != null && "array".equals(responseSchema.getType()))
+            .fieldGuidance(fieldSemantics.analyzeSchema(minified, digest));
+        return withBlocks(plan, endpoint, minified).build();
+    }
+
+    private CompiledPlan.CompiledPlanBuilder withBlocks(CompiledPlan.CompiledPlanBuilder plan, Endpoint endpoint,
+                                                        String minified) {
+        // read before selecting: a block set published meanwhile leaves the plan stale, not wrongly current
+        long generation = contextRegistry.generation();
+        EndpointInfo info = new EndpointInfo(
+            JsonUtils.sanitize(endpoint.getPath()),
+            JsonUtils.sanitize(endpoint.getOperationId()),
+            JsonUtils.sanitize(endpoint.getMethod()),
+            minified,
+            ""
+        );
+
+        List<ContextRegistry.RenderedBlock> blocks = contextRegistry.selectRendered(
+            info,
+            /*maxBlocks*/ 2,
+            /*minScore*/ 0.25,
+            /*budgetChars*/ 3000
+        );
+        StringBuilder rendered = new StringBuilder();
+        for (ContextRegistry.RenderedBlock b : blocks) {
+            rendered.append(b.text()).append('\n');
+        }
+        return plan
+            .blockIds(blocks.stream().map(b -> b.block().id()).toList())
+            .renderedBlocks(rendered.toString())
+            .blocksGeneration(generation);
+    }
+
+    static Schema<?> extractSchema(Content content, String contentType) {
+        if (content == null) return null;
+        MediaType mt = content.get(contentType);
+        if (mt == null && DEFAULT_CONTENT_TYPE.equals(contentType)) {
+            // some specs register as "application/*+json"
+            for (Map.Entry<String, MediaType> e : content.entrySet()) {
+                if (e.getKey().toLowerCase(Locale.ROOT).endsWith("+json")) {
+                    mt = e.getValue();
+                    break;
+                }
+            }
+        }
+        return mt != null ? mt.getSchema() : null;
+    }
+}
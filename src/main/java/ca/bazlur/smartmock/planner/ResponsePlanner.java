@@ -1,20 +1,23 @@
 package ca.bazlur.smartmock.planner;
 
+import ca.bazlur.smartmock.model.CompiledPlan;
+import ca.bazlur.smartmock.model.MockRequestBody;
 import ca.bazlur.smartmock.model.Plan;
+import ca.bazlur.smartmock.model.RequestView;
 import ca.bazlur.smartmock.model.Scenario;
 import ca.bazlur.smartmock.openapi.Endpoint;
 import ca.bazlur.smartmock.openapi.OpenApiIndex;
-import ca.bazlur.smartmock.util.JsonSchemaConverter;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.swagger.v3.oas.models.media.Content;
-import io.swagger.v3.oas.models.media.MediaType;
-import io.swagger.v3.oas.models.media.Schema;
 import io.swagger.v3.oas.models.responses.ApiResponse;
 import jakarta.servlet.http.HttpServletRequest;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
@@ -22,38 +25,49 @@ import java.util.regex.Pattern;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class ResponsePlanner {
     private static final Pattern RANGE_2XX = Pattern.compile("^[2-9]XX$", Pattern.CASE_INSENSITIVE);
 
-    private final OpenApiIndex openApiIndex;
-    private final JsonSchemaConverter schemaConverter;
-    private final ObjectMapper objectMapper;
+    private final PlanCompiler planCompiler;
+    // shared by every request view; writers are immutable and thread-safe
+    private final ObjectWriter canonicalWriter;
+    // seeds select variants of one body after generation, so the model never sees them
+    private final boolean seedVariants;
+    // an endpoint's parameter declarations are the same for every request, so they are
+    // rendered once per endpoint (and schema version: endpoints are rebuilt on reload)
+    private final Cache<Endpoint, Object> renderedParameters = Caffeine.newBuilder()
+        .weakKeys()
+        .executor(Runnable::run) // read-mostly; skip hand-offs to the common pool
+        .build();
+
+    public ResponsePlanner(PlanCompiler planCompiler, ObjectMapper objectMapper,
+                           @Value("${smart-mock.mock.seed-variants:false}") boolean seedVariants) {
+        this.planCompiler = planCompiler;
+        this.canonicalWriter = RequestView.canonicalWriter(objectMapper);
+        this.seedVariants = seedVariants;
+    }
 
-    public Plan plan(Endpoint endpoint, Scenario scenario, HttpServletRequest request, String body) {
+    public Plan plan(OpenApiIndex index, Endpoint endpoint, Scenario scenario, HttpServletRequest request, MockRequestBody body) {
         int statusCode = determineStatusCode(endpoint, scenario, request);
 
-        ApiResponse apiResponse = selectApiResponse(endpoint, statusCode);
-        Schema<?> responseSchema = null;
-        String jsonSchema = null;
-
-        if (apiResponse != null) {
-            String contentType = negotiateContentType(request, apiResponse.getContent());
-            responseSchema = extractSchema(apiResponse.getContent(), contentType);
-            if (responseSchema != null) {
-                responseSchema = openApiIndex.resolveSchema(responseSchema);
-                jsonSchema = schemaConverter.convertToJsonSchema(responseSchema);
-            }
+        CompiledPlan compiled = null;
+        String responseKey = selectResponseKey(endpoint, statusCode);
+        if (responseKey != null) {
+            ApiResponse apiResponse = endpoint.getResponses().get(responseKey);
+            String contentType = negotiateContentType(request, apiResponse != null ? apiResponse.getContent() : null);
+            compiled = index.findCompiledPlan(endpoint, responseKey, contentType)
+                .orElseGet(() -> planCompiler.compile(index, endpoint, responseKey, apiResponse, contentType));
         }
 
-        Map<String, Object> requestContext = buildRequestContext(endpoint, request, body);
+        RequestView requestView = buildRequestView(endpoint, request, body);
 
         return Plan.builder()
             .scenario(scenario)
             .statusCode(statusCode)
-            .responseSchema(responseSchema)
-            .jsonSchema(jsonSchema)
-            .requestContext(requestContext)
+            .responseSchema(compiled != null ? compiled.getResponseSchema() : null)
+            .jsonSchema(compiled != null ? compiled.getJsonSchema() : null)
+            .compiled(compiled)
+            .request(requestView)
             .operationId(endpoint.getOperationId())
             .path(endpoint.getPath())
             .method(endpoint.getMethod())
@@ -77,34 +91,31 @@ public class ResponsePlanner {
         };
     }
 
-    private ApiResponse selectApiResponse(Endpoint endpoint, int statusCode) {
+    private String selectResponseKey(Endpoint endpoint, int statusCode) {
         var responses = endpoint.getResponses();
         if (responses == null || responses.isEmpty()) return null;
 
-        ApiResponse exact = responses.get(String.valueOf(statusCode));
-        if (exact != null) return exact;
+        String exact = String.valueOf(statusCode);
+        if (responses.containsKey(exact)) return exact;
 
         // Handle range keys like "2XX"
         String familyKey = (statusCode / 100) + "XX";
-        ApiResponse ranged = responses.get(familyKey);
-        if (ranged != null) return ranged;
+        if (responses.containsKey(familyKey)) return familyKey;
 
-        ApiResponse def = responses.getDefault();
-        if (def != null) return def;
+        if (responses.containsKey("default")) return "default";
 
         // As a last resort, try a reasonable 2xx response, then any
-        return pickPreferredSuccess(responses).orElseGet(() -> responses.values().iterator().next());
+        return pickPreferredSuccess(responses).orElseGet(() -> responses.keySet().iterator().next());
     }
 
-    private Optional<ApiResponse> pickPreferredSuccess(Map<String, ApiResponse> responses) {
+    private Optional<String> pickPreferredSuccess(Map<String, ApiResponse> responses) {
         List<String> preferred = List.of("200", "201");
         for (String key : preferred) {
-            if (responses.containsKey(key)) return Optional.of(responses.get(key));
+            if (responses.containsKey(key)) return Optional.of(key);
         }
         // first explicit 2xx or "2XX"
-        return responses.entrySet().stream()
-            .filter(e -> is2xxKey(e.getKey()))
-            .map(Map.Entry::getValue)
+        return responses.keySet().stream()
+            .filter(this::is2xxKey)
             .findFirst();
     }
 
@@ -133,7 +144,7 @@ public class ResponsePlanner {
     }
 
     private String negotiateContentType(HttpServletRequest request, Content content) {
-        if (content == null || content.isEmpty()) return "application/json";
+        if (content == null || content.isEmpty()) return PlanCompiler.DEFAULT_CONTENT_TYPE;
 
         String accept = Optional.ofNullable(request.getHeader("Accept")).orElse("*/*");
         // Very light negotiation: exact match → json → first
@@ -147,22 +158,7 @@ public class ResponsePlanner {
         return content.keySet().iterator().next();
     }
 
-    private Schema<?> extractSchema(Content content, String contentType) {
-        if (content == null) return null;
-        MediaType mt = content.get(contentType);
-        if (mt == null && "application/json".equals(contentType)) {
-            // some specs register as "application/*+json"
-            for (Map.Entry<String, MediaType> e : content.entrySet()) {
-                if (e.getKey().toLowerCase(Locale.ROOT).endsWith("+json")) {
-                    mt = e.getValue();
-                    break;
-                }
-            }
-        }
-        return mt != null ? mt.getSchema() : null;
-    }
-
-    private Map<String, Object> buildRequestContext(Endpoint endpoint, HttpServletRequest request, String body) {
+    private RequestView buildRequestView(Endpoint endpoint, HttpServletRequest request, MockRequestBody body) {
         Map<String, Object> ctx = new LinkedHashMap<>();
         ctx.put("method", request.getMethod());
         ctx.put("path", request.getRequestURI());
@@ -171,7 +167,7 @@ public class ResponsePlanner {
 
         // Include seed in context to influence LLM generation
         String seed = request.getHeader("X-Mock-Seed");
-        if (seed != null) {
+        if (seed != null && !seedVariants) {
             ctx.put("seed", seed);
             ctx.put("randomSeed", seed.hashCode());
         }
@@ -193,21 +189,21 @@ public class ResponsePlanner {
         }
         if (!headers.isEmpty()) ctx.put("headers", Collections.unmodifiableMap(headers));
 
-        if (body != null && !body.isBlank()) {
-            Object parsed = body;
-            try {
-                parsed = objectMapper.readValue(body, new TypeReference<Map<String, Object>>() {});
-            } catch (Exception ignored) {
-                // keep raw string if not JSON
-            }
-            ctx.put("requestBody", parsed);
-        }
-
         if (endpoint.getParameters() != null && !endpoint.getParameters().isEmpty()) {
-            ctx.put("parameters", endpoint.getParameters());
+            ctx.put("parameters", renderedParameters.get(endpoint, this::renderParameters));
         }
 
-        return Collections.unmodifiableMap(ctx);
+        // only the bounded summary reaches the prompt, never the raw body
+        return new RequestView(Collections.unmodifiableMap(ctx), body.getSummary(), canonicalWriter);
+    }
+
+    private Object renderParameters(Endpoint endpoint) {
+        try {
+            return new RawValue(canonicalWriter.writeValueAsString(endpoint.getParameters()));
+        } catch (Exception e) {
+            log.warn("Could not render parameters of {} {}: {}", endpoint.getMethod(), endpoint.getPath(), e.getMessage());
+            return endpoint.getParameters();
+        }
     }
 
     private void putIfNonNull(Map<String, Object> map, String key, Object value) {
@@ -0,0 +1,132 @@
+package ca.bazlur.smartmock.prefetch;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A GET for a predicted URI, carrying a copy of the headers of the live request that led to
+ * it, so that it lands on the cache entry the client's next request will look up. It is
+ * served after the live request has been recycled, so nothing is read from that one: every
+ * method not overridden here answers as for a bodiless request with no attributes.
+ */
+final class PrefetchRequest extends HttpServletRequestWrapper {
+    private static final HttpServletRequest DETACHED = (HttpServletRequest) Proxy.newProxyInstance(
+        HttpServletRequest.class.getClassLoader(), new Class<?>[]{HttpServletRequest.class},
+        (proxy, method, args) -> absent(method.getReturnType()));
+
+    // per-exchange headers; a prefetch is never delayed, conditional or carrying a body
+    private static final Set<String> DROPPED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        DROPPED_HEADERS.addAll(List.of("X-Mock-Latency", "If-None-Match", "If-Modified-Since", "If-Match",
+            "If-Unmodified-Since", "Range", "Content-Length", "Content-Type", "Content-Encoding"));
+    }
+
+    private final String uri;
+    private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    PrefetchRequest(HttpServletRequest live, String uri) {
+        super(DETACHED);
+        this.uri = uri;
+        for (String name : Collections.list(live.getHeaderNames())) {
+            if (!DROPPED_HEADERS.contains(name)) {
+                headers.put(name, Collections.list(live.getHeaders(name)));
+            }
+        }
+    }
+
+    /** What tells this prefetch apart in the response cache. */
+    String key() {
+        return uri + '|' + getHeader("X-Mock-Schema") + '|' + getHeader("X-Mock-Scenario") + '|'
+            + getHeader("X-Mock-Seed");
+    }
+
+    @Override
+    public String getMethod() {
+        return "GET";
+    }
+
+    @Override
+    public String getRequestURI() {
+        return uri;
+    }
+
+    @Override
+    public String getQueryString() {
+        return null;
+    }
+
+    @Override
+    public String getParameter(String name) {
+        return null;
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return Map.of();
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.emptyEnumeration();
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        return null;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        List<String> values = headers.get(name);
+        return values != null && !values.isEmpty() ? values.get(0) : null;
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        return Collections.enumeration(headers.getOrDefault(name, List.of()));
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        return Collections.enumeration(headers.keySet());
+    }
+
+    /** The servlet API's value for "none": -1 for lengths and numeric headers, empty collections. */
+    private static Object absent(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return -1;
+        }
+        if (type == long.class) {
+            return -1L;
+        }
+        if (type == Enumeration.class) {
+            return Collections.emptyEnumeration();
+        }
+        if (type == Map.class) {
+            return Map.of();
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            return List.of();
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "GET " + uri;
+    }
+}
@@ -0,0 +1,379 @@
+package ca.bazlur.smartmock.prefetch;
+
+import ca.bazlur.smartmock.model.MockResult;
+import ca.bazlur.smartmock.model.Signature;
+import ca.bazlur.smartmock.openapi.Endpoint;
+import ca.bazlur.smartmock.openapi.OpenApiIndex;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generates the responses a client is likely to ask for next, while the LLM is idle, so
+ * that a walk like list, detail, sub-resource finds them in the cache instead of waiting
+ * on one cold generation after another.
+ * <p>
+ * Each client's requests (by address and user agent) are a walk over the endpoint
+ * templates of a schema. The transitions are counted per template, a first-order Markov
+ * chain, and after a successful response every GET template that followed the current one
+ * in at least {@code min-probability} of {@code min-observations} or more cases is
+ * prefetched. Its path parameters come from the current path when it has the same ones
+ * (from {@code /pets/{petId}} to {@code /pets/{petId}/photos}), and one more from the ids
+ * in the current response: up to {@code fanout} items of a list, or the resource itself.
+ * <p>
+ * Prefetches run one at a time on a background thread and ask the LLM at background
+ * priority, so they never hold up a live request; one that finds the LLM busy is dropped.
+ * The hit ratio is the share of prefetched responses a live request was served from.
+ */
+@Slf4j
+@Component
+public class Prefetcher {
+    private static final int MAX_SUCCESSORS = 2;
+    private static final int MAX_CLIENTS = 10_000;
+
+    /** Generates a prefetch request into the response cache at background priority. */
+    @FunctionalInterface
+    public interface Generator {
+        void prefetch(HttpServletRequest request) throws Exception;
+    }
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final double minProbability;
+    private final long minObservations;
+    private final int fanout;
+    private final ThreadPoolExecutor executor;
+
+    // weak keys: a schema's statistics go with its index when it is deleted or replaced
+    private final Cache<OpenApiIndex, Map<String, Successors>> chains = Caffeine.newBuilder()
+        .weakKeys()
+        .executor(Runnable::run)
+        .build();
+    private final Cache<String, Last> clients = Caffeine.newBuilder()
+        .maximumSize(MAX_CLIENTS)
+        .expireAfterAccess(10, TimeUnit.MINUTES)
+        .executor(Runnable::run)
+        .build();
+    // prefetched responses not yet served; expire with the response cache
+    private final Cache<Signature, Boolean> pending = Caffeine.newBuilder()
+        .maximumSize(MAX_CLIENTS)
+        .expireAfterWrite(15, TimeUnit.MINUTES)
+        .executor(Runnable::run)
+        .build();
+    // recently queued prefetches, so a client re-reading a list does not queue them again
+    private final Cache<String, Boolean> queued = Caffeine.newBuilder()
+        .maximumSize(MAX_CLIENTS)
+        .expireAfterWrite(1, TimeUnit.MINUTES)
+        .executor(Runnable::run)
+        .build();
+
+    private final LongAdder transitions = new LongAdder();
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder prefetched = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder busy = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public Prefetcher(ObjectMapper objectMapper,
+                      @Value("${smart-mock.prefetch.enabled:false}") boolean enabled,
+                      @Value("${smart-mock.prefetch.min-probability:0.3}") double minProbability,
+                      @Value("${smart-mock.prefetch.min-observations:5}") long minObservations,
+                      @Value("${smart-mock.prefetch.fanout:3}") int fanout,
+                      @Value("${smart-mock.prefetch.queue-capacity:32}") int queueCapacity) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.minProbability = minProbability;
+        this.minObservations = Math.max(1, minObservations);
+        this.fanout = Math.max(1, fanout);
+        this.executor = new ThreadPoolExecutor(
+            1, 1,
+            60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+            r -> {
+                Thread t = new Thread(r, "prefetch");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Counts the step from the client's previous request to this one and, after a successful
+     * response, queues the likely next requests. {@code path} is the request path within the
+     * schema, without the {@code /mock} or schema prefix.
+     */
+    public void observe(OpenApiIndex index, String method, String path, HttpServletRequest request,
+                        MockResult result, Generator generator) {
+        if (!enabled) {
+            return;
+        }
+        Endpoint endpoint = index.match(method, path).orElse(null);
+        if (endpoint == null) {
+            return;
+        }
+        String state = method + ' ' + endpoint.getPath();
+        Map<String, Successors> chain = chains.get(index, i -> new ConcurrentHashMap<>());
+        Last last = clients.asMap().put(client(request), new Last(chain, state));
+        if (last != null && last.chain() == chain) {
+            chain.computeIfAbsent(last.state(), s -> new Successors()).record(state);
+            transitions.increment();
+        }
+
+        Successors successors = chain.get(state);
+        String uri = request.getRequestURI();
+        if (successors == null || result.getStatus() / 100 != 2 || !uri.endsWith(path)) {
+            return;
+        }
+        String prefix = uri.substring(0, uri.length() - path.length());
+        Map<String, String> parameters = parameters(endpoint.getPath(), path);
+        Ids ids = new Ids(result.getBody());
+        for (String template : successors.likely(minProbability, minObservations)) {
+            for (String next : bind(template, parameters, ids)) {
+                schedule(new PrefetchRequest(request, prefix + next), generator);
+            }
+        }
+    }
+
+    /** Notes a response generated by a prefetch and put in the cache under {@code signature}. */
+    public void prefetched(Signature signature) {
+        pending.put(signature, Boolean.TRUE);
+        prefetched.increment();
+    }
+
+    /** Notes a live request served from the cache; a hit when its entry was prefetched. */
+    public void served(Signature signature) {
+        if (enabled && pending.asMap().remove(signature) != null) {
+            hits.increment();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long generated = prefetched.sum();
+        long served = hits.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("transitions", transitions.sum());
+        stats.put("scheduled", scheduled.sum());
+        stats.put("prefetched", generated);
+        stats.put("hits", served);
+        stats.put("hitRatio", generated == 0 ? 0.0 : Math.round(1000.0 * served / generated) / 1000.0);
+        stats.put("busy", busy.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("failed", failed.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void schedule(PrefetchRequest request, Generator generator) {
+        String key = request.key();
+        if (queued.asMap().putIfAbsent(key, Boolean.TRUE) != null) {
+            return;
+        }
+        try {
+            executor.execute(() -> run(request, key, generator));
+            scheduled.increment();
+        } catch (RejectedExecutionException e) {
+            queued.invalidate(key);
+            dropped.increment();
+        }
+    }
+
+    private void run(PrefetchRequest request, String key, Generator generator) {
+        try {
+            generator.prefetch(request);
+        } catch (ResponseStatusException e) {
+            if (e.getStatusCode().value() == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+                // live traffic has the LLM; the next observation may try again
+                queued.invalidate(key);
+                busy.increment();
+            } else {
+                failed.increment();
+                log.debug("Prefetch of {} failed: {}", request, e.getReason());
+            }
+        } catch (Exception e) {
+            failed.increment();
+            log.debug("Prefetch of {} failed", request, e);
+        }
+    }
+
+    private static String client(HttpServletRequest request) {
+        return request.getRemoteAddr() + '|' + request.getHeader("User-Agent");
+    }
+
+    /** The path parameters of a request, by name; aligned from the end like the template. */
+    private static Map<String, String> parameters(String template, String path) {
+        String[] names = template.split("/");
+        String[] values = path.split("/");
+        Map<String, String> parameters = new HashMap<>();
+        for (int i = names.length - 1, j = values.length - 1; i >= 0 && j >= 0; i--, j--) {
+            if (isParameter(names[i])) {
+                parameters.put(name(names[i]), URLDecoder.decode(values[j], StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * The paths of a template with its parameters filled: from the current path where it has
+     * them, the one remaining from the ids of the current response. None when more remain.
+     */
+    List<String> bind(String template, Map<String, String> parameters, Ids ids) {
+        String[] segments = template.split("/", -1);
+        int open = -1;
+        for (int i = 0; i < segments.length; i++) {
+            if (isParameter(segments[i])) {
+                String value = parameters.get(name(segments[i]));
+                if (value != null) {
+                    segments[i] = UriUtils.encodePathSegment(value, StandardCharsets.UTF_8);
+                } else if (open < 0) {
+                    open = i;
+                } else {
+                    return List.of();
+                }
+            }
+        }
+        if (open < 0) {
+            return List.of(String.join("/", segments));
+        }
+        List<String> paths = new ArrayList<>();
+        for (String id : ids.of(name(segments[open]))) {
+            segments[open] = UriUtils.encodePathSegment(id, StandardCharsets.UTF_8);
+            paths.add(String.join("/", segments));
+        }
+        return paths;
+    }
+
+    private static boolean isParameter(String segment) {
+        return segment.length() > 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}';
+    }
+
+    private static String name(String parameter) {
+        return parameter.substring(1, parameter.length() - 1);
+    }
+
+    private record Last(Map<String, Successors> chain, String state) {
+    }
+
+    /** The steps counted out of one endpoint template. */
+    private static final class Successors {
+        private final LongAdder total = new LongAdder();
+        private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+        void record(String next) {
+            counts.computeIfAbsent(next, n -> new LongAdder()).increment();
+            total.increment();
+        }
+
+        /** The GET templates likely to come next, most likely first. */
+        List<String> likely(double minProbability, long minObservations) {
+            long observed = total.sum();
+            if (observed < minObservations) {
+                return List.of();
+            }
+            return counts.entrySet().stream()
+                .filter(step -> step.getKey().startsWith("GET "))
+                .map(step -> Map.entry(step.getKey().substring(4), step.getValue().sum()))
+                .filter(step -> step.getValue() >= minProbability * observed)
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(MAX_SUCCESSORS)
+                .map(Map.Entry::getKey)
+                .toList();
+        }
+    }
+
+    /** The ids in a response body, read once and only when a template needs them. */
+    final class Ids {
+        private final byte[] body;
+        private JsonNode tree;
+
+        Ids(byte[] body) {
+            this.body = body;
+        }
+
+        /**
+         * The values of {@code parameter}, else {@code id}, in the resource the body is, or
+         * in up to {@code fanout} items of the list it is or wraps.
+         */
+        List<String> of(String parameter) {
+            JsonNode root = tree();
+            if (root == null) {
+                return List.of();
+            }
+            String own = id(root, parameter);
+            if (own != null) {
+                return List.of(own);
+            }
+            JsonNode items = root.isArray() ? root : null;
+            for (var fields = root.elements(); items == null && fields.hasNext(); ) {
+                JsonNode field = fields.next();
+                if (field.isArray() && !field.isEmpty() && field.get(0).isObject()) {
+                    items = field;
+                }
+            }
+            List<String> found = new ArrayList<>();
+            if (items != null) {
+                for (JsonNode item : items) {
+                    String id = id(item, parameter);
+                    if (id != null && !found.contains(id)) {
+                        found.add(id);
+                    }
+                    if (found.size() == fanout) {
+                        break;
+                    }
+                }
+            }
+            return found;
+        }
+
+        private JsonNode tree() {
+            if (tree == null && body != null && body.length > 0) {
+                try {
+                    tree = objectMapper.readTree(body);
+                } catch (IOException e) {
+                    tree = objectMapper.missingNode();
+                }
+            }
+            return tree;
+        }
+
+        private static String id(JsonNode node, String parameter) {
+            if (!node.isObject()) {
+                return null;
+            }
+            JsonNode id = node.has(parameter) ? node.get(parameter) : node.get("id");
+            return id != null && id.isValueNode() && !id.isNull() ? id.asText() : null;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ca.bazlur.smartmock.processor;
+
+import com.fasterxml.jackson.core.JsonParser;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+
+/** Numeric ids become seeded numbers in {@code [0, 10000)}. */
+@Component
+@Order(0)
+public class IdSeedRule implements SeedRule {
+
+    @Override
+    public boolean appliesTo(String fieldName) {
+        return fieldName.toLowerCase(Locale.ROOT).contains("id");
+    }
+
+    @Override
+    public Object rewrite(JsonParser value, Random random) throws IOException {
+        return value.currentToken().isNumeric() ? Math.abs(random.nextInt(10000)) : null;
+    }
+}
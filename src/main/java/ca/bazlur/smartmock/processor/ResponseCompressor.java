@@ -0,0 +1,227 @@
+package ca.bazlur.smartmock.processor;
+
+import ca.bazlur.smartmock.model.MockResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content-coding for mock responses. Each coding of a body is compressed at most once and
+ * kept on its {@link MockResult} together with its headers, so a cached response is
+ * served compressed without compressing it again: gzip is prepared when the result is
+ * cached, deflate on first use. Bodies under {@code min-bytes} are always sent as they are.
+ * <p>
+ * A coded representation has its own strong ETag, the body's with a {@code -gzip} or
+ * {@code -deflate} suffix, as RFC 9110 requires of different representations.
+ */
+@Slf4j
+@Component
+public class ResponseCompressor {
+
+    public enum Coding {
+        GZIP("gzip"), DEFLATE("deflate");
+
+        private final String token;
+
+        Coding(String token) {
+            this.token = token;
+        }
+
+        public String token() {
+            return token;
+        }
+    }
+
+    private static final String IDENTITY = "identity";
+
+    private final boolean enabled;
+    private final int minBytes;
+
+    private final LongAdder compressions = new LongAdder();
+    private final LongAdder compressNanos = new LongAdder();
+    private final LongAdder compressedIn = new LongAdder();
+    private final LongAdder compressedOut = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+    private final LongAdder servedIdentity = new LongAdder();
+    private final Map<Coding, LongAdder> servedCoded = new EnumMap<>(Map.of(
+        Coding.GZIP, new LongAdder(), Coding.DEFLATE, new LongAdder()));
+
+    public ResponseCompressor(@Value("${smart-mock.mock.compression.enabled:true}") boolean enabled,
+                              @Value("${smart-mock.mock.compression.min-bytes:1024}") int minBytes) {
+        this.enabled = enabled;
+        this.minBytes = minBytes;
+    }
+
+    /** Prepares the gzip coding of a result that is about to be cached. */
+    public void precompress(MockResult result) {
+        if (compressible(result)) {
+            representation(result, Coding.GZIP);
+        }
+    }
+
+    /** The representation of {@code result} to send for a request with this {@code Accept-Encoding}. */
+    public MockResult.Encoded select(MockResult result, String acceptEncoding) {
+        Coding coding = compressible(result) ? negotiate(acceptEncoding) : null;
+        if (coding == null) {
+            servedIdentity.increment();
+            return compressible(result) ? identity(result) : new MockResult.Encoded(result.getBody(), result.getHeaders());
+        }
+        MockResult.Encoded encoded = representation(result, coding);
+        servedCoded.get(coding).increment();
+        bytesSaved.add(result.getBody().length - encoded.body().length);
+        return encoded;
+    }
+
+    /** The ETag of the representation {@link #select} would send, without preparing it. */
+    public String eTag(MockResult result, String acceptEncoding) {
+        Coding coding = compressible(result) ? negotiate(acceptEncoding) : null;
+        return coding == null || result.getEtag() == null ? result.getEtag() : codedETag(result.getEtag(), coding);
+    }
+
+    /**
+     * The preferred coding the client accepts, gzip over deflate on equal weight, or
+     * {@code null} for the body as it is.
+     */
+    static Coding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return null;
+        }
+        Coding best = null;
+        double bestWeight = 0;
+        double wildcard = -1;
+        Map<Coding, Double> listed = new LinkedHashMap<>();
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.split(";");
+            String name = tokens[0].strip().toLowerCase(Locale.ROOT);
+            double weight = weight(tokens);
+            if (name.equals("*")) {
+                wildcard = weight;
+            } else {
+                for (Coding coding : Coding.values()) {
+                    if (coding.token().equals(name) || coding == Coding.GZIP && name.equals("x-gzip")) {
+                        listed.put(coding, weight);
+                    }
+                }
+            }
+        }
+        for (Coding coding : Coding.values()) {
+            double weight = listed.getOrDefault(coding, wildcard);
+            if (weight > bestWeight) {
+                best = coding;
+                bestWeight = weight;
+            }
+        }
+        return best;
+    }
+
+    private static double weight(String[] tokens) {
+        for (int i = 1; i < tokens.length; i++) {
+            String parameter = tokens[i].strip();
+            if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static String codedETag(String etag, Coding coding) {
+        return etag.substring(0, etag.length() - 1) + "-" + coding.token() + '"';
+    }
+
+    /** The body's ETag from that of any of its representations. */
+    public static String baseETag(String etag) {
+        for (Coding coding : Coding.values()) {
+            String suffix = "-" + coding.token() + '"';
+            if (etag.endsWith(suffix)) {
+                return etag.substring(0, etag.length() - suffix.length()) + '"';
+            }
+        }
+        return etag;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("minBytes", minBytes);
+        Map<String, Long> responses = new LinkedHashMap<>();
+        responses.put(IDENTITY, servedIdentity.sum());
+        servedCoded.forEach((coding, count) -> responses.put(coding.token(), count.sum()));
+        stats.put("responses", responses);
+        stats.put("bytesSaved", bytesSaved.sum());
+        stats.put("compressions", compressions.sum());
+        stats.put("compressMillis", compressNanos.sum() / 1_000_000.0);
+        stats.put("compressedBytesIn", compressedIn.sum());
+        stats.put("compressedBytesOut", compressedOut.sum());
+        return stats;
+    }
+
+    private boolean compressible(MockResult result) {
+        return enabled && result.getBody() != null && result.getBody().length >= minBytes
+            && result.getHeaders() != null && !result.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING);
+    }
+
+    // identity still varies by Accept-Encoding once other codings exist
+    private MockResult.Encoded identity(MockResult result) {
+        return result.getEncodings().computeIfAbsent(IDENTITY, k -> {
+            HttpHeaders headers = copy(result.getHeaders());
+            headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+            return new MockResult.Encoded(result.getBody(), headers);
+        });
+    }
+
+    private MockResult.Encoded representation(MockResult result, Coding coding) {
+        return result.getEncodings().computeIfAbsent(coding.token(), k -> {
+            byte[] body = compress(result.getBody(), coding);
+            HttpHeaders headers = copy(result.getHeaders());
+            headers.set(HttpHeaders.CONTENT_ENCODING, coding.token());
+            headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+            headers.setContentLength(body.length);
+            if (result.getEtag() != null) {
+                headers.setETag(codedETag(result.getEtag(), coding));
+            }
+            return new MockResult.Encoded(body, headers);
+        });
+    }
+
+    private byte[] compress(byte[] body, Coding coding) {
+        long start = System.nanoTime();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (OutputStream compressing = coding == Coding.GZIP ? new GZIPOutputStream(out, 8192)
+            : new DeflaterOutputStream(out)) {
+            compressing.write(body);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot " + coding.token() + " a response body", e);
+        }
+        byte[] compressed = out.toByteArray();
+        compressNanos.add(System.nanoTime() - start);
+        compressions.increment();
+        compressedIn.add(body.length);
+        compressedOut.add(compressed.length);
+        log.debug("Compressed {} bytes to {} with {}", body.length, compressed.length, coding.token());
+        return compressed;
+    }
+
+    private static HttpHeaders copy(HttpHeaders headers) {
+        HttpHeaders copy = new HttpHeaders();
+        headers.forEach((name, values) -> copy.put(name, new ArrayList<>(values)));
+        return copy;
+    }
+}
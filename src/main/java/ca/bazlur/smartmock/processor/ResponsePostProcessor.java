@@ -1,46 +1,83 @@
 package ca.bazlur.smartmock.processor;
 
+import ca.bazlur.smartmock.llm.FieldSemantics;
+import ca.bazlur.smartmock.model.CompiledPlan;
 import ca.bazlur.smartmock.model.MockResult;
 import ca.bazlur.smartmock.model.Plan;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
 
-import java.util.Random;
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 
+/**
+ * Last stage of the generation pipeline. Works on the tree parsed once by
+ * {@code JsonValidator.parse} and serializes it exactly once into the byte array
+ * that is cached. The seed is applied afterwards by {@link #seeded}, on the bytes,
+ * so it runs for cache hits as well.
+ * <p>
+ * With {@code smart-mock.mock.seed-variants} the seed is not part of generation at all:
+ * one body is generated per endpoint and scenario, and each seed gets its own variant
+ * of it, perturbed field by field according to the response schema ({@link SeedVariants}).
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class ResponsePostProcessor {
+    public static final String SEED_HEADER = "X-Mock-Seed";
+
+    private final ObjectWriter bodyWriter;
     private final ObjectMapper objectMapper;
+    private final SeedRewriter seedRewriter;
+    private final FieldSemantics fieldSemantics;
+    private final boolean seedVariants;
+    // weak keys: a plan's rules go with the plan when its schema is reloaded
+    private final Cache<CompiledPlan, SeedVariants> variantsByPlan = Caffeine.newBuilder()
+            .weakKeys()
+            .executor(Runnable::run) // read-mostly; skip hand-offs to the common pool
+            .build();
+
+    public ResponsePostProcessor(ObjectMapper objectMapper,
+                                 SeedRewriter seedRewriter,
+                                 FieldSemantics fieldSemantics,
+                                 @Value("${smart-mock.mock.seed-variants:false}") boolean seedVariants) {
+        this.bodyWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.objectMapper = objectMapper;
+        this.seedRewriter = seedRewriter;
+        this.fieldSemantics = fieldSemantics;
+        this.seedVariants = seedVariants;
+    }
+
+    /** Whether seeds select variants of one generated body instead of being generated for. */
+    public boolean seedVariants() {
+        return seedVariants;
+    }
 
-    public MockResult process(String jsonResponse, Plan plan, HttpServletRequest request) {
+    /** The unseeded result, as cached; a {@code null} body is sent as no body. */
+    public MockResult process(JsonNode body, Plan plan, HttpServletRequest request) {
         try {
-            String processedJson = jsonResponse;
-            
-            String seed = request.getHeader("X-Mock-Seed");
-            if (seed != null) {
-                processedJson = applySeed(processedJson, seed);
-            }
-            
             String temperature = request.getHeader("X-Mock-Temperature");
             if (temperature != null) {
                 try {
                     double temp = Double.parseDouble(temperature);
-                    processedJson = applyTemperature(processedJson, temp);
+                    applyTemperature(body, temp);
                 } catch (NumberFormatException e) {
                     log.warn("Invalid temperature value: {}", temperature);
                 }
             }
             
             HttpHeaders responseHeaders = new HttpHeaders();
-            responseHeaders.add("Content-Type", "application/json");
+            if (body != null) {
+                responseHeaders.add("Content-Type", "application/json");
+            }
             responseHeaders.add("X-Mock-Scenario", plan.getScenario().getValue());
             responseHeaders.add("X-Mock-Generated", "true");
             
@@ -55,63 +92,75 @@ public class ResponsePostProcessor {
                 responseHeaders.add("X-Trace-Id", UUID.randomUUID().toString());
             }
             
-            return MockResult.builder()
-                    .status(plan.getStatusCode())
-                    .body(processedJson)
-                    .headers(responseHeaders)
-                    .build();
+            // no body at all, e.g. a 204 answered from the resource store
+            byte[] bytes = body != null ? bodyWriter.writeValueAsBytes(body) : new byte[0];
+            return result(plan.getStatusCode(), bytes, responseHeaders, plan.getCompiled());
                     
         } catch (Exception e) {
             log.error("Error post-processing response", e);
-            return MockResult.builder()
-                    .status(plan.getStatusCode())
-                    .body(jsonResponse)
-                    .headers(new HttpHeaders())
-                    .build();
+            byte[] bytes = body != null ? body.toString().getBytes(StandardCharsets.UTF_8) : new byte[0];
+            return result(plan.getStatusCode(), bytes, new HttpHeaders(), plan.getCompiled());
         }
     }
 
-    private String applySeed(String json, String seed) {
+    /** Model output that is not JSON at all, sent as written and without a Content-Type. */
+    public MockResult unparsed(String text, Plan plan) {
+        return result(plan.getStatusCode(), text.getBytes(StandardCharsets.UTF_8), new HttpHeaders(), plan.getCompiled());
+    }
+
+    /**
+     * {@code result} with the request's {@value #SEED_HEADER} applied to its body, or
+     * {@code result} itself when there is no seed. The cached result is never modified.
+     */
+    public MockResult seeded(MockResult result, HttpServletRequest request) {
+        String seed = request.getHeader(SEED_HEADER);
+        if (seed == null || result.getBody() == null) {
+            return result;
+        }
         try {
-            long seedValue = seed.hashCode();
-            Random random = new Random(seedValue);
-            
-            JsonNode node = objectMapper.readTree(json);
-            JsonNode processed = processNodeWithSeed(node, random);
-            
-            return objectMapper.writeValueAsString(processed);
+            byte[] body = seedRewriter.rewrite(result.getBody(), seed, variantsFor(result.getPlan()));
+            if (body == result.getBody()) {
+                return result;
+            }
+            HttpHeaders headers = new HttpHeaders();
+            headers.putAll(result.getHeaders());
+            return result(result.getStatus(), body, headers, result.getPlan());
         } catch (Exception e) {
             log.error("Error applying seed", e);
-            return json;
+            return result;
         }
     }
 
-    private JsonNode processNodeWithSeed(JsonNode node, Random random) {
-        if (node.isObject()) {
-            ObjectNode objectNode = (ObjectNode) node.deepCopy();
-            objectNode.fields().forEachRemaining(entry -> {
-                String key = entry.getKey();
-                JsonNode value = entry.getValue();
-                
-                if (key.toLowerCase().contains("id") && value.isNumber()) {
-                    objectNode.put(key, Math.abs(random.nextInt(10000)));
-                } else if (key.toLowerCase().contains("timestamp") && value.isNumber()) {
-                    objectNode.put(key, System.currentTimeMillis() - random.nextInt(86400000));
-                } else if (value.isObject() || value.isArray()) {
-                    objectNode.set(key, processNodeWithSeed(value, random));
-                }
-            });
-            return objectNode;
-        } else if (node.isArray()) {
-            return node;
+    // the body is final here, so its validator and length are computed once, with it
+    private static MockResult result(int status, byte[] body, HttpHeaders headers, CompiledPlan plan) {
+        String etag = MockResult.etagOf(body);
+        headers.setETag(etag);
+        headers.setContentLength(body.length);
+        return MockResult.builder()
+                .status(status)
+                .body(body)
+                .etag(etag)
+                .headers(headers)
+                .plan(plan)
+                .build();
+    }
+
+    private SeedVariants variantsFor(CompiledPlan plan) {
+        if (!seedVariants || plan == null || plan.getJsonSchema() == null) {
+            return SeedVariants.NONE;
         }
-        
-        return node;
+        return variantsByPlan.get(plan, p -> {
+            try {
+                return SeedVariants.of(objectMapper.readTree(p.getJsonSchema()), fieldSemantics);
+            } catch (Exception e) {
+                log.warn("Cannot derive seed variants from response schema: {}", e.getMessage());
+                return SeedVariants.NONE;
+            }
+        });
     }
 
-    private String applyTemperature(String json, double temperature) {
+    private void applyTemperature(JsonNode body, double temperature) {
         double clampedTemp = Math.max(0, Math.min(1, temperature));
         log.debug("Applying temperature: {}", clampedTemp);
-        return json;
     }
 }
\ No newline at end of file
@@ -0,0 +1,139 @@
+package ca.bazlur.smartmock.processor;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Applies {@link SeedRule}s to a serialized body in one streaming pass, without building
+ * a tree or re-encoding it: the parser only locates the values to replace, and the bytes
+ * between them are copied as they are. Objects are followed at any depth, inside arrays
+ * too, and scalar array elements are offered to the rule owning the array's field.
+ * Cheap enough to run on every cache hit.
+ */
+@Component
+public class SeedRewriter {
+    private static final int MAX_NAME_RULES = 10_000;
+
+    private static final SeedRule NONE = new SeedRule() {
+        @Override
+        public boolean appliesTo(String fieldName) {
+            return false;
+        }
+
+        @Override
+        public Object rewrite(JsonParser value, Random random) {
+            return null;
+        }
+    };
+
+    private final JsonFactory jsonFactory;
+    private final List<SeedRule> rules;
+    // looked up for every field of every seeded body; past the cap, names are resolved uncached
+    private final Map<String, SeedRule> ruleByName = new ConcurrentHashMap<>();
+
+    public SeedRewriter(ObjectMapper objectMapper, List<SeedRule> rules) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.rules = List.copyOf(rules);
+    }
+
+    /** Same seed, same draws: ids and other random-backed values are reproducible. */
+    public static Random random(String seed) {
+        return new Random(seed.hashCode());
+    }
+
+    /** The rewritten body; {@code json} itself when no rule changed anything. */
+    public byte[] rewrite(byte[] json, String seed) throws IOException {
+        return rewrite(json, seed, SeedVariants.NONE);
+    }
+
+    /** As {@link #rewrite(byte[], String)}, with {@code variants} taking precedence over the rules. */
+    public byte[] rewrite(byte[] json, String seed, SeedVariants variants) throws IOException {
+        Random random = random(seed);
+        ByteArrayOutputStream out = null;
+        int copied = 0;
+        // owner[d]: rule for scalars directly inside the container at depth d (arrays only)
+        SeedRule[] owner = new SeedRule[16];
+        int depth = 0;
+        SeedRule pending = NONE; // rule for the value following the last field name
+        try (JsonParser in = jsonFactory.createParser(json)) {
+            JsonToken token;
+            while ((token = in.nextToken()) != null) {
+                switch (token) {
+                    case FIELD_NAME -> {
+                        pending = variants.ruleFor(in.currentName());
+                        if (pending == null) pending = ruleFor(in.currentName());
+                        continue;
+                    }
+                    case START_OBJECT, START_ARRAY -> {
+                        if (++depth == owner.length) owner = Arrays.copyOf(owner, depth * 2);
+                        owner[depth] = token == JsonToken.START_ARRAY ? valueRule(depth - 1, owner, pending) : NONE;
+                    }
+                    case END_OBJECT, END_ARRAY -> depth--;
+                    default -> {
+                        Object replacement = valueRule(depth, owner, pending).rewrite(in, random);
+                        if (replacement != null) {
+                            in.finishToken();
+                            int start = (int) in.currentTokenLocation().getByteOffset();
+                            if (out == null) out = new ByteArrayOutputStream(json.length + 32);
+                            out.write(json, copied, start - copied);
+                            writeLiteral(replacement, out);
+                            copied = (int) in.currentLocation().getByteOffset();
+                        }
+                    }
+                }
+                pending = NONE;
+            }
+        }
+        if (out == null) {
+            return json;
+        }
+        out.write(json, copied, json.length - copied);
+        return out.toByteArray();
+    }
+
+    // a value right after a field name belongs to that field; otherwise to the enclosing array
+    private static SeedRule valueRule(int depth, SeedRule[] owner, SeedRule pending) {
+        return pending != NONE ? pending : owner[depth] != null ? owner[depth] : NONE;
+    }
+
+    private static void writeLiteral(Object value, ByteArrayOutputStream out) {
+        if (value instanceof String s) {
+            out.write('"');
+            out.writeBytes(JsonStringEncoder.getInstance().quoteAsUTF8(s));
+            out.write('"');
+        } else if (value instanceof Boolean || (value instanceof Number n && Double.isFinite(n.doubleValue()))) {
+            out.writeBytes(value.toString().getBytes(StandardCharsets.US_ASCII));
+        } else {
+            throw new IllegalArgumentException("Not a JSON scalar: " + value);
+        }
+    }
+
+    private SeedRule ruleFor(String name) {
+        SeedRule rule = ruleByName.get(name);
+        if (rule == null) {
+            rule = resolve(name);
+            if (ruleByName.size() < MAX_NAME_RULES) ruleByName.put(name, rule);
+        }
+        return rule;
+    }
+
+    private SeedRule resolve(String name) {
+        for (SeedRule rule : rules) {
+            if (rule.appliesTo(name)) return rule;
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,29 @@
+package ca.bazlur.smartmock.processor;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Rewrites values of matching fields when a request carries {@code X-Mock-Seed}.
+ * Rules are Spring beans, tried in {@link org.springframework.core.annotation.Order}
+ * order; the first whose {@link #appliesTo(String)} accepts a field name owns it.
+ */
+public interface SeedRule {
+
+    /**
+     * Whether this rule owns values of the named field, including the elements of an
+     * array held by that field. Called once per field name; the answer is cached.
+     */
+    boolean appliesTo(String fieldName);
+
+    /**
+     * Replacement for the scalar value the parser is positioned on: a {@link Number},
+     * {@link String} or {@link Boolean}, or {@code null} to keep the value as is.
+     *
+     * @param random seeded from the request's seed and shared by the whole document,
+     *               so draws follow document order
+     */
+    Object rewrite(JsonParser value, Random random) throws IOException;
+}
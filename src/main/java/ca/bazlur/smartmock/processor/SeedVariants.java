@@ -0,0 +1,285 @@
+package ca.bazlur.smartmock.processor;
+
+import ca.bazlur.smartmock.llm.FieldSemantics;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Field rules derived from one response schema, used to turn a single generated body into
+ * a distinct, reproducible variant per seed: ids, names, emails, amounts, dates and enum
+ * choices are perturbed by what the schema and {@link FieldSemantics} say the field is,
+ * so every variant still has the shape and value domains of the original. Built once per
+ * compiled plan; fields are keyed by name, the first declaration of a name winning.
+ */
+public final class SeedVariants {
+    public static final SeedVariants NONE = new SeedVariants(Map.of());
+
+    private static final int MAX_DATE_SHIFT_DAYS = 30;
+    private static final String[] FIRST_NAMES = {
+        "Ava", "Liam", "Maya", "Noah", "Priya", "Mateo", "Sofia", "Kenji",
+        "Amara", "Lucas", "Elena", "Omar", "Hana", "Diego", "Chloe", "Tariq"};
+    private static final String[] LAST_NAMES = {
+        "Nguyen", "Garcia", "Okafor", "Smith", "Rossi", "Kim", "Haddad", "Novak",
+        "Silva", "Tanaka", "Meyer", "Patel", "Johansson", "Dubois", "Mensah", "Cohen"};
+    private static final String[] QUALIFIERS = {
+        "Classic", "Nova", "Summit", "Urban", "Prime", "Coastal", "Swift", "Golden",
+        "Evergreen", "Lunar", "Crimson", "Silver", "Aurora", "Atlas", "Harbor", "Zephyr"};
+
+    private final Map<String, SeedRule> byField;
+
+    private SeedVariants(Map<String, SeedRule> byField) {
+        this.byField = byField;
+    }
+
+    /** Rules for the properties of {@code jsonSchema}, at any depth. */
+    public static SeedVariants of(JsonNode jsonSchema, FieldSemantics semantics) {
+        if (jsonSchema == null) {
+            return NONE;
+        }
+        Map<String, SeedRule> byField = new HashMap<>();
+        collect(jsonSchema, semantics, byField, 0);
+        return byField.isEmpty() ? NONE : new SeedVariants(Map.copyOf(byField));
+    }
+
+    /** The rule for values of the named field, or {@code null} when the schema gives none. */
+    public SeedRule ruleFor(String fieldName) {
+        return byField.get(fieldName);
+    }
+
+    public int size() {
+        return byField.size();
+    }
+
+    private static void collect(JsonNode schema, FieldSemantics semantics, Map<String, SeedRule> out, int depth) {
+        if (schema == null || !schema.isObject() || depth > 32) {
+            return;
+        }
+        JsonNode properties = schema.get("properties");
+        if (properties != null && properties.isObject()) {
+            for (Map.Entry<String, JsonNode> property : properties.properties()) {
+                if (!out.containsKey(property.getKey())) {
+                    SeedRule rule = ruleFor(property.getKey(), property.getValue(), semantics);
+                    if (rule != null) out.put(property.getKey(), rule);
+                }
+                collect(property.getValue(), semantics, out, depth + 1);
+            }
+        }
+        collect(schema.get("items"), semantics, out, depth + 1);
+        for (String composition : new String[]{"allOf", "anyOf", "oneOf"}) {
+            JsonNode parts = schema.get(composition);
+            if (parts != null && parts.isArray()) {
+                parts.forEach(part -> collect(part, semantics, out, depth + 1));
+            }
+        }
+    }
+
+    private static SeedRule ruleFor(String name, JsonNode schema, FieldSemantics semantics) {
+        JsonNode values = enumOf(schema);
+        if (values != null) {
+            return values.size() > 1 ? new EnumRule(values) : null;
+        }
+        return switch (semantics.detectFieldType(name, schema)) {
+            case IDENTIFIER -> ID;
+            case PERSON_NAME -> PERSON_NAME;
+            case PRODUCT_NAME -> QUALIFIED_NAME;
+            case EMAIL -> EMAIL;
+            // integer "totals" are usually counts that must agree with the body
+            case MONETARY -> "number".equals(schema.path("type").asText())
+                ? new AmountRule(decimal(schema, "minimum"), decimal(schema, "maximum")) : null;
+            case DATETIME -> DATE;
+            case GENERIC_STRING -> name.toLowerCase(Locale.ROOT).endsWith("name") ? QUALIFIED_NAME : null;
+            default -> null;
+        };
+    }
+
+    // the enum of the field, or of its array items
+    private static JsonNode enumOf(JsonNode schema) {
+        JsonNode values = schema.get("enum");
+        if (values == null && schema.has("items")) {
+            values = schema.get("items").get("enum");
+        }
+        return values != null && values.isArray() ? values : null;
+    }
+
+    private static BigDecimal decimal(JsonNode schema, String field) {
+        JsonNode value = schema.get(field);
+        return value != null && value.isNumber() ? value.decimalValue() : null;
+    }
+
+    /** One of the schema's enum values, of the same JSON type as the original. */
+    private record EnumRule(JsonNode values) implements SeedRule {
+        @Override
+        public boolean appliesTo(String fieldName) {
+            return true;
+        }
+
+        @Override
+        public Object rewrite(JsonParser value, Random random) {
+            JsonNode choice = values.get(random.nextInt(values.size()));
+            JsonToken token = value.currentToken();
+            if (token == JsonToken.VALUE_STRING && choice.isTextual()) return choice.textValue();
+            if (token.isNumeric() && choice.isNumber()) return choice.numberValue();
+            if (token.isBoolean() && choice.isBoolean()) return choice.booleanValue();
+            return null;
+        }
+    }
+
+    /** Numbers are redrawn; strings keep their shape, with digits (and hex, in hex ids) redrawn. */
+    private static final SeedRule ID = new Rule() {
+        @Override
+        public Object rewrite(JsonParser value, Random random) throws IOException {
+            if (value.currentToken().isNumeric()) {
+                return Math.abs(random.nextInt(10000));
+            }
+            return value.currentToken() == JsonToken.VALUE_STRING ? redrawDigits(value.getText(), random) : null;
+        }
+    };
+
+    /**
+     * {@code value} with every digit redrawn, and every hex letter too when the value is a
+     * uuid or hash; {@code null} when it has nothing to redraw.
+     */
+    public static String redrawDigits(String value, Random random) {
+        char[] chars = value.toCharArray();
+        boolean hex = isHex(chars);
+        boolean changed = false;
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9' || hex && (c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F')) {
+                char digit = Character.forDigit(random.nextInt(hex ? 16 : 10), 16);
+                chars[i] = Character.isUpperCase(c) ? Character.toUpperCase(digit) : digit;
+                changed = true;
+            }
+        }
+        return changed ? new String(chars) : null;
+    }
+
+    // uuids and hashes: dash-separated segments of hex digits only, at least one of them mixing
+    // letters and digits, so an all-letter prefix such as ACC in ACC-2024-789456 is not hex
+    private static boolean isHex(char[] chars) {
+        int digits = 0;
+        boolean mixed = false;
+        boolean segmentLetters = false;
+        boolean segmentDigits = false;
+        for (char c : chars) {
+            if (c == '-') {
+                mixed |= segmentLetters && segmentDigits;
+                segmentLetters = segmentDigits = false;
+            } else if (c >= '0' && c <= '9') {
+                segmentDigits = true;
+                digits++;
+            } else if (c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F') {
+                segmentLetters = true;
+                digits++;
+            } else {
+                return false;
+            }
+        }
+        mixed |= segmentLetters && segmentDigits;
+        return digits >= 8 && mixed;
+    }
+
+    private static final SeedRule PERSON_NAME = new Rule() {
+        @Override
+        public Object rewrite(JsonParser value, Random random) {
+            if (value.currentToken() != JsonToken.VALUE_STRING) return null;
+            return pick(FIRST_NAMES, random) + " " + pick(LAST_NAMES, random);
+        }
+    };
+
+    /** Keeps the last word, which usually names the thing, behind a new qualifier. */
+    private static final SeedRule QUALIFIED_NAME = new Rule() {
+        @Override
+        public Object rewrite(JsonParser value, Random random) throws IOException {
+            if (value.currentToken() != JsonToken.VALUE_STRING) return null;
+            String name = value.getText().strip();
+            if (name.isEmpty()) return null;
+            return pick(QUALIFIERS, random) + " " + name.substring(name.lastIndexOf(' ') + 1);
+        }
+    };
+
+    /** A new local part, the original domain. */
+    private static final SeedRule EMAIL = new Rule() {
+        @Override
+        public Object rewrite(JsonParser value, Random random) throws IOException {
+            if (value.currentToken() != JsonToken.VALUE_STRING) return null;
+            String email = value.getText();
+            int at = email.lastIndexOf('@');
+            if (at < 0) return null;
+            String local = pick(FIRST_NAMES, random) + "." + pick(LAST_NAMES, random);
+            return local.toLowerCase(Locale.ROOT) + email.substring(at);
+        }
+    };
+
+    /** Dates and date-times move by up to {@value #MAX_DATE_SHIFT_DAYS} days, keeping their format. */
+    private static final SeedRule DATE = new Rule() {
+        @Override
+        public Object rewrite(JsonParser value, Random random) throws IOException {
+            long days = random.nextInt(2 * MAX_DATE_SHIFT_DAYS + 1) - MAX_DATE_SHIFT_DAYS;
+            long seconds = days * 86_400 + random.nextInt(86_400);
+            if (value.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+                long epoch = value.getLongValue();
+                // epoch milliseconds from the year 1973 on, seconds before that
+                return Math.abs(epoch) >= 100_000_000_000L ? epoch + seconds * 1000 : epoch + seconds;
+            }
+            if (value.currentToken() != JsonToken.VALUE_STRING) return null;
+            String text = value.getText();
+            try {
+                if (text.length() == 10) {
+                    return LocalDate.parse(text).plusDays(days).toString();
+                }
+                if (text.endsWith("Z") || text.lastIndexOf('+') > 10 || text.lastIndexOf('-') > 10) {
+                    return OffsetDateTime.parse(text).plusSeconds(seconds).format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+                }
+                return LocalDateTime.parse(text).plusSeconds(seconds).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+    };
+
+    /** Scaled by a factor in {@code [0.5, 1.5)}, kept to cents and within the schema's bounds. */
+    private record AmountRule(BigDecimal minimum, BigDecimal maximum) implements SeedRule {
+        @Override
+        public boolean appliesTo(String fieldName) {
+            return true;
+        }
+
+        @Override
+        public Object rewrite(JsonParser value, Random random) throws IOException {
+            JsonToken token = value.currentToken();
+            if (!token.isNumeric()) return null;
+            BigDecimal factor = BigDecimal.valueOf(0.5 + random.nextDouble());
+            BigDecimal amount = value.getDecimalValue().multiply(factor)
+                .setScale(token == JsonToken.VALUE_NUMBER_INT ? 0 : 2, RoundingMode.HALF_UP);
+            if (minimum != null && amount.compareTo(minimum) < 0) amount = minimum;
+            if (maximum != null && amount.compareTo(maximum) > 0) amount = maximum;
+            return token == JsonToken.VALUE_NUMBER_INT ? amount.toBigInteger() : amount;
+        }
+    }
+
+    private abstract static class Rule implements SeedRule {
+        @Override
+        public boolean appliesTo(String fieldName) {
+            return true; // already looked up by field name
+        }
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,30 @@
+package ca.bazlur.smartmock.processor;
+
+import com.fasterxml.jackson.core.JsonParser;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Numeric timestamps become epoch millis within the day before a fixed instant, so that a
+ * seed always yields the same body, and with it the same ETag.
+ */
+@Component
+@Order(10)
+public class TimestampSeedRule implements SeedRule {
+    // 2024-01-01T00:00:00Z
+    static final long EPOCH_MILLIS = 1_704_067_200_000L;
+
+    @Override
+    public boolean appliesTo(String fieldName) {
+        return fieldName.toLowerCase(Locale.ROOT).contains("timestamp");
+    }
+
+    @Override
+    public Object rewrite(JsonParser value, Random random) throws IOException {
+        return value.currentToken().isNumeric() ? EPOCH_MILLIS - random.nextInt(86400000) : null;
+    }
+}
@@ -1,21 +1,30 @@
 package ca.bazlur.smartmock.service;
 
+import ca.bazlur.smartmock.entity.EntityCache;
+import ca.bazlur.smartmock.model.MockRequestBody;
 import ca.bazlur.smartmock.model.MockResult;
 import ca.bazlur.smartmock.model.Plan;
 import ca.bazlur.smartmock.model.Scenario;
 import ca.bazlur.smartmock.model.Signature;
 import ca.bazlur.smartmock.openapi.Endpoint;
 import ca.bazlur.smartmock.openapi.OpenApiIndex;
+import ca.bazlur.smartmock.pagination.Paginator;
 import ca.bazlur.smartmock.planner.ResponsePlanner;
+import ca.bazlur.smartmock.prefetch.Prefetcher;
 import ca.bazlur.smartmock.llm.LlmRunner;
 import ca.bazlur.smartmock.validation.JsonValidator;
+import ca.bazlur.smartmock.processor.ResponseCompressor;
 import ca.bazlur.smartmock.processor.ResponsePostProcessor;
+import ca.bazlur.smartmock.state.ResourceStore;
+import ca.bazlur.smartmock.template.TemplateLearner;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.language.LanguageModel;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
@@ -26,75 +35,185 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 @Service
 public class MockService {
+    public static final String SCHEMA_HEADER = "X-Mock-Schema";
+    public static final String TEMPLATE_HEADER = "X-Mock-Template";
+
     private final SchemaManager schemaManager;
     private final LanguageModel chatModel;
     private final ResponsePlanner planner;
     private final LlmRunner llmRunner;
     private final JsonValidator validator;
     private final ResponsePostProcessor postProcessor;
-    private final Cache<Signature, MockResult> cache;
+    private final TemplateLearner templates;
+    private final ResponseCompressor compressor;
+    private final Paginator paginator;
+    private final ResourceStore store;
+    private final EntityCache entities;
+    private final Prefetcher prefetcher;
+    // One response cache per loaded index. Keys are weak, so a deleted or replaced
+    // schema's cache is dropped together with its index.
+    private final Cache<OpenApiIndex, Cache<Signature, MockResult>> caches;
 
     public MockService(SchemaManager schemaManager,
                        LanguageModel chatModel,
                        ResponsePlanner planner,
                        LlmRunner llmRunner,
                        JsonValidator validator,
-                       ResponsePostProcessor postProcessor) {
+                       ResponsePostProcessor postProcessor,
+                       TemplateLearner templates,
+                       ResponseCompressor compressor,
+                       Paginator paginator,
+                       ResourceStore store,
+                       EntityCache entities,
+                       Prefetcher prefetcher) {
         this.schemaManager = schemaManager;
         this.chatModel = chatModel;
         this.planner = planner;
         this.llmRunner = llmRunner;
         this.validator = validator;
         this.postProcessor = postProcessor;
-        this.cache = Caffeine.newBuilder()
-                .maximumSize(1000)
-                .expireAfterWrite(15, TimeUnit.MINUTES)
+        this.templates = templates;
+        this.compressor = compressor;
+        this.paginator = paginator;
+        this.store = store;
+        this.entities = entities;
+        this.prefetcher = prefetcher;
+        this.caches = Caffeine.newBuilder()
+                .weakKeys()
                 .build();
     }
 
-    public MockResult generate(HttpServletRequest request, String body) {
-        String path = request.getRequestURI().replace("/mock", "");
-        String method = request.getMethod();
-        
-        // Get the active schema's index
-        OpenApiIndex openApiIndex = schemaManager.getActiveIndex()
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
-                        "No active schema available. Please upload and activate an OpenAPI specification."));
+    public MockResult generate(HttpServletRequest request, MockRequestBody body) {
+        // HEAD is answered from the GET entry, generating it first on a miss
+        String method = HttpMethod.HEAD.matches(request.getMethod()) ? HttpMethod.GET.name() : request.getMethod();
+        Target target = resolveTarget(request, method);
+        MockResult result = generate(request, body, method, target, false);
+        prefetcher.observe(target.index(), method, target.path(), request, result, this::prefetch);
+        return result;
+    }
+
+    /**
+     * Generates a GET into the response cache ahead of the client asking for it, at
+     * background priority: it fails with 503 rather than wait for the LLM, is not delayed,
+     * and a response that fails validation is dropped rather than repaired.
+     */
+    void prefetch(HttpServletRequest request) {
+        generate(request, MockRequestBody.EMPTY, HttpMethod.GET.name(), resolveTarget(request, HttpMethod.GET.name()), true);
+    }
+
+    /** The response to a request, or for a {@code speculative} one, {@code null} once it is cached. */
+    private MockResult generate(HttpServletRequest request, MockRequestBody body, String method, Target target,
+                                boolean speculative) {
+        String path = target.path();
+        OpenApiIndex openApiIndex = target.index();
+        Cache<Signature, MockResult> cache = caches.get(openApiIndex, i -> newResponseCache());
         
         Signature signature = Signature.from(request, body);
+        signature.setMethod(method);
+        signature.setPath(path);
+        if (postProcessor.seedVariants()) {
+            // one generation serves every seed; variants are derived from it below
+            signature.setSeed("default");
+        }
         
-        MockResult cached = cache.getIfPresent(signature);
+        // stateful mode answers known resources from the store, ahead of the cache
+        Stateful stateful = stateful(openApiIndex, method, path, request, body);
+        if (stateful != null && stateful.served() != null) {
+            if (speculative) {
+                return null;
+            }
+            applyLatency(request);
+            return stateful.served();
+        }
+        // writes change the store, so they are never replayed from the cache
+        boolean cacheable = stateful == null || HttpMethod.GET.matches(method);
+
+        MockResult cached = cacheable ? cache.getIfPresent(signature) : null;
         if (cached != null) {
             log.debug("Cache hit for signature: {}", signature);
+            if (speculative) {
+                return null;
+            }
+            prefetcher.served(signature);
             applyLatency(request);
-            return cached;
+            return stateful != null ? cached : postProcessor.seeded(cached, request);
         }
 
         try {
-            Endpoint endpoint = openApiIndex.match(method, path)
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, 
-                            "No matching endpoint found in OpenAPI spec for " + method + " " + path));
+            Endpoint endpoint = stateful != null ? stateful.endpoint() : match(openApiIndex, method, path);
 
             Scenario scenario = Scenario.fromHeaders(request);
-            Plan plan = planner.plan(endpoint, scenario, request, body);
+            Plan plan = stateful != null ? stateful.plan() : planner.plan(openApiIndex, endpoint, scenario, request, body);
             
-            String jsonResponse = llmRunner.generateResponse(chatModel, plan);
-            log.debug("Generated response: {}", jsonResponse);
+            Paginator.Page page = paginator.page(plan, request, signature.getSeed(),
+                    chunkRequest -> {
+                        // a chunk stays in the dataset for every later page, so only a conforming one goes in
+                        Generated chunk = fromModel(planner.plan(openApiIndex, endpoint, scenario, chunkRequest, body), speculative);
+                        return chunk.conforms() ? chunk.body() : null;
+                    });
+            // a known entity beats a template: it is what the client has already seen
+            JsonNode generated = page != null ? page.body() : entities.lookup(openApiIndex, plan, request);
+            boolean known = page == null && generated != null;
+            if (generated == null) {
+                generated = fromTemplate(plan);
+            }
+            boolean templated = page == null && !known && generated != null;
+            boolean conforms = true;
+            if (page != null) {
+                conforms = conforms(generated, plan);
+            } else if (generated == null) {
+                Generated fromModel = fromModel(plan, speculative);
+                if (fromModel.unparsed() != null) {
+                    // sent as the model wrote it, and like any non-conforming body never cached
+                    applyLatency(request);
+                    return postProcessor.unparsed(fromModel.unparsed(), plan);
+                }
+                generated = fromModel.body();
+                conforms = fromModel.conforms();
+                if (conforms) {
+                    templates.learn(plan, generated);
+                }
+            }
+            if (speculative && !conforms) {
+                return null;
+            }
             
-            try {
-                jsonResponse = validator.validate(jsonResponse);
-            } catch (JsonValidator.ValidationException e) {
-                log.warn("Validation failed, attempting repair: {}", e.getMessage());
-                jsonResponse = llmRunner.repairResponse(chatModel, jsonResponse, e.getMessage());
+            boolean composed = false;
+            if (conforms && !known) {
+                JsonNode composedBody = entities.compose(openApiIndex, plan, request, generated);
+                composed = composedBody != generated;
+                generated = composedBody;
+            }
+            if (stateful != null && conforms) {
+                generated = store.record(openApiIndex, stateful.route(), method, request, body, generated);
             }
             
-            MockResult result = postProcessor.process(jsonResponse, plan, request);
-            cache.put(signature, result);
+            MockResult result = postProcessor.process(generated, plan, request);
+            if (templated) {
+                result.getHeaders().set(TEMPLATE_HEADER, "true");
+            }
+            if (page != null) {
+                result.getHeaders().addAll(page.headers());
+            }
+            if (known || composed) {
+                result.getHeaders().set(EntityCache.ENTITY_HEADER, known ? "cached" : "composed");
+            }
+            if (conforms && cacheable) {
+                compressor.precompress(result);
+                cache.put(signature, result);
+            }
+            if (speculative) {
+                prefetcher.prefetched(signature);
+                return null;
+            }
             
             applyLatency(request);
             
-            return result;
+            // stored resources keep the ids the client was given, so they are not seed-rewritten
+            return stateful != null ? result : postProcessor.seeded(result, request);
             
+        } catch (ResponseStatusException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error generating mock response", e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, 
@@ -102,6 +221,154 @@ public class MockService {
         }
     }
 
+    /**
+     * The store's answer to a request for a resource, or, when it has none, what generation
+     * needs to record the response; {@code null} outside stateful mode and for error scenarios.
+     */
+    private Stateful stateful(OpenApiIndex index, String method, String path, HttpServletRequest request,
+                              MockRequestBody body) {
+        if (!store.isEnabled()) {
+            return null;
+        }
+        Endpoint endpoint = match(index, method, path);
+        ResourceStore.Route route = store.route(endpoint, method, path);
+        if (route == null) {
+            return null;
+        }
+        Plan plan = planner.plan(index, endpoint, Scenario.fromHeaders(request), request, body);
+        if (plan.getStatusCode() / 100 != 2) {
+            return null;
+        }
+        ResourceStore.Served served = store.serve(index, route, method, request, body);
+        MockResult result = null;
+        if (served != null) {
+            plan.setStatusCode(served.status());
+            result = postProcessor.process(served.body(), plan, request);
+            result.getHeaders().set(ResourceStore.STATE_HEADER, "stored");
+        }
+        return new Stateful(endpoint, plan, route, result);
+    }
+
+    private static Endpoint match(OpenApiIndex index, String method, String path) {
+        return index.match(method, path)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "No matching endpoint found in OpenAPI spec for " + method + " " + path));
+    }
+
+    /**
+     * The model's response for this plan, repaired once if it fails validation. A
+     * {@code speculative} one only runs on idle capacity and is not repaired.
+     */
+    private Generated fromModel(Plan plan, boolean speculative) throws Exception {
+        String jsonResponse = llmRunner.generateResponse(chatModel, plan,
+                speculative ? LlmRunner.Priority.BACKGROUND : LlmRunner.Priority.LIVE);
+        log.debug("Generated response: {}", jsonResponse);
+
+        // Parsed once; the same tree is validated, post-processed and serialized
+        try {
+            JsonNode generated = validator.parse(jsonResponse);
+            validator.validate(generated, plan.getCompiled());
+            return new Generated(generated, true, null);
+        } catch (JsonValidator.ValidationException e) {
+            if (speculative) {
+                log.debug("Prefetched response fails validation, dropping it: {}", e.getMessage());
+                return new Generated(null, false, null);
+            }
+            log.warn("Validation failed, attempting repair: {}", e.getMessage());
+            jsonResponse = llmRunner.repairResponse(chatModel, jsonResponse, e.getMessage());
+            JsonNode generated;
+            try {
+                generated = validator.parse(jsonResponse);
+            } catch (JsonValidator.ValidationException notJson) {
+                log.warn("Repaired response is not JSON, serving it as is without caching: {}", notJson.getMessage());
+                return new Generated(null, false, jsonResponse);
+            }
+            try {
+                validator.validate(generated, plan.getCompiled());
+                return new Generated(generated, true, null);
+            } catch (JsonValidator.ValidationException stillInvalid) {
+                // serve what we have, but never let a non-conforming body be replayed from cache
+                log.warn("Repaired response still fails validation, not caching it: {}", stillInvalid.getMessage());
+                return new Generated(generated, false, null);
+            }
+        }
+    }
+
+    private boolean conforms(JsonNode body, Plan plan) {
+        try {
+            validator.validate(body, plan.getCompiled());
+            return true;
+        } catch (JsonValidator.ValidationException e) {
+            log.warn("Page fails validation, not caching it: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /** A body from the endpoint's learned template, checked like a model response; {@code null} to ask the model. */
+    private JsonNode fromTemplate(Plan plan) {
+        JsonNode body = templates.generate(plan);
+        if (body != null) {
+            try {
+                validator.validate(body, plan.getCompiled());
+            } catch (JsonValidator.ValidationException e) {
+                templates.reject(plan, e.getMessage());
+                return null;
+            }
+        }
+        return body;
+    }
+
+    /**
+     * Picks the schema that serves this request: the {@value #SCHEMA_HEADER} header
+     * if present, else a {@code /mock/{schemaId}/...} prefix when the remainder
+     * matches an endpoint of that schema, else the active schema.
+     */
+    private Target resolveTarget(HttpServletRequest request, String method) {
+        String path = request.getRequestURI().replace("/mock", "");
+
+        String schemaId = request.getHeader(SCHEMA_HEADER);
+        if (schemaId != null && !schemaId.isBlank()) {
+            OpenApiIndex index = schemaManager.getSchema(schemaId.trim())
+                    .map(SchemaManager.SchemaInfo::getIndex)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                            "Unknown schema '" + schemaId.trim() + "' in " + SCHEMA_HEADER));
+            return new Target(index, path);
+        }
+
+        int slash = path.indexOf('/', 1);
+        if (slash > 1) {
+            String rest = path.substring(slash);
+            var prefixed = schemaManager.getSchema(path.substring(1, slash))
+                    .map(SchemaManager.SchemaInfo::getIndex)
+                    .filter(index -> index.match(method, rest).isPresent());
+            if (prefixed.isPresent()) {
+                return new Target(prefixed.get(), rest);
+            }
+        }
+
+        OpenApiIndex active = schemaManager.getActiveIndex()
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "No active schema available. Please upload and activate an OpenAPI specification."));
+        return new Target(active, path);
+    }
+
+    private static Cache<Signature, MockResult> newResponseCache() {
+        return Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfterWrite(15, TimeUnit.MINUTES)
+                .build();
+    }
+
+    private record Target(OpenApiIndex index, String path) {
+    }
+
+    // unparsed: the repaired text, when even that is not JSON; body is then null
+    private record Generated(JsonNode body, boolean conforms, String unparsed) {
+    }
+
+    private record Stateful(Endpoint endpoint, Plan plan, ResourceStore.Route route, MockResult served) {
+    }
+
     private void applyLatency(HttpServletRequest request) {
         String latencyHeader = request.getHeader("X-Mock-Latency");
         if (latencyHeader != null) {
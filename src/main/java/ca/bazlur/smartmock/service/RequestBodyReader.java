@@ -0,0 +1,254 @@
+package ca.bazlur.smartmock.service;
+
+import ca.bazlur.smartmock.model.MockRequestBody;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Streams mock request bodies instead of buffering them. A single pass over the
+ * bytes enforces the size cap, feeds the SHA-256 digest used for cache keys and
+ * builds the bounded summary handed to the planner (see {@link MockRequestBody}).
+ */
+@Component
+public class RequestBodyReader {
+    static final int MAX_DEPTH = 4;
+    static final int MAX_FIELDS = 32;
+    static final int MAX_ARRAY_SAMPLES = 3;
+    static final int MAX_STRING_CHARS = 200;
+    static final int MAX_NODES = 256;
+    static final int PREVIEW_BYTES = 1024;
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private final JsonFactory jsonFactory;
+    private final long maxBodyBytes;
+
+    public RequestBodyReader(ObjectMapper objectMapper,
+                             @Value("${smart-mock.mock.max-body-bytes:10485760}") long maxBodyBytes) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    public MockRequestBody read(HttpServletRequest request) {
+        if (request.getContentLengthLong() > maxBodyBytes) {
+            throw tooLarge();
+        }
+        try (InputStream in = request.getInputStream()) {
+            return read(in);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Could not read request body: " + e.getMessage(), e);
+        }
+    }
+
+    MockRequestBody read(InputStream raw) throws IOException {
+        try {
+            return summarize(new MeteredInputStream(raw, maxBodyBytes));
+        } catch (BodyTooLargeException e) {
+            throw tooLarge();
+        }
+    }
+
+    private MockRequestBody summarize(MeteredInputStream in) throws IOException {
+        JsonNode summary = null;
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            // the stream is drained below, after the parser is done with it
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            if (parser.nextToken() != null) {
+                summary = new Summarizer(parser).value(0);
+            }
+        } catch (JsonProcessingException e) {
+            // not JSON (or truncated JSON); summarized from the preview instead
+            summary = null;
+        }
+        in.drain();
+
+        if (in.count == 0) {
+            return MockRequestBody.EMPTY;
+        }
+        if (summary == null) {
+            String preview = new String(in.preview.toByteArray(), StandardCharsets.UTF_8).strip();
+            if (!preview.isEmpty()) {
+                summary = NODES.textNode(in.count > PREVIEW_BYTES ? preview + "…" : preview);
+            }
+        }
+        return new MockRequestBody(in.count, HexFormat.of().formatHex(in.digest.digest()), summary);
+    }
+
+    private ResponseStatusException tooLarge() {
+        return new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                "Request body exceeds " + maxBodyBytes + " bytes");
+    }
+
+    /** Builds the summary from parser events, skipping whatever falls outside the bounds. */
+    private static final class Summarizer {
+        private final JsonParser parser;
+        private int nodes;
+
+        Summarizer(JsonParser parser) {
+            this.parser = parser;
+        }
+
+        JsonNode value(int depth) throws IOException {
+            nodes++;
+            JsonToken token = parser.currentToken();
+            return switch (token) {
+                case START_OBJECT -> depth >= MAX_DEPTH ? skipped("{…}") : object(depth);
+                case START_ARRAY -> depth >= MAX_DEPTH ? skipped("[…]") : array(depth);
+                case VALUE_STRING -> NODES.textNode(truncate(parser.getText()));
+                case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> number();
+                case VALUE_TRUE -> NODES.booleanNode(true);
+                case VALUE_FALSE -> NODES.booleanNode(false);
+                default -> NODES.nullNode();
+            };
+        }
+
+        private JsonNode object(int depth) throws IOException {
+            ObjectNode node = NODES.objectNode();
+            int omitted = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                if (node.size() >= MAX_FIELDS || nodes >= MAX_NODES) {
+                    parser.skipChildren();
+                    omitted++;
+                } else {
+                    node.set(name, value(depth + 1));
+                }
+            }
+            if (omitted > 0) {
+                node.put(MockRequestBody.OMITTED_FIELDS_KEY, omitted);
+            }
+            return node;
+        }
+
+        private JsonNode array(int depth) throws IOException {
+            ArrayNode samples = NODES.arrayNode();
+            int length = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (length < MAX_ARRAY_SAMPLES && nodes < MAX_NODES) {
+                    samples.add(value(depth + 1));
+                } else {
+                    parser.skipChildren();
+                }
+                length++;
+            }
+            if (length == samples.size()) {
+                return samples;
+            }
+            ObjectNode truncated = NODES.objectNode();
+            truncated.put(MockRequestBody.LENGTH_KEY, length);
+            truncated.set(MockRequestBody.SAMPLE_KEY, samples);
+            return truncated;
+        }
+
+        private JsonNode number() throws IOException {
+            return switch (parser.getNumberType()) {
+                case INT -> NODES.numberNode(parser.getIntValue());
+                case LONG -> NODES.numberNode(parser.getLongValue());
+                case BIG_INTEGER -> NODES.numberNode(parser.getBigIntegerValue());
+                case BIG_DECIMAL -> NODES.numberNode(parser.getDecimalValue());
+                default -> NODES.numberNode(parser.getDoubleValue());
+            };
+        }
+
+        private JsonNode skipped(String marker) throws IOException {
+            parser.skipChildren();
+            return NODES.textNode(marker);
+        }
+
+        private static String truncate(String s) {
+            return s.length() <= MAX_STRING_CHARS ? s : s.substring(0, MAX_STRING_CHARS) + "…";
+        }
+    }
+
+    /** Counts, digests and keeps a short preview of everything read through it. */
+    private static final class MeteredInputStream extends FilterInputStream {
+        private final long limit;
+        private final MessageDigest digest;
+        private final ByteArrayOutputStream preview = new ByteArrayOutputStream(256);
+        private long count;
+
+        MeteredInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                byte[] one = {(byte) b};
+                consumed(one, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                consumed(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // route skips through read() so skipped bytes are digested too
+            byte[] buf = new byte[(int) Math.min(n, 8192)];
+            int read = read(buf, 0, buf.length);
+            return Math.max(read, 0);
+        }
+
+        void drain() throws IOException {
+            byte[] buf = new byte[8192];
+            while (read(buf, 0, buf.length) >= 0) {
+                // digest and count only
+            }
+        }
+
+        private void consumed(byte[] b, int off, int n) throws BodyTooLargeException {
+            count += n;
+            if (count > limit) {
+                throw new BodyTooLargeException();
+            }
+            digest.update(b, off, n);
+            int room = PREVIEW_BYTES - preview.size();
+            if (room > 0) {
+                preview.write(b, off, Math.min(room, n));
+            }
+        }
+    }
+
+    private static final class BodyTooLargeException extends IOException {
+        BodyTooLargeException() {
+            super("request body too large", null);
+        }
+    }
+}
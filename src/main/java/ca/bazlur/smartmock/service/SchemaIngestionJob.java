@@ -0,0 +1,74 @@
+package ca.bazlur.smartmock.service;
+
+import ca.bazlur.smartmock.openapi.IndexingProgress;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Status of one background schema upload. The worker thread reports progress
+ * through {@link IndexingProgress}; the controller serializes the getters.
+ */
+@Getter
+public class SchemaIngestionJob implements IndexingProgress {
+
+    public enum State { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    private final String jobId;
+    private final String name;
+    private final int specBytes;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+
+    private volatile State state = State.QUEUED;
+    private volatile String phase;
+    private volatile int total;
+    private volatile String schemaId;
+    private volatile String error;
+    private volatile LocalDateTime finishedAt;
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger done = new AtomicInteger();
+
+    public SchemaIngestionJob(String jobId, String name, int specBytes) {
+        this.jobId = jobId;
+        this.name = name;
+        this.specBytes = specBytes;
+    }
+
+    @Override
+    public void phase(String phase, int totalUnits) {
+        this.state = State.RUNNING;
+        this.phase = phase;
+        this.done.set(0);
+        this.total = totalUnits;
+    }
+
+    @Override
+    public void advance() {
+        done.incrementAndGet();
+    }
+
+    public int getCompleted() {
+        return done.get();
+    }
+
+    /** Progress of the current phase, or -1 while the amount of work is unknown. */
+    public int getPercent() {
+        if (state == State.COMPLETED) return 100;
+        int t = total;
+        return t > 0 ? Math.min(100, done.get() * 100 / t) : -1;
+    }
+
+    void complete(String schemaId) {
+        this.schemaId = schemaId;
+        this.finishedAt = LocalDateTime.now();
+        this.state = State.COMPLETED;
+    }
+
+    void fail(String error) {
+        this.error = error;
+        this.finishedAt = LocalDateTime.now();
+        this.state = State.FAILED;
+    }
+}
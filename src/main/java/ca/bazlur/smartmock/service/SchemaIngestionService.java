@@ -0,0 +1,160 @@
+package ca.bazlur.smartmock.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs schema uploads in the background so that large specs do not hold an
+ * HTTP request open while they are parsed, indexed and compiled.
+ * <p>
+ * The worker pool and its queue are both bounded: at most {@code workers} specs
+ * are materialized at once, which keeps the parser's heap usage predictable,
+ * and submissions beyond the queue capacity are rejected with 503 instead of
+ * piling up. The schema is registered with {@link SchemaManager} only after
+ * every phase succeeded, so clients never observe a half-built index.
+ * <p>
+ * {@code max-spec-bytes} caps every upload, synchronous or not: {@link #readSpec}
+ * rejects a body by its Content-Length, or once it has read one byte too many.
+ */
+@Slf4j
+@Service
+public class SchemaIngestionService {
+
+    private final SchemaManager schemaManager;
+    private final ThreadPoolExecutor executor;
+    private final long maxSpecBytes;
+    private final Cache<String, SchemaIngestionJob> jobs = Caffeine.newBuilder()
+        .maximumSize(500)
+        .expireAfterWrite(1, TimeUnit.HOURS)
+        .build();
+
+    public SchemaIngestionService(SchemaManager schemaManager,
+                                  @Value("${smart-mock.ingestion.workers:2}") int workers,
+                                  @Value("${smart-mock.ingestion.queue-capacity:8}") int queueCapacity,
+                                  @Value("${smart-mock.ingestion.max-spec-bytes:52428800}") long maxSpecBytes) {
+        this.schemaManager = schemaManager;
+        this.maxSpecBytes = maxSpecBytes;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+            Math.max(1, workers), Math.max(1, workers),
+            60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+            r -> {
+                Thread t = new Thread(r, "schema-ingest-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public SchemaIngestionJob submit(String specContent, String name) {
+        if (specContent == null || specContent.isBlank()) {
+            throw new IllegalArgumentException("Specification body is empty");
+        }
+        long bytes = utf8Length(specContent);
+        if (bytes > maxSpecBytes) {
+            throw tooLarge(bytes + " bytes");
+        }
+
+        SchemaIngestionJob job = new SchemaIngestionJob(UUID.randomUUID().toString(), name,
+            (int) Math.min(bytes, Integer.MAX_VALUE));
+        jobs.put(job.getJobId(), job);
+        try {
+            executor.execute(() -> run(job, specContent));
+        } catch (RejectedExecutionException e) {
+            jobs.invalidate(job.getJobId());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Too many schema uploads in progress, retry later");
+        }
+        log.info("Queued schema ingestion job {} ({} bytes)", job.getJobId(), bytes);
+        return job;
+    }
+
+    /**
+     * The spec in a request body, read no further than {@code max-spec-bytes}; larger
+     * bodies are rejected with 413 before they are buffered.
+     */
+    public String readSpec(HttpServletRequest request) {
+        long declared = request.getContentLengthLong();
+        if (declared > maxSpecBytes) {
+            throw tooLarge(declared + " bytes");
+        }
+        try (InputStream in = request.getInputStream()) {
+            byte[] bytes = in.readNBytes((int) Math.min(maxSpecBytes + 1, Integer.MAX_VALUE - 8));
+            if (bytes.length > maxSpecBytes) {
+                throw tooLarge("over " + maxSpecBytes + " bytes");
+            }
+            String encoding = request.getCharacterEncoding();
+            return new String(bytes, encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Could not read specification: " + e.getMessage(), e);
+        }
+    }
+
+    public Optional<SchemaIngestionJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId));
+    }
+
+    private void run(SchemaIngestionJob job, String specContent) {
+        long start = System.nanoTime();
+        try {
+            String id = schemaManager.addSchema(specContent, job.getName(), job);
+            job.complete(id);
+            log.info("Schema ingestion job {} finished as '{}' in {} ms", job.getJobId(), id,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            log.error("Schema ingestion job {} failed", job.getJobId(), e);
+            job.fail(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    private ResponseStatusException tooLarge(String size) {
+        return new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+            "Specification is " + size + "; the limit is " + maxSpecBytes);
+    }
+
+    // the UTF-8 size of a string, without encoding a copy of it
+    static long utf8Length(CharSequence text) {
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
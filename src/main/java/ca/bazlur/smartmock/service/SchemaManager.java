@@ -1,9 +1,15 @@
 package ca.bazlur.smartmock.service;
 
+import ca.bazlur.smartmock.model.CompiledPlan;
+import ca.bazlur.smartmock.openapi.IndexingProgress;
 import ca.bazlur.smartmock.openapi.OpenApiIndex;
+import ca.bazlur.smartmock.planner.PlanCompiler;
 import io.swagger.v3.oas.models.OpenAPI;
+import jakarta.annotation.PostConstruct;
 import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -12,6 +18,7 @@ import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class SchemaManager {
     
     @Getter
@@ -42,18 +49,44 @@ public class SchemaManager {
         }
     }
     
+    private final PlanCompiler planCompiler;
+
+    @Value("${smart-mock.schema.max-ref-depth:3}")
+    private int maxRefDepth = 3;
+
     private final Map<String, SchemaInfo> schemas = new ConcurrentHashMap<>();
     private volatile String activeSchemaId;
+
+    @PostConstruct
+    void watchContextBlocks() {
+        planCompiler.addBlocksListener(this::refreshContextBlocks);
+    }
+
+    /** Re-selects context blocks in every schema's compiled plans after the block set changed. */
+    public void refreshContextBlocks() {
+        schemas.values().forEach(info -> refreshContextBlocks(info.getIndex()));
+    }
+
+    // serialized so a refresh against an older block set cannot overwrite a newer one
+    private synchronized void refreshContextBlocks(OpenApiIndex index) {
+        Map<String, CompiledPlan> plans = index.compiledPlans();
+        Map<String, CompiledPlan> refreshed = planCompiler.reselectBlocks(index);
+        if (refreshed != plans) {
+            index.installCompiledPlans(refreshed);
+        }
+    }
     
     public String addSchema(String specContent, String name) {
-        String id = generateSchemaId(name);
-        
-        OpenApiIndex index = new OpenApiIndex();
-        index.loadSpec(specContent);
-        
-        if (index.getOpenAPI() == null) {
-            throw new IllegalArgumentException("Invalid OpenAPI specification");
-        }
+        return addSchema(specContent, name, IndexingProgress.NONE);
+    }
+
+    /**
+     * Parses, indexes and compiles the spec before registering it, so a schema is
+     * only visible to {@link #getSchema(String)} once it is fully usable.
+     */
+    public String addSchema(String specContent, String name, IndexingProgress progress) {
+        OpenApiIndex index = buildIndex(specContent, progress);
+        String requestedName = name;
         
         if (name == null && index.getOpenAPI().getInfo() != null) {
             name = index.getOpenAPI().getInfo().getTitle();
@@ -67,12 +100,16 @@ public class SchemaManager {
             description = index.getOpenAPI().getInfo().getDescription();
         }
         
-        SchemaInfo schemaInfo = new SchemaInfo(id, name, description, index);
-        schemas.put(id, schemaInfo);
-        
-        if (activeSchemaId == null || schemas.size() == 1) {
-            activeSchemaId = id;
+        String id;
+        synchronized (schemas) {
+            id = generateSchemaId(requestedName);
+            schemas.put(id, new SchemaInfo(id, name, description, index));
+            if (activeSchemaId == null || schemas.size() == 1) {
+                activeSchemaId = id;
+            }
         }
+        // blocks may have been reloaded while the spec was compiling
+        refreshContextBlocks(index);
         
         log.info("Added schema '{}' with ID '{}'. Total schemas: {}", name, id, schemas.size());
         return id;
@@ -143,22 +180,29 @@ public class SchemaManager {
             return false;
         }
         
-        OpenApiIndex newIndex = new OpenApiIndex();
-        newIndex.loadSpec(specContent);
-        
-        if (newIndex.getOpenAPI() == null) {
-            throw new IllegalArgumentException("Invalid OpenAPI specification");
-        }
+        OpenApiIndex newIndex = buildIndex(specContent, IndexingProgress.NONE);
         
         SchemaInfo updated = new SchemaInfo(id, existing.getName(), 
             newIndex.getOpenAPI().getInfo() != null ? newIndex.getOpenAPI().getInfo().getDescription() : null,
             newIndex);
         
         schemas.put(id, updated);
+        refreshContextBlocks(newIndex);
         log.info("Updated schema '{}'", id);
         return true;
     }
     
+    private OpenApiIndex buildIndex(String specContent, IndexingProgress progress) {
+        OpenApiIndex index = new OpenApiIndex(maxRefDepth);
+        // spec and plans are published together, never an indexed spec without its plans
+        index.loadSpec(specContent, progress, staged -> planCompiler.compileAll(staged, progress));
+
+        if (index.getOpenAPI() == null) {
+            throw new IllegalArgumentException("Invalid OpenAPI specification");
+        }
+        return index;
+    }
+
     private String generateSchemaId(String name) {
         String base = name != null ? 
             name.toLowerCase().replaceAll("[^a-z0-9]", "-") : 
@@ -0,0 +1,522 @@
+package ca.bazlur.smartmock.state;
+
+import ca.bazlur.smartmock.model.MockRequestBody;
+import ca.bazlur.smartmock.openapi.Endpoint;
+import ca.bazlur.smartmock.openapi.OpenApiIndex;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stateful CRUD: resources created, changed or generated through the mock are kept per
+ * schema and resource type, so a write is visible to the reads that follow it.
+ * <p>
+ * A resource type is the collection path of the endpoint's template, {@code /pets} for both
+ * {@code /pets} and {@code /pets/{petId}}. GET, PUT, PATCH and DELETE of a known id are
+ * answered from the store; reads of unknown ids, and every POST, are generated as usual and
+ * their responses recorded. A list is answered from the store once an unfiltered list of the
+ * type has been generated, for queries that only filter on fields the stored resources have;
+ * those fields are indexed on first use. Deleted ids answer 404 until they are written again.
+ * <p>
+ * Each type keeps at most {@code max-per-type} ids, deleted ones included; the one written
+ * longest ago is evicted first. Request bodies are known only by their bounded summary, so
+ * the parts the summary cut short are left as generated.
+ */
+@Slf4j
+@Component
+public class ResourceStore {
+    public static final String STATE_HEADER = "X-Mock-State";
+
+    /** Where a request lands: a collection ({@code id == null}) or one of its resources. */
+    public record Route(String type, String idParameter, String id) {
+        public boolean item() {
+            return id != null;
+        }
+    }
+
+    /** A response answered from the store; {@code body} is {@code null} for 204. */
+    public record Served(int status, JsonNode body) {
+    }
+
+    private static final List<String> ITEM_FIELDS = List.of("items", "data", "content", "results", "records");
+    private static final Set<String> TOTAL_FIELDS = Set.of(
+        "total", "totalCount", "total_count", "totalElements", "totalItems", "total_items", "totalResults");
+    private static final ObjectNode DELETED = JsonNodeFactory.instance.objectNode();
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int maxPerType;
+    // weak keys: a schema's resources go with its index when it is deleted or replaced
+    private final Cache<OpenApiIndex, Map<String, Resources>> stores = Caffeine.newBuilder()
+        .weakKeys()
+        .executor(Runnable::run) // read-mostly; skip hand-offs to the common pool
+        .build();
+
+    private final LongAdder served = new LongAdder();
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public ResourceStore(ObjectMapper objectMapper,
+                         @Value("${smart-mock.state.enabled:false}") boolean enabled,
+                         @Value("${smart-mock.state.max-per-type:1000}") int maxPerType) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxPerType = Math.max(1, maxPerType);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** The resource a request addresses, or {@code null} when it addresses none the store keeps. */
+    public Route route(Endpoint endpoint, String method, String path) {
+        if (!enabled || endpoint.getPath() == null) {
+            return null;
+        }
+        String template = endpoint.getPath();
+        int slash = template.lastIndexOf('/');
+        String last = template.substring(slash + 1);
+        if (last.length() > 2 && last.charAt(0) == '{' && last.charAt(last.length() - 1) == '}') {
+            String id = path.substring(path.lastIndexOf('/') + 1);
+            boolean itemMethod = HttpMethod.GET.matches(method) || HttpMethod.PUT.matches(method)
+                || HttpMethod.PATCH.matches(method) || HttpMethod.DELETE.matches(method);
+            return slash > 0 && !id.isEmpty() && itemMethod
+                ? new Route(template.substring(0, slash), last.substring(1, last.length() - 1),
+                    URLDecoder.decode(id, StandardCharsets.UTF_8))
+                : null;
+        }
+        boolean collectionMethod = HttpMethod.GET.matches(method) || HttpMethod.POST.matches(method);
+        return slash >= 0 && !last.isEmpty() && collectionMethod ? new Route(template, null, null) : null;
+    }
+
+    /** The stored answer to this request, or {@code null} when it has to be generated. */
+    public Served serve(OpenApiIndex index, Route route, String method, HttpServletRequest request, MockRequestBody body) {
+        Resources resources = resources(index, route, false);
+        Served answer = resources == null ? null : route.item()
+            ? resources.serveItem(route, method, body)
+            : HttpMethod.GET.matches(method) ? resources.serveList(request) : null;
+        if (answer != null) {
+            served.increment();
+        }
+        return answer;
+    }
+
+    /**
+     * Records a generated response. A POST or PUT response takes the fields the client sent,
+     * an item response the id of its path; the returned body is the one stored, to be served.
+     */
+    public JsonNode record(OpenApiIndex index, Route route, String method, HttpServletRequest request,
+                           MockRequestBody body, JsonNode generated) {
+        Resources resources = resources(index, route, true);
+        JsonNode stored = route.item()
+            ? resources.recordItem(route, method, body, generated)
+            : HttpMethod.POST.matches(method) ? resources.recordCreated(route, body, generated)
+            : resources.recordList(route, generated, request.getParameterMap().isEmpty());
+        recorded.increment();
+        log.debug("Recorded {} {} in {}", method, route.item() ? route.id() : "response", route.type());
+        return stored;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("resources", stores.asMap().values().stream()
+            .flatMap(types -> types.values().stream())
+            .mapToLong(Resources::size)
+            .sum());
+        stats.put("served", served.sum());
+        stats.put("recorded", recorded.sum());
+        stats.put("evicted", evicted.sum());
+        stats.put("indexedFields", stores.asMap().values().stream()
+            .flatMap(types -> types.values().stream())
+            .mapToLong(Resources::indexedFields)
+            .sum());
+        return stats;
+    }
+
+    private Resources resources(OpenApiIndex index, Route route, boolean create) {
+        if (create) {
+            return stores.get(index, i -> new ConcurrentHashMap<>())
+                .computeIfAbsent(route.type(), Resources::new);
+        }
+        Map<String, Resources> types = stores.getIfPresent(index);
+        return types != null ? types.get(route.type()) : null;
+    }
+
+    /** Whether the summary kept this value whole: no markers, no cut strings. */
+    static boolean complete(JsonNode value) {
+        if (value.isTextual()) {
+            String text = value.textValue();
+            return !text.endsWith("…") && !text.equals("{…}") && !text.equals("[…]");
+        }
+        if (value.isObject() && (value.has(MockRequestBody.LENGTH_KEY) || value.has(MockRequestBody.OMITTED_FIELDS_KEY))) {
+            return false;
+        }
+        for (JsonNode child : value) {
+            if (!complete(child)) return false;
+        }
+        return true;
+    }
+
+    // the client's fields over the stored ones, as far as the summary kept them
+    private static void overlay(ObjectNode target, MockRequestBody body) {
+        if (body.getSummary() instanceof ObjectNode sent) {
+            for (Map.Entry<String, JsonNode> field : sent.properties()) {
+                if (!field.getKey().startsWith("$") && complete(field.getValue())) {
+                    target.set(field.getKey(), field.getValue().deepCopy());
+                }
+            }
+        }
+    }
+
+    // RFC 7396 JSON merge patch
+    private static void mergePatch(ObjectNode target, JsonNode patch) {
+        for (Map.Entry<String, JsonNode> field : patch.properties()) {
+            String name = field.getKey();
+            JsonNode value = field.getValue();
+            if (name.startsWith("$") || !complete(value)) {
+                continue;
+            }
+            if (value.isNull()) {
+                target.remove(name);
+            } else if (value.isObject() && target.get(name) instanceof ObjectNode nested) {
+                mergePatch(nested, value);
+            } else {
+                target.set(name, value.deepCopy());
+            }
+        }
+    }
+
+    private static void setId(ObjectNode item, String field, String id) {
+        JsonNode current = item.get(field);
+        if (current != null && current.isValueNode() && current.asText().equals(id)) {
+            return;
+        }
+        if (current != null && current.isIntegralNumber()) {
+            try {
+                long number = Long.parseLong(id);
+                if (current.isInt() && number == (int) number) {
+                    item.put(field, (int) number);
+                } else {
+                    item.put(field, number);
+                }
+                return;
+            } catch (NumberFormatException e) {
+                // an id the schema's number cannot hold; keep it as text
+            }
+        }
+        item.put(field, id);
+    }
+
+    /** The resources of one type, in the order they were last written. */
+    private final class Resources {
+        private final String type;
+        private final LinkedHashMap<String, ObjectNode> items = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ObjectNode> eldest) {
+                if (size() <= maxPerType) {
+                    return false;
+                }
+                unindex(eldest.getKey(), eldest.getValue());
+                evicted.increment();
+                return true;
+            }
+        };
+        // field -> value -> ids, for the fields lists have been filtered on
+        private final Map<String, Map<String, Set<String>>> indexes = new HashMap<>();
+        private String idField;
+        private long nextId;
+        // set by the first unfiltered list; until then lists are generated
+        private boolean listed;
+        private String itemsField;
+        private ObjectNode envelope;
+
+        Resources(String type) {
+            this.type = type;
+        }
+
+        synchronized int size() {
+            return items.size();
+        }
+
+        synchronized int indexedFields() {
+            return indexes.size();
+        }
+
+        synchronized Served serveItem(Route route, String method, MockRequestBody body) {
+            ObjectNode item = items.get(route.id());
+            if (item == null) {
+                return null;
+            }
+            if (item == DELETED) {
+                // a write brings a deleted id back; it is generated and recorded again
+                return HttpMethod.GET.matches(method) || HttpMethod.DELETE.matches(method) ? notFound(route) : null;
+            }
+            if (HttpMethod.GET.matches(method)) {
+                return new Served(200, item.deepCopy());
+            }
+            if (HttpMethod.DELETE.matches(method)) {
+                put(route.id(), DELETED);
+                return new Served(204, null);
+            }
+            ObjectNode changed = item.deepCopy();
+            if (HttpMethod.PATCH.matches(method)) {
+                if (body.getSummary() instanceof ObjectNode patch) {
+                    mergePatch(changed, patch);
+                }
+            } else {
+                overlay(changed, body);
+            }
+            String field = idField(changed, route);
+            if (field != null) {
+                setId(changed, field, route.id());
+            }
+            put(route.id(), changed);
+            return new Served(200, changed.deepCopy());
+        }
+
+        synchronized Served serveList(HttpServletRequest request) {
+            if (!listed) {
+                return null;
+            }
+            Set<String> ids = null;
+            for (Map.Entry<String, String[]> parameter : request.getParameterMap().entrySet()) {
+                Map<String, Set<String>> index = index(parameter.getKey());
+                if (index.isEmpty()) {
+                    return null; // not a field of these resources: a search, paging, sorting...
+                }
+                Set<String> matching = new LinkedHashSet<>();
+                for (String value : parameter.getValue()) {
+                    for (String v : value.split(",")) {
+                        matching.addAll(index.getOrDefault(v, Set.of()));
+                    }
+                }
+                if (ids == null) {
+                    ids = matching;
+                } else {
+                    ids.retainAll(matching);
+                }
+            }
+            List<ObjectNode> page = new ArrayList<>();
+            if (ids == null) {
+                items.values().forEach(item -> {
+                    if (item != DELETED) page.add(item);
+                });
+            } else {
+                // index sets are kept in write order, like the items
+                ids.forEach(id -> page.add(items.get(id)));
+            }
+            return new Served(200, list(page));
+        }
+
+        synchronized JsonNode recordItem(Route route, String method, MockRequestBody body, JsonNode generated) {
+            if (HttpMethod.DELETE.matches(method)) {
+                put(route.id(), DELETED);
+                return generated;
+            }
+            if (!(generated instanceof ObjectNode item)) {
+                return generated;
+            }
+            if (!HttpMethod.GET.matches(method)) {
+                overlay(item, body);
+            }
+            String field = idField(item, route);
+            if (field != null) {
+                setId(item, field, route.id());
+            }
+            put(route.id(), item.deepCopy());
+            return item;
+        }
+
+        synchronized JsonNode recordCreated(Route route, MockRequestBody body, JsonNode generated) {
+            if (!(generated instanceof ObjectNode item)) {
+                return generated;
+            }
+            overlay(item, body);
+            String field = idField(item, route);
+            JsonNode id = field != null ? item.get(field) : null;
+            if (id == null || !id.isValueNode()) {
+                return item;
+            }
+            String key = id.asText();
+            if (items.get(key) != null && items.get(key) != DELETED) {
+                // the model does not know which ids are taken
+                key = id.isIntegralNumber() ? Long.toString(freeNumber()) : key + "-" + (++nextId);
+                setId(item, field, key);
+            }
+            put(key, item.deepCopy());
+            return item;
+        }
+
+        synchronized JsonNode recordList(Route route, JsonNode generated, boolean unfiltered) {
+            JsonNode array = generated;
+            String field = null;
+            if (generated instanceof ObjectNode object) {
+                field = itemsField(object);
+                array = field != null ? object.get(field) : null;
+            }
+            if (array == null || !array.isArray()) {
+                return generated;
+            }
+            for (JsonNode element : array) {
+                if (element instanceof ObjectNode item) {
+                    String idName = idField(item, route);
+                    JsonNode id = idName != null ? item.get(idName) : null;
+                    if (id != null && id.isValueNode() && items.get(id.asText()) != DELETED) {
+                        put(id.asText(), item.deepCopy());
+                    }
+                }
+            }
+            if (unfiltered && !listed) {
+                listed = true;
+                itemsField = field;
+                if (field != null) {
+                    envelope = ((ObjectNode) generated).deepCopy();
+                    envelope.remove(field);
+                }
+            }
+            return generated;
+        }
+
+        private void put(String id, ObjectNode item) {
+            ObjectNode previous = items.remove(id);
+            if (previous != null) {
+                unindex(id, previous);
+            }
+            items.put(id, item);
+            for (Map.Entry<String, Map<String, Set<String>>> index : indexes.entrySet()) {
+                JsonNode value = item.get(index.getKey());
+                if (value != null && value.isValueNode()) {
+                    index.getValue().computeIfAbsent(value.asText(), v -> new LinkedHashSet<>()).add(id);
+                }
+            }
+        }
+
+        private void unindex(String id, ObjectNode item) {
+            for (Map.Entry<String, Map<String, Set<String>>> index : indexes.entrySet()) {
+                JsonNode value = item.get(index.getKey());
+                if (value != null && value.isValueNode()) {
+                    Set<String> ids = index.getValue().get(value.asText());
+                    if (ids != null) {
+                        ids.remove(id);
+                        if (ids.isEmpty()) index.getValue().remove(value.asText());
+                    }
+                }
+            }
+        }
+
+        // built on first use from what is stored, then kept up to date by put and unindex; only
+        // kept once some item has the field, so paging and sorting parameters leave nothing behind
+        private Map<String, Set<String>> index(String field) {
+            Map<String, Set<String>> index = indexes.get(field);
+            if (index != null) {
+                return index;
+            }
+            Map<String, Set<String>> scanned = new HashMap<>();
+            items.forEach((id, item) -> {
+                JsonNode value = item.get(field);
+                if (value != null && value.isValueNode()) {
+                    scanned.computeIfAbsent(value.asText(), v -> new LinkedHashSet<>()).add(id);
+                }
+            });
+            if (!scanned.isEmpty()) {
+                indexes.put(field, scanned);
+            }
+            return scanned;
+        }
+
+        private JsonNode list(List<ObjectNode> page) {
+            ArrayNode array = objectMapper.createArrayNode();
+            page.forEach(item -> array.add(item.deepCopy()));
+            if (itemsField == null) {
+                return array;
+            }
+            ObjectNode body = envelope.deepCopy();
+            body.set(itemsField, array);
+            setTotals(body, page.size());
+            for (JsonNode nested : body) {
+                if (nested instanceof ObjectNode object && nested != array) {
+                    setTotals(object, page.size());
+                }
+            }
+            return body;
+        }
+
+        private static void setTotals(ObjectNode node, int total) {
+            for (String name : TOTAL_FIELDS) {
+                if (node.has(name) && node.get(name).isNumber()) {
+                    node.put(name, total);
+                }
+            }
+        }
+
+        private static String itemsField(ObjectNode object) {
+            String first = null;
+            for (Map.Entry<String, JsonNode> field : object.properties()) {
+                if (field.getValue().isArray()) {
+                    if (ITEM_FIELDS.contains(field.getKey())) return field.getKey();
+                    if (first == null) first = field.getKey();
+                }
+            }
+            return first;
+        }
+
+        // id, the path parameter's name, or <type>Id; the first found is kept for the type, null for none
+        private String idField(ObjectNode item, Route route) {
+            if (idField != null && item.has(idField)) {
+                return idField;
+            }
+            String resource = type.substring(type.lastIndexOf('/') + 1);
+            String singular = resource.endsWith("s") ? resource.substring(0, resource.length() - 1) : resource;
+            for (String candidate : new String[]{"id", route.idParameter(), singular + "Id", singular + "_id"}) {
+                if (candidate != null && item.has(candidate)) {
+                    idField = candidate;
+                    return candidate;
+                }
+            }
+            return null;
+        }
+
+        private long freeNumber() {
+            long max = 0;
+            for (String id : items.keySet()) {
+                try {
+                    max = Math.max(max, Long.parseLong(id));
+                } catch (NumberFormatException e) {
+                    // not a number; does not take part
+                }
+            }
+            return max + 1;
+        }
+
+        private Served notFound(Route route) {
+            ObjectNode body = objectMapper.createObjectNode();
+            body.put("error", "Not Found");
+            body.put("message", type.substring(type.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT)
+                + " " + route.id() + " was deleted");
+            return new Served(404, body);
+        }
+    }
+}
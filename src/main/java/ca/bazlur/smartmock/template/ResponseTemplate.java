@@ -0,0 +1,275 @@
+package ca.bazlur.smartmock.template;
+
+import ca.bazlur.smartmock.processor.SeedVariants;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A response generator learned from validated samples of one endpoint. The samples'
+ * common skeleton is kept as is: objects keep their fields in order, each with the rate
+ * at which the samples had it, and arrays keep their observed lengths. Every scalar
+ * position draws from what the samples put there: values that repeat are picked with
+ * their observed frequency, all-distinct numbers and dates are drawn from their observed
+ * range, and all-distinct strings with digits (ids, codes, phone numbers) keep their shape
+ * with the digits redrawn. Other text comes from the samples' vocabulary.
+ * <p>
+ * Immutable and thread-safe; generating a body costs one pass over the skeleton.
+ */
+public final class ResponseTemplate {
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+    private static final long DATE_SPREAD_SECONDS = 30L * 86_400;
+
+    private final Shape root;
+    private final int samples;
+
+    private ResponseTemplate(Shape root, int samples) {
+        this.root = root;
+        this.samples = samples;
+    }
+
+    public static ResponseTemplate learn(List<JsonNode> samples) {
+        if (samples.isEmpty()) {
+            throw new IllegalArgumentException("At least one sample is needed");
+        }
+        return new ResponseTemplate(shapeOf(samples), samples.size());
+    }
+
+    public JsonNode generate(Random random) {
+        return root.generate(random);
+    }
+
+    public int samples() {
+        return samples;
+    }
+
+    private sealed interface Shape permits ObjectShape, ArrayShape, Nullable, Pick, IntegerRange, DecimalRange, DateRange, Digits {
+        JsonNode generate(Random random);
+    }
+
+    // nodes found at one position across all samples
+    private static Shape shapeOf(List<JsonNode> nodes) {
+        List<JsonNode> present = nodes.stream().filter(n -> !n.isNull()).toList();
+        if (present.isEmpty() || present.size() < nodes.size() && !present.stream().allMatch(JsonNode::isContainerNode)) {
+            return Pick.of(nodes);
+        }
+        Shape shape;
+        if (present.stream().allMatch(JsonNode::isObject)) {
+            shape = ObjectShape.of(present);
+        } else if (present.stream().allMatch(JsonNode::isArray)) {
+            shape = ArrayShape.of(present);
+        } else {
+            return valueShape(present);
+        }
+        return present.size() == nodes.size() ? shape : new Nullable(shape, 1.0 - (double) present.size() / nodes.size());
+    }
+
+    private static Shape valueShape(List<JsonNode> values) {
+        if (values.size() < 2 || new HashSet<>(values).size() < values.size()) {
+            return Pick.of(values); // repeats: a categorical value, kept to what was seen
+        }
+        if (values.stream().allMatch(JsonNode::isIntegralNumber)) {
+            return IntegerRange.of(values);
+        }
+        if (values.stream().allMatch(JsonNode::isNumber)) {
+            return DecimalRange.of(values);
+        }
+        if (values.stream().allMatch(JsonNode::isTextual)) {
+            Shape dates = DateRange.of(values);
+            if (dates != null) return dates;
+            if (values.stream().allMatch(v -> v.textValue().chars().anyMatch(Character::isDigit))) {
+                return new Digits(values);
+            }
+        }
+        return Pick.of(values);
+    }
+
+    private record ObjectShape(String[] names, double[] presence, Shape[] values) implements Shape {
+        static ObjectShape of(List<JsonNode> objects) {
+            Map<String, List<JsonNode>> fields = new LinkedHashMap<>();
+            for (JsonNode object : objects) {
+                for (Map.Entry<String, JsonNode> field : object.properties()) {
+                    fields.computeIfAbsent(field.getKey(), k -> new ArrayList<>()).add(field.getValue());
+                }
+            }
+            String[] names = new String[fields.size()];
+            double[] presence = new double[names.length];
+            Shape[] values = new Shape[names.length];
+            int i = 0;
+            for (Map.Entry<String, List<JsonNode>> field : fields.entrySet()) {
+                names[i] = field.getKey();
+                presence[i] = (double) field.getValue().size() / objects.size();
+                values[i++] = shapeOf(field.getValue());
+            }
+            return new ObjectShape(names, presence, values);
+        }
+
+        @Override
+        public JsonNode generate(Random random) {
+            ObjectNode object = NODES.objectNode();
+            for (int i = 0; i < names.length; i++) {
+                if (presence[i] >= 1.0 || random.nextDouble() < presence[i]) {
+                    object.set(names[i], values[i].generate(random));
+                }
+            }
+            return object;
+        }
+    }
+
+    private record ArrayShape(int[] lengths, Shape element) implements Shape {
+        static ArrayShape of(List<JsonNode> arrays) {
+            int[] lengths = new int[arrays.size()];
+            List<JsonNode> elements = new ArrayList<>();
+            for (int i = 0; i < lengths.length; i++) {
+                lengths[i] = arrays.get(i).size();
+                arrays.get(i).forEach(elements::add);
+            }
+            return new ArrayShape(lengths, elements.isEmpty() ? null : shapeOf(elements));
+        }
+
+        @Override
+        public JsonNode generate(Random random) {
+            ArrayNode array = NODES.arrayNode();
+            if (element != null) {
+                for (int i = lengths[random.nextInt(lengths.length)]; i > 0; i--) {
+                    array.add(element.generate(random));
+                }
+            }
+            return array;
+        }
+    }
+
+    private record Nullable(Shape shape, double nullRate) implements Shape {
+        @Override
+        public JsonNode generate(Random random) {
+            return random.nextDouble() < nullRate ? NullNode.getInstance() : shape.generate(random);
+        }
+    }
+
+    /** One of the observed values, as often as it was observed. */
+    private record Pick(JsonNode[] values) implements Shape {
+        static Pick of(List<JsonNode> values) {
+            return new Pick(values.toArray(JsonNode[]::new));
+        }
+
+        @Override
+        public JsonNode generate(Random random) {
+            return values[random.nextInt(values.length)].deepCopy();
+        }
+    }
+
+    private record IntegerRange(long min, long max) implements Shape {
+        static IntegerRange of(List<JsonNode> values) {
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (JsonNode value : values) {
+                min = Math.min(min, value.longValue());
+                max = Math.max(max, value.longValue());
+            }
+            return new IntegerRange(min, max);
+        }
+
+        @Override
+        public JsonNode generate(Random random) {
+            return NODES.numberNode(min + (long) (random.nextDouble() * (max - min + 1.0)));
+        }
+    }
+
+    private record DecimalRange(double min, double max, int scale) implements Shape {
+        static DecimalRange of(List<JsonNode> values) {
+            double min = Double.MAX_VALUE;
+            double max = -Double.MAX_VALUE;
+            int scale = 0;
+            for (JsonNode value : values) {
+                min = Math.min(min, value.doubleValue());
+                max = Math.max(max, value.doubleValue());
+                scale = Math.max(scale, value.decimalValue().stripTrailingZeros().scale());
+            }
+            return new DecimalRange(min, max, Math.min(Math.max(scale, 0), 6));
+        }
+
+        @Override
+        public JsonNode generate(Random random) {
+            BigDecimal value = BigDecimal.valueOf(min + random.nextDouble() * (max - min))
+                .setScale(scale, RoundingMode.HALF_UP);
+            return NODES.numberNode(value.max(BigDecimal.valueOf(min)).min(BigDecimal.valueOf(max)));
+        }
+    }
+
+    /** Dates, local date-times or offset date-times, uniformly between the earliest and latest seen. */
+    private record DateRange(Kind kind, long min, long max) implements Shape {
+        enum Kind {DATE, LOCAL, OFFSET}
+
+        static DateRange of(List<JsonNode> values) {
+            Kind kind = null;
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (JsonNode value : values) {
+                String text = value.textValue();
+                Kind k = text.length() == 10 ? Kind.DATE
+                    : text.endsWith("Z") || text.lastIndexOf('+') > 10 || text.lastIndexOf('-') > 10 ? Kind.OFFSET
+                    : Kind.LOCAL;
+                if (kind != null && k != kind) return null;
+                kind = k;
+                long seconds;
+                try {
+                    seconds = switch (k) {
+                        case DATE -> LocalDate.parse(text).toEpochDay() * 86_400;
+                        case LOCAL -> LocalDateTime.parse(text).toEpochSecond(ZoneOffset.UTC);
+                        case OFFSET -> OffsetDateTime.parse(text).toEpochSecond();
+                    };
+                } catch (DateTimeParseException e) {
+                    return null;
+                }
+                min = Math.min(min, seconds);
+                max = Math.max(max, seconds);
+            }
+            if (min == max) {
+                min -= DATE_SPREAD_SECONDS;
+                max += DATE_SPREAD_SECONDS;
+            }
+            return new DateRange(kind, min, max);
+        }
+
+        @Override
+        public JsonNode generate(Random random) {
+            long seconds = min + (long) (random.nextDouble() * (max - min));
+            String text = switch (kind) {
+                case DATE -> LocalDate.ofEpochDay(Math.floorDiv(seconds, 86_400)).toString();
+                case LOCAL -> LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC)
+                    .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+                case OFFSET -> Instant.ofEpochSecond(seconds).atOffset(ZoneOffset.UTC)
+                    .format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+            };
+            return NODES.textNode(text);
+        }
+    }
+
+    /** An observed value with its digits redrawn. */
+    private record Digits(List<JsonNode> values) implements Shape {
+        @Override
+        public JsonNode generate(Random random) {
+            String value = values.get(random.nextInt(values.size())).textValue();
+            String redrawn = SeedVariants.redrawDigits(value, random);
+            return NODES.textNode(redrawn != null ? redrawn : value);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package ca.bazlur.smartmock.template;
+
+import ca.bazlur.smartmock.model.CompiledPlan;
+import ca.bazlur.smartmock.model.Plan;
+import ca.bazlur.smartmock.model.Scenario;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Learns a {@link ResponseTemplate} per plan, scenario and status from the model's validated
+ * responses, and serves later requests from it. The model is consulted again after every
+ * {@code refresh-every} template responses, and its answer replaces the oldest sample; a
+ * template whose output fails validation is dropped and learned again from new samples.
+ * <p>
+ * Only requests without query parameters or a body take part, since those are the inputs the
+ * prompt correlates the response with. Path parameters are carried over into the generated
+ * body's matching top-level field.
+ */
+@Slf4j
+@Component
+public class TemplateLearner {
+
+    private final boolean enabled;
+    private final int samples;
+    private final int refreshEvery;
+    // weak keys: templates go with their plan when the schema is reloaded
+    private final Cache<CompiledPlan, Map<Key, Slot>> slots = Caffeine.newBuilder()
+        .weakKeys()
+        .executor(Runnable::run) // read-mostly; skip hand-offs to the common pool
+        .build();
+
+    public TemplateLearner(@Value("${smart-mock.templates.enabled:false}") boolean enabled,
+                           @Value("${smart-mock.templates.samples:3}") int samples,
+                           @Value("${smart-mock.templates.refresh-every:100}") int refreshEvery) {
+        this.enabled = enabled;
+        this.samples = Math.max(1, samples);
+        this.refreshEvery = refreshEvery;
+    }
+
+    /** A body generated from the learned template, or {@code null} when the model should answer. */
+    public JsonNode generate(Plan plan) {
+        Slot slot = slot(plan, false);
+        ResponseTemplate template = slot != null ? slot.take(refreshEvery) : null;
+        if (template == null) {
+            return null;
+        }
+        JsonNode body = template.generate(ThreadLocalRandom.current());
+        if (body instanceof ObjectNode object) {
+            applyPathParameters(object, pathParameters(plan.getPath(), plan.getRequest().path()));
+        }
+        return body;
+    }
+
+    /** Adds a validated model response to the samples of its plan. */
+    public void learn(Plan plan, JsonNode body) {
+        Slot slot = slot(plan, true);
+        if (slot != null && slot.add(body.deepCopy(), samples)) {
+            log.info("Learned response template for {} {} ({}, {}) from {} samples",
+                plan.getMethod(), plan.getPath(), plan.getScenario().getValue(), plan.getStatusCode(), samples);
+        }
+    }
+
+    /** Drops the template that produced an invalid body; it is learned again from new samples. */
+    public void reject(Plan plan, String reason) {
+        Slot slot = slot(plan, false);
+        if (slot != null) {
+            slot.reset();
+            log.warn("Dropped response template for {} {}: {}", plan.getMethod(), plan.getPath(), reason);
+        }
+    }
+
+    private Slot slot(Plan plan, boolean create) {
+        if (!enabled || plan.getCompiled() == null || !takesPart(plan)) {
+            return null;
+        }
+        Key key = new Key(plan.getScenario(), plan.getStatusCode());
+        if (create) {
+            return slots.get(plan.getCompiled(), p -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key, k -> new Slot());
+        }
+        Map<Key, Slot> byKey = slots.getIfPresent(plan.getCompiled());
+        return byKey != null ? byKey.get(key) : null;
+    }
+
+    private static boolean takesPart(Plan plan) {
+        return plan.getRequest() != null && plan.getRequest().get("query") == null
+            && plan.getRequest().body() == null;
+    }
+
+    /** Values of {@code {name}} segments, aligned from the end since the request path may carry a prefix. */
+    static Map<String, String> pathParameters(String template, String requestPath) {
+        if (template == null || requestPath == null || template.indexOf('{') < 0) {
+            return Map.of();
+        }
+        String[] names = template.split("/");
+        String[] values = requestPath.split("/");
+        Map<String, String> parameters = new LinkedHashMap<>();
+        for (int i = names.length - 1, j = values.length - 1; i >= 0 && j >= 0; i--, j--) {
+            String name = names[i];
+            if (name.length() > 2 && name.charAt(0) == '{' && name.charAt(name.length() - 1) == '}') {
+                parameters.put(name.substring(1, name.length() - 1), values[j]);
+            }
+        }
+        return parameters;
+    }
+
+    // a field named like the parameter, or "id" for the only parameter when it is an id
+    private static void applyPathParameters(ObjectNode body, Map<String, String> parameters) {
+        parameters.forEach((name, value) -> {
+            String field = body.has(name) ? name
+                : parameters.size() == 1 && name.toLowerCase(Locale.ROOT).endsWith("id") && body.has("id") ? "id" : null;
+            if (field == null) return;
+            if (body.get(field).isIntegralNumber()) {
+                try {
+                    body.put(field, Long.parseLong(value));
+                } catch (NumberFormatException e) {
+                    // keep the generated number; the path value does not fit the schema
+                }
+            } else if (body.get(field).isTextual()) {
+                body.put(field, value);
+            }
+        });
+    }
+
+    private record Key(Scenario scenario, int status) {
+    }
+
+    private static final class Slot {
+        private final ArrayDeque<JsonNode> samples = new ArrayDeque<>();
+        private ResponseTemplate template;
+        private int served;
+
+        synchronized ResponseTemplate take(int refreshEvery) {
+            if (template == null) {
+                return null;
+            }
+            if (refreshEvery > 0 && ++served > refreshEvery) {
+                served = 0;
+                return null; // this one goes to the model, and is learned from
+            }
+            return template;
+        }
+
+        /** True when this sample completed the first template. */
+        synchronized boolean add(JsonNode sample, int window) {
+            while (samples.size() >= window) {
+                samples.removeFirst();
+            }
+            samples.addLast(sample);
+            if (samples.size() < window) {
+                return false;
+            }
+            boolean first = template == null;
+            template = ResponseTemplate.learn(List.copyOf(samples));
+            return first;
+        }
+
+        synchronized void reset() {
+            samples.clear();
+            template = null;
+            served = 0;
+        }
+    }
+}
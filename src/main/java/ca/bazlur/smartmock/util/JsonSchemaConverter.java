@@ -1,73 +1,115 @@
 package ca.bazlur.smartmock.util;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.swagger.v3.oas.models.media.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Converts OpenAPI schemas to draft-07 JSON Schema, writing straight to a
+ * {@link JsonGenerator} rather than building an intermediate tree.
+ * <p>
+ * Two renderings are available: the full, pretty-printed schema and a minified,
+ * prompt-ready one that leaves out documentation keywords ({@code description},
+ * {@code examples}, {@code externalDocs}) at the source. Both are memoized by
+ * schema identity; the keys are weak, so entries go away with the spec that
+ * owns the schema objects.
+ */
 @Slf4j
 @Component
 public class JsonSchemaConverter {
-  private final ObjectMapper mapper;
-  
+  private static final String DRAFT_07 = "http://json-schema.org/draft-07/schema#";
+
+  private final ObjectWriter prettyWriter;
+  private final ObjectWriter compactWriter;
+  private final Cache<Schema<?>, String> prettyMemo = newMemo();
+  private final Cache<Schema<?>, String> minifiedMemo = newMemo();
+
   public JsonSchemaConverter(@Qualifier("objectMapper") ObjectMapper mapper) {
-    this.mapper = mapper;
+    this.prettyWriter = mapper.writerWithDefaultPrettyPrinter();
+    this.compactWriter = mapper.writer().without(SerializationFeature.INDENT_OUTPUT);
   }
 
   public String convertToJsonSchema(Schema<?> openApiSchema) {
-    try {
-      ObjectNode root = mapper.createObjectNode();
-      root.put("$schema", "http://json-schema.org/draft-07/schema#");
-      ObjectNode converted = convert(openApiSchema);
-      if (converted != null) root.setAll(converted);
-      return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(root);
+    if (openApiSchema == null) return render(null, prettyWriter, true);
+    return prettyMemo.get(openApiSchema, s -> render(s, prettyWriter, true));
+  }
+
+  /** Single-line schema without documentation keywords, as used in prompts. */
+  public String convertToMinifiedJsonSchema(Schema<?> openApiSchema) {
+    if (openApiSchema == null) return render(null, compactWriter, false);
+    return minifiedMemo.get(openApiSchema, s -> render(s, compactWriter, false));
+  }
+
+  private String render(Schema<?> schema, ObjectWriter writer, boolean includeDocs) {
+    StringWriter out = new StringWriter(256);
+    try (JsonGenerator gen = writer.createGenerator(out)) {
+      gen.writeStartObject();
+      gen.writeStringField("$schema", DRAFT_07);
+      if (schema != null) writeFields(schema, gen, includeDocs);
+      gen.writeEndObject();
     } catch (Exception e) {
       log.error("Error converting OpenAPI schema to JSON Schema", e);
       return "{}";
     }
+    return out.toString();
   }
 
-  private ObjectNode convert(Schema<?> s) {
-    if (s == null) return null;
+  private void write(Schema<?> s, JsonGenerator gen, boolean includeDocs) throws IOException {
+    if (s == null) {
+      gen.writeNull();
+      return;
+    }
+    gen.writeStartObject();
+    writeFields(s, gen, includeDocs);
+    gen.writeEndObject();
+  }
 
+  private void writeFields(Schema<?> s, JsonGenerator gen, boolean includeDocs) throws IOException {
     // $ref shortcut
     if (s.get$ref() != null) {
-      ObjectNode refNode = mapper.createObjectNode();
-      refNode.put("$ref", s.get$ref()); // keep OAS component refs; adjust if you relocate components
-      return refNode;
+      gen.writeStringField("$ref", s.get$ref()); // keep OAS component refs; adjust if you relocate components
+      return;
     }
 
-    ObjectNode n = mapper.createObjectNode();
-
     // common keywords
-    putIfNotBlank(n, "title", s.getTitle());
-    putIfNotBlank(n, "description", s.getDescription());
-    putIfNotBlank(n, "format", s.getFormat());
-    putIfNotNull(n, "default", mapper.valueToTree(s.getDefault()));
-    putIfNotNull(n, "example", mapper.valueToTree(s.getExample()));
-    putIfTrue(n, "deprecated", Boolean.TRUE.equals(s.getDeprecated()));
-    putIfTrue(n, "readOnly", Boolean.TRUE.equals(s.getReadOnly()));
-    putIfTrue(n, "writeOnly", Boolean.TRUE.equals(s.getWriteOnly()));
-    if (s.getMultipleOf() != null) n.put("multipleOf", s.getMultipleOf());
+    writeIfNotBlank(gen, "title", s.getTitle());
+    if (includeDocs) writeIfNotBlank(gen, "description", s.getDescription());
+    writeIfNotBlank(gen, "format", s.getFormat());
+    writeIfNotNull(gen, "default", s.getDefault());
+    writeIfNotNull(gen, "example", s.getExample());
+    writeIfTrue(gen, "deprecated", Boolean.TRUE.equals(s.getDeprecated()));
+    writeIfTrue(gen, "readOnly", Boolean.TRUE.equals(s.getReadOnly()));
+    writeIfTrue(gen, "writeOnly", Boolean.TRUE.equals(s.getWriteOnly()));
+    if (s.getMultipleOf() != null) gen.writeNumberField("multipleOf", s.getMultipleOf());
 
     // enums
     if (s.getEnum() != null && !s.getEnum().isEmpty()) {
-      ArrayNode enums = n.putArray("enum");
-      s.getEnum().forEach(v -> enums.add(mapper.valueToTree(v)));
+      gen.writeArrayFieldStart("enum");
+      for (Object v : s.getEnum()) writeValue(gen, v);
+      gen.writeEndArray();
     }
 
     // composition
     if (s instanceof ComposedSchema cs) {
-      copyList(cs.getAllOf(), n.putArray("allOf"));
-      copyList(cs.getAnyOf(), n.putArray("anyOf"));
-      copyList(cs.getOneOf(), n.putArray("oneOf"));
-      if (cs.getNot() != null) n.set("not", convert(cs.getNot()));
+      writeList(gen, "allOf", cs.getAllOf(), includeDocs);
+      writeList(gen, "anyOf", cs.getAnyOf(), includeDocs);
+      writeList(gen, "oneOf", cs.getOneOf(), includeDocs);
+      if (cs.getNot() != null) {
+        gen.writeFieldName("not");
+        write(cs.getNot(), gen, includeDocs);
+      }
       // still allow fallthrough to capture type/nullable if present on wrapper
     }
 
@@ -75,87 +117,104 @@ public class JsonSchemaConverter {
     String type = s.getType();
     if (type != null) {
       if (Boolean.TRUE.equals(s.getNullable())) {
-        ArrayNode t = n.putArray("type");
-        t.add(type);
-        t.add("null");
+        gen.writeArrayFieldStart("type");
+        gen.writeString(type);
+        gen.writeString("null");
+        gen.writeEndArray();
       } else {
-        n.put("type", type);
+        gen.writeStringField("type", type);
       }
     } else if (Boolean.TRUE.equals(s.getNullable())) {
-      ArrayNode t = n.putArray("type");
-      t.add("null");
+      gen.writeArrayFieldStart("type");
+      gen.writeString("null");
+      gen.writeEndArray();
     }
 
-    // numbers
-    if (s.getMinimum() != null) n.put("minimum", s.getMinimum());
-    if (s.getMaximum() != null) n.put("maximum", s.getMaximum());
-    // OAS booleans -> draft-07 numeric exclusives
-    if (Boolean.TRUE.equals(s.getExclusiveMinimum()) && s.getMinimum() != null) {
-      n.remove("minimum");
-      n.put("exclusiveMinimum", s.getMinimum());
-    }
-    if (Boolean.TRUE.equals(s.getExclusiveMaximum()) && s.getMaximum() != null) {
-      n.remove("maximum");
-      n.put("exclusiveMaximum", s.getMaximum());
-    }
+    // numbers; OAS booleans -> draft-07 numeric exclusives
+    boolean exclusiveMin = Boolean.TRUE.equals(s.getExclusiveMinimum()) && s.getMinimum() != null;
+    boolean exclusiveMax = Boolean.TRUE.equals(s.getExclusiveMaximum()) && s.getMaximum() != null;
+    if (s.getMinimum() != null && !exclusiveMin) gen.writeNumberField("minimum", s.getMinimum());
+    if (s.getMaximum() != null && !exclusiveMax) gen.writeNumberField("maximum", s.getMaximum());
+    if (exclusiveMin) gen.writeNumberField("exclusiveMinimum", s.getMinimum());
+    if (exclusiveMax) gen.writeNumberField("exclusiveMaximum", s.getMaximum());
 
     // strings
-    if (s.getMinLength() != null) n.put("minLength", s.getMinLength());
-    if (s.getMaxLength() != null) n.put("maxLength", s.getMaxLength());
-    if (s.getPattern() != null) n.put("pattern", s.getPattern());
+    if (s.getMinLength() != null) gen.writeNumberField("minLength", s.getMinLength());
+    if (s.getMaxLength() != null) gen.writeNumberField("maxLength", s.getMaxLength());
+    if (s.getPattern() != null) gen.writeStringField("pattern", s.getPattern());
 
     // arrays
     if ("array".equals(type)) {
-      if (s.getItems() != null) n.set("items", convert(s.getItems()));
-      if (s.getMinItems() != null) n.put("minItems", s.getMinItems());
-      if (s.getMaxItems() != null) n.put("maxItems", s.getMaxItems());
-      if (s.getUniqueItems() != null) n.put("uniqueItems", s.getUniqueItems());
+      if (s.getItems() != null) {
+        gen.writeFieldName("items");
+        write(s.getItems(), gen, includeDocs);
+      }
+      if (s.getMinItems() != null) gen.writeNumberField("minItems", s.getMinItems());
+      if (s.getMaxItems() != null) gen.writeNumberField("maxItems", s.getMaxItems());
+      if (s.getUniqueItems() != null) gen.writeBooleanField("uniqueItems", s.getUniqueItems());
     }
 
     // objects & maps
     if ("object".equals(type) || s instanceof ObjectSchema || s instanceof MapSchema) {
-      ObjectNode props = n.putObject("properties");
+      gen.writeObjectFieldStart("properties");
       if (s.getProperties() != null) {
         for (Map.Entry<String, Schema> e : s.getProperties().entrySet()) {
-          props.set(e.getKey(), convert(e.getValue()));
+          gen.writeFieldName(e.getKey());
+          write(e.getValue(), gen, includeDocs);
         }
       }
+      gen.writeEndObject();
       if (s.getRequired() != null && !s.getRequired().isEmpty()) {
-        ArrayNode req = n.putArray("required");
-        s.getRequired().forEach(req::add);
+        gen.writeArrayFieldStart("required");
+        for (String r : s.getRequired()) gen.writeString(r);
+        gen.writeEndArray();
       }
 
       // additionalProperties: boolean or schema
       Object addl = s.getAdditionalProperties();
       if (addl instanceof Boolean b) {
-        n.put("additionalProperties", b);
+        gen.writeBooleanField("additionalProperties", b);
       } else if (addl instanceof Schema<?> as) {
-        n.set("additionalProperties", convert(as));
-      } else if (s instanceof MapSchema ms) {
-        Object ap = ms.getAdditionalProperties();
-        if (ap instanceof Boolean b2) n.put("additionalProperties", b2);
-        else if (ap instanceof Schema<?> aps)
-          n.set("additionalProperties", convert(aps));
+        gen.writeFieldName("additionalProperties");
+        write(as, gen, includeDocs);
       }
     }
-
-    return n;
   }
 
-  private void copyList(List<Schema> list, ArrayNode target) {
+  private void writeList(JsonGenerator gen, String field, List<Schema> list, boolean includeDocs) throws IOException {
+    // an empty anyOf/oneOf matches nothing, so absent lists are left out rather than written empty
     if (list == null || list.isEmpty()) return;
-    list.forEach(s -> target.add(convert(s)));
+    gen.writeArrayFieldStart(field);
+    for (Schema<?> s : list) write(s, gen, includeDocs);
+    gen.writeEndArray();
+  }
+
+  private void writeValue(JsonGenerator gen, Object v) throws IOException {
+    if (v == null) {
+      gen.writeNull();
+    } else {
+      compactWriter.writeValue(gen, v);
+    }
+  }
+
+  private void writeIfNotBlank(JsonGenerator gen, String k, String v) throws IOException {
+    if (v != null && !v.isBlank()) gen.writeStringField(k, v);
   }
 
-  private void putIfNotBlank(ObjectNode n, String k, String v) {
-    if (v != null && !v.isBlank()) n.put(k, v);
+  private void writeIfNotNull(JsonGenerator gen, String k, Object v) throws IOException {
+    if (v == null) return;
+    gen.writeFieldName(k);
+    compactWriter.writeValue(gen, v);
   }
 
-  private void putIfNotNull(ObjectNode n, String k, com.fasterxml.jackson.databind.JsonNode v) {
-    if (v != null && !v.isNull()) n.set(k, v);
+  private void writeIfTrue(JsonGenerator gen, String k, boolean v) throws IOException {
+    if (v) gen.writeBooleanField(k, true);
   }
 
-  private void putIfTrue(ObjectNode n, String k, boolean v) {
-    if (v) n.put(k, true);
+  private static Cache<Schema<?>, String> newMemo() {
+    return Caffeine.newBuilder()
+        .weakKeys()
+        .maximumSize(10_000)
+        .build();
   }
 }
@@ -0,0 +1,216 @@
+package ca.bazlur.smartmock.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * Multi-keyword matcher (Aho-Corasick) compiled to a dense transition table, so a
+ * text is classified in one left-to-right scan with one array lookup per character.
+ * <p>
+ * Every keyword carries a label in {@code [0, 63]}; a scan reports the labels of
+ * all keywords found anywhere in the text, and separately those found as a suffix.
+ * {@link #matchedKeywords(CharSequence)} reports the keywords themselves, by the order
+ * they were added, for callers with more keywords than labels.
+ * Instances are immutable and safe to share.
+ */
+public final class KeywordMatcher {
+    /** Labels of keywords found in a text, as bit masks ({@code 1L << label}). */
+    public record Scan(long anywhere, long suffix) {
+        public boolean has(int label) {
+            return (anywhere & (1L << label)) != 0;
+        }
+
+        public boolean endsWith(int label) {
+            return (suffix & (1L << label)) != 0;
+        }
+    }
+
+    private static final int ROOT = 0;
+
+    private final boolean ignoreCase;
+    private final int[] asciiClass;     // char class for c < 128; 0 means "in no keyword"
+    private final char[] otherChars;    // sorted non-ASCII keyword chars, class = otherBase + index
+    private final int otherBase;
+    private final int classes;
+    private final int[] next;           // next[state * classes + class]
+    private final long[] output;        // labels of keywords ending in each state
+    private final int[][] endsHere;     // indices of keywords ending exactly in each state, or null
+    private final int[] dictLink;       // nearest proper suffix state with endsHere, or -1
+    private final int keywordCount;
+
+    private KeywordMatcher(boolean ignoreCase, int[] asciiClass, char[] otherChars, int otherBase,
+                           int classes, int[] next, long[] output, int[][] endsHere, int[] dictLink,
+                           int keywordCount) {
+        this.ignoreCase = ignoreCase;
+        this.asciiClass = asciiClass;
+        this.otherChars = otherChars;
+        this.otherBase = otherBase;
+        this.classes = classes;
+        this.next = next;
+        this.output = output;
+        this.endsHere = endsHere;
+        this.dictLink = dictLink;
+        this.keywordCount = keywordCount;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Scan scan(CharSequence text) {
+        int state = ROOT;
+        long anywhere = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            state = next[state * classes + classOf(text.charAt(i))];
+            anywhere |= output[state];
+        }
+        return new Scan(anywhere, output[state]);
+    }
+
+    /** Indices, in order of addition, of the keywords that occur anywhere in the text. */
+    public BitSet matchedKeywords(CharSequence text) {
+        BitSet found = new BitSet(keywordCount);
+        int state = ROOT;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            state = next[state * classes + classOf(text.charAt(i))];
+            for (int s = endsHere[state] != null ? state : dictLink[state]; s >= 0; s = dictLink[s]) {
+                for (int k : endsHere[s]) found.set(k);
+            }
+        }
+        return found;
+    }
+
+    private int classOf(char c) {
+        if (ignoreCase) c = Character.toLowerCase(c);
+        if (c < 128) return asciiClass[c];
+        int idx = Arrays.binarySearch(otherChars, c);
+        return idx >= 0 ? otherBase + idx : 0;
+    }
+
+    public static final class Builder {
+        private final List<String> keywords = new ArrayList<>();
+        private final List<Integer> labels = new ArrayList<>();
+        private boolean ignoreCase;
+
+        private Builder() {
+        }
+
+        /** Match keywords regardless of case; keywords and text are compared lower-cased. */
+        public Builder ignoreCase() {
+            this.ignoreCase = true;
+            return this;
+        }
+
+        public Builder add(int label, String... keywords) {
+            if (label < 0 || label > 63) {
+                throw new IllegalArgumentException("label must be in [0, 63]: " + label);
+            }
+            for (String keyword : keywords) {
+                if (keyword == null || keyword.isEmpty()) {
+                    throw new IllegalArgumentException("keywords must not be empty");
+                }
+                this.keywords.add(keyword);
+                this.labels.add(label);
+            }
+            return this;
+        }
+
+        public KeywordMatcher build() {
+            List<String> words = ignoreCase
+                ? keywords.stream().map(k -> k.toLowerCase(Locale.ROOT)).toList()
+                : keywords;
+
+            // alphabet compression: only characters that occur in some keyword get a column
+            TreeSet<Character> alphabet = new TreeSet<>();
+            words.forEach(w -> w.chars().forEach(c -> alphabet.add((char) c)));
+            int[] asciiClass = new int[128];
+            List<Character> others = new ArrayList<>();
+            int nextClass = 1;
+            for (char c : alphabet) {
+                if (c < 128) asciiClass[c] = nextClass++;
+                else others.add(c);
+            }
+            char[] otherChars = new char[others.size()];
+            for (int i = 0; i < otherChars.length; i++) otherChars[i] = others.get(i);
+            int classes = nextClass + otherChars.length;
+            KeywordMatcher shape = new KeywordMatcher(false, asciiClass, otherChars, nextClass, classes,
+                null, null, null, null, 0);
+
+            // trie
+            List<int[]> goTo = new ArrayList<>();
+            List<Long> out = new ArrayList<>();
+            List<List<Integer>> terminal = new ArrayList<>();
+            goTo.add(newRow(classes));
+            out.add(0L);
+            terminal.add(null);
+            for (int k = 0; k < words.size(); k++) {
+                int state = ROOT;
+                for (char c : words.get(k).toCharArray()) {
+                    int cls = shape.classOf(c);
+                    if (goTo.get(state)[cls] < 0) {
+                        goTo.get(state)[cls] = goTo.size();
+                        goTo.add(newRow(classes));
+                        out.add(0L);
+                        terminal.add(null);
+                    }
+                    state = goTo.get(state)[cls];
+                }
+                out.set(state, out.get(state) | (1L << labels.get(k)));
+                if (terminal.get(state) == null) terminal.set(state, new ArrayList<>(1));
+                terminal.get(state).add(k);
+            }
+
+            // breadth-first failure links, folded into a complete transition table
+            int states = goTo.size();
+            int[] next = new int[states * classes];
+            long[] output = new long[states];
+            int[] fail = new int[states];
+            int[][] endsHere = new int[states][];
+            int[] dictLink = new int[states];
+            for (int s = 0; s < states; s++) {
+                output[s] = out.get(s);
+                List<Integer> ks = terminal.get(s);
+                if (ks != null) endsHere[s] = ks.stream().mapToInt(Integer::intValue).toArray();
+            }
+            dictLink[ROOT] = -1;
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int c = 0; c < classes; c++) {
+                int child = goTo.get(ROOT)[c];
+                next[ROOT * classes + c] = child < 0 ? ROOT : child;
+                if (child > 0) {
+                    fail[child] = ROOT;
+                    dictLink[child] = -1;
+                    queue.add(child);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int s = queue.poll();
+                output[s] |= output[fail[s]];
+                for (int c = 0; c < classes; c++) {
+                    int child = goTo.get(s)[c];
+                    if (child < 0) {
+                        next[s * classes + c] = next[fail[s] * classes + c];
+                    } else {
+                        next[s * classes + c] = child;
+                        fail[child] = next[fail[s] * classes + c];
+                        dictLink[child] = endsHere[fail[child]] != null ? fail[child] : dictLink[fail[child]];
+                        queue.add(child);
+                    }
+                }
+            }
+            return new KeywordMatcher(ignoreCase, asciiClass, otherChars, shape.otherBase, classes, next, output,
+                endsHere, dictLink, words.size());
+        }
+
+        private static int[] newRow(int classes) {
+            int[] row = new int[classes];
+            Arrays.fill(row, -1);
+            return row;
+        }
+    }
+}
@@ -1,52 +1,102 @@
 package ca.bazlur.smartmock.validation;
 
+import ca.bazlur.smartmock.llm.JsonUtils;
+import ca.bazlur.smartmock.model.CompiledPlan;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.networknt.schema.JsonSchema;
 import com.networknt.schema.JsonSchemaFactory;
 import com.networknt.schema.SpecVersion;
 import com.networknt.schema.ValidationMessage;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class JsonValidator {
+    private static final int MAX_REPORTED_ERRORS = 5;
+
     private final ObjectMapper objectMapper;
+    // strict: text after the first JSON value is an error, not silently ignored
+    private final ObjectReader strictReader;
     private final JsonSchemaFactory schemaFactory = JsonSchemaFactory.getInstance(SpecVersion.VersionFlag.V7);
 
+    // schema digest -> compiled validator; empty when the schema cannot be compiled
+    private final Cache<String, Optional<JsonSchema>> compiledSchemas = Caffeine.newBuilder()
+            .maximumSize(2000)
+            .build();
+
+    public JsonValidator(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.strictReader = objectMapper.reader().with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+    }
+
     public String validate(String jsonString) throws ValidationException {
+        parse(jsonString);
+        return jsonString;
+    }
+
+    public String validate(String jsonString, CompiledPlan plan) throws ValidationException {
+        validate(parse(jsonString), plan);
+        return jsonString;
+    }
+
+    /**
+     * Parses model output into the tree that the rest of the pipeline works on.
+     * Output wrapped in prose is salvaged with {@link JsonUtils#extractJson(String)}.
+     */
+    public JsonNode parse(String text) throws ValidationException {
         try {
-            objectMapper.readTree(jsonString);
-            return jsonString;
+            JsonNode node = strictReader.readTree(text);
+            if (node == null || node.isMissingNode()) {
+                throw new IllegalArgumentException("no content to parse");
+            }
+            return node;
         } catch (Exception e) {
+            String extracted = JsonUtils.extractJson(text);
+            // "{}" is extractJson's nothing-found fallback; a repair attempt beats serving it
+            if (!extracted.equals(text) && !"{}".equals(extracted)) {
+                try {
+                    log.warn("LLM response is not valid JSON, extracted the embedded JSON");
+                    return strictReader.readTree(extracted);
+                } catch (Exception ignored) {
+                    // report the original error below
+                }
+            }
             String errorMsg = "Invalid JSON: " + e.getMessage();
             log.error(errorMsg);
             throw new ValidationException(errorMsg);
         }
     }
 
+    /**
+     * Checks that {@code node} conforms to the plan's response schema.
+     * The compiled validator is shared by every plan whose schema has the same digest.
+     */
+    public void validate(JsonNode node, CompiledPlan plan) throws ValidationException {
+        if (plan == null || plan.getJsonSchema() == null) {
+            return;
+        }
+
+        String digest = plan.getSchemaDigest() != null ? plan.getSchemaDigest() : JsonUtils.sha256Hex(plan.getJsonSchema());
+        Optional<JsonSchema> schema = compiledSchemas.get(digest, d -> compile(plan.getJsonSchema(), d));
+        schema.ifPresent(s -> check(s, node));
+    }
+
     public String validateAgainstSchema(String jsonString, String schemaString) throws ValidationException {
         try {
             JsonNode jsonNode = objectMapper.readTree(jsonString);
             JsonNode schemaNode = objectMapper.readTree(schemaString);
-            
-            JsonSchema schema = schemaFactory.getSchema(schemaNode);
-            Set<ValidationMessage> errors = schema.validate(jsonNode);
-            
-            if (!errors.isEmpty()) {
-                String errorMsg = errors.stream()
-                        .map(ValidationMessage::getMessage)
-                        .collect(Collectors.joining(", "));
-                log.warn("JSON Schema validation failed: {}", errorMsg);
-                throw new ValidationException(errorMsg);
-            }
-            
+
+            check(schemaFactory.getSchema(schemaNode), jsonNode);
             return jsonString;
         } catch (ValidationException ve) {
             throw ve;
@@ -56,9 +106,39 @@ public class JsonValidator {
         }
     }
 
+    private Optional<JsonSchema> compile(String schemaString, String digest) {
+        try {
+            JsonNode schemaNode = objectMapper.readTree(schemaString);
+            // never let the validator fetch remote documents while serving mocks
+            if (schemaNode.findValuesAsText("$ref").stream().anyMatch(ref -> !ref.startsWith("#"))) {
+                log.warn("Response schema {} has external $refs, skipping schema validation", digest);
+                return Optional.empty();
+            }
+            JsonSchema schema = schemaFactory.getSchema(schemaNode);
+            schema.initializeValidators();
+            return Optional.of(schema);
+        } catch (Exception e) {
+            // e.g. dangling local $refs; such responses are only checked for well-formedness
+            log.warn("Response schema {} cannot be compiled, skipping schema validation: {}", digest, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void check(JsonSchema schema, JsonNode node) {
+        Set<ValidationMessage> errors = schema.validate(node);
+        if (!errors.isEmpty()) {
+            String errorMsg = errors.stream()
+                    .limit(MAX_REPORTED_ERRORS)
+                    .map(ValidationMessage::getMessage)
+                    .collect(Collectors.joining(", "));
+            log.warn("JSON Schema validation failed: {}", errorMsg);
+            throw new ValidationException(errorMsg);
+        }
+    }
+
     public static class ValidationException extends RuntimeException {
         public ValidationException(String message) {
             super(message);
         }
     }
-}
\ No newline at end of file
+}
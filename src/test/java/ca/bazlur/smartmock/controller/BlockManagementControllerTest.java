@@ -2,6 +2,7 @@ package ca.bazlur.smartmock.controller;
 
 import ca.bazlur.smartmock.llm.ContextBlock;
 import ca.bazlur.smartmock.llm.EndpointInfo;
+import ca.bazlur.smartmock.llm.correlation.CorrelationRuleLoader;
 import ca.bazlur.smartmock.llm.external.ExternalBlockDefinition;
 import ca.bazlur.smartmock.llm.external.ExternalBlockLoader;
 import ca.bazlur.smartmock.llm.external.ExternalContextBlock;
@@ -31,6 +32,9 @@ class BlockManagementControllerTest {
     @Mock
     private ExternalBlockLoader externalBlockLoader;
 
+    @Mock
+    private CorrelationRuleLoader correlationRuleLoader;
+
     @Mock
     private List<ContextBlock> builtInBlocks;
 
@@ -68,10 +72,12 @@ class BlockManagementControllerTest {
     @Test
     void reloadBlocks_givenRequest_shouldReloadAndReturnStatus() {
         when(externalBlockLoader.getExternalBlocks()).thenReturn(List.of(mock(ContextBlock.class)));
+        when(correlationRuleLoader.rules()).thenReturn(CorrelationRuleLoader.builtIn());
 
         ResponseEntity<Map<String, Object>> response = controller.reloadBlocks();
 
         verify(externalBlockLoader).reloadBlocks();
+        verify(correlationRuleLoader).reloadRules();
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         var body = response.getBody();
         assertThat(body.get("status")).isEqualTo("success");
@@ -0,0 +1,105 @@
+package ca.bazlur.smartmock.controller;
+
+import ca.bazlur.smartmock.model.MockRequestBody;
+import ca.bazlur.smartmock.model.MockResult;
+import ca.bazlur.smartmock.processor.ResponseCompressor;
+import ca.bazlur.smartmock.service.MockService;
+import ca.bazlur.smartmock.service.RequestBodyReader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MockControllerTest {
+
+    private static final byte[] BODY = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+    private static final String ETAG = MockResult.etagOf(BODY);
+
+    @Mock
+    private MockService mockService;
+
+    @Mock
+    private RequestBodyReader bodyReader;
+
+    @Spy
+    private ResponseCompressor compressor = new ResponseCompressor(true, 1024);
+
+    @InjectMocks
+    private MockController controller;
+
+    @BeforeEach
+    void setUp() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(ETAG);
+        headers.setContentLength(BODY.length);
+        when(bodyReader.read(any())).thenReturn(MockRequestBody.EMPTY);
+        lenient().when(mockService.generate(any(), any())).thenReturn(MockResult.builder()
+            .status(200).body(BODY).etag(ETAG).headers(headers).build());
+    }
+
+    @Test
+    void handleMockRequest_givenNoValidator_shouldReturnBodyWithETagAndLength() {
+        ResponseEntity<byte[]> response = controller.handleMockRequest(new MockHttpServletRequest("GET", "/mock/pets/1"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isSameAs(BODY);
+        assertThat(response.getHeaders().getETag()).isEqualTo(ETAG).matches("\"[0-9a-f]{32}\"");
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(BODY.length);
+    }
+
+    @Test
+    void handleMockRequest_givenMatchingIfNoneMatch_shouldReturnBodiless304() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/mock/pets/1");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"stale\", W/" + ETAG);
+
+        ResponseEntity<byte[]> response = controller.handleMockRequest(request);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getBody()).isNull();
+        assertThat(response.getHeaders().getETag()).isEqualTo(ETAG);
+    }
+
+    @Test
+    void handleMockRequest_givenStaleIfNoneMatchOrPost_shouldReturnFullResponse() {
+        MockHttpServletRequest stale = new MockHttpServletRequest("HEAD", "/mock/pets/1");
+        stale.addHeader(HttpHeaders.IF_NONE_MATCH, "\"stale\"");
+        MockHttpServletRequest post = new MockHttpServletRequest("POST", "/mock/pets");
+        post.addHeader(HttpHeaders.IF_NONE_MATCH, ETAG);
+
+        assertThat(controller.handleMockRequest(stale).getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(controller.handleMockRequest(post).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void handleMockRequest_givenMatchingIfNoneMatchFromGzipClient_shouldEchoGzipETag() {
+        byte[] body = ("{\"name\":\"" + "a".repeat(2048) + "\"}").getBytes(StandardCharsets.UTF_8);
+        String etag = MockResult.etagOf(body);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        when(mockService.generate(any(), any())).thenReturn(MockResult.builder()
+            .status(200).body(body).etag(etag).headers(headers).build());
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/mock/pets/1");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag.substring(0, etag.length() - 1) + "-gzip\"");
+
+        ResponseEntity<byte[]> response = controller.handleMockRequest(request);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getHeaders().getETag()).isEqualTo(etag.substring(0, etag.length() - 1) + "-gzip\"");
+    }
+}
@@ -0,0 +1,99 @@
+package ca.bazlur.smartmock.entity;
+
+import ca.bazlur.smartmock.model.CompiledPlan;
+import ca.bazlur.smartmock.model.Plan;
+import ca.bazlur.smartmock.model.RequestView;
+import ca.bazlur.smartmock.model.Scenario;
+import ca.bazlur.smartmock.openapi.OpenApiIndex;
+import ca.bazlur.smartmock.validation.JsonValidator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntityCacheTest {
+
+    private static final String USER = "{\"type\":\"object\",\"required\":[\"id\",\"name\"]}";
+    private static final String USER_DETAIL = "{\"type\":\"object\",\"required\":[\"id\",\"name\",\"email\"]}";
+    private static final String LIST = "{\"type\":\"array\"}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OpenApiIndex index = new OpenApiIndex();
+    private final EntityCache cache = new EntityCache(new JsonValidator(objectMapper), true, 100);
+
+    @Test
+    void lookup_givenEntityFromList_shouldServeDetailOnceItSatisfiesTheDetailSchema() throws Exception {
+        cache.compose(index, plan("/users", "/mock/users", LIST), request(), json("""
+            [{"id":"usr-001","name":"Ann"},{"id":"usr-007","name":"Bo"}]
+            """));
+
+        assertThat(cache.lookup(index, plan("/users/{userId}", "/mock/users/usr-007", USER), request()))
+            .isEqualTo(json("{\"id\":\"usr-007\",\"name\":\"Bo\"}"));
+        Plan detail = plan("/users/{userId}", "/mock/users/usr-007", USER_DETAIL);
+        assertThat(cache.lookup(index, detail, request())).isNull();
+
+        JsonNode composed = cache.compose(index, detail, request(), json("""
+            {"id":"usr-123","name":"Zed","email":"bo@example.com"}
+            """));
+
+        assertThat(composed).isEqualTo(json("{\"id\":\"usr-007\",\"name\":\"Bo\",\"email\":\"bo@example.com\"}"));
+        assertThat(cache.lookup(index, detail, request())).isEqualTo(composed);
+        assertThat(cache.stats()).containsEntry("served", 2L).containsEntry("incomplete", 1L)
+            .containsEntry("composed", 1L);
+    }
+
+    @Test
+    void compose_givenNestedListEmbeddingKnownEntity_shouldFillParentIdAndKnownFields() throws Exception {
+        cache.compose(index, plan("/customers", "/mock/customers", LIST), request(), json("[{\"id\":5,\"name\":\"Ann\"}]"));
+
+        JsonNode orders = cache.compose(index, plan("/users/{userId}/orders", "/mock/users/42/orders", null), request(),
+            json("{\"data\":[{\"id\":1,\"userId\":7,\"customer\":{\"id\":5,\"name\":\"X\"}}],\"total\":1}"));
+
+        JsonNode order = orders.get("data").get(0);
+        assertThat(order.get("userId").intValue()).isEqualTo(42);
+        assertThat(order.get("customer").get("name").asText()).isEqualTo("Ann");
+        assertThat(cache.lookup(index, plan("/orders/{orderId}", "/mock/orders/1", null), request()).get("userId").intValue())
+            .isEqualTo(42);
+    }
+
+    @Test
+    void lookup_givenSeedHeader_shouldNotTakePart() throws Exception {
+        MockHttpServletRequest seeded = request();
+        seeded.addHeader("X-Mock-Seed", "42");
+        JsonNode generated = json("[{\"id\":1,\"name\":\"Ann\"}]");
+
+        assertThat(cache.compose(index, plan("/users", "/mock/users", LIST), seeded, generated)).isSameAs(generated);
+        assertThat(cache.lookup(index, plan("/users/{userId}", "/mock/users/1", USER), request())).isNull();
+    }
+
+    @ParameterizedTest
+    @CsvSource({"users,user", "categories,category", "addresses,address", "boxes,box", "data,data"})
+    void singular_givenCollectionName_shouldDropPluralEnding(String plural, String singular) {
+        assertThat(EntityCache.singular(plural)).isEqualTo(singular);
+    }
+
+    private Plan plan(String template, String path, String jsonSchema) {
+        return Plan.builder()
+            .scenario(Scenario.HAPPY)
+            .statusCode(200)
+            .compiled(CompiledPlan.builder().responseKey("200").jsonSchema(jsonSchema).build())
+            .request(new RequestView(Map.of("path", path), (JsonNode) null, RequestView.canonicalWriter(objectMapper)))
+            .path(template)
+            .method("GET")
+            .build();
+    }
+
+    private static MockHttpServletRequest request() {
+        return new MockHttpServletRequest("GET", "/mock");
+    }
+
+    private JsonNode json(String json) throws Exception {
+        return objectMapper.readTree(json);
+    }
+}
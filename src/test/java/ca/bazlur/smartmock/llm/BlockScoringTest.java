@@ -0,0 +1,91 @@
+package ca.bazlur.smartmock.llm;
+
+import ca.bazlur.smartmock.llm.BlockScoring.Target;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BlockScoringTest {
+
+    private static EndpointInfo endpoint(String path, String operationId, String schema) {
+        return new EndpointInfo(path, operationId, "GET", schema, "");
+    }
+
+    @Test
+    void score_givenWordRule_shouldMatchWholeWordsOnly() {
+        var scoring = BlockScoring.builder()
+            .word(Target.PATH, 0.4, "users?")
+            .build();
+
+        assertThat(scoring.score(endpoint("/api/Users/{id}", "", ""))).isEqualTo(0.4);
+        assertThat(scoring.score(endpoint("/api/user", "", ""))).isEqualTo(0.4);
+        assertThat(scoring.score(endpoint("/api/superusers", "", ""))).isZero();
+    }
+
+    @Test
+    void score_givenCamelCaseTerm_shouldMatchCaseInsensitively() {
+        var scoring = BlockScoring.builder()
+            .word(Target.SCHEMA, 0.35, "postalCode")
+            .substring(Target.OPERATION, 0.2, "order")
+            .build();
+
+        double score = scoring.score(endpoint("/x", "listOrders", "{\"properties\":{\"postalCode\":{}}}"));
+
+        assertThat(score).isEqualTo(0.55);
+    }
+
+    @Test
+    void score_givenAllSubstringsRule_shouldRequireEveryLiteral() {
+        var scoring = BlockScoring.builder()
+            .allSubstrings(Target.SCHEMA, 0.05, "\"type\":\"array\"", "\"items\"")
+            .build();
+
+        assertThat(scoring.score(endpoint("/x", "", "{\"type\":\"array\",\"items\":{}}"))).isEqualTo(0.05);
+        assertThat(scoring.score(endpoint("/x", "", "{\"type\":\"array\"}"))).isZero();
+    }
+
+    @Test
+    void pattern_givenPlainAlternations_shouldCompileToTermRules() {
+        var scoring = BlockScoring.builder()
+            .pattern(Target.PATH, 0.3, "\\b(accounts?|Balance)\\b")
+            .pattern(Target.OPERATION, 0.2, "(?:transfer|payout)")
+            .build();
+
+        assertThat(scoring.keywords()).containsExactly("account", "accounts", "balance", "transfer", "payout");
+        assertThat(scoring.score(endpoint("/accounts", "createPayoutBatch", ""))).isEqualTo(0.5);
+    }
+
+    @Test
+    void pattern_givenOtherRegex_shouldFallBackToRegexAndDisableKeywords() {
+        var scoring = BlockScoring.builder()
+            .pattern(Target.PATH, 0.3, "^/v\\d+/real-?estate")
+            .pattern(Target.PATH, 0.3, "(unclosed")
+            .build();
+
+        assertThat(scoring.keywords()).isEmpty();
+        assertThat(scoring.score(endpoint("/V2/RealEstate", "", ""))).isEqualTo(0.3);
+    }
+
+    @Test
+    void pattern_givenWordBoundariesOutsideGroup_shouldKeepRegex() {
+        var scoring = BlockScoring.builder()
+            .pattern(Target.PATH, 0.3, "\\bpay|card\\b")
+            .build();
+
+        assertThat(scoring.keywords()).isEmpty();
+        assertThat(scoring.score(endpoint("/payments", "", ""))).isEqualTo(0.3);
+        assertThat(scoring.score(endpoint("/giftcard", "", ""))).isEqualTo(0.3);
+        assertThat(scoring.score(endpoint("/repay", "", ""))).isEqualTo(0.0);
+    }
+
+    @Test
+    void keywords_givenBaseScore_shouldBeEmpty() {
+        var scoring = BlockScoring.builder()
+            .baseScore(0.1)
+            .word(Target.PATH, 0.3, "pets")
+            .build();
+
+        assertThat(scoring.keywords()).isEmpty();
+        assertThat(scoring.score(endpoint("/pets", "", ""))).isEqualTo(0.4);
+    }
+}
@@ -0,0 +1,113 @@
+package ca.bazlur.smartmock.llm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContextRegistryTest {
+
+    private static final EndpointInfo PETS = new EndpointInfo("/pets", "listPets", "GET", "{\"type\":\"array\"}", "");
+
+    @Test
+    void selectRendered_givenSameEndpointShapeTwice_shouldRenderOnce() {
+        var pets = new CountingBlock("pets.v1", Set.of("pet"), 0.6);
+        var registry = new ContextRegistry(List.of(pets), null);
+
+        var first = registry.selectRendered(PETS, 2, 0.25, 3000);
+        var second = registry.selectRendered(
+            new EndpointInfo("/pets", "findPets", "GET", "{}", ""), 2, 0.25, 3000);
+
+        assertThat(first).extracting(ContextRegistry.RenderedBlock::text).containsExactly("PETS /pets");
+        assertThat(second).isEqualTo(first);
+        assertThat(pets.renders).hasValue(1);
+    }
+
+    @Test
+    void select_givenNoKeywordInEndpoint_shouldNotScoreBlock() {
+        var invoices = new CountingBlock("invoices.v1", Set.of("invoice"), 0.9);
+        var pets = new CountingBlock("pets.v1", Set.of("pet"), 0.6);
+        var everywhere = new CountingBlock("everywhere.v1", Set.of(), 0.3);
+        var registry = new ContextRegistry(List.of(invoices, pets, everywhere), null);
+
+        var chosen = registry.select(PETS, 2, 0.25, 3000);
+
+        assertThat(chosen).extracting(ContextBlock::id).containsExactly("pets.v1", "everywhere.v1");
+        assertThat(invoices.scores).hasValue(0);
+        assertThat(everywhere.scores).hasValue(1);
+    }
+
+    @Test
+    void select_givenZeroMinScore_shouldScoreEveryBlock() {
+        var invoices = new CountingBlock("invoices.v1", Set.of("invoice"), 0.9);
+        var registry = new ContextRegistry(List.of(invoices), null);
+
+        registry.select(PETS, 2, 0.0, 3000);
+
+        assertThat(invoices.scores).hasValue(1);
+    }
+
+    @Test
+    void replaceExternalBlocks_givenNewBlockSet_shouldSelectFromItAndNotifyListeners() {
+        var pets = new CountingBlock("pets.v1", Set.of("pet"), 0.6);
+        var registry = new ContextRegistry(List.of(pets), null);
+        var notified = new AtomicInteger();
+        registry.addListener(notified::incrementAndGet);
+        long before = registry.generation();
+
+        var animals = new CountingBlock("animals.v1", Set.of("pet"), 0.8);
+        registry.replaceExternalBlocks(List.of(animals));
+
+        assertThat(registry.select(PETS, 2, 0.25, 3000)).extracting(ContextBlock::id)
+            .containsExactly("animals.v1", "pets.v1");
+        assertThat(registry.generation()).isGreaterThan(before);
+        assertThat(notified).hasValue(1);
+    }
+
+    @Test
+    void replaceExternalBlocks_givenNewBlockSet_shouldRenderAgain() {
+        var pets = new CountingBlock("pets.v1", Set.of("pet"), 0.6);
+        var registry = new ContextRegistry(List.of(pets), null);
+        registry.selectRendered(PETS, 2, 0.25, 3000);
+
+        registry.replaceExternalBlocks(List.of());
+        registry.selectRendered(PETS, 2, 0.25, 3000);
+
+        assertThat(pets.renders).hasValue(2);
+    }
+
+    private static final class CountingBlock implements ContextBlock {
+        private final String id;
+        private final Set<String> keywords;
+        private final double score;
+        private final AtomicInteger scores = new AtomicInteger();
+        private final AtomicInteger renders = new AtomicInteger();
+
+        CountingBlock(String id, Set<String> keywords, double score) {
+            this.id = id;
+            this.keywords = keywords;
+            this.score = score;
+        }
+
+        public String id() {
+            return id;
+        }
+
+        public double score(EndpointInfo info) {
+            scores.incrementAndGet();
+            return score;
+        }
+
+        public String render(EndpointInfo info) {
+            renders.incrementAndGet();
+            return id.substring(0, id.indexOf('.')).toUpperCase() + " " + info.path();
+        }
+
+        public Set<String> keywords() {
+            return keywords;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ca.bazlur.smartmock.llm;
+
+import ca.bazlur.smartmock.model.CompiledPlan;
+import ca.bazlur.smartmock.model.Plan;
+import ca.bazlur.smartmock.model.RequestView;
+import ca.bazlur.smartmock.model.Scenario;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.model.language.LanguageModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LlmRunnerTest {
+
+    private final PromptBuilder promptBuilder = new PromptBuilder(new RequestResponseCorrelator(new ObjectMapper()));
+    private final AtomicInteger calls = new AtomicInteger();
+    private final LanguageModel model = prompt -> {
+        calls.incrementAndGet();
+        return Response.from("{\"id\":1}");
+    };
+
+    @Test
+    void generateResponse_givenSinglePermit_shouldNeverRunBackgroundWork() {
+        LlmRunner runner = new LlmRunner(promptBuilder, 1, 1);
+
+        assertThat(runner.idle()).isFalse();
+        assertThatThrownBy(() -> runner.generateResponse(model, plan(), LlmRunner.Priority.BACKGROUND))
+            .isInstanceOf(ResponseStatusException.class)
+            .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+            .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(calls).hasValue(0);
+
+        assertThat(runner.generateResponse(model, plan())).isEqualTo("{\"id\":1}");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void generateResponse_givenSparePermit_shouldRunBackgroundWork() {
+        LlmRunner runner = new LlmRunner(promptBuilder, 2, 1);
+
+        assertThat(runner.idle()).isTrue();
+        assertThat(runner.generateResponse(model, plan(), LlmRunner.Priority.BACKGROUND)).isEqualTo("{\"id\":1}");
+        assertThat(calls).hasValue(1);
+    }
+
+    private static Plan plan() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        RequestView request = new RequestView(Map.of("method", "GET", "path", "/pets/1"),
+            null, objectMapper.reader(), RequestView.canonicalWriter(objectMapper));
+        return Plan.builder()
+            .statusCode(200)
+            .scenario(Scenario.HAPPY)
+            .request(request)
+            .compiled(CompiledPlan.builder()
+                .jsonSchemaMinified("{\"type\":\"object\"}")
+                .blockIds(List.of())
+                .renderedBlocks("")
+                .fieldGuidance("")
+                .build())
+            .build();
+    }
+}
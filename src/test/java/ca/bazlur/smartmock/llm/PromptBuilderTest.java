@@ -0,0 +1,57 @@
+package ca.bazlur.smartmock.llm;
+
+import ca.bazlur.smartmock.model.CompiledPlan;
+import ca.bazlur.smartmock.model.Plan;
+import ca.bazlur.smartmock.model.RequestView;
+import ca.bazlur.smartmock.model.Scenario;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PromptBuilderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PromptBuilder promptBuilder = new PromptBuilder(new RequestResponseCorrelator(objectMapper));
+
+    private final CompiledPlan compiled = CompiledPlan.builder()
+        .jsonSchemaMinified("{\"type\":\"object\"}")
+        .blockIds(List.of())
+        .renderedBlocks("")
+        .fieldGuidance("")
+        .build();
+
+    @Test
+    void buildGenerationPrompt_givenCachedFragments_shouldStillVaryPerRequest() {
+        String first = promptBuilder.buildGenerationPrompt(plan(Scenario.HAPPY, "/pets/1", "alpha"));
+        String second = promptBuilder.buildGenerationPrompt(plan(Scenario.HAPPY, "/pets/2", "beta"));
+
+        assertThat(first).contains("- Endpoint: /pets/1\n", "- Random seed: alpha", "JSON Schema:\n{\"type\":\"object\"}")
+            .doesNotContain("beta");
+        assertThat(second).contains("- Endpoint: /pets/2\n", "- Random seed: beta")
+            .doesNotContain("alpha");
+    }
+
+    @Test
+    void buildGenerationPrompt_givenOtherScenario_shouldNotReuseFragments() {
+        promptBuilder.buildGenerationPrompt(plan(Scenario.HAPPY, "/pets/1", "alpha"));
+
+        String error = promptBuilder.buildGenerationPrompt(plan(Scenario.SERVER_ERROR, "/pets/1", "alpha"));
+
+        assertThat(error).contains("- Scenario: SERVER_ERROR", "This is an ERROR scenario (SERVER_ERROR)");
+    }
+
+    private Plan plan(Scenario scenario, String path, String seed) {
+        RequestView request = new RequestView(Map.of("method", "GET", "path", path, "seed", seed),
+            null, objectMapper.reader(), RequestView.canonicalWriter(objectMapper));
+        return Plan.builder()
+            .scenario(scenario)
+            .statusCode(200)
+            .compiled(compiled)
+            .request(request)
+            .build();
+    }
+}
@@ -1,9 +1,11 @@
 package ca.bazlur.smartmock.llm;
 
+import ca.bazlur.smartmock.model.RequestView;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import java.util.HashMap;
@@ -146,6 +148,25 @@ class RequestResponseCorrelatorTest {
         .contains("REQUEST-RESPONSE CORRELATIONS");
   }
 
+  @Test
+  void generateCorrelations_givenRequestView_shouldUseParsedBodyAndRenderCanonically() {
+    RequestView view = new RequestView(
+        Map.of("path", "/api/products", "method", "POST"),
+        "{\"title\":\"New Product\",\"category\":\"Electronics\"}",
+        objectMapper.reader(),
+        RequestView.canonicalWriter(objectMapper));
+
+    String correlation = correlator.generateCorrelations(view);
+
+    assertThat(correlation)
+        .contains("Created resource must have title 'New Product'")
+        .contains("Created resource must be in category 'Electronics'");
+    assertThat(view.body()).isSameAs(view.body());
+    assertThat(view.canonicalJson()).isEqualTo(
+        "{\"method\":\"POST\",\"path\":\"/api/products\","
+            + "\"requestBody\":{\"category\":\"Electronics\",\"title\":\"New Product\"}}");
+  }
+
   @Test
   void generateCorrelations_givenPutWithIdAndBody_shouldMergeData() {
     Map<String, Object> context = new HashMap<>();
@@ -242,4 +263,19 @@ class RequestResponseCorrelatorTest {
     assertThat(correlation).isNotNull();
     assertThat(correlation).isEmpty();
   }
-}
\ No newline at end of file
+
+  @ParameterizedTest
+  @CsvSource(nullValues = "null", value = {
+      "/api/users/123, 123",
+      "/api/users, null",
+      "/pets/42/toys, toys",
+      "/v1/orders/507f1f77bcf86cd799439011, 507f1f77bcf86cd799439011",
+      "/api/v2/items/abc_def, null",
+      "/api/v2/items/abc_def/7, 7",
+      "/API/Users/Public, null",
+      "/store/inventory, inventory"
+  })
+  void extractIdFromPath_givenPath_shouldFindIdWithoutRegex(String path, String expected) {
+    assertThat(RequestResponseCorrelator.extractIdFromPath(path)).isEqualTo(expected);
+  }
+}
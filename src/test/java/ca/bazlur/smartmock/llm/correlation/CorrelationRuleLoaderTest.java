@@ -0,0 +1,64 @@
+package ca.bazlur.smartmock.llm.correlation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CorrelationRuleLoaderTest {
+
+    private CorrelationRuleLoader loader;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        loader = new CorrelationRuleLoader(new YAMLMapper(), new ObjectMapper());
+        ReflectionTestUtils.setField(loader, "enabled", true);
+        ReflectionTestUtils.setField(loader, "blocksPath", tempDir.toString());
+    }
+
+    @Test
+    void reloadRules_givenNoCorrelationsDirectory_shouldUseBuiltInRules() {
+        loader.reloadRules();
+
+        assertThat(loader.rules().size()).isEqualTo(CorrelationRuleLoader.builtIn().size());
+    }
+
+    @Test
+    void reloadRules_givenCustomRuleFile_shouldEvaluateItBeforeBuiltIns() throws IOException {
+        Path dir = Files.createDirectories(tempDir.resolve("correlations"));
+        Files.writeString(dir.resolve("tenant.yaml"), """
+            rules:
+              - id: tenant
+                in: query
+                names: [tenantId, tenant]
+                say: ["Every item must have tenantId '{value}'"]
+              - id: size
+                in: query
+                names: [size]
+                say: ["Return {int:5} items per page"]
+            """);
+        Files.writeString(dir.resolve("broken.yaml"), "rules: [unclosed");
+
+        loader.reloadRules();
+        List<String> out = new ArrayList<>();
+        loader.rules().correlate("GET", null, Map.of("size", "3"), null, out);
+        loader.rules().correlate("GET", null, Map.of("tenant", "acme"), null, out);
+
+        assertThat(loader.rules().size()).isEqualTo(CorrelationRuleLoader.builtIn().size() + 2);
+        assertThat(out).containsExactly("Return 3 items per page", "Every item must have tenantId 'acme'");
+    }
+}
@@ -0,0 +1,87 @@
+package ca.bazlur.smartmock.llm.correlation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CorrelationRulesTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void correlate_givenRuleBeforeBuiltIns_shouldTakePrecedenceForItsName() {
+        var tenant = rule("query", "Every item must belong to tenant '{value}'");
+        tenant.setNames(List.of("limit"));
+        var definitions = new ArrayList<CorrelationRuleDefinition>();
+        definitions.add(tenant);
+        definitions.addAll(CorrelationRuleLoader.BuiltIn.DEFINITIONS);
+        var rules = CorrelationRules.compile(definitions);
+
+        List<String> out = correlate(rules, "GET", Map.of("limit", "5"), null);
+
+        assertThat(out).containsExactly("Every item must belong to tenant '5'");
+    }
+
+    @Test
+    void correlate_givenBooleanQueryValues_shouldPickRuleByValue() {
+        var rules = CorrelationRuleLoader.builtIn();
+
+        assertThat(correlate(rules, "GET", Map.of("active", true), null))
+            .containsExactly("Only include items where active is true");
+        assertThat(correlate(rules, "GET", Map.of("active", false), null))
+            .containsExactly("Exclude items where active is true");
+        assertThat(correlate(rules, "GET", Map.of("active", "yes"), null)).isEmpty();
+    }
+
+    @Test
+    void correlate_givenPostBody_shouldSayBodyRulesInRuleOrderAndOnceRulesOnce() {
+        var body = objectMapper.createObjectNode()
+            .put("query", "q").put("type", "book").put("search", "s").put("name", "Dune");
+
+        List<String> out = correlate(CorrelationRuleLoader.builtIn(), "post", null, body);
+
+        assertThat(out).containsExactly(
+            "Response must confirm creation of the resource with data from request body",
+            "Created resource must have name 'Dune'",
+            "Created resource must be of type 'book'",
+            "Results must be relevant to 's'");
+    }
+
+    @Test
+    void correlate_givenLimitPlaceholder_shouldFallBackWhenNotANumber() {
+        var rules = CorrelationRuleLoader.builtIn();
+
+        assertThat(correlate(rules, "GET", Map.of("size", "many"), null))
+            .first().isEqualTo("MANDATORY: You MUST return EXACTLY 10 items in the array");
+    }
+
+    @Test
+    void compile_givenInvalidRules_shouldSkipThem() {
+        var badPattern = rule("query", "never");
+        badPattern.setPattern("(unclosed");
+        var badLocation = rule("header", "never");
+        var silent = rule("query", null);
+
+        assertThat(CorrelationRules.compile(List.of(badPattern, badLocation, silent)).size()).isZero();
+    }
+
+    private static CorrelationRuleDefinition rule(String in, String say) {
+        var definition = new CorrelationRuleDefinition();
+        definition.setIn(in);
+        definition.setSay(say != null ? List.of(say) : null);
+        return definition;
+    }
+
+    private static List<String> correlate(CorrelationRules rules, String method, Map<String, Object> query,
+                                          JsonNode body) {
+        List<String> out = new ArrayList<>();
+        rules.correlate(method, null, query, body, out);
+        return out;
+    }
+}
@@ -1,5 +1,6 @@
 package ca.bazlur.smartmock.llm.external;
 
+import ca.bazlur.smartmock.llm.ContextBlock;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,6 +13,8 @@ import org.springframework.test.util.ReflectionTestUtils;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -162,4 +165,52 @@ class ExternalBlockLoaderTest {
         assertThat(loader.getExternalBlocks())
             .anyMatch(block -> block.id().equals("external.custom-domain"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void applyChanges_givenOneChangedFile_shouldReparseOnlyThatFile() throws IOException {
+        Path first = tempDir.resolve("first.yaml");
+        Path second = tempDir.resolve("second.yaml");
+        Files.writeString(first, "id: first.block\nname: First\n");
+        Files.writeString(second, "id: second.block\nname: Second\n");
+        loader.loadExternalBlocks();
+        ContextBlock firstBlock = loader.getExternalBlocks().get(0);
+        
+        Files.writeString(second, "id: second.block.v2\nname: Second, revised\n");
+        loader.applyChanges(List.of(first, second));
+        
+        assertThat(loader.getExternalBlocks()).extracting(ContextBlock::id)
+            .containsExactly("first.block", "second.block.v2");
+        assertThat(loader.getExternalBlocks().get(0)).isSameAs(firstBlock);
+    }
+
+    @Test
+    void applyChanges_givenDeletedFile_shouldPublishSnapshotWithoutIt() throws IOException {
+        Path first = tempDir.resolve("first.yaml");
+        Path second = tempDir.resolve("second.yaml");
+        Files.writeString(first, "id: first.block\n");
+        Files.writeString(second, "id: second.block\n");
+        loader.loadExternalBlocks();
+        List<List<ContextBlock>> published = new ArrayList<>();
+        loader.addListener(published::add);
+        
+        Files.delete(second);
+        loader.applyChanges(List.of(second));
+        
+        assertThat(published).hasSize(1);
+        assertThat(published.get(0)).extracting(ContextBlock::id).containsExactly("first.block");
+        assertThat(published.get(0)).isSameAs(loader.getExternalBlocks()).isUnmodifiable();
+    }
+
+    @Test
+    void applyChanges_givenUnchangedFiles_shouldNotPublish() throws IOException {
+        Path first = tempDir.resolve("first.yaml");
+        Files.writeString(first, "id: first.block\n");
+        loader.loadExternalBlocks();
+        List<List<ContextBlock>> published = new ArrayList<>();
+        loader.addListener(published::add);
+        
+        loader.applyChanges(List.of(first));
+        
+        assertThat(published).isEmpty();
+    }
+}
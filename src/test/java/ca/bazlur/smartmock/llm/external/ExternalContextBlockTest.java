@@ -145,6 +145,39 @@ class ExternalContextBlockTest {
         assertThat(score).isEqualTo(0.0);
     }
 
+    @Test
+    void keywords_givenPlainAlternations_shouldReturnLowerCasedTerms() {
+        var scoring = new ExternalBlockDefinition.ScoreRules();
+        var path = new ExternalBlockDefinition.PathPattern();
+        path.setPattern("\\b(accounts?|Balance)\\b");
+        path.setScore(0.35);
+        var schema = new ExternalBlockDefinition.SchemaPattern();
+        schema.setPattern("iban");
+        schema.setScore(0.3);
+        scoring.setPathPatterns(List.of(path));
+        scoring.setSchemaPatterns(List.of(schema));
+        definition.setScoring(scoring);
+        block = new ExternalContextBlock(definition);
+
+        assertThat(block.keywords()).containsExactlyInAnyOrder("account", "accounts", "balance", "iban");
+    }
+
+    @Test
+    void keywords_givenPatternBeyondAlternationOrBaseScore_shouldBeEmpty() {
+        var scoring = new ExternalBlockDefinition.ScoreRules();
+        var path = new ExternalBlockDefinition.PathPattern();
+        path.setPattern("real-?estate");
+        path.setScore(0.35);
+        scoring.setPathPatterns(List.of(path));
+        definition.setScoring(scoring);
+
+        assertThat(new ExternalContextBlock(definition).keywords()).isEmpty();
+
+        path.setPattern("estate");
+        scoring.setBaseScore(0.3);
+        assertThat(new ExternalContextBlock(definition).keywords()).isEmpty();
+    }
+
     sealed interface RenderTestCase {
         ExternalBlockDefinition definition();
         EndpointInfo endpointInfo();
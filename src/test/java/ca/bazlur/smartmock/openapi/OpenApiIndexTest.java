@@ -0,0 +1,99 @@
+package ca.bazlur.smartmock.openapi;
+
+import ca.bazlur.smartmock.model.CompiledPlan;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OpenApiIndexTest {
+
+    private static final String V1 = """
+        openapi: 3.0.3
+        info:
+          title: Shop
+          version: 1.0.0
+        paths:
+          /items/{id}:
+            get:
+              responses:
+                '200':
+                  description: ok
+          /items/featured:
+            get:
+              responses:
+                '200':
+                  description: ok
+        """;
+
+    private static final String V2 = """
+        openapi: 3.0.3
+        info:
+          title: Shop
+          version: 2.0.0
+        paths:
+          /orders:
+            get:
+              responses:
+                '200':
+                  description: ok
+        """;
+
+    @Test
+    void match_givenLiteralAndTemplatedPaths_shouldPreferMostSpecific() {
+        OpenApiIndex index = new OpenApiIndex();
+        index.loadSpec(V1);
+
+        assertThat(index.match("GET", "/items/featured")).get()
+            .extracting(Endpoint::getPath).isEqualTo("/items/featured");
+        assertThat(index.match("get", "/items/42")).get()
+            .extracting(Endpoint::getPath).isEqualTo("/items/{id}");
+        assertThat(index.match("POST", "/items/42")).isEmpty();
+    }
+
+    @Test
+    void loadSpec_givenReload_shouldSwapWholeIndexAtOnce() {
+        OpenApiIndex index = new OpenApiIndex();
+        index.loadSpec(V1);
+        var before = index.endpoints();
+
+        index.loadSpec(V2);
+
+        assertThat(index.match("GET", "/items/42")).isEmpty();
+        assertThat(index.match("GET", "/orders")).isPresent();
+        assertThat(index.getOpenAPI().getInfo().getVersion()).isEqualTo("2.0.0");
+        // views handed out earlier keep describing the version they came from
+        assertThat(before).extracting(Endpoint::getPath)
+            .containsExactlyInAnyOrder("/items/{id}", "/items/featured");
+    }
+
+    @Test
+    void loadSpec_givenInvalidContent_shouldPublishEmptyIndex() {
+        OpenApiIndex index = new OpenApiIndex();
+        index.loadSpec(V1);
+
+        index.loadSpec("not: [an, openapi");
+
+        assertThat(index.getOpenAPI()).isNull();
+        assertThat(index.endpoints()).isEmpty();
+        assertThat(index.match("GET", "/items/42")).isEmpty();
+    }
+
+    @Test
+    void loadSpec_givenCompiler_shouldPublishSpecAndPlansTogether() {
+        OpenApiIndex index = new OpenApiIndex();
+        index.loadSpec(V1);
+        CompiledPlan plan = CompiledPlan.builder().build();
+
+        index.loadSpec(V2, IndexingProgress.NONE, staged -> {
+            // the compiler reads the new spec while readers still see the old one, without plans
+            assertThat(staged.match("GET", "/orders")).isPresent();
+            assertThat(index.match("GET", "/orders")).isEmpty();
+            return Map.of("GET /orders", plan);
+        });
+
+        assertThat(index.match("GET", "/orders")).isPresent();
+        assertThat(index.compiledPlans()).containsExactly(Map.entry("GET /orders", plan));
+    }
+}
@@ -0,0 +1,100 @@
+package ca.bazlur.smartmock.openapi;
+
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.parser.OpenAPIV3Parser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SchemaGraphTest {
+
+    private static final String SPEC = """
+        openapi: 3.0.3
+        info:
+          title: Graph
+          version: 1.0.0
+        paths: {}
+        components:
+          schemas:
+            Address:
+              type: object
+              properties:
+                city:
+                  type: string
+            Customer:
+              type: object
+              properties:
+                home:
+                  $ref: '#/components/schemas/Address'
+                work:
+                  $ref: '#/components/schemas/Address'
+            CustomerList:
+              type: array
+              items:
+                $ref: '#/components/schemas/Customer'
+            Category:
+              type: object
+              properties:
+                name:
+                  type: string
+                parent:
+                  $ref: '#/components/schemas/Category'
+        """;
+
+    private OpenAPI openAPI;
+
+    @BeforeEach
+    void setUp() {
+        openAPI = new OpenAPIV3Parser().readContents(SPEC).getOpenAPI();
+    }
+
+    @Test
+    void component_givenNestedRefs_shouldDereferenceItemsAndProperties() {
+        SchemaGraph graph = SchemaGraph.build(openAPI, 3);
+
+        Schema<?> list = graph.component("CustomerList");
+
+        assertThat(list.getItems().get$ref()).isNull();
+        assertThat(list.getItems().getProperties()).containsKeys("home", "work");
+        Schema<?> home = (Schema<?>) list.getItems().getProperties().get("home");
+        assertThat(home.get$ref()).isNull();
+        assertThat(home.getProperties()).containsKey("city");
+    }
+
+    @Test
+    void component_givenSharedComponent_shouldReuseSameInstance() {
+        SchemaGraph graph = SchemaGraph.build(openAPI, 3);
+
+        Schema<?> customer = graph.component("Customer");
+
+        assertThat(customer.getProperties().get("home"))
+            .isSameAs(customer.getProperties().get("work"))
+            .isSameAs(graph.component("Address"));
+        assertThat(graph.component("CustomerList").getItems()).isSameAs(customer);
+    }
+
+    @Test
+    void component_givenRecursiveRef_shouldCutAtConfiguredDepth() {
+        SchemaGraph graph = SchemaGraph.build(openAPI, 2);
+
+        Schema<?> level1 = graph.component("Category");
+        Schema<?> level2 = (Schema<?>) level1.getProperties().get("parent");
+        Schema<?> stub = (Schema<?>) level2.getProperties().get("parent");
+
+        assertThat(level2.getProperties()).containsKey("name");
+        assertThat(stub.get$ref()).isNull();
+        assertThat(stub.getProperties()).isNullOrEmpty();
+        assertThat(stub.getTitle()).contains("Category");
+    }
+
+    @Test
+    void build_shouldNotMutateSourceModel() {
+        SchemaGraph.build(openAPI, 3);
+
+        Schema<?> source = openAPI.getComponents().getSchemas().get("Customer");
+        assertThat(((Schema<?>) source.getProperties().get("home")).get$ref())
+            .isEqualTo("#/components/schemas/Address");
+    }
+}
@@ -0,0 +1,196 @@
+package ca.bazlur.smartmock.pagination;
+
+import ca.bazlur.smartmock.model.CompiledPlan;
+import ca.bazlur.smartmock.model.Plan;
+import ca.bazlur.smartmock.model.RequestView;
+import ca.bazlur.smartmock.model.Scenario;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaginatorTest {
+
+    private static final String ENVELOPE_SCHEMA = """
+        {"type":"object","properties":{
+          "items":{"type":"array","items":{"type":"object"}},
+          "pagination":{"type":"object","properties":{"page":{"type":"integer"},"limit":{"type":"integer"},
+            "total":{"type":"integer"},"totalPages":{"type":"integer"},"hasNext":{"type":"boolean"},"hasPrev":{"type":"boolean"}}}}}
+        """;
+    private static final String ARRAY_SCHEMA = "{\"type\":\"array\",\"items\":{\"type\":\"object\"}}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Paginator paginator = new Paginator(objectMapper, true, 50, 100, 1000, 20, 1);
+    private final List<String> chunkQueries = new ArrayList<>();
+
+    @Test
+    void page_givenSuccessivePages_shouldSliceOneDatasetWithConsistentTotal() throws Exception {
+        CompiledPlan compiled = compiled(ENVELOPE_SCHEMA);
+        Paginator.ChunkSource source = chunkRequest -> {
+            ObjectNode body = objectMapper.createObjectNode();
+            body.set("items", items(chunkRequest));
+            body.putObject("pagination").put("page", 1).put("limit", 50).put("total", 120).put("totalPages", 3)
+                .put("hasNext", true).put("hasPrev", false);
+            return body;
+        };
+
+        Paginator.Page first = paginator.page(plan(compiled, "category=books&page=1&limit=20"),
+            request("category=books&page=1&limit=20"), "default", source);
+        Paginator.Page third = paginator.page(plan(compiled, "category=books&page=3&limit=20"),
+            request("category=books&page=3&limit=20"), "default", source);
+        Paginator.Page again = paginator.page(plan(compiled, "limit=20&category=books&page=1"),
+            request("limit=20&category=books&page=1"), "default", source);
+
+        assertThat(chunkQueries).containsExactly("category=books&limit=50", "category=books&offset=50&limit=50");
+        assertThat(ids(first.body().get("items"))).containsExactlyElementsOf(range(1, 20));
+        // the second chunk numbered its items from 1 again; they are renumbered after the first chunk's
+        assertThat(ids(third.body().get("items"))).containsExactlyElementsOf(range(41, 60));
+        assertThat(again.body()).isEqualTo(first.body());
+        JsonNode pagination = third.body().get("pagination");
+        assertThat(pagination.get("page").intValue()).isEqualTo(3);
+        assertThat(pagination.get("limit").intValue()).isEqualTo(20);
+        assertThat(pagination.get("total").intValue()).isEqualTo(120);
+        assertThat(pagination.get("totalPages").intValue()).isEqualTo(6);
+        assertThat(pagination.get("hasNext").booleanValue()).isTrue();
+        assertThat(pagination.get("hasPrev").booleanValue()).isTrue();
+        assertThat(paginator.stats()).containsEntry("pages", 3L).containsEntry("pagesWithoutGeneration", 1L)
+            .containsEntry("chunks", 2L);
+    }
+
+    @Test
+    void page_givenOffsetLimitOnArray_shouldAddTotalAndLinkHeaders() throws Exception {
+        CompiledPlan compiled = compiled(ARRAY_SCHEMA);
+
+        Paginator.Page last = paginator.page(plan(compiled, "offset=90&limit=20"), request("offset=90&limit=20"),
+            "default", this::items);
+
+        assertThat(ids(last.body())).containsExactlyElementsOf(range(91, 100));
+        assertThat(last.headers().getFirst(Paginator.TOTAL_COUNT_HEADER)).isEqualTo("100");
+        assertThat(last.headers().getFirst(HttpHeaders.LINK)).isEqualTo(
+            "</mock/pets?offset=0&limit=20>; rel=\"first\", </mock/pets?offset=60&limit=20>; rel=\"prev\", "
+                + "</mock/pets?offset=80&limit=20>; rel=\"last\"");
+    }
+
+    @Test
+    void page_givenNoPagingParametersOrOtherFilter_shouldDeclineOrUseAnotherDataset() throws Exception {
+        CompiledPlan compiled = compiled(ARRAY_SCHEMA);
+
+        assertThat(paginator.page(plan(compiled, "status=sold"), request("status=sold"), "default", this::items)).isNull();
+        paginator.page(plan(compiled, "status=sold&page=1"), request("status=sold&page=1"), "default", this::items);
+        paginator.page(plan(compiled, "status=available&page=1"), request("status=available&page=1"), "default", this::items);
+        paginator.page(plan(compiled, "status=sold&page=2"), request("status=sold&page=2"), "seed-2", this::items);
+
+        assertThat(chunkQueries).containsExactly("status=sold&limit=50", "status=available&limit=50", "status=sold&limit=50");
+    }
+
+    @Test
+    void page_givenRejectedChunk_shouldDeclineAndLeaveDatasetUnchanged() throws Exception {
+        CompiledPlan compiled = compiled(ARRAY_SCHEMA);
+        paginator.page(plan(compiled, "page=1&limit=20"), request("page=1&limit=20"), "default", this::items);
+
+        assertThat(paginator.page(plan(compiled, "page=4&limit=20"), request("page=4&limit=20"), "default",
+            chunkRequest -> null)).isNull();
+        Paginator.Page fourth = paginator.page(plan(compiled, "page=4&limit=20"), request("page=4&limit=20"),
+            "default", this::items);
+
+        assertThat(chunkQueries).containsExactly("limit=50", "offset=50&limit=50");
+        assertThat(ids(fourth.body())).containsExactlyElementsOf(range(61, 80));
+        assertThat(paginator.stats()).containsEntry("chunksRejected", 1L).containsEntry("pages", 2L);
+    }
+
+    @Test
+    void page_givenChunkBeingGenerated_shouldServeGeneratedWindowsWithoutWaiting() throws Exception {
+        CompiledPlan compiled = compiled(ARRAY_SCHEMA);
+        paginator.page(plan(compiled, "page=1&limit=20"), request("page=1&limit=20"), "default", this::items);
+        CountDownLatch generating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Paginator.Page> fourth = CompletableFuture.supplyAsync(() -> {
+            try {
+                return paginator.page(plan(compiled, "page=4&limit=20"), request("page=4&limit=20"), "default",
+                    chunkRequest -> {
+                        generating.countDown();
+                        release.await();
+                        return items(chunkRequest);
+                    });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(generating.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Paginator.Page> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return paginator.page(plan(compiled, "page=2&limit=20"), request("page=2&limit=20"), "default",
+                    chunkRequest -> { throw new IllegalStateException("page 2 is already generated"); });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(ids(second.get(5, TimeUnit.SECONDS).body())).containsExactlyElementsOf(range(21, 40));
+        assertThat(fourth).isNotDone();
+
+        release.countDown();
+        assertThat(ids(fourth.get(5, TimeUnit.SECONDS).body())).containsExactlyElementsOf(range(61, 80));
+    }
+
+    private ArrayNode items(HttpServletRequest chunkRequest) {
+        chunkQueries.add(chunkRequest.getQueryString());
+        ArrayNode items = objectMapper.createArrayNode();
+        for (int i = 1; i <= Integer.parseInt(chunkRequest.getParameter("limit")); i++) {
+            items.addObject().put("id", i).put("name", "Item " + i);
+        }
+        return items;
+    }
+
+    private CompiledPlan compiled(String jsonSchema) {
+        return CompiledPlan.builder().responseKey("200").jsonSchema(jsonSchema).build();
+    }
+
+    private Plan plan(CompiledPlan compiled, String query) {
+        return Plan.builder()
+            .scenario(Scenario.HAPPY)
+            .statusCode(200)
+            .compiled(compiled)
+            .request(new RequestView(Map.of("path", "/mock/pets", "queryString", query), (JsonNode) null,
+                RequestView.canonicalWriter(objectMapper)))
+            .path("/pets")
+            .method("GET")
+            .build();
+    }
+
+    private static MockHttpServletRequest request(String query) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/mock/pets");
+        request.setQueryString(query);
+        for (String pair : query.split("&")) {
+            String[] nameValue = pair.split("=", 2);
+            request.addParameter(nameValue[0], nameValue[1]);
+        }
+        return request;
+    }
+
+    private static List<Integer> ids(JsonNode items) {
+        List<Integer> ids = new ArrayList<>();
+        items.forEach(item -> ids.add(item.get("id").intValue()));
+        return ids;
+    }
+
+    private static List<Integer> range(int from, int to) {
+        List<Integer> range = new ArrayList<>();
+        for (int i = from; i <= to; i++) range.add(i);
+        return range;
+    }
+}
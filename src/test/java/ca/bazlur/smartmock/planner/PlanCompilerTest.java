@@ -0,0 +1,114 @@
+package ca.bazlur.smartmock.planner;
+
+import ca.bazlur.smartmock.llm.ContextBlock;
+import ca.bazlur.smartmock.llm.ContextRegistry;
+import ca.bazlur.smartmock.llm.EndpointInfo;
+import ca.bazlur.smartmock.llm.FieldSemantics;
+import ca.bazlur.smartmock.llm.blocks.GenericStructuredDataBlock;
+import ca.bazlur.smartmock.llm.blocks.PeopleBlock;
+import ca.bazlur.smartmock.model.CompiledPlan;
+import ca.bazlur.smartmock.openapi.Endpoint;
+import ca.bazlur.smartmock.openapi.OpenApiIndex;
+import ca.bazlur.smartmock.util.JsonSchemaConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.StreamUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PlanCompilerTest {
+
+    private ContextRegistry registry;
+    private PlanCompiler compiler;
+    private OpenApiIndex index;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        var objectMapper = new ObjectMapper();
+        registry = new ContextRegistry(List.of(new PeopleBlock(), new GenericStructuredDataBlock()), null);
+        compiler = new PlanCompiler(new JsonSchemaConverter(objectMapper), registry,
+            new FieldSemantics(objectMapper));
+
+        String spec = StreamUtils.copyToString(
+            new ClassPathResource("sample-petstore.yaml").getInputStream(), StandardCharsets.UTF_8);
+        index = new OpenApiIndex();
+        index.loadSpec(spec);
+    }
+
+    @Test
+    void compileAll_givenPetstore_shouldCompileEveryResponseAndContentType() {
+        Map<String, CompiledPlan> plans = compiler.compileAll(index);
+
+        assertThat(plans).containsKeys(
+            CompiledPlan.key("GET", "/pets", "200", "application/json"),
+            CompiledPlan.key("GET", "/pets/{petId}", "404", "application/json"),
+            CompiledPlan.key("DELETE", "/pets/{petId}", "204", "application/json"));
+    }
+
+    @Test
+    void compileAll_givenObjectResponse_shouldPrecomputePromptFragments() {
+        index.installCompiledPlans(compiler.compileAll(index));
+        Endpoint endpoint = index.match("GET", "/pets/42").orElseThrow();
+
+        CompiledPlan plan = index.findCompiledPlan(endpoint, "200", "application/json").orElseThrow();
+
+        assertThat(plan.getJsonSchemaMinified()).startsWith("{").doesNotContain("\n");
+        assertThat(plan.getBlockIds()).isNotEmpty();
+        assertThat(plan.getRenderedBlocks()).isNotBlank();
+        assertThat(plan.isArraySchema()).isFalse();
+    }
+
+    @Test
+    void reselectBlocks_givenUnchangedBlocks_shouldKeepPlans() {
+        index.installCompiledPlans(compiler.compileAll(index));
+
+        assertThat(compiler.reselectBlocks(index)).isSameAs(index.compiledPlans());
+    }
+
+    @Test
+    void reselectBlocks_givenReplacedExternalBlocks_shouldRefreshOnlyBlockSelection() {
+        index.installCompiledPlans(compiler.compileAll(index));
+        Endpoint endpoint = index.match("GET", "/pets/42").orElseThrow();
+        CompiledPlan before = index.findCompiledPlan(endpoint, "200", "application/json").orElseThrow();
+
+        registry.replaceExternalBlocks(List.of(new PetsBlock()));
+        index.installCompiledPlans(compiler.reselectBlocks(index));
+
+        CompiledPlan after = index.findCompiledPlan(endpoint, "200", "application/json").orElseThrow();
+        assertThat(after.getBlockIds()).startsWith("pets.v1");
+        assertThat(after.getRenderedBlocks()).startsWith("Pets for /pets/{petId}");
+        assertThat(after.getBlocksGeneration()).isEqualTo(registry.generation());
+        assertThat(after.getFieldGuidance()).isSameAs(before.getFieldGuidance());
+        assertThat(after.getJsonSchema()).isSameAs(before.getJsonSchema());
+    }
+
+    @Test
+    void loadSpec_givenNewSpec_shouldDiscardCompiledPlans() throws Exception {
+        index.installCompiledPlans(compiler.compileAll(index));
+        Endpoint endpoint = index.match("GET", "/pets").orElseThrow();
+
+        index.loadSpec(index.getRawSpecContent());
+
+        assertThat(index.findCompiledPlan(endpoint, "200", "application/json")).isEmpty();
+    }
+
+    private static final class PetsBlock implements ContextBlock {
+        public String id() {
+            return "pets.v1";
+        }
+
+        public double score(EndpointInfo info) {
+            return info.path().contains("pet") ? 0.95 : 0;
+        }
+
+        public String render(EndpointInfo info) {
+            return "Pets for " + info.path();
+        }
+    }
+}
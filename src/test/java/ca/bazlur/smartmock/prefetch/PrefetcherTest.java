@@ -0,0 +1,121 @@
+package ca.bazlur.smartmock.prefetch;
+
+import ca.bazlur.smartmock.model.MockResult;
+import ca.bazlur.smartmock.model.Signature;
+import ca.bazlur.smartmock.openapi.OpenApiIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrefetcherTest {
+
+    private static final String SPEC = """
+        openapi: 3.0.3
+        info:
+          title: Pets
+          version: 1.0.0
+        paths:
+          /pets:
+            get:
+              responses:
+                '200':
+                  description: ok
+          /pets/{petId}:
+            get:
+              responses:
+                '200':
+                  description: ok
+          /pets/{petId}/photos:
+            get:
+              responses:
+                '200':
+                  description: ok
+        """;
+
+    private final OpenApiIndex index = new OpenApiIndex();
+    private final Prefetcher prefetcher = new Prefetcher(new ObjectMapper(), true, 0.3, 2, 2, 32);
+    private final BlockingQueue<HttpServletRequest> prefetches = new LinkedBlockingQueue<>();
+
+    PrefetcherTest() {
+        index.loadSpec(SPEC);
+    }
+
+    @Test
+    void observe_givenListThenDetailWalks_shouldPrefetchDetailsOfTheFirstItems() throws Exception {
+        for (int walk = 0; walk < 2; walk++) {
+            observe("/pets", "[]");
+            observe("/pets/1", "{\"id\":1}");
+        }
+        assertThat(prefetches).isEmpty();
+
+        observe("/pets", "{\"data\":[{\"id\":\"a b\"},{\"id\":7},{\"id\":9}],\"total\":3}");
+
+        HttpServletRequest first = prefetches.poll(5, TimeUnit.SECONDS);
+        HttpServletRequest second = prefetches.poll(5, TimeUnit.SECONDS);
+        assertThat(List.of(first.getRequestURI(), second.getRequestURI()))
+            .containsExactly("/mock/pets/a%20b", "/mock/pets/7");
+        assertThat(first.getMethod()).isEqualTo("GET");
+        assertThat(first.getHeader("x-mock-scenario")).isEqualTo("happy");
+        assertThat(first.getHeader("X-Mock-Latency")).isNull();
+        assertThat(first.getQueryString()).isNull();
+        assertThat(first.getContentLengthLong()).isEqualTo(-1L);
+        assertThat(first.getAttribute("anything")).isNull();
+        assertThat(first.getAttributeNames().hasMoreElements()).isFalse();
+        assertThat(prefetcher.stats()).containsEntry("transitions", 4L).containsEntry("scheduled", 2L);
+    }
+
+    @Test
+    void observe_givenDetailThenSubResourceWalks_shouldFillParameterFromPathAndKeepSchemaPrefix() throws Exception {
+        observe("/pets/5", "{\"id\":5}");
+        observe("/pets/5/photos", "[]");
+        observe("/pets/6", "{\"id\":6}");
+        observe("/pets/6/photos", "[]");
+
+        MockHttpServletRequest request = request("/mock/petstore/pets/8");
+        prefetcher.observe(index, "GET", "/pets/8", request, result("{\"id\":8}"), prefetches::add);
+
+        assertThat(prefetches.poll(5, TimeUnit.SECONDS).getRequestURI()).isEqualTo("/mock/petstore/pets/8/photos");
+    }
+
+    @Test
+    void stats_givenPrefetchedEntries_shouldReportHitRatioOfServedPrefetches() {
+        Signature served = Signature.builder().method("GET").path("/pets/1").build();
+        prefetcher.prefetched(served);
+        prefetcher.prefetched(Signature.builder().method("GET").path("/pets/2").build());
+        prefetcher.served(served);
+        prefetcher.served(served);
+        prefetcher.served(Signature.builder().method("GET").path("/pets").build());
+
+        assertThat(prefetcher.stats()).containsEntry("prefetched", 2L).containsEntry("hits", 1L)
+            .containsEntry("hitRatio", 0.5);
+    }
+
+    private void observe(String path, String body) {
+        prefetcher.observe(index, "GET", path, request("/mock" + path), result(body), prefetches::add);
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.addHeader("X-Mock-Scenario", "happy");
+        request.addHeader("X-Mock-Latency", "2s");
+        return request;
+    }
+
+    private static MockResult result(String body) {
+        return MockResult.builder()
+            .status(200)
+            .body(body.getBytes(StandardCharsets.UTF_8))
+            .headers(new HttpHeaders())
+            .build();
+    }
+}
@@ -0,0 +1,85 @@
+package ca.bazlur.smartmock.processor;
+
+import ca.bazlur.smartmock.model.MockResult;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCompressorTest {
+
+    private final ResponseCompressor compressor = new ResponseCompressor(true, 1024);
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', nullValues = "null", value = {
+        "gzip, deflate, br | GZIP",
+        "deflate           | DEFLATE",
+        "gzip;q=0.5, deflate | DEFLATE",
+        "gzip;q=0, *       | DEFLATE",
+        "*                 | GZIP",
+        "identity          | null",
+        "br                | null",
+        "X-GZIP            | GZIP",
+        "null              | null",
+    })
+    void negotiate_givenAcceptEncoding_shouldPickPreferredCoding(String acceptEncoding, ResponseCompressor.Coding expected) {
+        assertThat(ResponseCompressor.negotiate(acceptEncoding)).isEqualTo(expected);
+    }
+
+    @Test
+    void select_givenCachedResult_shouldCompressOnceAndKeepHeadersPerCoding() throws Exception {
+        MockResult result = result(json(200));
+        compressor.precompress(result);
+
+        MockResult.Encoded gzip = compressor.select(result, "gzip");
+        MockResult.Encoded again = compressor.select(result, "gzip, deflate");
+        MockResult.Encoded deflate = compressor.select(result, "deflate");
+
+        assertThat(again).isSameAs(gzip);
+        assertThat(new GZIPInputStream(new ByteArrayInputStream(gzip.body())).readAllBytes()).isEqualTo(result.getBody());
+        assertThat(new InflaterInputStream(new ByteArrayInputStream(deflate.body())).readAllBytes()).isEqualTo(result.getBody());
+        assertThat(gzip.headers().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(gzip.headers().getContentLength()).isEqualTo(gzip.body().length);
+        assertThat(gzip.headers().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(gzip.headers().getETag()).isNotEqualTo(result.getEtag());
+        assertThat(ResponseCompressor.baseETag(gzip.headers().getETag())).isEqualTo(result.getEtag());
+        assertThat(result.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+        assertThat(compressor.stats()).containsEntry("compressions", 2L);
+    }
+
+    @Test
+    void select_givenSmallBodyOrNoAcceptEncoding_shouldSendBodyAsIs() {
+        MockResult small = result(json(2));
+        MockResult large = result(json(200));
+
+        assertThat(compressor.select(small, "gzip").body()).isSameAs(small.getBody());
+        MockResult.Encoded identity = compressor.select(large, null);
+        assertThat(identity.body()).isSameAs(large.getBody());
+        assertThat(identity.headers().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(identity.headers().getETag()).isEqualTo(large.getEtag());
+    }
+
+    private static MockResult result(byte[] body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Content-Type", "application/json");
+        headers.setETag(MockResult.etagOf(body));
+        headers.setContentLength(body.length);
+        return MockResult.builder().status(200).body(body).etag(MockResult.etagOf(body)).headers(headers).build();
+    }
+
+    private static byte[] json(int items) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"id\":").append(i).append(",\"name\":\"Pet ").append(i).append("\",\"status\":\"available\"}");
+        }
+        return sb.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,72 @@
+package ca.bazlur.smartmock.processor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SeedRewriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SeedRewriter rewriter = new SeedRewriter(objectMapper,
+        List.of(new IdSeedRule(), new TimestampSeedRule()));
+
+    @Test
+    void rewrite_givenListResponse_shouldSeedIdsInsideArrayInDocumentOrder() throws Exception {
+        String body = "[{\"id\":1,\"owner\":{\"ownerId\":7}},{\"id\":2,\"owner\":{\"ownerId\":8}}]";
+
+        JsonNode seeded = rewrite(body, "42");
+
+        Random random = SeedRewriter.random("42");
+        assertThat(seeded.get(0).get("id").intValue()).isEqualTo(Math.abs(random.nextInt(10000)));
+        assertThat(seeded.get(0).at("/owner/ownerId").intValue()).isEqualTo(Math.abs(random.nextInt(10000)));
+        assertThat(seeded.get(1).get("id").intValue()).isEqualTo(Math.abs(random.nextInt(10000)));
+        assertThat(seeded.get(1).at("/owner/ownerId").intValue()).isEqualTo(Math.abs(random.nextInt(10000)));
+    }
+
+    @Test
+    void rewrite_givenSameSeedTwice_shouldProduceSameIds() throws Exception {
+        String body = "{\"items\":[{\"id\":1},{\"id\":2}],\"total\":2}";
+
+        assertThat(rewrite(body, "abc")).isEqualTo(rewrite(body, "abc"));
+        assertThat(rewrite(body, "abc")).isNotEqualTo(rewrite(body, "xyz"));
+    }
+
+    @Test
+    void rewrite_givenArrayOfIds_shouldSeedEachElement() throws Exception {
+        JsonNode seeded = rewrite("{\"tagIds\":[5,6,[7]],\"tags\":[5,6]}", "1");
+
+        Random random = SeedRewriter.random("1");
+        assertThat(seeded.get("tagIds").get(0).intValue()).isEqualTo(Math.abs(random.nextInt(10000)));
+        assertThat(seeded.get("tagIds").get(1).intValue()).isEqualTo(Math.abs(random.nextInt(10000)));
+        assertThat(seeded.get("tagIds").get(2).get(0).intValue()).isEqualTo(Math.abs(random.nextInt(10000)));
+        assertThat(seeded.get("tags").toString()).isEqualTo("[5,6]");
+    }
+
+    @Test
+    void rewrite_givenValuesNoRuleOwns_shouldCopyThemExactly() throws Exception {
+        String body = "{\"id\":\"a-1\",\"name\":\"Zoë \\\"Z\\\"\",\"price\":1.10,\"big\":12345678901234567890,"
+            + "\"ok\":true,\"none\":null,\"nested\":{\"list\":[{},[]]}}";
+
+        byte[] seeded = rewriter.rewrite(body.getBytes(StandardCharsets.UTF_8), "7");
+
+        assertThat(new String(seeded, StandardCharsets.UTF_8)).isEqualTo(body);
+    }
+
+    @Test
+    void rewrite_givenTimestamp_shouldStayWithinDayBeforeEpochAndRepeatPerSeed() throws Exception {
+        long timestamp = rewrite("{\"createdTimestamp\":0}", "9").get("createdTimestamp").longValue();
+
+        assertThat(timestamp).isBetween(TimestampSeedRule.EPOCH_MILLIS - 86_400_000L, TimestampSeedRule.EPOCH_MILLIS);
+        assertThat(rewrite("{\"createdTimestamp\":0}", "9").get("createdTimestamp").longValue()).isEqualTo(timestamp);
+    }
+
+    private JsonNode rewrite(String body, String seed) throws Exception {
+        return objectMapper.readTree(rewriter.rewrite(body.getBytes(StandardCharsets.UTF_8), seed));
+    }
+}
@@ -0,0 +1,114 @@
+package ca.bazlur.smartmock.processor;
+
+import ca.bazlur.smartmock.llm.FieldSemantics;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SeedVariantsTest {
+
+    private static final String SCHEMA = """
+        {"type":"array","items":{"type":"object","properties":{
+          "id":{"type":"string","format":"uuid"},
+          "orderId":{"type":"string"},
+          "customerName":{"type":"string"},
+          "email":{"type":"string","format":"email"},
+          "price":{"type":"number","minimum":1},
+          "total":{"type":"integer"},
+          "createdAt":{"type":"string","format":"date-time"},
+          "birthDate":{"type":"string","format":"date"},
+          "status":{"type":"string","enum":["placed","approved","delivered"]},
+          "notes":{"type":"string"}}}}
+        """;
+
+    private static final String BODY = "[{\"id\":\"3f2b8c1e-9a4d-4e6f-8b2a-1c3d5e7f9a0b\",\"orderId\":\"ord-1042\","
+        + "\"customerName\":\"Jane Doe\",\"email\":\"jane.doe@example.com\",\"price\":19.99,\"total\":3,"
+        + "\"createdAt\":\"2024-05-01T10:15:30Z\",\"birthDate\":\"1990-02-14\",\"status\":\"placed\","
+        + "\"notes\":\"leave at door\"}]";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SeedRewriter rewriter = new SeedRewriter(objectMapper, List.of(new IdSeedRule()));
+
+    @Test
+    void rewrite_givenVariantsAndSameSeed_shouldProduceSameVariant() throws Exception {
+        SeedVariants variants = variants();
+
+        assertThat(rewrite(variants, "a")).isEqualTo(rewrite(variants, "a"));
+        assertThat(rewrite(variants, "a")).isNotEqualTo(rewrite(variants, "b"));
+    }
+
+    @Test
+    void rewrite_givenVariants_shouldPerturbValuesWithinTheirDomains() throws Exception {
+        SeedVariants variants = variants();
+        JsonNode base = objectMapper.readTree(BODY).get(0);
+        Set<String> statuses = new HashSet<>();
+
+        for (int seed = 0; seed < 200; seed++) {
+            JsonNode item = rewrite(variants, "seed-" + seed).get(0);
+
+            assertThat(item.get("id").asText()).matches("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+            assertThat(item.get("orderId").asText()).matches("ord-\\d{4}");
+            assertThat(item.get("customerName").asText()).matches("\\p{L}+ \\p{L}+");
+            assertThat(item.get("email").asText()).matches("[a-z]+\\.[a-z]+@example\\.com");
+            assertThat(item.get("price").decimalValue()).isBetween(new BigDecimal("9.99"), new BigDecimal("29.99"));
+            assertThat(item.get("price").decimalValue().scale()).isLessThanOrEqualTo(2);
+            assertThat(ChronoUnit.DAYS.between(OffsetDateTime.parse(base.get("createdAt").asText()),
+                OffsetDateTime.parse(item.get("createdAt").asText()))).isBetween(-31L, 31L);
+            assertThat(item.get("createdAt").asText()).endsWith("Z");
+            assertThat(ChronoUnit.DAYS.between(LocalDate.parse("1990-02-14"),
+                LocalDate.parse(item.get("birthDate").asText()))).isBetween(-30L, 30L);
+            assertThat(item.get("status").asText()).isIn("placed", "approved", "delivered");
+            statuses.add(item.get("status").asText());
+        }
+        assertThat(statuses).hasSize(3);
+    }
+
+    @Test
+    void rewrite_givenVariants_shouldKeepCountsAndFreeText() throws Exception {
+        JsonNode item = rewrite(variants(), "x").get(0);
+
+        assertThat(item.get("total").intValue()).isEqualTo(3);
+        assertThat(item.get("notes").asText()).isEqualTo("leave at door");
+    }
+
+    @Test
+    void of_givenNumericIdOutsideSchema_shouldFallBackToSeedRules() throws Exception {
+        SeedVariants variants = variants();
+
+        assertThat(variants.ruleFor("petId")).isNull();
+        byte[] seeded = rewriter.rewrite("{\"petId\":5}".getBytes(StandardCharsets.UTF_8), "1", variants);
+
+        assertThat(objectMapper.readTree(seeded).get("petId").intValue())
+            .isEqualTo(Math.abs(SeedRewriter.random("1").nextInt(10000)));
+    }
+
+    @Test
+    void redrawDigits_givenPrefixedBusinessIdOrUuid_shouldKeepPrefixAndRedrawUuidHexLetters() {
+        String account = SeedVariants.redrawDigits("ACC-2024-789456", new Random(7));
+        String uuid = SeedVariants.redrawDigits("3fa85f64-5717-4562-b3fc-2c963f66afa6", new Random(7));
+
+        assertThat(account).matches("ACC-\\d{4}-\\d{6}");
+        assertThat(uuid).matches("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+        assertThat(uuid.replaceAll("[0-9-]", "")).isNotEqualTo("fafbfcfafa");
+    }
+
+    private SeedVariants variants() throws Exception {
+        return SeedVariants.of(objectMapper.readTree(SCHEMA), new FieldSemantics(objectMapper));
+    }
+
+    private JsonNode rewrite(SeedVariants variants, String seed) throws Exception {
+        return objectMapper.readTree(rewriter.rewrite(BODY.getBytes(StandardCharsets.UTF_8), seed, variants));
+    }
+}
@@ -0,0 +1,143 @@
+package ca.bazlur.smartmock.service;
+
+import ca.bazlur.smartmock.entity.EntityCache;
+import ca.bazlur.smartmock.llm.ContextRegistry;
+import ca.bazlur.smartmock.llm.FieldSemantics;
+import ca.bazlur.smartmock.llm.LlmRunner;
+import ca.bazlur.smartmock.llm.blocks.GenericStructuredDataBlock;
+import ca.bazlur.smartmock.model.MockRequestBody;
+import ca.bazlur.smartmock.model.MockResult;
+import ca.bazlur.smartmock.model.Plan;
+import ca.bazlur.smartmock.openapi.OpenApiIndex;
+import ca.bazlur.smartmock.pagination.Paginator;
+import ca.bazlur.smartmock.planner.PlanCompiler;
+import ca.bazlur.smartmock.planner.ResponsePlanner;
+import ca.bazlur.smartmock.prefetch.Prefetcher;
+import ca.bazlur.smartmock.processor.IdSeedRule;
+import ca.bazlur.smartmock.processor.ResponseCompressor;
+import ca.bazlur.smartmock.processor.ResponsePostProcessor;
+import ca.bazlur.smartmock.processor.SeedRewriter;
+import ca.bazlur.smartmock.processor.TimestampSeedRule;
+import ca.bazlur.smartmock.state.ResourceStore;
+import ca.bazlur.smartmock.template.TemplateLearner;
+import ca.bazlur.smartmock.util.JsonSchemaConverter;
+import ca.bazlur.smartmock.validation.JsonValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.model.language.LanguageModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class MockServicePrefetchTest {
+
+    private static final String SPEC = """
+        openapi: 3.0.3
+        info:
+          title: Pets
+          version: 1.0.0
+        paths:
+          /pets:
+            get:
+              responses:
+                '200':
+                  description: ok
+                  content:
+                    application/json:
+                      schema:
+                        type: array
+                        items:
+                          $ref: '#/components/schemas/Pet'
+          /pets/{petId}:
+            get:
+              parameters:
+                - name: petId
+                  in: path
+                  required: true
+                  schema:
+                    type: integer
+              responses:
+                '200':
+                  description: ok
+                  content:
+                    application/json:
+                      schema:
+                        $ref: '#/components/schemas/Pet'
+        components:
+          schemas:
+            Pet:
+              type: object
+              required: [id]
+              properties:
+                id:
+                  type: integer
+        """;
+
+    @Mock
+    private SchemaManager schemaManager;
+    @Mock
+    private LanguageModel chatModel;
+    @Mock
+    private LlmRunner llmRunner;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OpenApiIndex index = new OpenApiIndex();
+    private final Prefetcher prefetcher = new Prefetcher(objectMapper, true, 0.3, 2, 1, 32);
+    private MockService service;
+
+    @BeforeEach
+    void setUp() {
+        index.loadSpec(SPEC);
+        FieldSemantics fieldSemantics = new FieldSemantics(objectMapper);
+        ResponsePlanner planner = new ResponsePlanner(new PlanCompiler(new JsonSchemaConverter(objectMapper),
+            new ContextRegistry(List.of(new GenericStructuredDataBlock()), null), fieldSemantics), objectMapper, false);
+        ResponsePostProcessor postProcessor = new ResponsePostProcessor(objectMapper,
+            new SeedRewriter(objectMapper, List.of(new IdSeedRule(), new TimestampSeedRule())), fieldSemantics, false);
+        JsonValidator validator = new JsonValidator(objectMapper);
+        service = new MockService(schemaManager, chatModel, planner, llmRunner, validator, postProcessor,
+            new TemplateLearner(false, 3, 100), new ResponseCompressor(true, 1024),
+            new Paginator(objectMapper, false, 50, 100, 1000, 20, 1), new ResourceStore(objectMapper, false, 1000),
+            new EntityCache(validator, false, 100), prefetcher);
+
+        lenient().when(schemaManager.getActiveIndex()).thenReturn(Optional.of(index));
+        lenient().when(llmRunner.generateResponse(any(), any(), any())).thenAnswer(inv ->
+            "/pets".equals(inv.<Plan>getArgument(1).getPath()) ? "[{\"id\":7},{\"id\":8}]" : "{\"id\":7}");
+    }
+
+    @Test
+    void generate_givenLearnedListThenDetailWalk_shouldPrefetchDetailIntoCacheForNextRequest() throws Exception {
+        for (String path : List.of("/pets", "/pets/1", "/pets", "/pets/2", "/pets")) {
+            service.generate(request(path), MockRequestBody.EMPTY);
+        }
+
+        verify(llmRunner, timeout(5000)).generateResponse(any(), any(), eq(LlmRunner.Priority.BACKGROUND));
+        for (int i = 0; i < 100 && !prefetcher.stats().get("prefetched").equals(1L); i++) {
+            Thread.sleep(50);
+        }
+        MockResult served = service.generate(request("/pets/7"), MockRequestBody.EMPTY);
+
+        assertThat(new String(served.getBody(), StandardCharsets.UTF_8)).isEqualTo("{\"id\":7}");
+        assertThat(prefetcher.stats()).containsEntry("prefetched", 1L).containsEntry("hits", 1L)
+            .containsEntry("failed", 0L);
+    }
+
+    private static MockHttpServletRequest request(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/mock" + path);
+        request.addHeader("Accept", "application/json");
+        return request;
+    }
+}
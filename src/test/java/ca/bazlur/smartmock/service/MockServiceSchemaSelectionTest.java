@@ -0,0 +1,229 @@
+package ca.bazlur.smartmock.service;
+
+import ca.bazlur.smartmock.entity.EntityCache;
+import ca.bazlur.smartmock.llm.LlmRunner;
+import ca.bazlur.smartmock.model.CompiledPlan;
+import ca.bazlur.smartmock.model.MockRequestBody;
+import ca.bazlur.smartmock.model.MockResult;
+import ca.bazlur.smartmock.model.Plan;
+import ca.bazlur.smartmock.openapi.Endpoint;
+import ca.bazlur.smartmock.openapi.OpenApiIndex;
+import ca.bazlur.smartmock.pagination.Paginator;
+import ca.bazlur.smartmock.planner.ResponsePlanner;
+import ca.bazlur.smartmock.prefetch.Prefetcher;
+import ca.bazlur.smartmock.processor.ResponseCompressor;
+import ca.bazlur.smartmock.processor.ResponsePostProcessor;
+import ca.bazlur.smartmock.state.ResourceStore;
+import ca.bazlur.smartmock.template.TemplateLearner;
+import ca.bazlur.smartmock.validation.JsonValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.model.language.LanguageModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MockServiceSchemaSelectionTest {
+
+    private static final String PETS = """
+        openapi: 3.0.3
+        info:
+          title: Pets
+          version: 1.0.0
+        paths:
+          /pets:
+            get:
+              responses:
+                '200':
+                  description: ok
+          /orders/{orderId}:
+            get:
+              responses:
+                '200':
+                  description: ok
+          /items:
+            get:
+              responses:
+                '200':
+                  description: ok
+        """;
+
+    private static final String ORDERS = """
+        openapi: 3.0.3
+        info:
+          title: Orders
+          version: 1.0.0
+        paths:
+          /orders:
+            get:
+              responses:
+                '200':
+                  description: ok
+          /items:
+            get:
+              responses:
+                '200':
+                  description: ok
+        """;
+
+    @Mock
+    private SchemaManager schemaManager;
+    @Mock
+    private LanguageModel chatModel;
+    @Mock
+    private ResponsePlanner planner;
+    @Mock
+    private LlmRunner llmRunner;
+    @Mock
+    private ResponsePostProcessor postProcessor;
+    @Mock
+    private TemplateLearner templates;
+    @Mock
+    private ResponseCompressor compressor;
+    @Mock
+    private Paginator paginator;
+    @Mock
+    private ResourceStore store;
+    @Mock
+    private EntityCache entities;
+    @Mock
+    private Prefetcher prefetcher;
+
+    private final OpenApiIndex pets = new OpenApiIndex();
+    private final OpenApiIndex orders = new OpenApiIndex();
+    private MockService service;
+
+    @BeforeEach
+    void setUp() {
+        pets.loadSpec(PETS);
+        orders.loadSpec(ORDERS);
+        service = new MockService(schemaManager, chatModel, planner, llmRunner, new JsonValidator(new ObjectMapper()),
+            postProcessor, templates, compressor, paginator, store, entities, prefetcher);
+
+        // the served body names the schema and endpoint template the request was planned for
+        lenient().when(planner.plan(any(), any(), any(), any(), any())).thenAnswer(inv -> Plan.builder()
+            .statusCode(200)
+            .compiled(CompiledPlan.builder().build())
+            .path((inv.getArgument(0) == pets ? "pets " : "orders ") + inv.<Endpoint>getArgument(1).getPath())
+            .method("GET")
+            .build());
+        lenient().when(llmRunner.generateResponse(any(), any(), any())).thenReturn("{\"id\":1}");
+        lenient().when(entities.compose(any(), any(), any(), any())).thenAnswer(inv -> inv.getArgument(3));
+        lenient().when(postProcessor.process(any(), any(), any())).thenAnswer(inv -> MockResult.builder()
+            .status(200)
+            .body(inv.<Plan>getArgument(1).getPath().getBytes(StandardCharsets.UTF_8))
+            .headers(new HttpHeaders())
+            .build());
+        lenient().when(postProcessor.seeded(any(), any())).thenAnswer(inv -> inv.getArgument(0));
+        lenient().when(schemaManager.getSchema("pets")).thenReturn(Optional.of(info("pets", pets)));
+        lenient().when(schemaManager.getSchema("orders")).thenReturn(Optional.of(info("orders", orders)));
+        lenient().when(schemaManager.getActiveIndex()).thenReturn(Optional.of(pets));
+    }
+
+    @Test
+    void generate_givenSchemaHeader_shouldServeFromThatSchema() {
+        MockHttpServletRequest request = request("/mock/orders");
+        request.addHeader(MockService.SCHEMA_HEADER, " orders ");
+
+        assertThat(body(service.generate(request, MockRequestBody.EMPTY))).isEqualTo("orders /orders");
+        verify(planner).plan(same(orders), any(), any(), any(), any());
+    }
+
+    @Test
+    void generate_givenUnknownSchemaHeader_shouldRespondNotFound() {
+        MockHttpServletRequest request = request("/mock/pets");
+        request.addHeader(MockService.SCHEMA_HEADER, "missing");
+
+        assertThatThrownBy(() -> service.generate(request, MockRequestBody.EMPTY))
+            .isInstanceOf(ResponseStatusException.class)
+            .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+            .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void generate_givenSchemaPrefixWithMatchingEndpoint_shouldServeRemainderFromThatSchema() {
+        assertThat(body(service.generate(request("/mock/orders/orders"), MockRequestBody.EMPTY)))
+            .isEqualTo("orders /orders");
+    }
+
+    @Test
+    void generate_givenSchemaPrefixWithoutMatchingEndpoint_shouldServeWholePathFromActiveSchema() {
+        // /42 is no endpoint of "orders", so /orders/42 is the active schema's /orders/{orderId}
+        assertThat(body(service.generate(request("/mock/orders/42"), MockRequestBody.EMPTY)))
+            .isEqualTo("pets /orders/{orderId}");
+    }
+
+    @Test
+    void generate_givenNoHeaderOrPrefix_shouldServeFromActiveSchema() {
+        assertThat(body(service.generate(request("/mock/pets"), MockRequestBody.EMPTY))).isEqualTo("pets /pets");
+    }
+
+    @Test
+    void generate_givenNoActiveSchema_shouldRespondServiceUnavailable() {
+        when(schemaManager.getActiveIndex()).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.generate(request("/mock/pets"), MockRequestBody.EMPTY))
+            .isInstanceOf(ResponseStatusException.class)
+            .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+            .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    void generate_givenSamePathOnTwoSchemas_shouldCacheEachInItsOwnIndex() {
+        MockResult fromPets = service.generate(request("/mock/pets/items"), MockRequestBody.EMPTY);
+        MockResult fromOrders = service.generate(request("/mock/orders/items"), MockRequestBody.EMPTY);
+        MockResult petsAgain = service.generate(request("/mock/pets/items"), MockRequestBody.EMPTY);
+
+        assertThat(body(fromPets)).isEqualTo("pets /items");
+        assertThat(body(fromOrders)).isEqualTo("orders /items");
+        assertThat(petsAgain).isSameAs(fromPets);
+        verify(llmRunner, times(2)).generateResponse(any(), any(), any());
+    }
+
+    @Test
+    void generate_givenRepairThatIsStillNotJson_shouldServeRepairedTextWithoutCaching() {
+        when(llmRunner.generateResponse(any(), any(), any())).thenReturn("Sure! Here is a pet");
+        when(llmRunner.repairResponse(any(), any(), any())).thenReturn("still no JSON");
+        when(postProcessor.unparsed(any(), any())).thenAnswer(inv -> MockResult.builder()
+            .status(200)
+            .body(inv.<String>getArgument(0).getBytes(StandardCharsets.UTF_8))
+            .headers(new HttpHeaders())
+            .build());
+
+        MockResult first = service.generate(request("/mock/pets"), MockRequestBody.EMPTY);
+        service.generate(request("/mock/pets"), MockRequestBody.EMPTY);
+
+        assertThat(body(first)).isEqualTo("still no JSON");
+        verify(llmRunner, times(2)).repairResponse(any(), any(), any());
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        return new MockHttpServletRequest("GET", uri);
+    }
+
+    private static SchemaManager.SchemaInfo info(String id, OpenApiIndex index) {
+        return new SchemaManager.SchemaInfo(id, id, null, index);
+    }
+
+    private static String body(MockResult result) {
+        return new String(result.getBody(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,69 @@
+package ca.bazlur.smartmock.service;
+
+import ca.bazlur.smartmock.llm.JsonUtils;
+import ca.bazlur.smartmock.model.MockRequestBody;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestBodyReaderTest {
+
+    private final RequestBodyReader reader = new RequestBodyReader(new ObjectMapper(), 4096);
+
+    @Test
+    void read_givenJsonBody_shouldDigestBytesAndSummarizeStructure() throws Exception {
+        String json = "{\"name\":\"Rex\",\"note\":\"" + "x".repeat(500) + "\",\"tags\":[1,2,3,4,5,6]}";
+
+        MockRequestBody body = read(json);
+        JsonNode summary = body.getSummary();
+
+        assertThat(body.getSize()).isEqualTo(json.length());
+        assertThat(body.getDigest()).isEqualTo(JsonUtils.sha256Hex(json));
+        assertThat(summary.get("name").asText()).isEqualTo("Rex");
+        assertThat(summary.get("note").asText()).hasSize(RequestBodyReader.MAX_STRING_CHARS + 1);
+        assertThat(summary.get("tags").get(MockRequestBody.LENGTH_KEY).asInt()).isEqualTo(6);
+        assertThat(summary.get("tags").get(MockRequestBody.SAMPLE_KEY)).hasSize(RequestBodyReader.MAX_ARRAY_SAMPLES);
+    }
+
+    @Test
+    void read_givenTopLevelArray_shouldKeepItsLength() throws Exception {
+        MockRequestBody body = read("[{\"id\":1},{\"id\":2},{\"id\":3},{\"id\":4}]");
+
+        assertThat(MockRequestBody.arrayLength(body.getSummary())).isEqualTo(4);
+    }
+
+    @Test
+    void read_givenNonJsonBody_shouldSummarizeAsText() throws Exception {
+        MockRequestBody body = read("name=Rex&kind=dog");
+
+        assertThat(body.getSummary().isTextual()).isTrue();
+        assertThat(body.getSummary().asText()).isEqualTo("name=Rex&kind=dog");
+        assertThat(body.getDigest()).isEqualTo(JsonUtils.sha256Hex("name=Rex&kind=dog"));
+    }
+
+    @Test
+    void read_givenEmptyBody_shouldReturnEmpty() throws Exception {
+        assertThat(read("")).isSameAs(MockRequestBody.EMPTY);
+    }
+
+    @Test
+    void read_givenStreamOverCap_shouldRejectWithPayloadTooLarge() {
+        // no Content-Length up front, as with chunked uploads; the cap is enforced while streaming
+        assertThatThrownBy(() -> read("[" + "1,".repeat(3000) + "1]"))
+            .isInstanceOf(ResponseStatusException.class)
+            .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+            .isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    private MockRequestBody read(String content) throws Exception {
+        return reader.read(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
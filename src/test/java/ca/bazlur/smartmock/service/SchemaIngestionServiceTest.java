@@ -0,0 +1,150 @@
+package ca.bazlur.smartmock.service;
+
+import ca.bazlur.smartmock.openapi.IndexingProgress;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SchemaIngestionServiceTest {
+
+    @Mock
+    private SchemaManager schemaManager;
+
+    private SchemaIngestionService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new SchemaIngestionService(schemaManager, 1, 1, 1024);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void submit_givenValidSpec_shouldReportProgressAndComplete() throws Exception {
+        when(schemaManager.addSchema(eq("spec"), eq("Pets"), any())).thenAnswer(inv -> {
+            IndexingProgress progress = inv.getArgument(2);
+            progress.phase("INDEXING", 4);
+            progress.advance();
+            progress.advance();
+            return "pets";
+        });
+
+        SchemaIngestionJob job = service.submit("spec", "Pets");
+        awaitFinished(job);
+
+        assertThat(job.getState()).isEqualTo(SchemaIngestionJob.State.COMPLETED);
+        assertThat(job.getSchemaId()).isEqualTo("pets");
+        assertThat(job.getPhase()).isEqualTo("INDEXING");
+        assertThat(job.getCompleted()).isEqualTo(2);
+        assertThat(job.getPercent()).isEqualTo(100);
+        assertThat(service.getJob(job.getJobId())).containsSame(job);
+    }
+
+    @Test
+    void submit_givenInvalidSpec_shouldMarkJobFailed() throws Exception {
+        when(schemaManager.addSchema(eq("broken"), any(), any()))
+            .thenThrow(new IllegalArgumentException("Invalid OpenAPI specification"));
+
+        SchemaIngestionJob job = service.submit("broken", null);
+        awaitFinished(job);
+
+        assertThat(job.getState()).isEqualTo(SchemaIngestionJob.State.FAILED);
+        assertThat(job.getError()).isEqualTo("Invalid OpenAPI specification");
+        assertThat(job.getSchemaId()).isNull();
+    }
+
+    @Test
+    void submit_givenOversizedSpec_shouldRejectWithoutQueueing() {
+        assertThatThrownBy(() -> service.submit("x".repeat(2048), null))
+            .isInstanceOf(ResponseStatusException.class)
+            .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+            .isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @Test
+    void readSpec_givenBodyWithinLimit_shouldDecodeIt() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/schemas");
+        request.setContent("openapi: 3.0.3 # café".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(service.readSpec(request)).isEqualTo("openapi: 3.0.3 # café");
+    }
+
+    @Test
+    void readSpec_givenOversizedBody_shouldRejectByContentLengthOrWhileReading() {
+        MockHttpServletRequest declared = new MockHttpServletRequest("POST", "/api/schemas");
+        declared.setContent(new byte[2048]);
+        MockHttpServletRequest chunked = new MockHttpServletRequest("PUT", "/api/schemas/pets") {
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        };
+        chunked.setContent(new byte[1025]);
+
+        for (MockHttpServletRequest request : new MockHttpServletRequest[]{declared, chunked}) {
+            assertThatThrownBy(() -> service.readSpec(request))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+    }
+
+    @Test
+    void utf8Length_givenMultiByteText_shouldMatchEncodedLength() {
+        String text = "aé€\uD83D\uDE00";
+
+        assertThat(SchemaIngestionService.utf8Length(text)).isEqualTo(text.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    void submit_givenFullQueue_shouldRejectWithServiceUnavailable() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(schemaManager.addSchema(any(), any(), any())).thenAnswer(inv -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "id";
+        });
+
+        try {
+            service.submit("a", null);
+            // only once the worker holds "a" is the queue's one slot free for "b"
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            service.submit("b", null); // queued
+            assertThatThrownBy(() -> service.submit("c", null))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static void awaitFinished(SchemaIngestionJob job) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (job.getFinishedAt() == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package ca.bazlur.smartmock.state;
+
+import ca.bazlur.smartmock.model.MockRequestBody;
+import ca.bazlur.smartmock.openapi.Endpoint;
+import ca.bazlur.smartmock.openapi.OpenApiIndex;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResourceStoreTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OpenApiIndex index = new OpenApiIndex();
+    private final ResourceStore store = new ResourceStore(objectMapper, true, 1000);
+
+    @Test
+    void route_givenEndpointTemplate_shouldAddressCollectionOrItem() {
+        assertThat(store.route(endpoint("/pets/{petId}"), "GET", "/pets/a%20b"))
+            .isEqualTo(new ResourceStore.Route("/pets", "petId", "a b"));
+        assertThat(store.route(endpoint("/owners/{ownerId}/pets"), "POST", "/owners/7/pets"))
+            .isEqualTo(new ResourceStore.Route("/owners/{ownerId}/pets", null, null));
+        assertThat(store.route(endpoint("/pets/{petId}"), "POST", "/pets/1")).isNull();
+        assertThat(store.route(endpoint("/pets"), "DELETE", "/pets")).isNull();
+    }
+
+    @Test
+    void serve_givenCreatedResource_shouldReadPatchAndDeleteItWithoutGeneration() throws Exception {
+        JsonNode created = store.record(index, collection(), "POST", request("POST", ""),
+            body("{\"name\":\"Rex\"}"), json("{\"id\":1,\"name\":\"Buddy\",\"status\":\"available\",\"tag\":\"dog\"}"));
+        assertThat(created.get("name").asText()).isEqualTo("Rex");
+
+        ResourceStore.Served read = serve(item("1"), "GET", MockRequestBody.EMPTY);
+        ResourceStore.Served patched = serve(item("1"), "PATCH", body("{\"status\":\"sold\",\"tag\":null}"));
+        ResourceStore.Served deleted = serve(item("1"), "DELETE", MockRequestBody.EMPTY);
+
+        assertThat(read.status()).isEqualTo(200);
+        assertThat(read.body()).isEqualTo(created);
+        assertThat(patched.body()).isEqualTo(json("{\"id\":1,\"name\":\"Rex\",\"status\":\"sold\"}"));
+        assertThat(deleted.status()).isEqualTo(204);
+        assertThat(serve(item("1"), "GET", MockRequestBody.EMPTY).status()).isEqualTo(404);
+        assertThat(serve(item("2"), "GET", MockRequestBody.EMPTY)).isNull();
+        assertThat(store.stats()).containsEntry("served", 4L).containsEntry("recorded", 1L);
+    }
+
+    @Test
+    void serve_givenGeneratedList_shouldFilterOnIndexedFieldsAndLeaveOtherQueriesToGeneration() throws Exception {
+        assertThat(serve(collection(), "GET", MockRequestBody.EMPTY)).isNull();
+        store.record(index, collection(), "GET", request("GET", ""), MockRequestBody.EMPTY, json("""
+            {"data":[{"id":1,"status":"sold"},{"id":2,"status":"available"},{"id":3,"status":"sold"}],"total":3}
+            """));
+        store.record(index, collection(), "POST", request("POST", ""), body("{\"status\":\"sold\"}"),
+            json("{\"id\":3,\"status\":\"available\"}"));
+
+        ResourceStore.Served sold = store.serve(index, collection(), "GET", request("GET", "status=sold"), MockRequestBody.EMPTY);
+
+        assertThat(sold.body()).isEqualTo(json("""
+            {"total":3,"data":[{"id":1,"status":"sold"},{"id":3,"status":"sold"},{"id":4,"status":"sold"}]}
+            """));
+        assertThat(store.serve(index, collection(), "GET", request("GET", "search=rex"), MockRequestBody.EMPTY)).isNull();
+        assertThat(store.serve(index, collection(), "GET", request("GET", "page=2"), MockRequestBody.EMPTY)).isNull();
+        assertThat(serve(item("4"), "GET", MockRequestBody.EMPTY).body().get("status").asText()).isEqualTo("sold");
+        // only fields the stored items have are indexed; paging and search parameters are not
+        assertThat(store.stats()).containsEntry("indexedFields", 1L);
+    }
+
+    @Test
+    void record_givenMoreIdsThanTheBound_shouldEvictLeastRecentlyWritten() throws Exception {
+        ResourceStore small = new ResourceStore(objectMapper, true, 2);
+        for (int id = 1; id <= 3; id++) {
+            small.record(index, item(Integer.toString(id)), "GET", request("GET", ""), MockRequestBody.EMPTY,
+                json("{\"id\":0,\"name\":\"Pet\"}"));
+        }
+
+        assertThat(small.serve(index, item("1"), "GET", request("GET", ""), MockRequestBody.EMPTY)).isNull();
+        assertThat(small.serve(index, item("3"), "GET", request("GET", ""), MockRequestBody.EMPTY).body().get("id").intValue())
+            .isEqualTo(3);
+        assertThat(small.stats()).containsEntry("resources", 2L).containsEntry("evicted", 1L);
+    }
+
+    @Test
+    void complete_givenSummaryMarkers_shouldRejectCutValues() throws Exception {
+        assertThat(ResourceStore.complete(json("{\"tags\":[\"a\"],\"n\":1}"))).isTrue();
+        assertThat(ResourceStore.complete(json("{\"tags\":{\"$length\":9,\"$sample\":[]}}"))).isFalse();
+        assertThat(ResourceStore.complete(json("\"" + "x".repeat(200) + "…\""))).isFalse();
+    }
+
+    private ResourceStore.Served serve(ResourceStore.Route route, String method, MockRequestBody body) {
+        return store.serve(index, route, method, request(method, ""), body);
+    }
+
+    private static ResourceStore.Route collection() {
+        return new ResourceStore.Route("/pets", null, null);
+    }
+
+    private static ResourceStore.Route item(String id) {
+        return new ResourceStore.Route("/pets", "petId", id);
+    }
+
+    private static Endpoint endpoint(String path) {
+        return Endpoint.builder().path(path).method("GET").build();
+    }
+
+    private static MockHttpServletRequest request(String method, String query) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/mock/pets");
+        if (!query.isEmpty()) {
+            request.setQueryString(query);
+            String[] nameValue = query.split("=", 2);
+            request.addParameter(nameValue[0], nameValue[1]);
+        }
+        return request;
+    }
+
+    private MockRequestBody body(String json) throws Exception {
+        return new MockRequestBody(json.length(), "digest", objectMapper.readTree(json));
+    }
+
+    private JsonNode json(String json) throws Exception {
+        return objectMapper.readTree(json);
+    }
+}
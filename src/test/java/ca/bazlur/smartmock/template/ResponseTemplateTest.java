@@ -0,0 +1,85 @@
+package ca.bazlur.smartmock.template;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseTemplateTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void generate_givenLearnedSamples_shouldKeepSkeletonAndValueDomains() throws Exception {
+        ResponseTemplate template = ResponseTemplate.learn(List.of(
+            pet(1, "Rex", "available", 12.50, "2024-05-01T10:00:00Z", "ord-1001"),
+            pet(7, "Milo", "sold", 20.00, "2024-05-03T10:00:00Z", "ord-1002"),
+            pet(4, "Luna", "available", 15.25, "2024-05-02T10:00:00Z", "ord-1003")));
+        Random random = new Random(1);
+        Set<String> names = new HashSet<>();
+
+        for (int i = 0; i < 100; i++) {
+            JsonNode pet = template.generate(random);
+
+            assertThat(pet.properties()).extracting(e -> e.getKey())
+                .containsExactly("id", "name", "status", "price", "createdAt", "orderRef", "tags");
+            assertThat(pet.get("id").longValue()).isBetween(1L, 7L);
+            assertThat(pet.get("name").asText()).isIn("Rex", "Milo", "Luna");
+            assertThat(pet.get("status").asText()).isIn("available", "sold");
+            assertThat(pet.get("price").doubleValue()).isBetween(12.50, 20.00);
+            assertThat(OffsetDateTime.parse(pet.get("createdAt").asText()))
+                .isBetween(OffsetDateTime.parse("2024-05-01T10:00:00Z"), OffsetDateTime.parse("2024-05-03T10:00:00Z"));
+            assertThat(pet.get("orderRef").asText()).matches("ord-\\d{4}");
+            assertThat(pet.get("tags").size()).isIn(1, 2);
+            names.add(pet.get("name").asText());
+        }
+        assertThat(names).hasSize(3);
+    }
+
+    @Test
+    void generate_givenFieldMissingFromSomeSamples_shouldIncludeItAtObservedRate() throws Exception {
+        List<JsonNode> samples = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            samples.add(objectMapper.readTree(i == 0 ? "{\"a\":1,\"nick\":\"x\"}" : "{\"a\":1}"));
+        }
+        ResponseTemplate template = ResponseTemplate.learn(samples);
+        Random random = new Random(3);
+
+        int withNick = 0;
+        for (int i = 0; i < 4000; i++) {
+            if (template.generate(random).has("nick")) withNick++;
+        }
+
+        assertThat(withNick).isBetween(800, 1200);
+    }
+
+    @Test
+    void generate_givenListSamples_shouldDrawLengthsAndElementsFromAllSamples() throws Exception {
+        ResponseTemplate template = ResponseTemplate.learn(List.of(
+            objectMapper.readTree("[{\"id\":\"a1\"},{\"id\":\"b2\"}]"),
+            objectMapper.readTree("[{\"id\":\"c3\"},{\"id\":\"d4\"},{\"id\":\"e5\"}]")));
+        Random random = new Random(5);
+
+        for (int i = 0; i < 50; i++) {
+            JsonNode list = template.generate(random);
+            assertThat(list.isArray()).isTrue();
+            assertThat(list.size()).isIn(2, 3);
+            list.forEach(item -> assertThat(item.get("id").asText()).matches("[a-e]\\d"));
+        }
+    }
+
+    private JsonNode pet(int id, String name, String status, double price, String createdAt, String orderRef)
+        throws Exception {
+        return objectMapper.readTree("""
+            {"id":%d,"name":"%s","status":"%s","price":%s,"createdAt":"%s","orderRef":"%s","tags":%s}
+            """.formatted(id, name, status, price, createdAt, orderRef, id == 7 ? "[\"a\",\"b\"]" : "[\"a\"]"));
+    }
+}
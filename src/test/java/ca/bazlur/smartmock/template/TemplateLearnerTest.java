@@ -0,0 +1,84 @@
+package ca.bazlur.smartmock.template;
+
+import ca.bazlur.smartmock.model.CompiledPlan;
+import ca.bazlur.smartmock.model.Plan;
+import ca.bazlur.smartmock.model.RequestView;
+import ca.bazlur.smartmock.model.Scenario;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TemplateLearnerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CompiledPlan compiled = CompiledPlan.builder().responseKey("200").build();
+
+    @Test
+    void generate_givenFewerSamplesThanRequired_shouldLeaveRequestToModel() throws Exception {
+        TemplateLearner learner = new TemplateLearner(true, 2, 0);
+
+        learner.learn(plan("/mock/pets/1", null), pet(1));
+
+        assertThat(learner.generate(plan("/mock/pets/2", null))).isNull();
+    }
+
+    @Test
+    void generate_givenLearnedTemplate_shouldCarryPathParameterIntoBody() throws Exception {
+        TemplateLearner learner = new TemplateLearner(true, 2, 0);
+        learner.learn(plan("/mock/pets/1", null), pet(1));
+        learner.learn(plan("/mock/pets/2", null), pet(2));
+
+        JsonNode body = learner.generate(plan("/mock/pets/42", null));
+
+        assertThat(body.get("id").longValue()).isEqualTo(42);
+        assertThat(body.get("name").asText()).isIn("Rex", "Milo");
+    }
+
+    @Test
+    void generate_givenRefreshInterval_shouldSendEveryNthRequestToModel() throws Exception {
+        TemplateLearner learner = new TemplateLearner(true, 1, 2);
+        learner.learn(plan("/mock/pets/1", null), pet(1));
+
+        assertThat(learner.generate(plan("/mock/pets/1", null))).isNotNull();
+        assertThat(learner.generate(plan("/mock/pets/1", null))).isNotNull();
+        assertThat(learner.generate(plan("/mock/pets/1", null))).isNull();
+        assertThat(learner.generate(plan("/mock/pets/1", null))).isNotNull();
+    }
+
+    @Test
+    void generate_givenQueryOrRejectedTemplate_shouldLeaveRequestToModel() throws Exception {
+        TemplateLearner learner = new TemplateLearner(true, 1, 0);
+        learner.learn(plan("/mock/pets/1", null), pet(1));
+
+        assertThat(learner.generate(plan("/mock/pets/1", Map.of("expand", "owner")))).isNull();
+
+        learner.reject(plan("/mock/pets/1", null), "invalid");
+        assertThat(learner.generate(plan("/mock/pets/1", null))).isNull();
+    }
+
+    @Test
+    void pathParameters_givenPrefixedRequestPath_shouldAlignFromTheEnd() {
+        assertThat(TemplateLearner.pathParameters("/owners/{ownerId}/pets/{petId}", "/mock/petstore/owners/7/pets/9"))
+            .containsExactly(Map.entry("petId", "9"), Map.entry("ownerId", "7"));
+    }
+
+    private Plan plan(String path, Map<String, Object> query) {
+        Map<String, Object> fields = query == null ? Map.of("path", path) : Map.of("path", path, "query", query);
+        return Plan.builder()
+            .scenario(Scenario.HAPPY)
+            .statusCode(200)
+            .compiled(compiled)
+            .request(new RequestView(fields, (JsonNode) null, RequestView.canonicalWriter(objectMapper)))
+            .path("/pets/{petId}")
+            .method("GET")
+            .build();
+    }
+
+    private JsonNode pet(int id) throws Exception {
+        return objectMapper.readTree("{\"id\":" + id + ",\"name\":\"" + (id == 1 ? "Rex" : "Milo") + "\"}");
+    }
+}
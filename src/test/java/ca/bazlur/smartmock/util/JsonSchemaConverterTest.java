@@ -257,4 +257,44 @@ class JsonSchemaConverterTest {
             .contains("\"id\"")
             .contains("\"name\"");
     }
-}
\ No newline at end of file
+
+    @Test
+    void convertToMinifiedJsonSchema_givenAllOfOnlyComposedSchema_shouldOmitEmptyCompositionKeywords() {
+        var composedSchema = new ComposedSchema();
+        composedSchema.addAllOfItem(new ObjectSchema().addProperty("id", new IntegerSchema()));
+
+        String minified = converter.convertToMinifiedJsonSchema(composedSchema);
+
+        assertThat(minified)
+            .contains("\"allOf\":[{\"type\":\"object\",\"properties\":{\"id\":{")
+            .doesNotContain("anyOf")
+            .doesNotContain("oneOf");
+    }
+
+    @Test
+    void convertToMinifiedJsonSchema_givenDocumentedSchema_shouldDropDocKeywordsButKeepProperties() {
+        var schema = new ObjectSchema();
+        schema.setDescription("A product");
+        schema.addProperty("description", new StringSchema().description("Free text").maxLength(200));
+        schema.addProperty("price", new NumberSchema().minimum(new BigDecimal("0")));
+
+        String minified = converter.convertToMinifiedJsonSchema(schema);
+
+        assertThat(minified)
+            .doesNotContain("\n")
+            .doesNotContain("A product")
+            .doesNotContain("Free text")
+            .contains("\"properties\":{\"description\":{\"type\":\"string\",\"maxLength\":200}")
+            .contains("\"price\":{\"type\":\"number\",\"minimum\":0}");
+    }
+
+    @Test
+    void convertToJsonSchema_givenSameSchemaInstance_shouldReturnMemoizedResult() {
+        var schema = new ObjectSchema();
+        schema.addProperty("id", new StringSchema());
+
+        assertThat(converter.convertToJsonSchema(schema)).isSameAs(converter.convertToJsonSchema(schema));
+        assertThat(converter.convertToMinifiedJsonSchema(schema))
+            .isSameAs(converter.convertToMinifiedJsonSchema(schema));
+    }
+}
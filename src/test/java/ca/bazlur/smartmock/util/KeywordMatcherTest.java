@@ -0,0 +1,69 @@
+package ca.bazlur.smartmock.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeywordMatcherTest {
+
+    private static final int DATE = 0;
+    private static final int STATE = 1;
+    private static final int ID = 2;
+
+    private final KeywordMatcher matcher = KeywordMatcher.builder()
+        .add(DATE, "date", "At", "at")
+        .add(STATE, "state", "tat")
+        .add(ID, "id", "Id")
+        .build();
+
+    @Test
+    void scan_givenOverlappingKeywords_shouldReportEveryLabel() {
+        KeywordMatcher.Scan scan = matcher.scan("statusUpdatedAt");
+
+        assertThat(scan.has(DATE)).isTrue();
+        assertThat(scan.has(STATE)).isTrue();
+        assertThat(scan.has(ID)).isFalse();
+        assertThat(scan.endsWith(DATE)).isTrue();
+        assertThat(scan.endsWith(STATE)).isFalse();
+    }
+
+    @Test
+    void scan_givenKeywordOnlyInsideText_shouldNotReportItAsSuffix() {
+        KeywordMatcher.Scan scan = matcher.scan("idempotencyKey");
+
+        assertThat(scan.has(ID)).isTrue();
+        assertThat(scan.endsWith(ID)).isFalse();
+        assertThat(matcher.scan("customerId").endsWith(ID)).isTrue();
+    }
+
+    @Test
+    void scan_givenIgnoreCase_shouldMatchAnyCasingIncludingNonAscii() {
+        KeywordMatcher folded = KeywordMatcher.builder()
+            .ignoreCase()
+            .add(0, "customer", "número")
+            .build();
+
+        assertThat(folded.scan("VIPCustomerName").has(0)).isTrue();
+        assertThat(folded.scan("NÚMERO").has(0)).isTrue();
+        assertThat(matcher.scan("DATE").has(DATE)).isFalse();
+    }
+
+    @Test
+    void matchedKeywords_givenOverlappingKeywords_shouldReportEachByInsertionIndex() {
+        KeywordMatcher index = KeywordMatcher.builder()
+            .ignoreCase()
+            .add(0, "account", "count", "balance", "user")
+            .build();
+
+        assertThat(index.matchedKeywords("/Accounts/{id}/balance").stream().toArray())
+            .containsExactly(0, 1, 2);
+        assertThat(index.matchedKeywords("/pets").isEmpty()).isTrue();
+    }
+
+    @Test
+    void add_givenLabelOutOfRange_shouldThrow() {
+        assertThatThrownBy(() -> KeywordMatcher.builder().add(64, "x"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,122 @@
+package ca.bazlur.smartmock.validation;
+
+import ca.bazlur.smartmock.llm.JsonUtils;
+import ca.bazlur.smartmock.model.CompiledPlan;
+import ca.bazlur.smartmock.util.JsonSchemaConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.oas.models.media.ComposedSchema;
+import io.swagger.v3.oas.models.media.IntegerSchema;
+import io.swagger.v3.oas.models.media.ObjectSchema;
+import io.swagger.v3.oas.models.media.StringSchema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JsonValidatorTest {
+
+    private static final String PET_SCHEMA = """
+        {
+          "$schema" : "http://json-schema.org/draft-07/schema#",
+          "type" : "object",
+          "properties" : {
+            "id" : { "type" : "integer" },
+            "name" : { "type" : "string" }
+          },
+          "required" : [ "id", "name" ]
+        }
+        """;
+
+    private JsonValidator validator;
+    private CompiledPlan plan;
+
+    @BeforeEach
+    void setUp() {
+        validator = new JsonValidator(new ObjectMapper());
+        plan = planFor(PET_SCHEMA);
+    }
+
+    @Test
+    void validate_givenConformingResponse_shouldReturnItUnchanged() {
+        String json = "{\"id\":1,\"name\":\"Rex\"}";
+
+        assertThat(validator.validate(json, plan)).isEqualTo(json);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "{\"id\":\"one\",\"name\":\"Rex\"}",
+        "{\"name\":\"Rex\"}",
+        "[{\"id\":1,\"name\":\"Rex\"}]"
+    })
+    void validate_givenNonConformingResponse_shouldThrow(String json) {
+        assertThatThrownBy(() -> validator.validate(json, plan))
+            .isInstanceOf(JsonValidator.ValidationException.class)
+            .hasMessageContaining("$");
+    }
+
+    @Test
+    void validate_givenMalformedJson_shouldThrow() {
+        assertThatThrownBy(() -> validator.validate("{\"id\":", plan))
+            .isInstanceOf(JsonValidator.ValidationException.class)
+            .hasMessageStartingWith("Invalid JSON");
+    }
+
+    @Test
+    void validate_givenPlanWithoutSchema_shouldOnlyCheckWellFormedness() {
+        CompiledPlan noSchema = CompiledPlan.builder().build();
+
+        assertThat(validator.validate("[1, \"two\"]", noSchema)).isEqualTo("[1, \"two\"]");
+    }
+
+    @Test
+    void validate_givenUncompilableSchema_shouldFallBackToWellFormedness() {
+        CompiledPlan external = planFor("{\"$ref\":\"https://example.invalid/pet.json\"}");
+
+        assertThat(validator.validate("{\"anything\":true}", external)).isEqualTo("{\"anything\":true}");
+    }
+
+    @Test
+    void validate_givenAllOfComposedResponseSchema_shouldAcceptConformingResponse() {
+        // petstore's Pet = allOf[NewPet, {id}]
+        var newPet = new ObjectSchema().addProperty("name", new StringSchema());
+        newPet.setRequired(List.of("name"));
+        var withId = new ObjectSchema().addProperty("id", new IntegerSchema());
+        withId.setRequired(List.of("id"));
+        var pet = new ComposedSchema();
+        pet.addAllOfItem(newPet);
+        pet.addAllOfItem(withId);
+        CompiledPlan composed = planFor(new JsonSchemaConverter(new ObjectMapper()).convertToMinifiedJsonSchema(pet));
+
+        assertThat(validator.validate("{\"id\":1,\"name\":\"Rex\"}", composed)).isEqualTo("{\"id\":1,\"name\":\"Rex\"}");
+        assertThatThrownBy(() -> validator.validate("{\"name\":\"Rex\"}", composed))
+            .isInstanceOf(JsonValidator.ValidationException.class);
+    }
+
+    @Test
+    void parse_givenJsonWrappedInProse_shouldExtractEmbeddedDocument() {
+        var node = validator.parse("Here is the pet: {\"id\":1,\"name\":\"Rex\"} Let me know!");
+
+        assertThat(node.get("id").asInt()).isEqualTo(1);
+        validator.validate(node, plan);
+    }
+
+    @Test
+    void parse_givenEmptyOutput_shouldThrow() {
+        assertThatThrownBy(() -> validator.parse(""))
+            .isInstanceOf(JsonValidator.ValidationException.class)
+            .hasMessageStartingWith("Invalid JSON");
+    }
+
+    private static CompiledPlan planFor(String schema) {
+        return CompiledPlan.builder()
+            .jsonSchema(schema)
+            .schemaDigest(JsonUtils.sha256Hex(schema))
+            .build();
+    }
+}